@@ -0,0 +1,270 @@
+package org.mongojack;
+
+import org.bson.BsonValue;
+import org.bson.RawBsonDocument;
+
+import java.io.Closeable;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * Loads documents by id, coalescing the ids requested concurrently into one {@code $in} query, built with
+ * {@link JacksonMongoCollection#createIdInQuery(java.util.List)}, in place of a {@code findOneById} each.
+ * <p>
+ * An id requested while no batch is pending starts one, which is sent once it holds the maximum batch size of distinct
+ * ids, or once the window has elapsed since it started, whichever comes first.  An id requested again while it is
+ * pending joins the request already made, but each caller gets an object of its own, decoded from the document found.
+ * Documents that aren't found complete with null.  If the query fails, all the ids of its batch complete with the
+ * failure.
+ * <p>
+ * Callers never hold a lock while they wait, nor while the query runs, so they can be platform or virtual threads.
+ * The queries run on the executor the loader is given, which may be one that starts a virtual thread per task, or on
+ * daemon threads shared by all the loaders otherwise.  The windows of all the loaders are timed by a single shared
+ * daemon thread.
+ * <p>
+ * The window adds up to its length to the latency of every load, in exchange for fewer round trips: a millisecond or
+ * two is usually enough to gather the requests of concurrent callers.
+ *
+ * @param <T> the type of the documents
+ * @since 5.1.1
+ */
+public class BatchingIdLoader<T> implements Closeable {
+
+    private final JacksonMongoCollection<T> collection;
+    private final int maxBatchSize;
+    private final long windowNanos;
+    private final Executor executor;
+    private final ReentrantLock lock = new ReentrantLock();
+    /**
+     * The callers waiting for each id of the pending batch, by id as written to the database, guarded by lock.
+     */
+    private Map<BsonValue, List<CompletableFuture<T>>> batch = new LinkedHashMap<>();
+    /**
+     * Sends the pending batch when its window has elapsed, guarded by lock.
+     */
+    private ScheduledFuture<?> scheduledDispatch;
+    private boolean closed;
+
+    /**
+     * Creates a loader that runs its queries on daemon threads shared by all the loaders.
+     *
+     * @param collection   the collection to load from
+     * @param maxBatchSize the maximum number of ids in a query
+     * @param window       how long a batch waits for more ids before it is sent
+     */
+    public BatchingIdLoader(final JacksonMongoCollection<T> collection, final int maxBatchSize, final Duration window) {
+        this(collection, maxBatchSize, window, null);
+    }
+
+    /**
+     * @param collection   the collection to load from
+     * @param maxBatchSize the maximum number of ids in a query
+     * @param window       how long a batch waits for more ids before it is sent
+     * @param executor     the executor to run the queries on, or null to run them on daemon threads shared by all the
+     *                     loaders.  It isn't shut down when the loader is closed.
+     */
+    public BatchingIdLoader(
+        final JacksonMongoCollection<T> collection,
+        final int maxBatchSize,
+        final Duration window,
+        final Executor executor
+    ) {
+        if (maxBatchSize < 1) {
+            throw new IllegalArgumentException("A batch must hold at least one id, got " + maxBatchSize);
+        }
+        if (window.isNegative()) {
+            throw new IllegalArgumentException("The window can't be negative, got " + window);
+        }
+        this.collection = collection;
+        this.maxBatchSize = maxBatchSize;
+        this.windowNanos = window.toNanos();
+        this.executor = executor == null ? SharedThreads.QUERIES : executor;
+    }
+
+    /**
+     * Requests a document, to be found along with the others requested in the same batch.
+     *
+     * @param id the id of the document, in the form {@link JacksonMongoCollection#findOneById(Object)} takes
+     * @return the document once it is found, or null if it doesn't exist
+     * @throws IllegalArgumentException if the id can't be converted to the form it's written to the database in
+     * @throws IllegalStateException    if the loader is closed
+     */
+    public CompletableFuture<T> load(final Object id) {
+        final BsonValue _id = collection.getIdValue(id);
+        if (_id == null) {
+            throw new IllegalArgumentException("Can't tell how the id " + id + " is written to the database");
+        }
+        // each caller has a future of its own, so callers can't complete or cancel the future the others wait for
+        final CompletableFuture<T> future = new CompletableFuture<>();
+        Map<BsonValue, List<CompletableFuture<T>>> full = null;
+        lock.lock();
+        try {
+            if (closed) {
+                throw new IllegalStateException("The loader is closed");
+            }
+            final List<CompletableFuture<T>> pending = batch.get(_id);
+            if (pending != null) {
+                pending.add(future);
+                return future;
+            }
+            final List<CompletableFuture<T>> waiting = new ArrayList<>(1);
+            waiting.add(future);
+            batch.put(_id, waiting);
+            if (batch.size() >= maxBatchSize) {
+                full = takeBatch();
+            } else if (batch.size() == 1) {
+                final Map<BsonValue, List<CompletableFuture<T>>> started = batch;
+                scheduledDispatch =
+                    SharedThreads.WINDOWS.schedule(() -> dispatchWindow(started), windowNanos, TimeUnit.NANOSECONDS);
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (full != null) {
+            dispatch(full);
+        }
+        return future;
+    }
+
+    /**
+     * Loads a document and waits for it.
+     *
+     * @param id the id of the document, in the form {@link JacksonMongoCollection#findOneById(Object)} takes
+     * @return the document, or null if it doesn't exist
+     * @throws IllegalArgumentException if the id can't be converted to the form it's written to the database in
+     * @throws IllegalStateException    if the loader is closed
+     */
+    public T get(final Object id) {
+        try {
+            return load(id).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Sends the pending batch, if any, and stops taking requests.  Queries already sent still complete.
+     */
+    @Override
+    public void close() {
+        final Map<BsonValue, List<CompletableFuture<T>>> remaining;
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            remaining = takeBatch();
+        } finally {
+            lock.unlock();
+        }
+        if (!remaining.isEmpty()) {
+            dispatch(remaining);
+        }
+    }
+
+    /**
+     * Takes the pending batch, must hold lock.
+     */
+    private Map<BsonValue, List<CompletableFuture<T>>> takeBatch() {
+        final Map<BsonValue, List<CompletableFuture<T>>> taken = batch;
+        batch = new LinkedHashMap<>();
+        if (scheduledDispatch != null) {
+            scheduledDispatch.cancel(false);
+            scheduledDispatch = null;
+        }
+        return taken;
+    }
+
+    private void dispatchWindow(final Map<BsonValue, List<CompletableFuture<T>>> started) {
+        lock.lock();
+        try {
+            // it may have been sent full, or on close, in the meantime
+            if (batch != started) {
+                return;
+            }
+            scheduledDispatch = null;
+            batch = new LinkedHashMap<>();
+        } finally {
+            lock.unlock();
+        }
+        dispatch(started);
+    }
+
+    private void dispatch(final Map<BsonValue, List<CompletableFuture<T>>> ids) {
+        try {
+            executor.execute(() -> find(ids));
+        } catch (RejectedExecutionException e) {
+            ids.values().forEach(waiting -> waiting.forEach(future -> future.completeExceptionally(e)));
+        }
+    }
+
+    private void find(final Map<BsonValue, List<CompletableFuture<T>>> ids) {
+        final Map<BsonValue, RawBsonDocument> found;
+        final Function<RawBsonDocument, T> decoder;
+        try {
+            found = collection.findAllById(ids.keySet());
+            decoder = collection.getDocumentDecoder();
+        } catch (Throwable e) {
+            ids.values().forEach(waiting -> waiting.forEach(future -> future.completeExceptionally(e)));
+            return;
+        }
+        ids.forEach((id, waiting) -> {
+            final RawBsonDocument document = found.get(id);
+            for (CompletableFuture<T> future : waiting) {
+                if (document == null) {
+                    future.complete(null);
+                    continue;
+                }
+                try {
+                    future.complete(decoder.apply(document));
+                } catch (Throwable e) {
+                    future.completeExceptionally(e);
+                }
+            }
+        });
+    }
+
+    private static ThreadFactory daemonThreads(final String name) {
+        final AtomicInteger count = new AtomicInteger();
+        return runnable -> {
+            final Thread thread = new Thread(runnable, name + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * The threads shared by all the loaders, only started once a loader is created.
+     */
+    private static final class SharedThreads {
+        private static final ExecutorService QUERIES =
+            Executors.newCachedThreadPool(daemonThreads("mongojack-id-loader-query"));
+        private static final ScheduledThreadPoolExecutor WINDOWS =
+            new ScheduledThreadPoolExecutor(1, daemonThreads("mongojack-id-loader-window"));
+
+        static {
+            // windows are cancelled whenever a batch fills up before its window elapses
+            WINDOWS.setRemoveOnCancelPolicy(true);
+        }
+    }
+}
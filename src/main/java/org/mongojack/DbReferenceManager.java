@@ -1,6 +1,7 @@
 package org.mongojack;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mongodb.client.FindIterable;
 import com.mongodb.client.MongoClient;
 import com.mongodb.client.MongoCollection;
 import org.bson.UuidRepresentation;
@@ -103,12 +104,13 @@ public class DbReferenceManager {
      * @param ref    The reference
      * @param <R>    The type the  ref points to.
      * @param <RK>   The type of ID the ref points to
-     * @param fields A Bson representing the projection to be used.
+     * @param fields A Bson representing the projection to be used, or null for the whole document, or the projection
+     *               derived by the collection if it has projection pushdown.
      * @return A ref, or null if the underlying value is nto found
      */
     public <R, RK> R fetch(DBRef<R, RK> ref, Bson fields) {
         final JacksonMongoCollection<R> collection = getReferenceCollection(ref.getCollectionKey());
-        return collection.find(collection.createIdQuery(ref.getId())).projection(fields).first();
+        return withProjection(collection.find(collection.createIdQuery(ref.getId())), fields).first();
     }
 
     /**
@@ -131,7 +133,8 @@ public class DbReferenceManager {
      * a time.
      *
      * @param refs   the refs to fetch
-     * @param fields The fields to retrieve for each of the documents
+     * @param fields The fields to retrieve for each of the documents, or null for the whole documents, or the
+     *               projection derived by the collection if it has projection pushdown
      * @param <R>    The type of the reference
      * @param <RK>   The identifier type
      * @return The refs of referenced objects
@@ -147,12 +150,19 @@ public class DbReferenceManager {
         return (List<R>) groupedIdentifiers.entrySet().stream()
             .map((entry) -> {
                 final JacksonMongoCollection<?> collection = getReferenceCollection(entry.getKey());
-                return collection.find(collection.createIdInQuery(entry.getValue())).projection(fields).into(new ArrayList<>());
+                return withProjection(collection.find(collection.createIdInQuery(entry.getValue())), fields).into(new ArrayList<>());
             })
             .flatMap(List::stream)
             .collect(Collectors.toList());
     }
 
+    /**
+     * Applies the projection given for a fetch, if any, leaving the projection the collection derives otherwise.
+     */
+    private static <T> FindIterable<T> withProjection(final FindIterable<T> iterable, final Bson fields) {
+        return fields == null ? iterable : iterable.projection(fields);
+    }
+
     /**
      * Register a collection so that it will be used (as opposed to an internally built one) when retrieving references.
      *
@@ -0,0 +1,46 @@
+package org.mongojack;
+
+import org.bson.BsonValue;
+import org.bson.RawBsonDocument;
+
+/**
+ * A document encoded once, with its id assigned, by {@link JacksonMongoCollection#encode(Object)}.  The collection
+ * writes its bytes as they are, so a write that is retried, or repeated with another write concern, doesn't encode
+ * the object again, and changes made to the object after it was encoded don't affect what is written.
+ * <p>
+ * Encoded documents are immutable, and written as they were encoded: a {@link Version version} they hold is neither
+ * checked nor incremented.  A collection whose document class is EncodedDocument reads documents as they are stored,
+ * without decoding them into objects.
+ *
+ * @param <T> the type of the object the document was encoded from
+ * @since 5.1.1
+ */
+public final class EncodedDocument<T> {
+
+    private final RawBsonDocument document;
+    private final BsonValue id;
+
+    EncodedDocument(final RawBsonDocument document) {
+        this.document = document;
+        this.id = document.get("_id");
+    }
+
+    /**
+     * @return the encoded document
+     */
+    public RawBsonDocument getDocument() {
+        return document;
+    }
+
+    /**
+     * @return the id of the document, or null if the object has no id property
+     */
+    public BsonValue getId() {
+        return id;
+    }
+
+    @Override
+    public String toString() {
+        return "EncodedDocument" + document.toJson();
+    }
+}
@@ -0,0 +1,56 @@
+package org.mongojack;
+
+import org.bson.BsonReader;
+import org.bson.BsonValue;
+import org.bson.BsonWriter;
+import org.bson.codecs.CollectibleCodec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+import org.bson.codecs.RawBsonDocumentCodec;
+
+/**
+ * Writes {@link EncodedDocument}s by copying their bytes, which already hold their ids, and reads them back as the
+ * bytes of the document as stored, so that a collection of encoded documents can be read as well as written.
+ */
+@SuppressWarnings("rawtypes")
+final class EncodedDocumentCodec implements CollectibleCodec<EncodedDocument> {
+
+    static final EncodedDocumentCodec INSTANCE = new EncodedDocumentCodec();
+
+    private static final RawBsonDocumentCodec RAW_CODEC = new RawBsonDocumentCodec();
+
+    private EncodedDocumentCodec() {
+    }
+
+    @Override
+    public void encode(final BsonWriter writer, final EncodedDocument value, final EncoderContext encoderContext) {
+        try (BsonReader reader = value.getDocument().asBsonReader()) {
+            writer.pipe(reader);
+        }
+    }
+
+    @Override
+    public Class<EncodedDocument> getEncoderClass() {
+        return EncodedDocument.class;
+    }
+
+    @Override
+    public EncodedDocument decode(final BsonReader reader, final DecoderContext decoderContext) {
+        return new EncodedDocument<>(RAW_CODEC.decode(reader, decoderContext));
+    }
+
+    @Override
+    public EncodedDocument generateIdIfAbsentFromDocument(final EncodedDocument document) {
+        return document;
+    }
+
+    @Override
+    public boolean documentHasId(final EncodedDocument document) {
+        return document.getId() != null;
+    }
+
+    @Override
+    public BsonValue getDocumentId(final EncodedDocument document) {
+        return document.getId();
+    }
+}
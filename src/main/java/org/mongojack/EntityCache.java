@@ -0,0 +1,487 @@
+package org.mongojack;
+
+import com.mongodb.MongoException;
+import com.mongodb.client.ClientSession;
+import com.mongodb.client.MongoChangeStreamCursor;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.Aggregates;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+import org.bson.RawBsonDocument;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.lang.ref.WeakReference;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The cache {@link JacksonMongoCollection#findOneById(Object)} reads through, when the collection is built with
+ * {@link JacksonMongoCollection.JacksonMongoCollectionBuilder#withEntityCache(long, Duration)}.
+ * <p>
+ * Documents are cached encoded, as they were read, and decoded on every hit, so that callers never share an object.
+ * Once the cache is full, documents are evicted to make room, in the order they were cached, except that the ones read
+ * since they were last passed over get another round (the clock algorithm, which approximates evicting the least
+ * recently used first); all of them are evicted once they have been cached for their time to live.  Writes made through the collection, or the collections derived
+ * from it with the {@code withX} methods, forget the documents they may have changed once they are done: the ones
+ * whose _id their filter names, or all of them if it doesn't.  A read that overlaps such a write isn't cached.  Writes
+ * in a transaction also keep the documents they may have changed out of the cache until the transaction is over.
+ * <p>
+ * Writes made elsewhere go unnoticed until the documents expire, unless the cache also
+ * {@link JacksonMongoCollection.JacksonMongoCollectionBuilder#withEntityCacheChangeStream(boolean) watches the change
+ * stream} of the collection.  The stream is watched until the cache is closed, with
+ * {@link JacksonMongoCollection#close()}, or the cache is no longer used.
+ *
+ * @since 5.1.1
+ */
+public final class EntityCache implements Closeable {
+
+    private final static Logger logger = LoggerFactory.getLogger(EntityCache.class);
+
+    private static final long MAX_RETRY_DELAY_MILLIS = 30_000;
+
+    /**
+     * The number of generations the ids are spread over, a power of two.
+     */
+    private static final int GENERATIONS = 1024;
+
+    /**
+     * The number of queued entries beyond twice the cached ones at which the ones no longer cached are dropped.
+     */
+    private static final int STALE_QUEUE_SLACK = 64;
+
+    private final long maximumSize;
+    private final long timeToLiveNanos;
+    private final ConcurrentHashMap<BsonValue, Entry> entries = new ConcurrentHashMap<>();
+    /**
+     * The cached entries in the order they are up for eviction, along with ones that have since been forgotten or
+     * replaced, which are skipped.
+     */
+    private final ConcurrentLinkedQueue<Entry> evictionQueue = new ConcurrentLinkedQueue<>();
+    private final AtomicLong queued = new AtomicLong();
+    private final AtomicBoolean purging = new AtomicBoolean();
+    /**
+     * Incremented by the invalidation of any of the ids they cover, so that unrelated writes don't keep reads from
+     * being cached.
+     */
+    private final AtomicLongArray generations = new AtomicLongArray(GENERATIONS);
+    /**
+     * Incremented by the invalidation of all the documents.
+     */
+    private final AtomicLong epoch = new AtomicLong();
+    /**
+     * The documents written to by transactions that may not have committed yet, null standing for all of them.
+     */
+    private final Map<ClientSession, Set<BsonValue>> transactionWrites = new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private volatile boolean closed;
+    /**
+     * Whether documents are only cached while the change stream is open.
+     */
+    private volatile boolean watched;
+    private volatile MongoChangeStreamCursor<?> changeStream;
+
+    EntityCache(final long maximumSize, final Duration timeToLive) {
+        if (maximumSize < 1) {
+            throw new IllegalArgumentException("The cache must hold at least one document, got " + maximumSize);
+        }
+        if (timeToLive.isNegative() || timeToLive.isZero()) {
+            throw new IllegalArgumentException("The time to live must be positive, got " + timeToLive);
+        }
+        this.maximumSize = maximumSize;
+        this.timeToLiveNanos = timeToLive.toNanos();
+    }
+
+    /**
+     * @param id the _id of a document, as written to the database
+     * @return the document, or null if it isn't cached
+     */
+    RawBsonDocument get(final BsonValue id) {
+        final Entry entry = entries.get(id);
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        final long now = System.nanoTime();
+        if (now - entry.cachedAt >= timeToLiveNanos) {
+            if (entries.remove(id, entry)) {
+                evictions.increment();
+            }
+            misses.increment();
+            return null;
+        }
+        entry.referenced = true;
+        hits.increment();
+        return entry.document;
+    }
+
+    /**
+     * @param id the _id of a document, as written to the database
+     * @return the generation to {@link #put(BsonValue, RawBsonDocument, long) cache} the document with, if it is read
+     * from now on
+     */
+    long getGeneration(final BsonValue id) {
+        // both only ever increase, so their sum changes whenever either does
+        return generations.get(generationIndex(id)) + epoch.get();
+    }
+
+    private static int generationIndex(final BsonValue id) {
+        final int hash = id.hashCode();
+        return (hash ^ (hash >>> 16)) & (GENERATIONS - 1);
+    }
+
+    /**
+     * Caches a document, unless it may have been written to since it was read.
+     *
+     * @param id         the _id of the document
+     * @param document   the document
+     * @param generation the {@link #getGeneration(BsonValue) generation} of the document before it was read
+     */
+    void put(final BsonValue id, final RawBsonDocument document, final long generation) {
+        if (closed || (watched && changeStream == null) || inTransactionWrites(id) || generation != getGeneration(id)) {
+            return;
+        }
+        final Entry entry = new Entry(id, document, System.nanoTime());
+        entries.put(id, entry);
+        // an invalidation that raced with the put either sees the entry and removes it, or is seen here
+        if (generation != getGeneration(id)) {
+            entries.remove(id, entry);
+            return;
+        }
+        enqueue(entry);
+        while (entries.size() > maximumSize) {
+            if (!evictOne(entry)) {
+                break;
+            }
+        }
+        purgeEvictionQueue();
+    }
+
+    private void enqueue(final Entry entry) {
+        evictionQueue.add(entry);
+        queued.incrementAndGet();
+    }
+
+    /**
+     * Evicts the next document in the eviction queue that hasn't been read since it was last passed over, other than
+     * the one just cached.  The ones passed over go to the back of the queue.
+     *
+     * @return false if there was nothing to evict
+     */
+    private boolean evictOne(final Entry added) {
+        // every cached entry is queued, so one pass over the queue finds one, unless other threads evict them first
+        for (long turns = queued.get() + 1; turns > 0; turns--) {
+            final Entry candidate = evictionQueue.poll();
+            if (candidate == null) {
+                return false;
+            }
+            queued.decrementAndGet();
+            if (entries.get(candidate.id) != candidate) {
+                // forgotten or replaced since it was queued
+                continue;
+            }
+            if (candidate == added || candidate.referenced) {
+                candidate.referenced = false;
+                enqueue(candidate);
+                continue;
+            }
+            if (entries.remove(candidate.id, candidate)) {
+                evictions.increment();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Drops the entries that are no longer cached from the eviction queue, once there are many of them: invalidations
+     * and expiries only remove the documents from the cache.
+     */
+    private void purgeEvictionQueue() {
+        if (queued.get() <= 2L * entries.size() + STALE_QUEUE_SLACK || !purging.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            evictionQueue.removeIf(queuedEntry -> {
+                if (entries.get(queuedEntry.id) == queuedEntry) {
+                    return false;
+                }
+                queued.decrementAndGet();
+                return true;
+            });
+        } finally {
+            purging.set(false);
+        }
+    }
+
+    /**
+     * Forgets a document.
+     *
+     * @param id the _id of the document
+     */
+    void invalidate(final BsonValue id) {
+        generations.incrementAndGet(generationIndex(id));
+        entries.remove(id);
+    }
+
+    /**
+     * Forgets all the documents.
+     */
+    public void invalidateAll() {
+        epoch.incrementAndGet();
+        entries.clear();
+        purgeEvictionQueue();
+    }
+
+    /**
+     * Forgets documents written to in a transaction, and keeps them out of the cache until the transaction is over:
+     * a read made before it commits would otherwise cache the documents as they were before it.
+     *
+     * @param session the session of the transaction
+     * @param ids     the _ids of the documents, or null for all of them
+     */
+    void invalidateInTransaction(final ClientSession session, final List<BsonValue> ids) {
+        transactionWrites.compute(session, (key, written) -> {
+            if (ids == null || (written != null && written.isEmpty())) {
+                // empty for all the documents
+                return Collections.emptySet();
+            }
+            final Set<BsonValue> merged = written == null ? new HashSet<>() : new HashSet<>(written);
+            merged.addAll(ids);
+            return merged;
+        });
+    }
+
+    /**
+     * @return whether a transaction that isn't over yet has written to the document; the documents of the ones that
+     * are over are forgotten again, as reads may have cached them before the transaction committed
+     */
+    private boolean inTransactionWrites(final BsonValue id) {
+        if (transactionWrites.isEmpty()) {
+            return false;
+        }
+        boolean written = false;
+        for (Map.Entry<ClientSession, Set<BsonValue>> transaction : transactionWrites.entrySet()) {
+            final Set<BsonValue> ids = transaction.getValue();
+            if (!transaction.getKey().hasActiveTransaction()) {
+                if (transactionWrites.remove(transaction.getKey(), ids)) {
+                    if (ids.isEmpty()) {
+                        invalidateAll();
+                    } else {
+                        ids.forEach(this::invalidate);
+                    }
+                }
+            } else if (ids.isEmpty() || ids.contains(id)) {
+                written = true;
+            }
+        }
+        return written;
+    }
+
+    /**
+     * @return the statistics of this cache since it was created
+     */
+    public Stats getStats() {
+        return new Stats(hits.sum(), misses.sum(), evictions.sum(), entries.size());
+    }
+
+    /**
+     * Stops watching the change stream, if the cache does, and forgets all the documents.  The cache isn't used
+     * afterwards.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        final MongoChangeStreamCursor<?> cursor = changeStream;
+        if (cursor != null) {
+            cursor.close();
+        }
+        transactionWrites.clear();
+        invalidateAll();
+    }
+
+    /**
+     * Starts watching the change stream of a collection on a daemon thread, forgetting the documents it reports
+     * changes of.  Documents are only cached while the stream is open.  The thread only holds on to the cache weakly,
+     * and stops once the cache is closed, or no longer used.
+     *
+     * @param collection the collection
+     */
+    void watch(final MongoCollection<?> collection) {
+        watched = true;
+        final WeakReference<EntityCache> cache = new WeakReference<>(this);
+        final MongoCollection<BsonDocument> documents = collection.withDocumentClass(BsonDocument.class);
+        final Thread watcher = new Thread(
+            () -> watchChanges(cache, documents),
+            "mongojack-entity-cache-" + collection.getNamespace().getFullName()
+        );
+        watcher.setDaemon(true);
+        watcher.start();
+    }
+
+    private static boolean isClosed(final WeakReference<EntityCache> cache) {
+        final EntityCache current = cache.get();
+        return current == null || current.closed;
+    }
+
+    private static void watchChanges(final WeakReference<EntityCache> cache, final MongoCollection<BsonDocument> collection) {
+        long retryDelayMillis = 100;
+        while (!isClosed(cache)) {
+            try (
+                MongoChangeStreamCursor<ChangeStreamDocument<BsonDocument>> cursor = collection.watch(
+                    Collections.singletonList(Aggregates.project(Projections.include("operationType", "documentKey")))
+                ).cursor()
+            ) {
+                if (!opened(cache, cursor)) {
+                    return;
+                }
+                retryDelayMillis = 100;
+                while (true) {
+                    // waits for changes for a while at most, so that a cache that is no longer used is noticed
+                    final ChangeStreamDocument<BsonDocument> change = cursor.tryNext();
+                    final EntityCache current = cache.get();
+                    if (current == null || current.closed) {
+                        return;
+                    }
+                    if (change != null) {
+                        current.onChange(change);
+                    }
+                }
+            } catch (MongoException | IllegalStateException e) {
+                final EntityCache current = cache.get();
+                if (current == null || current.closed) {
+                    return;
+                }
+                current.changeStream = null;
+                logger.warn("The change stream of " + collection.getNamespace() + " failed, documents aren't cached until it is watched again", e);
+                current.invalidateAll();
+            }
+            try {
+                Thread.sleep(retryDelayMillis);
+            } catch (InterruptedException interrupted) {
+                return;
+            }
+            retryDelayMillis = Math.min(retryDelayMillis * 2, MAX_RETRY_DELAY_MILLIS);
+        }
+    }
+
+    /**
+     * Starts caching again, once the change stream is open.
+     *
+     * @return false if the cache is closed or no longer used
+     */
+    private static boolean opened(final WeakReference<EntityCache> cache, final MongoChangeStreamCursor<?> cursor) {
+        final EntityCache current = cache.get();
+        if (current == null || current.closed) {
+            return false;
+        }
+        // documents read before the stream was open aren't cached
+        current.invalidateAll();
+        current.changeStream = cursor;
+        // close may have missed the cursor
+        return !current.closed;
+    }
+
+    private void onChange(final ChangeStreamDocument<BsonDocument> change) {
+        switch (change.getOperationType()) {
+            case INSERT:
+                // documents that didn't exist aren't cached
+                return;
+            case UPDATE:
+            case REPLACE:
+            case DELETE:
+                final BsonDocument documentKey = change.getDocumentKey();
+                if (documentKey != null && documentKey.containsKey("_id")) {
+                    invalidate(documentKey.get("_id"));
+                    return;
+                }
+                invalidateAll();
+                return;
+            default:
+                // drops, renames and the ones we don't know of
+                invalidateAll();
+        }
+    }
+
+    private static final class Entry {
+        private final BsonValue id;
+        private final RawBsonDocument document;
+        private final long cachedAt;
+        /**
+         * Whether the document has been read since it was cached or last passed over for eviction.
+         */
+        private volatile boolean referenced;
+
+        private Entry(final BsonValue id, final RawBsonDocument document, final long cachedAt) {
+            this.id = id;
+            this.document = document;
+            this.cachedAt = cachedAt;
+        }
+    }
+
+    /**
+     * The statistics of an {@link EntityCache}.
+     */
+    public static final class Stats {
+        private final long hits;
+        private final long misses;
+        private final long evictions;
+        private final long size;
+
+        private Stats(final long hits, final long misses, final long evictions, final long size) {
+            this.hits = hits;
+            this.misses = misses;
+            this.evictions = evictions;
+            this.size = size;
+        }
+
+        /**
+         * @return the number of lookups that found their document
+         */
+        public long getHits() {
+            return hits;
+        }
+
+        /**
+         * @return the number of lookups that didn't find their document, and read it from the database
+         */
+        public long getMisses() {
+            return misses;
+        }
+
+        /**
+         * @return the number of documents evicted because the cache was full or they had expired, not counting the
+         * ones forgotten after writes
+         */
+        public long getEvictions() {
+            return evictions;
+        }
+
+        /**
+         * @return the number of documents cached
+         */
+        public long getSize() {
+            return size;
+        }
+
+        @Override
+        public String toString() {
+            return "EntityCache.Stats{hits=" + hits + ", misses=" + misses + ", evictions=" + evictions + ", size=" + size + "}";
+        }
+    }
+}
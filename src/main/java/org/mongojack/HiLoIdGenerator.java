@@ -0,0 +1,126 @@
+package org.mongojack;
+
+import com.mongodb.ErrorCategory;
+import com.mongodb.MongoServerException;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.FindOneAndUpdateOptions;
+import com.mongodb.client.model.ReturnDocument;
+import org.bson.Document;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static com.mongodb.client.model.Filters.eq;
+import static com.mongodb.client.model.Updates.inc;
+
+/**
+ * Generates sequential long ids, reserving them from a counters collection in blocks, so that it takes one
+ * findOneAndUpdate per block rather than one per insert.
+ * <p>
+ * Each sequence is a document in the counters collection, with the name of the sequence as its _id and the last
+ * reserved id as its value.  There's a sequence per collection, named after the collection given by the
+ * {@link org.mongojack.MongoCollection} annotation of the document class, or after the class otherwise.  Ids that
+ * were reserved but not used when the application stops are skipped, so ids are unique but may have gaps.  A
+ * sequence is created by the first block reserved from it; when two processes race to create it, the one that loses
+ * reserves its block again from the sequence the other created.
+ * <p>
+ * This generator needs its counters collection, so it has to be given to the collections that use it, with
+ * {@link JacksonMongoCollection.JacksonMongoCollectionBuilder#withIdGenerators(IdGenerator[])}.
+ *
+ * @since 5.1.1
+ */
+public class HiLoIdGenerator implements IdGenerator<Long> {
+
+    private static final FindOneAndUpdateOptions RESERVE_OPTIONS = new FindOneAndUpdateOptions()
+        .upsert(true)
+        .returnDocument(ReturnDocument.AFTER);
+
+    private final MongoCollection<Document> counters;
+    private final int blockSize;
+    private final ConcurrentHashMap<String, Block> blocks = new ConcurrentHashMap<>();
+
+    /**
+     * @param counters  the collection holding the sequences
+     * @param blockSize the number of ids to reserve at a time
+     */
+    public HiLoIdGenerator(final MongoCollection<?> counters, final int blockSize) {
+        if (blockSize < 1) {
+            throw new IllegalArgumentException("The block size must be positive: " + blockSize);
+        }
+        this.counters = counters.withDocumentClass(Document.class);
+        this.blockSize = blockSize;
+    }
+
+    @Override
+    public Long generate(final Class<?> documentClass) {
+        final Block block = getBlock(documentClass);
+        synchronized (block) {
+            if (block.next > block.last) {
+                reserve(block, blockSize);
+            }
+            return block.next++;
+        }
+    }
+
+    @Override
+    public List<Long> generate(final Class<?> documentClass, final int count) {
+        final Block block = getBlock(documentClass);
+        final List<Long> ids = new ArrayList<>(count);
+        synchronized (block) {
+            while (ids.size() < count && block.next <= block.last) {
+                ids.add(block.next++);
+            }
+            if (ids.size() < count) {
+                reserve(block, Math.max(blockSize, count - ids.size()));
+                while (ids.size() < count) {
+                    ids.add(block.next++);
+                }
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * @param documentClass the class of the documents
+     * @return the name of the sequence the ids of the documents come from
+     */
+    protected String getSequenceName(final Class<?> documentClass) {
+        final org.mongojack.MongoCollection collection = documentClass.getAnnotation(org.mongojack.MongoCollection.class);
+        return collection != null ? collection.name() : documentClass.getName();
+    }
+
+    private Block getBlock(final Class<?> documentClass) {
+        return blocks.computeIfAbsent(getSequenceName(documentClass), Block::new);
+    }
+
+    private void reserve(final Block block, final int size) {
+        Document counter;
+        try {
+            counter = reserveOnce(block.name, size);
+        } catch (MongoServerException e) {
+            if (ErrorCategory.fromErrorCode(e.getCode()) != ErrorCategory.DUPLICATE_KEY) {
+                throw e;
+            }
+            // another generator created the sequence concurrently, the update matches its document this time
+            counter = reserveOnce(block.name, size);
+        }
+        final long last = counter.get("value", Number.class).longValue();
+        block.next = last - size + 1;
+        block.last = last;
+    }
+
+    private Document reserveOnce(final String name, final int size) {
+        return counters.findOneAndUpdate(eq("_id", name), inc("value", (long) size), RESERVE_OPTIONS);
+    }
+
+    private static final class Block {
+        private final String name;
+        private long next = 1;
+        private long last = 0;
+
+        private Block(final String name) {
+            this.name = name;
+        }
+    }
+}
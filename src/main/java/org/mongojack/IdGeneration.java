@@ -0,0 +1,26 @@
+package org.mongojack;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Selects the {@link IdGenerator} used to generate ids for documents of the annotated class that are inserted without
+ * one.  The generated ids are converted to the type of the id property where that's obvious (ObjectIds to hex strings
+ * or bytes, anything to a string), and set as they are otherwise.  A primitive id property counts as not set while it
+ * is 0, so ids are generated for it then.
+ *
+ * @since 5.1.1
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface IdGeneration {
+    /**
+     * The generator.
+     *
+     * @return the class of the generator, whose instance is looked up in the {@link IdGenerators} of the codec
+     * registry
+     */
+    Class<? extends IdGenerator<?>> value();
+}
@@ -0,0 +1,41 @@
+package org.mongojack;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Generates ids for documents that don't have one when they are inserted.  Select a generator for a class with
+ * {@link IdGeneration}; classes without one get ObjectIds, as generated by the driver.
+ * <p>
+ * Implementations must be thread safe.  Generators that can be built with a no-arg constructor are instantiated on
+ * first use, others have to be given to the collections that use them, see {@link IdGenerators}.
+ *
+ * @param <K> the type of the ids
+ * @since 5.1.1
+ */
+public interface IdGenerator<K> {
+
+    /**
+     * Generates an id.
+     *
+     * @param documentClass the class of the document the id is for
+     * @return the id
+     */
+    K generate(Class<?> documentClass);
+
+    /**
+     * Generates a number of ids at once, for a batch of documents being inserted.  Generators that reserve ids in
+     * blocks should override this to reserve them all in one go.
+     *
+     * @param documentClass the class of the documents the ids are for
+     * @param count         the number of ids
+     * @return the ids
+     */
+    default List<K> generate(Class<?> documentClass, int count) {
+        final List<K> ids = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            ids.add(generate(documentClass));
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,58 @@
+package org.mongojack;
+
+import java.lang.reflect.Constructor;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The {@link IdGenerator} instances a {@link JacksonCodecRegistry} uses for the classes annotated with
+ * {@link IdGeneration}, which only name the class of their generator.
+ * <p>
+ * The instances given here are used for their class.  Generators of other classes are created with their no-arg
+ * constructor on first use, and shared from then on by the codecs of the registry.  Generators that need configuring,
+ * like {@link HiLoIdGenerator} which needs its counters collection, have to be given, see
+ * {@link JacksonMongoCollection.JacksonMongoCollectionBuilder#withIdGenerators(IdGenerator[])}.
+ *
+ * @since 5.1.1
+ */
+public final class IdGenerators {
+
+    private final ConcurrentHashMap<Class<?>, IdGenerator<?>> generators = new ConcurrentHashMap<>();
+
+    /**
+     * @param generators the instances to use for their classes, the last one of a class wins
+     */
+    public IdGenerators(final IdGenerator<?>... generators) {
+        for (IdGenerator<?> generator : generators) {
+            this.generators.put(generator.getClass(), generator);
+        }
+    }
+
+    /**
+     * Returns the instance of the given generator class, creating one if none was given and it has a no-arg
+     * constructor.
+     *
+     * @param generatorClass the class of the generator
+     * @return the generator
+     * @throws IllegalArgumentException if no instance was given and none can be created
+     */
+    public IdGenerator<?> get(final Class<? extends IdGenerator<?>> generatorClass) {
+        final IdGenerator<?> generator = generators.get(generatorClass);
+        if (generator != null) {
+            return generator;
+        }
+        return generators.computeIfAbsent(generatorClass, IdGenerators::create);
+    }
+
+    private static IdGenerator<?> create(final Class<?> generatorClass) {
+        try {
+            final Constructor<?> constructor = generatorClass.getDeclaredConstructor();
+            constructor.setAccessible(true);
+            return (IdGenerator<?>) constructor.newInstance();
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            throw new IllegalArgumentException(
+                "Could not create id generator " + generatorClass.getName() + ", give an instance to JacksonMongoCollectionBuilder.withIdGenerators()",
+                e
+            );
+        }
+    }
+}
@@ -14,8 +14,15 @@ import org.mongojack.internal.stream.JacksonCodec;
 import org.mongojack.internal.stream.JacksonDecoder;
 import org.mongojack.internal.stream.JacksonEncoder;
 import org.mongojack.internal.util.DocumentSerializationUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * This is an experimental JacksonCodecRegistry for use with the Mongo 3.0+ java driver. It has only undergone basic
@@ -25,34 +32,77 @@ import java.util.concurrent.ConcurrentHashMap;
  */
 public class JacksonCodecRegistry implements CodecRegistry, CodecProvider {
 
+    private final static Logger logger = LoggerFactory.getLogger(JacksonCodecRegistry.class);
+
     private final ObjectMapper objectMapper;
     private final Class<?> view;
     private final ConcurrentHashMap<Class<?>, Codec<?>> codecCache = new ConcurrentHashMap<>();
+    /**
+     * Codecs returned by {@link #get(Class)}, whether they come from the default registry or are ours, so that a
+     * lookup of a class that has been seen before doesn't need to classify it again.  A ClassValue would hold on to
+     * the codec (and through it to this registry and its ObjectMapper) for as long as the class is loaded, so this is
+     * a plain map.
+     */
+    private final ConcurrentHashMap<Class<?>, Codec<?>> resolvedCodecs = new ConcurrentHashMap<>();
+    /**
+     * Memoized result of {@link #isDefault(Class)}, for {@link #get(Class, CodecRegistry)}, whose result depends on
+     * the registry passed in.
+     */
+    private final ClassValue<Boolean> defaultClasses = new ClassValue<Boolean>() {
+        @Override
+        protected Boolean computeValue(final Class<?> type) {
+            return isDefault(type);
+        }
+    };
     private final CodecRegistry defaultCodecRegistry;
     private final UuidRepresentation uuidRepresentation;
+    private final IdGenerators idGenerators;
 
     public JacksonCodecRegistry(ObjectMapper objectMapper, CodecRegistry defaultCodecRegistry, final UuidRepresentation uuidRepresentation) {
         this(objectMapper, defaultCodecRegistry, null, uuidRepresentation);
     }
 
     public JacksonCodecRegistry(ObjectMapper objectMapper, CodecRegistry defaultCodecRegistry, Class<?> view, final UuidRepresentation uuidRepresentation) {
+        this(objectMapper, defaultCodecRegistry, view, uuidRepresentation, new IdGenerators());
+    }
+
+    /**
+     * @param objectMapper         the object mapper
+     * @param defaultCodecRegistry the registry for the types that aren't handled by Jackson
+     * @param view                 the Jackson view, may be null
+     * @param uuidRepresentation   the UUID representation
+     * @param idGenerators         the generators of the ids of the classes annotated with {@link IdGeneration}
+     * @since 5.1.1
+     */
+    public JacksonCodecRegistry(
+        ObjectMapper objectMapper,
+        CodecRegistry defaultCodecRegistry,
+        Class<?> view,
+        final UuidRepresentation uuidRepresentation,
+        final IdGenerators idGenerators
+    ) {
         this.objectMapper = objectMapper;
         this.view = view;
         this.defaultCodecRegistry = defaultCodecRegistry;
         this.uuidRepresentation = uuidRepresentation;
+        this.idGenerators = idGenerators;
     }
 
     @Override
+    @SuppressWarnings("unchecked")
     public <T> Codec<T> get(Class<T> clazz) {
-        if (isDefault(clazz)) {
-            return defaultCodecRegistry.get(clazz);
+        Codec<T> codec = (Codec<T>) resolvedCodecs.get(clazz);
+        if (codec == null) {
+            // the default registry throws for classes it has no codec for, which then aren't cached
+            codec = defaultClasses.get(clazz) ? defaultCodecRegistry.get(clazz) : addCodecForClass(clazz);
+            resolvedCodecs.putIfAbsent(clazz, codec);
         }
-        return addCodecForClass(clazz);
+        return codec;
     }
 
     @Override
     public <T> Codec<T> get(final Class<T> clazz, final CodecRegistry registry) {
-        if (isDefault(clazz)) {
+        if (defaultClasses.get(clazz)) {
             return defaultCodecRegistry.get(clazz, registry);
         }
         return addCodecForClass(clazz);
@@ -69,15 +119,109 @@ public class JacksonCodecRegistry implements CodecRegistry, CodecProvider {
 
     @SuppressWarnings("unchecked")
     public <T> Codec<T> addCodecForClass(Class<T> clazz) {
+        if (clazz == EncodedDocument.class) {
+            return (Codec<T>) EncodedDocumentCodec.INSTANCE;
+        }
+        Codec<T> codec = (Codec<T>) codecCache.get(clazz);
+        if (codec != null) {
+            return codec;
+        }
         return (Codec<T>) codecCache.computeIfAbsent(clazz, (k) -> {
             JacksonEncoder<T> encoder = new JacksonEncoder<>(clazz, view, objectMapper, uuidRepresentation);
             JacksonDecoder<T> decoder = new JacksonDecoder<>(clazz, view, objectMapper, uuidRepresentation);
-            return new JacksonCodec<>(encoder, decoder, objectMapper, this);
+            return createCodec(encoder, decoder);
         });
     }
 
+    /**
+     * Creates the codec of a class that isn't handled by the default registry, for registries whose codecs do more
+     * than encode and decode.
+     *
+     * @param encoder the encoder of the class
+     * @param decoder the decoder of the class
+     * @return the codec
+     * @since 5.1.1
+     */
+    protected <T> JacksonCodec<T> createCodec(JacksonEncoder<T> encoder, JacksonDecoder<T> decoder) {
+        return new JacksonCodec<>(encoder, decoder, objectMapper, this);
+    }
+
+    /**
+     * Eagerly builds everything encoding, decoding and querying the given classes needs, so that the first request
+     * doesn't pay for it: the codecs with their root serializers and deserializers, the (de)serializers of the types
+     * reachable through bean properties, the id accessors, and the serializers of filters on top level properties.
+     *
+     * @param classes the classes to warm up
+     * @return the time spent on each class, in the order the classes were given
+     * @since 5.1.1
+     */
+    public Map<Class<?>, Duration> warmUp(Class<?>... classes) {
+        final Map<Class<?>, Duration> durations = new LinkedHashMap<>();
+        for (Class<?> clazz : classes) {
+            durations.put(clazz, warmUp(clazz));
+        }
+        return durations;
+    }
+
+    /**
+     * Like {@link #warmUp(Class[])}, but warms up the classes in parallel on the given pool.
+     *
+     * @param pool    the pool to warm up on
+     * @param classes the classes to warm up
+     * @return the time spent on each class, in the order the classes were given
+     * @since 5.1.1
+     */
+    public Map<Class<?>, Duration> warmUp(ForkJoinPool pool, Class<?>... classes) {
+        final Duration[] durations = pool.submit(
+            () -> Arrays.stream(classes).parallel().map(this::warmUp).toArray(Duration[]::new)
+        ).join();
+        final Map<Class<?>, Duration> result = new LinkedHashMap<>();
+        for (int i = 0; i < classes.length; i++) {
+            result.put(classes[i], durations[i]);
+        }
+        return result;
+    }
+
+    private Duration warmUp(Class<?> clazz) {
+        final long start = System.nanoTime();
+        final Codec<?> codec = get(clazz);
+        if (codec instanceof JacksonCodec) {
+            ((JacksonCodec<?>) codec).warmUp();
+            // filters on top level properties, with null as a value that every serializer accepts
+            final Map<String, Object> filter = new LinkedHashMap<>();
+            objectMapper.getSerializationConfig().introspect(objectMapper.constructType(clazz)).findProperties()
+                .forEach(property -> filter.put(property.getName(), null));
+            DocumentSerializationUtils.serializeFilter(objectMapper, objectMapper.constructType(clazz), new Document(filter), this);
+        }
+        final Duration duration = Duration.ofNanos(System.nanoTime() - start);
+        logger.debug("Warmed up {} in {} ms", clazz.getName(), duration.toMillis());
+        return duration;
+    }
+
+    int getCachedCodecCount() {
+        return codecCache.size();
+    }
+
     public UuidRepresentation getUuidRepresentation() {
         return uuidRepresentation;
     }
 
+    /**
+     * @return the ObjectMapper the codecs of this registry use
+     * @since 5.1.1
+     */
+    public ObjectMapper getObjectMapper() {
+        return objectMapper;
+    }
+
+    /**
+     * @param generatorClass the class of the generator, as named by {@link IdGeneration}
+     * @return the instance of the generator the codecs of this registry use
+     * @throws IllegalArgumentException if no instance was given and none can be created
+     * @since 5.1.1
+     */
+    public IdGenerator<?> getIdGenerator(final Class<? extends IdGenerator<?>> generatorClass) {
+        return idGenerators.get(generatorClass);
+    }
+
 }
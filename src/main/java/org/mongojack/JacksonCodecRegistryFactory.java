@@ -0,0 +1,211 @@
+package org.mongojack;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.bson.UuidRepresentation;
+import org.bson.codecs.configuration.CodecRegistry;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Hands out {@link JacksonCodecRegistry} instances shared by all collections with the same ObjectMapper, default
+ * codec registry, view and UUID representation, so that their codecs, serializers and id accessors are built and
+ * warmed up once rather than per collection.
+ * <p>
+ * Registries are only held weakly, a registry no collection uses any more is dropped.  ObjectMappers and codec
+ * registries are compared by identity, since neither defines equality.
+ *
+ * @since 5.1.1
+ */
+public class JacksonCodecRegistryFactory {
+
+    private static final JacksonCodecRegistryFactory DEFAULT = new JacksonCodecRegistryFactory();
+
+    private final ConcurrentHashMap<Key, RegistryReference> registries = new ConcurrentHashMap<>();
+    private final ReferenceQueue<JacksonCodecRegistry> collected = new ReferenceQueue<>();
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder created = new LongAdder();
+
+    /**
+     * The factory used by {@link JacksonMongoCollection.JacksonMongoCollectionBuilder} and {@link DbReferenceManager}
+     * unless told otherwise.
+     *
+     * @return the default factory
+     */
+    public static JacksonCodecRegistryFactory getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * Returns the registry for the given configuration, creating it if there's none yet.
+     *
+     * @param objectMapper         the object mapper
+     * @param defaultCodecRegistry the registry for the types that aren't handled by Jackson
+     * @param view                 the Jackson view, may be null
+     * @param uuidRepresentation   the UUID representation
+     * @return the registry
+     */
+    public JacksonCodecRegistry getRegistry(
+        final ObjectMapper objectMapper,
+        final CodecRegistry defaultCodecRegistry,
+        final Class<?> view,
+        final UuidRepresentation uuidRepresentation
+    ) {
+        purgeCollected();
+        requests.increment();
+        final Key key = new Key(objectMapper, defaultCodecRegistry, view, uuidRepresentation);
+        while (true) {
+            final RegistryReference existing = registries.get(key);
+            final JacksonCodecRegistry registry = existing == null ? null : existing.get();
+            if (registry != null) {
+                return registry;
+            }
+            final JacksonCodecRegistry newRegistry = new JacksonCodecRegistry(objectMapper, defaultCodecRegistry, view, uuidRepresentation);
+            final RegistryReference reference = new RegistryReference(key, newRegistry, collected);
+            if (existing == null ? registries.putIfAbsent(key, reference) == null : registries.replace(key, existing, reference)) {
+                created.increment();
+                return newRegistry;
+            }
+        }
+    }
+
+    /**
+     * @return a snapshot of how much sharing this factory achieves
+     */
+    public Stats getStats() {
+        purgeCollected();
+        int liveRegistries = 0;
+        long cachedCodecs = 0;
+        for (RegistryReference reference : registries.values()) {
+            final JacksonCodecRegistry registry = reference.get();
+            if (registry != null) {
+                liveRegistries++;
+                cachedCodecs += registry.getCachedCodecCount();
+            }
+        }
+        final long requestCount = requests.sum();
+        return new Stats(requestCount, requestCount - created.sum(), liveRegistries, cachedCodecs);
+    }
+
+    private void purgeCollected() {
+        Reference<? extends JacksonCodecRegistry> reference;
+        while ((reference = collected.poll()) != null) {
+            registries.remove(((RegistryReference) reference).key, reference);
+        }
+    }
+
+    /**
+     * Counters of a {@link JacksonCodecRegistryFactory}.
+     */
+    public static final class Stats {
+        private final long requests;
+        private final long hits;
+        private final int liveRegistries;
+        private final long cachedCodecs;
+
+        private Stats(final long requests, final long hits, final int liveRegistries, final long cachedCodecs) {
+            this.requests = requests;
+            this.hits = hits;
+            this.liveRegistries = liveRegistries;
+            this.cachedCodecs = cachedCodecs;
+        }
+
+        /**
+         * @return the number of registries asked for
+         */
+        public long getRequests() {
+            return requests;
+        }
+
+        /**
+         * @return the number of requests that got an existing, and so already warmed up, registry
+         */
+        public long getHits() {
+            return hits;
+        }
+
+        /**
+         * @return the fraction of requests that got an existing registry
+         */
+        public double getHitRate() {
+            return requests == 0 ? 0 : (double) hits / requests;
+        }
+
+        /**
+         * @return the number of registries currently in use
+         */
+        public int getLiveRegistries() {
+            return liveRegistries;
+        }
+
+        /**
+         * @return the number of Jackson codecs held by the registries currently in use
+         */
+        public long getCachedCodecs() {
+            return cachedCodecs;
+        }
+
+        @Override
+        public String toString() {
+            return "Stats{" +
+                "requests=" + requests +
+                ", hits=" + hits +
+                ", liveRegistries=" + liveRegistries +
+                ", cachedCodecs=" + cachedCodecs +
+                '}';
+        }
+    }
+
+    private static final class RegistryReference extends WeakReference<JacksonCodecRegistry> {
+        private final Key key;
+
+        private RegistryReference(final Key key, final JacksonCodecRegistry registry, final ReferenceQueue<JacksonCodecRegistry> queue) {
+            super(registry, queue);
+            this.key = key;
+        }
+    }
+
+    private static final class Key {
+        private final ObjectMapper objectMapper;
+        private final CodecRegistry defaultCodecRegistry;
+        private final Class<?> view;
+        private final UuidRepresentation uuidRepresentation;
+
+        private Key(
+            final ObjectMapper objectMapper,
+            final CodecRegistry defaultCodecRegistry,
+            final Class<?> view,
+            final UuidRepresentation uuidRepresentation
+        ) {
+            this.objectMapper = objectMapper;
+            this.defaultCodecRegistry = defaultCodecRegistry;
+            this.view = view;
+            this.uuidRepresentation = uuidRepresentation;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            final Key that = (Key) o;
+            return objectMapper == that.objectMapper &&
+                defaultCodecRegistry == that.defaultCodecRegistry &&
+                view == that.view &&
+                uuidRepresentation == that.uuidRepresentation;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(
+                System.identityHashCode(objectMapper),
+                System.identityHashCode(defaultCodecRegistry),
+                view,
+                uuidRepresentation
+            );
+        }
+    }
+}
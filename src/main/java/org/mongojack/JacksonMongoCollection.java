@@ -19,6 +19,7 @@ package org.mongojack;
 import com.fasterxml.jackson.databind.JavaType;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.introspect.BeanPropertyDefinition;
+import com.mongodb.ErrorCategory;
 import com.mongodb.MongoBulkWriteException;
 import com.mongodb.MongoException;
 import com.mongodb.MongoWriteConcernException;
@@ -29,30 +30,60 @@ import com.mongodb.WriteConcern;
 import com.mongodb.client.*;
 import com.mongodb.client.MongoCollection;
 import com.mongodb.client.model.*;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
 import com.mongodb.client.result.DeleteResult;
+import com.mongodb.client.result.InsertOneResult;
 import com.mongodb.client.result.UpdateResult;
 import org.bson.BsonDocument;
+import org.bson.BsonInt32;
+import org.bson.BsonReader;
 import org.bson.BsonValue;
 import org.bson.Document;
+import org.bson.RawBsonDocument;
 import org.bson.UuidRepresentation;
+import org.bson.codecs.BsonDocumentCodec;
 import org.bson.codecs.Codec;
 import org.bson.codecs.CollectibleCodec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.configuration.CodecConfigurationException;
 import org.bson.codecs.configuration.CodecRegistry;
 import org.bson.conversions.Bson;
+import org.bson.types.Decimal128;
 import org.mongojack.internal.MongoJackModule;
+import org.mongojack.internal.stream.EntityTracker;
 import org.mongojack.internal.stream.JacksonCodec;
+import org.mongojack.internal.stream.TrackingJacksonCodec;
+import org.mongojack.internal.stream.TrackingJacksonCodecRegistry;
+import org.mongojack.internal.stream.VersionAccessor;
+import org.mongojack.internal.update.DocumentDiff;
+import org.mongojack.internal.update.SingleUpdateOperationValue;
 import org.mongojack.internal.util.DistinctIterableDecorator;
 import org.mongojack.internal.util.DocumentSerializationUtils;
 import org.mongojack.internal.util.FindIterableDecorator;
+import org.mongojack.internal.util.KeysetPagination;
 import org.mongojack.internal.util.MapReduceIterableDecorator;
+import org.mongojack.internal.util.ParallelDecodingIterable;
 
+import java.io.Closeable;
+import java.math.BigDecimal;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 /**
@@ -87,8 +118,10 @@ import java.util.stream.Collectors;
  * @since 1.0
  */
 @SuppressWarnings({"UnusedReturnValue"})
-public class JacksonMongoCollection<TResult> extends MongoCollectionDecorator<TResult> {
+public class JacksonMongoCollection<TResult> extends MongoCollectionDecorator<TResult> implements Closeable {
 
+    private static final BsonDocumentCodec BSON_DOCUMENT_CODEC = new BsonDocumentCodec();
+    private static final int SAMPLES_PER_PARTITION = 10;
     private static final AtomicReference<ObjectMapper> DEFAULT_OBJECT_MAPPER = new AtomicReference<>();
     private final ObjectMapper objectMapper;
     private final JacksonCodecRegistry jacksonCodecRegistry;
@@ -98,6 +131,8 @@ public class JacksonMongoCollection<TResult> extends MongoCollectionDecorator<TR
     private final JavaType type;
     private final com.mongodb.client.MongoCollection<TResult> mongoCollection;
     private final SerializationOptions serializationOptions;
+    private final boolean projectionPushdown;
+    private final EntityCache entityCache;
 
     /**
      * Private.
@@ -108,13 +143,27 @@ public class JacksonMongoCollection<TResult> extends MongoCollectionDecorator<TR
         Class<TResult> valueClass,
         Class<?> view,
         final SerializationOptions serializationOptions,
-        final UuidRepresentation uuidRepresentation
+        final UuidRepresentation uuidRepresentation,
+        final JacksonCodecRegistryFactory codecRegistryFactory,
+        final IdGenerators idGenerators,
+        final boolean entityTracking,
+        final boolean projectionPushdown,
+        final EntityCache entityCache
     ) {
         this.objectMapper = objectMapper != null ? objectMapper : getDefaultObjectMapper();
         this.view = view;
         this.serializationOptions = serializationOptions;
+        this.projectionPushdown = projectionPushdown;
+        this.entityCache = entityCache;
         final MongoCollection<TResult> underlyingCollection = mongoCollection.withDocumentClass(valueClass);
-        jacksonCodecRegistry = new JacksonCodecRegistry(this.objectMapper, underlyingCollection.getCodecRegistry(), this.view, uuidRepresentation);
+        final IdGenerators ownIdGenerators = idGenerators != null ? idGenerators : new IdGenerators();
+        if (entityTracking) {
+            jacksonCodecRegistry = new TrackingJacksonCodecRegistry(this.objectMapper, underlyingCollection.getCodecRegistry(), this.view, uuidRepresentation, ownIdGenerators, valueClass);
+        } else if (codecRegistryFactory != null && idGenerators == null) {
+            jacksonCodecRegistry = codecRegistryFactory.getRegistry(this.objectMapper, underlyingCollection.getCodecRegistry(), this.view, uuidRepresentation);
+        } else {
+            jacksonCodecRegistry = new JacksonCodecRegistry(this.objectMapper, underlyingCollection.getCodecRegistry(), this.view, uuidRepresentation, ownIdGenerators);
+        }
         jacksonCodecRegistry.addCodecForClass(valueClass);
         this.mongoCollection = underlyingCollection.withCodecRegistry(jacksonCodecRegistry);
         this.valueClass = valueClass;
@@ -131,7 +180,9 @@ public class JacksonMongoCollection<TResult> extends MongoCollectionDecorator<TR
         final Class<TResult> valueClass,
         final JavaType type,
         final MongoCollection<TResult> mongoCollection,
-        final SerializationOptions serializationOptions
+        final SerializationOptions serializationOptions,
+        final boolean projectionPushdown,
+        final EntityCache entityCache
     ) {
         this.objectMapper = objectMapper;
         this.jacksonCodecRegistry = jacksonCodecRegistry;
@@ -140,6 +191,8 @@ public class JacksonMongoCollection<TResult> extends MongoCollectionDecorator<TR
         this.type = type;
         this.mongoCollection = mongoCollection;
         this.serializationOptions = serializationOptions;
+        this.projectionPushdown = projectionPushdown;
+        this.entityCache = entityCache;
     }
 
     /**
@@ -204,7 +257,217 @@ public class JacksonMongoCollection<TResult> extends MongoCollectionDecorator<TR
      * @throws MongoException If an error occurred
      */
     public TResult findOneById(Object id) throws MongoException {
-        return findOne(createIdQuery(id));
+        if (entityCache == null) {
+            return findOne(createIdQuery(id));
+        }
+        final List<BsonValue> ids = findIds(createIdQuery(id));
+        if (ids == null || ids.size() != 1) {
+            return findOne(createIdQuery(id));
+        }
+        final BsonValue _id = ids.get(0);
+        RawBsonDocument document = entityCache.get(_id);
+        if (document == null) {
+            final long generation = entityCache.getGeneration(_id);
+            // cached whole, whatever the class it's decoded into
+            document = mongoCollection.find(new BsonDocument("_id", _id), RawBsonDocument.class).first();
+            if (document == null) {
+                return null;
+            }
+            entityCache.put(_id, document, generation);
+        }
+        try (BsonReader reader = document.asBsonReader()) {
+            return jacksonCodecRegistry.get(valueClass).decode(reader, DecoderContext.builder().build());
+        }
+    }
+
+    /**
+     * @return the cache {@link #findOneById(Object)} reads through, or null if it doesn't have one
+     * @see JacksonMongoCollectionBuilder#withEntityCache(long, Duration)
+     * @since 5.1.1
+     */
+    public EntityCache getEntityCache() {
+        return entityCache;
+    }
+
+    /**
+     * Releases what the collection holds on to beyond the underlying collection: closes its entity cache, if it has
+     * one, which stops watching the change stream.  The cache is shared with the collections derived from this one
+     * with the {@code withX} methods, which stop caching too.  The collection can still be used afterwards, without a
+     * cache.
+     *
+     * @since 5.1.1
+     */
+    @Override
+    public void close() {
+        if (entityCache != null) {
+            entityCache.close();
+        }
+    }
+
+    /**
+     * @param id an id, in the form {@link #createIdQuery(Object, Object...)} takes
+     * @return the id as it is written to the database, or null if it can't be told
+     */
+    BsonValue getIdValue(final Object id) {
+        final List<BsonValue> ids = findIds(createIdQuery(id));
+        return ids == null || ids.size() != 1 ? null : ids.get(0);
+    }
+
+    /**
+     * Finds the documents with the given ids in one query, for {@link BatchingIdLoader}.
+     *
+     * @param ids the ids, as they are written to the database
+     * @return the documents found, by the ids they were found with, which may differ from the ids read from the
+     * database in their numeric type
+     */
+    Map<BsonValue, RawBsonDocument> findAllById(final Collection<BsonValue> ids) {
+        final FindIterable<RawBsonDocument> documents =
+            mongoCollection.find(createIdInQuery(new ArrayList<>(ids)), RawBsonDocument.class);
+        final BsonDocument projection = getDerivedProjection(valueClass);
+        if (projection != null) {
+            documents.projection(projection);
+        }
+        // $in matches numbers of any type, an int64 id finds an int32 one, so the ids are matched up by value
+        final Map<Object, BsonValue> requested = new HashMap<>();
+        for (BsonValue id : ids) {
+            requested.put(idKey(id), id);
+        }
+        final Map<BsonValue, RawBsonDocument> found = new HashMap<>();
+        for (RawBsonDocument document : documents) {
+            final BsonValue id = requested.get(idKey(document.get("_id")));
+            if (id != null) {
+                found.put(id, document);
+            }
+        }
+        return found;
+    }
+
+    /**
+     * @return what ids equal to the server are equal by: their value, whatever their type, for finite numbers
+     */
+    private static Object idKey(final BsonValue id) {
+        if (id == null || !id.isNumber() || (id.isDouble() && !Double.isFinite(id.asDouble().getValue()))) {
+            return id;
+        }
+        final Decimal128 value = id.asNumber().decimal128Value();
+        if (!value.isFinite()) {
+            return id;
+        }
+        // negative zero has no BigDecimal, and equals zero anyway
+        return id.asNumber().doubleValue() == 0 ? BigDecimal.ZERO : value.bigDecimalValue().stripTrailingZeros();
+    }
+
+    /**
+     * @return decodes documents read whole from this collection into new objects of the value class
+     */
+    Function<RawBsonDocument, TResult> getDocumentDecoder() {
+        return ParallelDecodingIterable.decodingWith(jacksonCodecRegistry.get(valueClass));
+    }
+
+    /**
+     * Finds a page of the documents matching a filter, in the order of a sort, by seeking past the sort keys of the
+     * last document of the previous page, rather than skipping the documents of the previous pages, which the server
+     * would still walk through.  With an index on the sort keys, every page costs the same however deep it is.
+     * <p>
+     * _id is appended to the sort as the tie breaker, unless it's in it already.  The sort keys must be single values,
+     * and of one type, in all the documents paged through, as the range of a key only matches values of the type of
+     * its bound.  Documents written between pages are found if they sort after the last document of the previous
+     * page.
+     *
+     * @param filter       the query filter, or null to page through all the documents
+     * @param sort         the sort, of ascending and descending keys, or null to page in the order of _id
+     * @param pageSize     the maximum number of documents in a page
+     * @param continuation the {@link Page#getContinuation() continuation} of the previous page, or null for the first
+     *                     page
+     * @return the page
+     * @throws IllegalArgumentException if the sort isn't of ascending and descending keys, or the continuation wasn't
+     *                                  made for it
+     * @since 5.1.1
+     */
+    public Page<TResult> findPage(final Bson filter, final Bson sort, final int pageSize, final String continuation) {
+        if (pageSize < 1) {
+            throw new IllegalArgumentException("A page must hold at least one document, got " + pageSize);
+        }
+        final BsonDocument keyset = KeysetPagination.keysetSort(sort == null ? null : sort.toBsonDocument(valueClass, jacksonCodecRegistry));
+        BsonDocument query = renderFilter(filter);
+        if (continuation != null) {
+            query = KeysetPagination.and(query, KeysetPagination.after(keyset, KeysetPagination.decode(keyset, continuation)));
+        }
+        // one more than the page, to tell whether there's a next one
+        final FindIterable<RawBsonDocument> documents = mongoCollection.find(query, RawBsonDocument.class).sort(keyset).limit(pageSize + 1);
+        final BsonDocument projection = KeysetPagination.withSortKeys(getDerivedProjection(valueClass), keyset);
+        if (projection != null) {
+            documents.projection(projection);
+        }
+        final Function<RawBsonDocument, TResult> decoder = ParallelDecodingIterable.decodingWith(jacksonCodecRegistry.get(valueClass));
+        final List<TResult> items = new ArrayList<>();
+        RawBsonDocument last = null;
+        boolean hasNext = false;
+        try (MongoCursor<RawBsonDocument> cursor = documents.iterator()) {
+            while (cursor.hasNext()) {
+                final RawBsonDocument document = cursor.next();
+                if (items.size() == pageSize) {
+                    hasNext = true;
+                    break;
+                }
+                items.add(decoder.apply(document));
+                last = document;
+            }
+        }
+        return new Page<>(items, hasNext ? KeysetPagination.encode(keyset, KeysetPagination.valuesOf(keyset, last)) : null);
+    }
+
+    /**
+     * Splits the documents matching a filter into ranges of _id, for as many consumers to scan concurrently.  The
+     * bounds of the ranges are picked from a sample of the ids, so the partitions are about the same size, and the
+     * first and last ranges are open, so the partitions together find every document matching the filter once, even
+     * the ones written after the sample was taken.
+     * <p>
+     * A range of ids only matches the ids of the type of its bounds, so the last partition also finds the documents
+     * whose ids are of another type than the sampled ones.  If the ids sampled aren't of one type, there is only one
+     * partition.
+     *
+     * @param filter     the query filter, or null to scan all the documents
+     * @param partitions the number of partitions wanted
+     * @return the finds of the partitions, fewer than asked for if the sample doesn't have that many distinct ids
+     * @since 5.1.1
+     */
+    public List<FindIterable<TResult>> findPartitions(final Bson filter, final int partitions) {
+        if (partitions < 1) {
+            throw new IllegalArgumentException("There must be at least one partition, got " + partitions);
+        }
+        final BsonDocument query = renderFilter(filter);
+        final List<BsonValue> sample = new ArrayList<>();
+        if (partitions > 1) {
+            mongoCollection.aggregate(
+                Arrays.asList(
+                    Aggregates.match(query),
+                    Aggregates.sample(partitions * SAMPLES_PER_PARTITION),
+                    Aggregates.project(Projections.include("_id")),
+                    Aggregates.sort(Sorts.ascending("_id"))
+                ),
+                RawBsonDocument.class
+            ).forEach(document -> sample.add(document.get("_id")));
+        }
+        final List<BsonValue> bounds = KeysetPagination.partitionBounds(sample, partitions);
+        final List<FindIterable<TResult>> finds = new ArrayList<>();
+        for (int i = 0; i <= bounds.size(); i++) {
+            BsonDocument range = KeysetPagination.idRange(i == 0 ? null : bounds.get(i - 1), i == bounds.size() ? null : bounds.get(i));
+            if (i == bounds.size() && i > 0) {
+                // ranges only match the ids of the type of their bounds, the last one takes the ids of the other types
+                range = KeysetPagination.or(range, KeysetPagination.otherTypes(bounds.get(i - 1)));
+            }
+            final BsonDocument partition = KeysetPagination.and(query, range);
+            finds.add(wrapIterable(mongoCollection.find(partition), valueClass, () -> mongoCollection.find(partition, RawBsonDocument.class)));
+        }
+        return finds;
+    }
+
+    /**
+     * @return the filter, as it's sent to the database, or an empty filter if it's null
+     */
+    private BsonDocument renderFilter(final Bson filter) {
+        return filter == null ? new BsonDocument() : manageFilterBson(filter).toBsonDocument(valueClass, jacksonCodecRegistry);
     }
 
     /**
@@ -255,6 +518,35 @@ public class JacksonMongoCollection<TResult> extends MongoCollectionDecorator<TR
             .orElseGet(() -> Filters.in("_id", allIds));
     }
 
+    /**
+     * Serializes a filter with {@link PreparedBson#parameter(String) parameters} once, for binding values to it over
+     * and over.
+     *
+     * @param filter the filter
+     * @return the prepared filter
+     * @since 5.1.1
+     */
+    public PreparedBson prepareFilter(final Bson filter) {
+        initializeIfNecessary(filter);
+        if (filter instanceof InitializationRequiredForTransformation || getSerializationOptions().isSimpleFilterSerialization()) {
+            return new PreparedBson(DocumentSerializationUtils.prepareEncoded(filter, getCodecRegistry()));
+        }
+        return new PreparedBson(DocumentSerializationUtils.prepareFilter(objectMapper, type, filter, jacksonCodecRegistry));
+    }
+
+    /**
+     * Serializes an update with {@link PreparedBson#parameter(String) parameters} once, for binding values to it over
+     * and over.
+     *
+     * @param update the update
+     * @return the prepared update
+     * @since 5.1.1
+     */
+    public PreparedBson prepareUpdate(final Bson update) {
+        initializeIfNecessary(update);
+        return new PreparedBson(DocumentSerializationUtils.prepareEncoded(update, jacksonCodecRegistry));
+    }
+
     /**
      * Get the type of this collection
      *
@@ -317,6 +609,7 @@ public class JacksonMongoCollection<TResult> extends MongoCollectionDecorator<TR
      * @throws MongoException          If an error occurred
      */
     public void insert(List<TResult> list) throws MongoException, MongoBulkWriteException {
+        generateIdsIfAbsent(list);
         mongoCollection.insertMany(list);
     }
 
@@ -346,9 +639,143 @@ public class JacksonMongoCollection<TResult> extends MongoCollectionDecorator<TR
      */
     public void insert(List<TResult> list, WriteConcern concern)
         throws MongoException {
+        generateIdsIfAbsent(list);
         mongoCollection.withWriteConcern(concern).insertMany(list);
     }
 
+    /**
+     * Inserts objects into the database like {@link #insert(List)}, but encodes them on the given pool first, rather
+     * than having the driver encode them one after the other on the calling thread.  The missing ids are generated
+     * before the objects are encoded, and the encoded documents are inserted in the order of the list, so a
+     * {@link MongoBulkWriteException} reports the same indexes.  This pays off for large batches of objects that are
+     * costly to encode.
+     *
+     * @param list The objects to insert
+     * @param pool The pool to encode the objects on
+     * @throws MongoBulkWriteException If there's an exception in the bulk write operation
+     * @throws MongoException          If an error occurred
+     * @since 5.1.1
+     */
+    public void insertParallel(List<TResult> list, ForkJoinPool pool) throws MongoException, MongoBulkWriteException {
+        generateIdsIfAbsent(list);
+        final Codec<TResult> codec = jacksonCodecRegistry.get(valueClass);
+        mongoCollection.withDocumentClass(RawBsonDocument.class).insertMany(encodeParallel(list, document -> document, codec, pool));
+    }
+
+    /**
+     * Like {@link #insertParallel(List, ForkJoinPool)}, on a pool of the given parallelism that only lives for the
+     * duration of the call.
+     *
+     * @param list        The objects to insert
+     * @param parallelism The number of threads to encode the objects on
+     * @throws MongoBulkWriteException If there's an exception in the bulk write operation
+     * @throws MongoException          If an error occurred
+     * @since 5.1.1
+     */
+    public void insertParallel(List<TResult> list, int parallelism) throws MongoException, MongoBulkWriteException {
+        final ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            insertParallel(list, pool);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Executes a bulk write like {@link #bulkWrite(List, BulkWriteOptions)}, but encodes the documents of its inserts
+     * and replacements on the given pool first.  The requests are prepared as for {@code bulkWrite}, the missing ids
+     * of inserted documents are generated before they are encoded, and the requests keep their order, so a
+     * {@link MongoBulkWriteException} reports the same indexes.
+     *
+     * @param requests the writes to execute
+     * @param options  the options to apply to the bulk write operation
+     * @param pool     the pool to encode the documents on
+     * @return the result of the bulk write
+     * @throws MongoBulkWriteException If there's an exception in the bulk write operation
+     * @throws MongoException          If an error occurred
+     * @since 5.1.1
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public BulkWriteResult bulkWriteParallel(
+        final List<? extends WriteModel<? extends TResult>> requests,
+        final BulkWriteOptions options,
+        final ForkJoinPool pool
+    ) throws MongoException, MongoBulkWriteException {
+        final Map<Integer, Runnable> versionRestores = new HashMap<>();
+        final List<WriteModel<TResult>> managed = manageBulkWriteRequests(requests, versionRestores);
+        return restoreVersionsOnFailure(versionRestores, options.isOrdered(), () -> {
+            final List<TResult> inserted = managed.stream()
+                .filter(request -> request instanceof InsertOneModel)
+                .map(request -> ((InsertOneModel<TResult>) request).getDocument())
+                .collect(Collectors.toList());
+            generateIdsIfAbsent(inserted);
+            final List<RawBsonDocument> documents = encodeParallel(
+                managed,
+                request -> {
+                    if (request instanceof InsertOneModel) {
+                        return ((InsertOneModel<TResult>) request).getDocument();
+                    }
+                    if (request instanceof ReplaceOneModel) {
+                        return ((ReplaceOneModel<TResult>) request).getReplacement();
+                    }
+                    return null;
+                },
+                jacksonCodecRegistry.get(valueClass),
+                pool
+            );
+            final List<WriteModel<RawBsonDocument>> encoded = new ArrayList<>(managed.size());
+            for (int i = 0; i < managed.size(); i++) {
+                final WriteModel<TResult> request = managed.get(i);
+                if (request instanceof InsertOneModel) {
+                    encoded.add(new InsertOneModel<>(documents.get(i)));
+                } else if (request instanceof ReplaceOneModel) {
+                    final ReplaceOneModel<TResult> replaceRequest = (ReplaceOneModel<TResult>) request;
+                    encoded.add(new ReplaceOneModel<>(replaceRequest.getFilter(), documents.get(i), replaceRequest.getReplaceOptions()));
+                } else {
+                    // deletes and updates don't hold documents
+                    encoded.add((WriteModel) request);
+                }
+            }
+            return write(null, () -> mongoCollection.withDocumentClass(RawBsonDocument.class).bulkWrite(encoded, options));
+        });
+    }
+
+    /**
+     * Like {@link #bulkWriteParallel(List, BulkWriteOptions, ForkJoinPool)}, with the default options.
+     *
+     * @param requests the writes to execute
+     * @param pool     the pool to encode the documents on
+     * @return the result of the bulk write
+     * @throws MongoBulkWriteException If there's an exception in the bulk write operation
+     * @throws MongoException          If an error occurred
+     * @since 5.1.1
+     */
+    public BulkWriteResult bulkWriteParallel(
+        final List<? extends WriteModel<? extends TResult>> requests,
+        final ForkJoinPool pool
+    ) throws MongoException, MongoBulkWriteException {
+        return bulkWriteParallel(requests, new BulkWriteOptions(), pool);
+    }
+
+    /**
+     * Encodes the documents of a list of objects, in the order of the list, in parallel on a pool.
+     */
+    private static <T, D> List<RawBsonDocument> encodeParallel(
+        final List<T> objects,
+        final Function<T, D> document,
+        final Codec<D> codec,
+        final ForkJoinPool pool
+    ) {
+        return pool.submit(
+            () -> objects.parallelStream()
+                .map(object -> {
+                    final D toEncode = document.apply(object);
+                    return toEncode == null ? null : new RawBsonDocument(toEncode, codec);
+                })
+                .collect(Collectors.toList())
+        ).join();
+    }
+
     /**
      * Removes object from the database collection with the default WriteConcern
      *
@@ -363,16 +790,24 @@ public class JacksonMongoCollection<TResult> extends MongoCollectionDecorator<TR
     }
 
     /**
-     * Performs an update operation, replacing the entire document, for the document with this _id.
+     * Performs an update operation, replacing the entire document, for the document with this _id.  If the object has
+     * a {@link Version version}, the document is only replaced if it is at that version, and the version is
+     * incremented.
      *
      * @param _id    the _id of the object to replace
      * @param object object with which to replace it
      * @return The result
+     * @throws VersionConflictException   If the object has a version, and the document is at another one
      * @throws MongoWriteException        If the write failed due some other failure specific to the update command
      * @throws MongoWriteConcernException If the write failed due being unable to fulfill the write concern
      * @throws MongoException             If an error occurred
      */
     public UpdateResult replaceOneById(Object _id, TResult object) throws MongoException, MongoWriteException, MongoWriteConcernException {
+        final VersionAccessor versionAccessor = getVersionAccessor(object.getClass());
+        if (versionAccessor != null) {
+            final BsonValue id = createIdQuery(_id).toBsonDocument(valueClass, jacksonCodecRegistry).get("_id");
+            return replaceVersioned(id, object, versionAccessor, mongoCollection, false);
+        }
         return replaceOne(createIdQuery(_id), object);
     }
 
@@ -392,25 +827,30 @@ public class JacksonMongoCollection<TResult> extends MongoCollectionDecorator<TR
 
     /**
      * Saves an object to this collection (does insert or update based on the
-     * object _id).
+     * object _id).  If the object has a {@link Version version}, an existing document is only replaced if it is at
+     * that version, and the version is incremented.
      *
      * @param object  the <code>DBObject</code> to save
      * @param concern the write concern
      * @return The UpdateResult result
+     * @throws VersionConflictException   If the object has a version, and the document is at another one
      * @throws MongoWriteException        If the write failed due some other failure specific to the delete command
      * @throws MongoWriteConcernException If the write failed due being unable to fulfill the write concern
      * @throws MongoException             If an error occurred
      */
     public UpdateResult save(TResult object, WriteConcern concern) throws MongoWriteException, MongoWriteConcernException, MongoException {
         final CollectibleCodec<TResult> codec = getValueClassCollectibleCodec();
+        final VersionAccessor versionAccessor = getVersionAccessor(object.getClass());
         BsonValue _id = codec.getDocumentId(object);
         if (_id == null || _id.isNull()) {
-            if (concern == null) {
-                insertOne(object);
-            } else {
-                withWriteConcern(concern).insertOne(object);
+            if (versionAccessor != null && versionAccessor.getVersion(object) == null) {
+                versionAccessor.setVersion(object, 0L);
             }
-            return UpdateResult.acknowledged(0, 1L, codec.getDocumentId(object));
+            final InsertOneResult result = concern == null ? insertOne(object) : withWriteConcern(concern).insertOne(object);
+            final BsonValue insertedId = result.wasAcknowledged() ? result.getInsertedId() : null;
+            return UpdateResult.acknowledged(0, 1L, insertedId != null ? insertedId : codec.getDocumentId(object));
+        } else if (versionAccessor != null) {
+            return replaceVersioned(_id, object, versionAccessor, concern == null ? mongoCollection : mongoCollection.withWriteConcern(concern), true);
         } else {
             BsonDocument query = new BsonDocument();
             query.put("_id", _id);
@@ -421,10 +861,369 @@ public class JacksonMongoCollection<TResult> extends MongoCollectionDecorator<TR
         }
     }
 
+    /**
+     * Encodes an object once, generating its id first if it has none, for writes that should not encode it again.
+     *
+     * @param object the object to encode
+     * @return the encoded document
+     * @since 5.1.1
+     */
+    public EncodedDocument<TResult> encode(final TResult object) {
+        final Codec<TResult> codec = jacksonCodecRegistry.get(valueClass);
+        if (codec instanceof CollectibleCodec) {
+            ((CollectibleCodec<TResult>) codec).generateIdIfAbsentFromDocument(object);
+        }
+        return new EncodedDocument<>(new RawBsonDocument(object, codec));
+    }
+
+    /**
+     * Inserts an encoded document.
+     *
+     * @param document the document
+     * @return the insert one result
+     * @throws MongoWriteException        If the write failed due some other failure specific to the insert command
+     * @throws MongoWriteConcernException If the write failed due being unable to fulfill the write concern
+     * @throws MongoException             If an error occurred
+     * @since 5.1.1
+     */
+    public InsertOneResult insertOne(final EncodedDocument<TResult> document) throws MongoWriteException, MongoWriteConcernException, MongoException {
+        return getEncodedCollection().insertOne(document);
+    }
+
+    /**
+     * Replaces a document with an encoded document.
+     *
+     * @param filter   the query filter to apply the replace operation
+     * @param document the replacement document
+     * @return the result of the replace one operation
+     * @throws MongoWriteException        If the write failed due some other failure specific to the replace command
+     * @throws MongoWriteConcernException If the write failed due being unable to fulfill the write concern
+     * @throws MongoException             If an error occurred
+     * @since 5.1.1
+     */
+    public UpdateResult replaceOne(final Bson filter, final EncodedDocument<TResult> document) throws MongoWriteException, MongoWriteConcernException, MongoException {
+        return replaceOne(filter, document, new ReplaceOptions());
+    }
+
+    /**
+     * Replaces a document with an encoded document.
+     *
+     * @param filter         the query filter to apply the replace operation
+     * @param document       the replacement document
+     * @param replaceOptions the options to apply to the replace operation
+     * @return the result of the replace one operation
+     * @throws MongoWriteException        If the write failed due some other failure specific to the replace command
+     * @throws MongoWriteConcernException If the write failed due being unable to fulfill the write concern
+     * @throws MongoException             If an error occurred
+     * @since 5.1.1
+     */
+    public UpdateResult replaceOne(final Bson filter, final EncodedDocument<TResult> document, final ReplaceOptions replaceOptions)
+        throws MongoWriteException, MongoWriteConcernException, MongoException {
+        return write(filter, () -> getEncodedCollection().replaceOne(manageFilterBson(filter), document, replaceOptions));
+    }
+
+    /**
+     * Saves an encoded document, replacing the document with its id, or inserting it if there is none.
+     *
+     * @param document the document
+     * @param concern  the write concern, or null for the collection's
+     * @return The UpdateResult result
+     * @throws MongoWriteException        If the write failed due some other failure specific to the replace command
+     * @throws MongoWriteConcernException If the write failed due being unable to fulfill the write concern
+     * @throws MongoException             If an error occurred
+     * @throws IllegalArgumentException   If the document has no id
+     * @since 5.1.1
+     */
+    public UpdateResult save(final EncodedDocument<TResult> document, final WriteConcern concern) throws MongoWriteException, MongoWriteConcernException, MongoException {
+        if (document.getId() == null) {
+            throw new IllegalArgumentException("Only documents with an id can be saved");
+        }
+        final MongoCollection<EncodedDocument<TResult>> collection = concern == null ? getEncodedCollection() : getEncodedCollection().withWriteConcern(concern);
+        final BsonDocument query = new BsonDocument("_id", document.getId());
+        return write(query, () -> collection.replaceOne(query, document, new ReplaceOptions().upsert(true)));
+    }
+
+    /**
+     * Executes a mix of inserts, updates, replaces, and deletes, whose inserted and replacement documents are encoded
+     * documents.
+     *
+     * @param requests the writes to execute
+     * @param options  the options to apply to the bulk write operation
+     * @return the result of the bulk write
+     * @throws MongoBulkWriteException If there's an exception in the bulk write operation
+     * @throws MongoException          If an error occurred
+     * @since 5.1.1
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public BulkWriteResult bulkWriteEncoded(final List<? extends WriteModel<EncodedDocument<TResult>>> requests, final BulkWriteOptions options)
+        throws MongoBulkWriteException, MongoException {
+        return write(null, () -> getEncodedCollection().bulkWrite((List) manageBulkWriteRequests((List) requests), options));
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private MongoCollection<EncodedDocument<TResult>> getEncodedCollection() {
+        return (MongoCollection) mongoCollection.withDocumentClass(EncodedDocument.class);
+    }
+
+    /**
+     * Saves objects to this collection in one bulk write, inserting the ones without an id and replacing, or
+     * upserting, the others.  Objects with a {@link Version version} keep the guarantees of
+     * {@link #save(Object, WriteConcern)}: the ones whose stored document is at another version are not written, and
+     * are reported together in a {@link VersionConflictException} once the others are.
+     *
+     * @param objects the objects to save
+     * @param concern the write concern, or null for the collection's
+     * @return The result of the bulk write
+     * @throws VersionConflictException If some of the objects are no longer at the version they were written with
+     * @throws MongoBulkWriteException  If some of the writes failed for another reason
+     * @throws MongoException           If an error occurred
+     * @since 5.1.1
+     */
+    public BulkWriteResult saveAll(final List<TResult> objects, final WriteConcern concern) throws MongoBulkWriteException, MongoException {
+        if (objects.isEmpty()) {
+            return BulkWriteResult.acknowledged(0, 0, 0, 0, Collections.emptyList(), Collections.emptyList());
+        }
+        final CollectibleCodec<TResult> codec = getValueClassCollectibleCodec();
+        final List<WriteModel<TResult>> requests = new ArrayList<>(objects.size());
+        final List<Long> versions = new ArrayList<>(objects.size());
+        for (TResult object : objects) {
+            final VersionAccessor versionAccessor = getVersionAccessor(object.getClass());
+            final Long version = versionAccessor == null ? null : versionAccessor.getVersion(object);
+            versions.add(version);
+            final BsonValue _id = codec.getDocumentId(object);
+            if (_id == null || _id.isNull()) {
+                if (versionAccessor != null && version == null) {
+                    versionAccessor.setVersion(object, 0L);
+                }
+                requests.add(new InsertOneModel<>(object));
+            } else {
+                // the version condition is added, and the version incremented, by manageBulkWriteRequests
+                requests.add(new ReplaceOneModel<>(new BsonDocument("_id", _id), object, new ReplaceOptions().upsert(true)));
+            }
+        }
+        final JacksonMongoCollection<TResult> collection = concern == null ? this : withWriteConcern(concern);
+        try {
+            return collection.bulkWrite(requests, new BulkWriteOptions().ordered(false));
+        } catch (MongoBulkWriteException e) {
+            final List<BsonValue> conflicts = new ArrayList<>();
+            boolean onlyConflicts = true;
+            for (BulkWriteError error : e.getWriteErrors()) {
+                final TResult object = objects.get(error.getIndex());
+                final VersionAccessor versionAccessor = getVersionAccessor(object.getClass());
+                if (versionAccessor == null) {
+                    onlyConflicts = false;
+                    continue;
+                }
+                // bulkWrite has put the version back
+                final Long version = versions.get(error.getIndex());
+                final BsonValue _id = codec.getDocumentId(object);
+                if (requests.get(error.getIndex()) instanceof ReplaceOneModel && isVersionConflict(error.getCategory(), _id, versionAccessor, version)) {
+                    conflicts.add(_id);
+                } else {
+                    onlyConflicts = false;
+                }
+            }
+            if (onlyConflicts && e.getWriteConcernError() == null) {
+                throw new VersionConflictException(conflicts, e);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Like {@link #saveAll(List, WriteConcern)}, with the collection's write concern.
+     *
+     * @param objects the objects to save
+     * @return The result of the bulk write
+     * @throws VersionConflictException If some of the objects are no longer at the version they were written with
+     * @throws MongoBulkWriteException  If some of the writes failed for another reason
+     * @throws MongoException           If an error occurred
+     * @since 5.1.1
+     */
+    public BulkWriteResult saveAll(final List<TResult> objects) throws MongoBulkWriteException, MongoException {
+        return saveAll(objects, null);
+    }
+
+    /**
+     * Replaces the document with the given id if it is still at the version of the object, incrementing the version of
+     * the object, which is left as it was if the document isn't replaced.
+     */
+    private UpdateResult replaceVersioned(
+        final BsonValue _id,
+        final TResult object,
+        final VersionAccessor versionAccessor,
+        final MongoCollection<TResult> collection,
+        final boolean upsert
+    ) {
+        final Long version = versionAccessor.getVersion(object);
+        final BsonDocument query = new BsonDocument("_id", _id).append(versionAccessor.getFieldName(), versionAccessor.toBson(version));
+        versionAccessor.setVersion(object, version == null ? 0L : version + 1);
+        boolean replaced = false;
+        try {
+            final UpdateResult result = write(query, () -> collection.replaceOne(query, object, new ReplaceOptions().upsert(upsert)));
+            if (result.wasAcknowledged() && result.getMatchedCount() == 0 && result.getUpsertedId() == null) {
+                throw new VersionConflictException(_id, version, null);
+            }
+            replaced = true;
+            return result;
+        } catch (MongoWriteException e) {
+            // an upsert that doesn't match inserts, which fails on the _id index if the document exists at another version
+            if (upsert && isVersionConflict(e.getError().getCategory(), _id, versionAccessor, version)) {
+                throw new VersionConflictException(_id, version, e);
+            }
+            throw e;
+        } finally {
+            if (!replaced) {
+                versionAccessor.setVersion(object, version);
+            }
+        }
+    }
+
+    private boolean isVersionConflict(final ErrorCategory category, final BsonValue _id, final VersionAccessor versionAccessor, final Long version) {
+        if (category != ErrorCategory.DUPLICATE_KEY) {
+            return false;
+        }
+        // a duplicate key on another unique index isn't a conflict, the document is still at the version written
+        return mongoCollection.countDocuments(
+            new BsonDocument("_id", _id).append(versionAccessor.getFieldName(), versionAccessor.toBson(version))
+        ) == 0;
+    }
+
+    private VersionAccessor getVersionAccessor(final Class<?> documentClass) {
+        final Codec<TResult> codec = jacksonCodecRegistry.get(valueClass);
+        return codec instanceof JacksonCodec ? ((JacksonCodec<TResult>) codec).getVersionAccessor(documentClass) : null;
+    }
+
+    /**
+     * Adds the increment of the version to an update, merged with the other increments, unless the update already
+     * changes the version itself.
+     */
+    private Bson incrementVersion(final Bson update, final VersionAccessor versionAccessor) {
+        final BsonDocument managed = manageUpdateBson(update).toBsonDocument(valueClass, jacksonCodecRegistry);
+        for (Map.Entry<String, BsonValue> operator : managed.entrySet()) {
+            if (operator.getValue().isDocument() && operator.getValue().asDocument().containsKey(versionAccessor.getFieldName())) {
+                return managed;
+            }
+        }
+        final BsonDocument versioned = managed.clone();
+        final BsonDocument increments = versioned.containsKey("$inc") ? versioned.getDocument("$inc") : new BsonDocument();
+        increments.put(versionAccessor.getFieldName(), new BsonInt32(1));
+        versioned.put("$inc", increments);
+        return versioned;
+    }
+
+    /**
+     * Saves the changes made to an entity since it was loaded or last saved through this collection.
+     *
+     * @param object the entity
+     * @return The UpdateResult result
+     * @throws MongoWriteException        If the write failed due some other failure specific to the update command
+     * @throws MongoWriteConcernException If the write failed due being unable to fulfill the write concern
+     * @throws MongoException             If an error occurred
+     * @see #saveChanges(Object, WriteConcern)
+     * @since 5.1.1
+     */
+    public UpdateResult saveChanges(TResult object) throws MongoWriteException, MongoWriteConcernException, MongoException {
+        return this.saveChanges(object, null);
+    }
+
+    /**
+     * Saves the changes made to an entity since it was loaded or last saved through this collection, on a collection
+     * built {@link JacksonMongoCollectionBuilder#withEntityTracking(boolean) with entity tracking}.
+     * <p>
+     * The entity is compared with the document it was loaded from, and only the fields that changed are written, with
+     * {@code $set} and {@code $unset}, or {@code $push} for arrays that only had elements appended.  Nothing is
+     * written if nothing changed.  The whole document is replaced instead if that is smaller than the update, and the
+     * entity is {@link #save(Object, WriteConcern) saved} as is if it isn't tracked, or has no id yet.  Fields of the
+     * stored document that the entity doesn't map are left alone.  An entity with a {@link Version version} is only
+     * written if the stored document is still at its version, which is incremented.
+     *
+     * @param object  the entity
+     * @param concern the write concern
+     * @return The UpdateResult result
+     * @throws MongoWriteException        If the write failed due some other failure specific to the update command
+     * @throws MongoWriteConcernException If the write failed due being unable to fulfill the write concern
+     * @throws MongoException             If an error occurred
+     * @throws VersionConflictException   If the entity has a version, and the stored document is at another one
+     * @throws IllegalStateException      If this collection doesn't track entities
+     * @since 5.1.1
+     */
+    public UpdateResult saveChanges(TResult object, WriteConcern concern) throws MongoWriteException, MongoWriteConcernException, MongoException {
+        if (!(jacksonCodecRegistry instanceof TrackingJacksonCodecRegistry)) {
+            throw new IllegalStateException("saveChanges needs a collection built with entity tracking");
+        }
+        final TrackingJacksonCodec<TResult> codec = (TrackingJacksonCodec<TResult>) getValueClassCollectibleCodec();
+        final EntityTracker tracker = codec.getTracker();
+        final RawBsonDocument snapshot = tracker.getSnapshot(object);
+        final BsonValue _id = codec.getDocumentId(object);
+        if (snapshot == null || _id == null || _id.isNull()) {
+            final UpdateResult result = save(object, concern);
+            tracker.track(object, new RawBsonDocument(object, codec));
+            return result;
+        }
+        // the snapshot goes through the codec again, so that fields the entity doesn't map aren't seen as removed
+        final RawBsonDocument before = new RawBsonDocument(codec.decodeUntracked(snapshot), codec);
+        final RawBsonDocument after = new RawBsonDocument(object, codec);
+        final Map<String, Map<String, UpdateOperationValue>> changes = DocumentDiff.diff(
+            before.decode(BSON_DOCUMENT_CODEC),
+            after.decode(BSON_DOCUMENT_CODEC)
+        );
+        if (changes != null && changes.isEmpty()) {
+            return UpdateResult.acknowledged(0, 0L, null);
+        }
+        final MongoCollection<TResult> collection = concern == null ? mongoCollection : mongoCollection.withWriteConcern(concern);
+        final VersionAccessor versionAccessor = getVersionAccessor(object.getClass());
+        final Long version = versionAccessor == null ? null : versionAccessor.getVersion(object);
+        if (changes != null && versionAccessor != null) {
+            if (version == null) {
+                changes.computeIfAbsent("$set", k -> new LinkedHashMap<>())
+                    .put(versionAccessor.getFieldName(), new SingleUpdateOperationValue(false, false, versionAccessor.toBson(0L)));
+            } else {
+                changes.computeIfAbsent("$inc", k -> new LinkedHashMap<>())
+                    .put(versionAccessor.getFieldName(), new SingleUpdateOperationValue(false, false, new BsonInt32(1)));
+            }
+        }
+        final BsonDocument update = changes == null ? null : DocumentSerializationUtils
+            .serializeUpdates(changes, objectMapper, type, jacksonCodecRegistry)
+            .toBsonDocument(valueClass, jacksonCodecRegistry);
+        final UpdateResult result;
+        if (update == null || new RawBsonDocument(update, BSON_DOCUMENT_CODEC).getByteBuffer().remaining() > after.getByteBuffer().remaining()) {
+            if (versionAccessor != null) {
+                result = replaceVersioned(_id, object, versionAccessor, collection, false);
+                tracker.track(object, new RawBsonDocument(object, codec));
+                return result;
+            }
+            final BsonDocument query = new BsonDocument("_id", _id);
+            result = write(query, () -> collection.replaceOne(query, object));
+        } else if (versionAccessor != null) {
+            final BsonDocument query = new BsonDocument("_id", _id).append(versionAccessor.getFieldName(), versionAccessor.toBson(version));
+            result = write(query, () -> collection.updateOne(query, update));
+            if (result.wasAcknowledged() && result.getMatchedCount() == 0) {
+                throw new VersionConflictException(_id, version, null);
+            }
+            versionAccessor.setVersion(object, version == null ? 0L : version + 1);
+            tracker.track(object, new RawBsonDocument(object, codec));
+            return result;
+        } else {
+            final BsonDocument query = new BsonDocument("_id", _id);
+            result = write(query, () -> collection.updateOne(query, update));
+        }
+        tracker.track(object, after);
+        return result;
+    }
+
     private CollectibleCodec<TResult> getValueClassCollectibleCodec() {
         return (CollectibleCodec<TResult>) jacksonCodecRegistry.get(valueClass);
     }
 
+    /**
+     * Generates the missing ids of a batch up front, so that id generators can hand them out in one go rather than
+     * being asked once per document while the batch is encoded.
+     */
+    private void generateIdsIfAbsent(final List<TResult> list) {
+        getOptionalValueClassCodec().ifPresent(codec -> codec.generateIdsIfAbsent(list));
+    }
+
     private Optional<JacksonCodec<TResult>> getOptionalValueClassCodec() {
         final Codec<TResult> tResultCodec = jacksonCodecRegistry.get(valueClass);
         if (tResultCodec instanceof JacksonCodec) {
@@ -502,42 +1301,122 @@ public class JacksonMongoCollection<TResult> extends MongoCollectionDecorator<TR
         return (List<Bson>) pipeline;
     }
 
-    @SuppressWarnings({"unchecked", "rawtypes"})
     @Override
     protected List<WriteModel<TResult>> manageBulkWriteRequests(final List<? extends WriteModel<? extends TResult>> requests) {
-        return requests.stream()
-            .map(
-                request -> {
-                    if (request instanceof DeleteOneModel) {
-                        final DeleteOneModel<TResult> deleteRequest = (DeleteOneModel) request;
-                        return new DeleteOneModel<TResult>(manageFilterBson(deleteRequest.getFilter()), deleteRequest.getOptions());
-                    }
-                    if (request instanceof DeleteManyModel) {
-                        final DeleteManyModel<TResult> deleteRequest = (DeleteManyModel) request;
-                        return new DeleteManyModel<TResult>(manageFilterBson(deleteRequest.getFilter()), deleteRequest.getOptions());
-                    }
-                    if (request instanceof ReplaceOneModel) {
-                        final ReplaceOneModel<TResult> replaceRequest = (ReplaceOneModel) request;
-                        return new ReplaceOneModel<>(manageFilterBson(replaceRequest.getFilter()), replaceRequest.getReplacement(), replaceRequest.getReplaceOptions());
-                    }
-                    if (request instanceof UpdateOneModel) {
-                        final UpdateOneModel<TResult> updateRequest = (UpdateOneModel) request;
-                        if (updateRequest.getUpdatePipeline() != null) {
-                            return new UpdateOneModel<TResult>(manageFilterBson(updateRequest.getFilter()), manageUpdatePipeline(updateRequest.getUpdatePipeline()), updateRequest.getOptions());
-                        }
-                        return new UpdateOneModel<TResult>(manageFilterBson(updateRequest.getFilter()), manageUpdateBson(updateRequest.getUpdate()), updateRequest.getOptions());
-                    }
-                    if (request instanceof UpdateManyModel) {
-                        final UpdateManyModel<TResult> updateRequest = (UpdateManyModel) request;
-                        if (updateRequest.getUpdatePipeline() != null) {
-                            return new UpdateManyModel<TResult>(manageFilterBson(updateRequest.getFilter()), manageUpdatePipeline(updateRequest.getUpdatePipeline()), updateRequest.getOptions());
-                        }
-                        return new UpdateManyModel<TResult>(manageFilterBson(updateRequest.getFilter()), manageUpdateBson(updateRequest.getUpdate()), updateRequest.getOptions());
-                    }
-                    return (WriteModel<TResult>) request;
+        return manageBulkWriteRequests(requests, new HashMap<>());
+    }
+
+    /**
+     * Manages the requests of a bulk write, incrementing the versions of the replacements that have one.
+     *
+     * @param requests        the requests
+     * @param versionRestores filled with what puts the version of each of these replacements back, by the index of its
+     *                        request
+     * @return the managed requests
+     */
+    private List<WriteModel<TResult>> manageBulkWriteRequests(
+        final List<? extends WriteModel<? extends TResult>> requests,
+        final Map<Integer, Runnable> versionRestores
+    ) {
+        final List<WriteModel<TResult>> managed = new ArrayList<>(requests.size());
+        for (int index = 0; index < requests.size(); index++) {
+            managed.add(manageBulkWriteRequest(requests.get(index), index, versionRestores));
+        }
+        return managed;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private WriteModel<TResult> manageBulkWriteRequest(
+        final WriteModel<? extends TResult> request,
+        final int index,
+        final Map<Integer, Runnable> versionRestores
+    ) {
+        if (request instanceof DeleteOneModel) {
+            final DeleteOneModel<TResult> deleteRequest = (DeleteOneModel) request;
+            return new DeleteOneModel<TResult>(manageFilterBson(deleteRequest.getFilter()), deleteRequest.getOptions());
+        }
+        if (request instanceof DeleteManyModel) {
+            final DeleteManyModel<TResult> deleteRequest = (DeleteManyModel) request;
+            return new DeleteManyModel<TResult>(manageFilterBson(deleteRequest.getFilter()), deleteRequest.getOptions());
+        }
+        if (request instanceof ReplaceOneModel) {
+            final ReplaceOneModel<TResult> replaceRequest = (ReplaceOneModel) request;
+            final TResult replacement = replaceRequest.getReplacement();
+            final VersionAccessor versionAccessor = replacement instanceof EncodedDocument ? null : getVersionAccessor(replacement.getClass());
+            if (versionAccessor != null) {
+                final Long version = versionAccessor.getVersion(replacement);
+                versionAccessor.setVersion(replacement, version == null ? 0L : version + 1);
+                versionRestores.put(index, () -> versionAccessor.setVersion(replacement, version));
+                return new ReplaceOneModel<>(
+                    Filters.and(
+                        manageFilterBson(replaceRequest.getFilter()),
+                        new BsonDocument(versionAccessor.getFieldName(), versionAccessor.toBson(version))
+                    ),
+                    replacement,
+                    replaceRequest.getReplaceOptions()
+                );
+            }
+            return new ReplaceOneModel<>(manageFilterBson(replaceRequest.getFilter()), replacement, replaceRequest.getReplaceOptions());
+        }
+        if (request instanceof UpdateOneModel) {
+            final UpdateOneModel<TResult> updateRequest = (UpdateOneModel) request;
+            if (updateRequest.getUpdatePipeline() != null) {
+                return new UpdateOneModel<TResult>(manageFilterBson(updateRequest.getFilter()), manageUpdatePipeline(updateRequest.getUpdatePipeline()), updateRequest.getOptions());
+            }
+            return new UpdateOneModel<TResult>(manageFilterBson(updateRequest.getFilter()), manageUpdateBson(updateRequest.getUpdate()), updateRequest.getOptions());
+        }
+        if (request instanceof UpdateManyModel) {
+            final UpdateManyModel<TResult> updateRequest = (UpdateManyModel) request;
+            if (updateRequest.getUpdatePipeline() != null) {
+                return new UpdateManyModel<TResult>(manageFilterBson(updateRequest.getFilter()), manageUpdatePipeline(updateRequest.getUpdatePipeline()), updateRequest.getOptions());
+            }
+            return new UpdateManyModel<TResult>(manageFilterBson(updateRequest.getFilter()), manageUpdateBson(updateRequest.getUpdate()), updateRequest.getOptions());
+        }
+        return (WriteModel<TResult>) request;
+    }
+
+    /**
+     * Runs a bulk write, putting back the versions of the replacements it didn't write.
+     */
+    @Override
+    protected BulkWriteResult executeBulkWrite(
+        final ClientSession clientSession,
+        final List<? extends WriteModel<? extends TResult>> requests,
+        final boolean ordered,
+        final Function<List<WriteModel<TResult>>, BulkWriteResult> operation
+    ) {
+        return write(clientSession, null, () -> {
+            final Map<Integer, Runnable> versionRestores = new HashMap<>();
+            final List<WriteModel<TResult>> managed = manageBulkWriteRequests(requests, versionRestores);
+            return restoreVersionsOnFailure(versionRestores, ordered, () -> operation.apply(managed));
+        });
+    }
+
+    /**
+     * Runs a bulk write whose versioned replacements have had their versions incremented, and puts back the versions
+     * of the ones that weren't written if it fails.  Replacements that were written but didn't match, because the
+     * document is at another version, only show in the matched count, and keep their incremented version.
+     */
+    private <R> R restoreVersionsOnFailure(final Map<Integer, Runnable> versionRestores, final boolean ordered, final Supplier<R> operation) {
+        if (versionRestores.isEmpty()) {
+            return operation.get();
+        }
+        try {
+            return operation.get();
+        } catch (MongoBulkWriteException e) {
+            // the failed requests weren't written, nor, if the write is ordered, were the ones after the first of them
+            final Set<Integer> failed = e.getWriteErrors().stream().map(BulkWriteError::getIndex).collect(Collectors.toSet());
+            final int firstFailed = failed.stream().mapToInt(Integer::intValue).min().orElse(Integer.MAX_VALUE);
+            versionRestores.forEach((index, restore) -> {
+                if (failed.contains(index) || (ordered && index > firstFailed)) {
+                    restore.run();
                 }
-            )
-            .collect(Collectors.toList());
+            });
+            throw e;
+        } catch (RuntimeException e) {
+            versionRestores.values().forEach(Runnable::run);
+            throw e;
+        }
     }
 
     @Override
@@ -550,6 +1429,129 @@ public class JacksonMongoCollection<TResult> extends MongoCollectionDecorator<TR
         return new FindIterableDecorator<>(input, objectMapper, type, jacksonCodecRegistry, serializationOptions);
     }
 
+    @Override
+    protected <T1> FindIterable<T1> wrapIterable(
+        final FindIterable<T1> input,
+        final Class<T1> resultClass,
+        final Supplier<FindIterable<RawBsonDocument>> rawQuery
+    ) {
+        final FindIterableDecorator<T1> iterable =
+            new FindIterableDecorator<>(input, objectMapper, type, jacksonCodecRegistry, serializationOptions, resultClass, rawQuery);
+        final BsonDocument projection = getDerivedProjection(resultClass);
+        if (projection != null) {
+            iterable.projection(projection);
+        }
+        return iterable;
+    }
+
+    /**
+     * @return the projection of the fields results of the given class are read from, or null if they are read from
+     * the whole document, or projections aren't derived for this collection
+     */
+    private BsonDocument getDerivedProjection(final Class<?> resultClass) {
+        if (!projectionPushdown) {
+            return null;
+        }
+        final Codec<?> codec;
+        try {
+            codec = jacksonCodecRegistry.get(resultClass);
+        } catch (CodecConfigurationException e) {
+            // left for the find to report
+            return null;
+        }
+        return codec instanceof JacksonCodec ? ((JacksonCodec<?>) codec).getProjection() : null;
+    }
+
+    /**
+     * Forgets the documents the write may have changed from the entity cache, if there's one, once it's done.
+     */
+    @Override
+    protected <R> R write(final Bson filter, final Supplier<R> operation) {
+        if (entityCache == null) {
+            return operation.get();
+        }
+        try {
+            return operation.get();
+        } finally {
+            final List<BsonValue> ids = filter == null ? null : findIds(filter);
+            if (ids == null) {
+                entityCache.invalidateAll();
+            } else {
+                ids.forEach(entityCache::invalidate);
+            }
+        }
+    }
+
+    /**
+     * Like {@link #write(Bson, Supplier)}, also keeping the documents written to in a transaction out of the entity
+     * cache until the transaction is over.
+     */
+    @Override
+    protected <R> R write(final ClientSession clientSession, final Bson filter, final Supplier<R> operation) {
+        if (entityCache != null && clientSession != null && clientSession.hasActiveTransaction()) {
+            entityCache.invalidateInTransaction(clientSession, filter == null ? null : findIds(filter));
+        }
+        return write(filter, operation);
+    }
+
+    /**
+     * @return the ids of the only documents a filter can match, as they are written to the database, or null if it
+     * doesn't limit them to given ids
+     */
+    private List<BsonValue> findIds(final Bson filter) {
+        final BsonValue _id;
+        try {
+            final BsonDocument document = filter instanceof BsonDocument
+                ? (BsonDocument) filter
+                : manageFilterBson(filter).toBsonDocument(valueClass, jacksonCodecRegistry);
+            _id = document.get("_id");
+        } catch (RuntimeException e) {
+            return null;
+        }
+        if (_id == null) {
+            return null;
+        }
+        if (!_id.isDocument() || _id.asDocument().isEmpty() || !_id.asDocument().getFirstKey().startsWith("$")) {
+            return Collections.singletonList(_id);
+        }
+        final BsonDocument condition = _id.asDocument();
+        if (condition.size() == 1 && condition.containsKey("$eq")) {
+            return Collections.singletonList(condition.get("$eq"));
+        }
+        if (condition.size() == 1 && condition.containsKey("$in") && condition.get("$in").isArray()) {
+            return condition.getArray("$in").getValues();
+        }
+        return null;
+    }
+
+    /**
+     * Decodes raw documents, such as the results of an aggregation run for {@link RawBsonDocument}s, on an executor
+     * rather than on the consuming thread, like {@link FindIterableDecorator#parallelDecode(Executor, boolean, int)}
+     * does for finds.
+     *
+     * @param documents the raw documents
+     * @param executor  the executor to decode on
+     * @param ordered   whether the results keep the order of the raw documents
+     * @param window    the maximum number of results decoded or being decoded ahead of the consumer, which bounds the
+     *                  memory they hold
+     * @return the decoded documents
+     * @since 5.1.1
+     */
+    public MongoIterable<TResult> decodeParallel(
+        final MongoIterable<RawBsonDocument> documents,
+        final Executor executor,
+        final boolean ordered,
+        final int window
+    ) {
+        return new ParallelDecodingIterable<>(
+            documents,
+            ParallelDecodingIterable.decodingWith(jacksonCodecRegistry.get(valueClass)),
+            executor,
+            ordered,
+            window
+        );
+    }
+
     @Override
     protected <T1> MapReduceIterable<T1> wrapIterable(final MapReduceIterable<T1> input) {
         return new MapReduceIterableDecorator<>(input, objectMapper, type, jacksonCodecRegistry, serializationOptions);
@@ -561,7 +1563,8 @@ public class JacksonMongoCollection<TResult> extends MongoCollectionDecorator<TR
     }
 
     /**
-     * Performs an update operation.
+     * Performs an update operation.  If the value class has a {@link Version version}, the update increments it,
+     * without checking what it was, see {@link #updateById(Object, long, Bson)} for that.
      *
      * @param _id    The id of the document to update
      * @param update update with which to update
@@ -572,12 +1575,47 @@ public class JacksonMongoCollection<TResult> extends MongoCollectionDecorator<TR
      */
     public UpdateResult updateById(Object _id, Bson update)
         throws MongoException, MongoWriteException, MongoWriteConcernException {
+        final VersionAccessor versionAccessor = getVersionAccessor(valueClass);
+        if (versionAccessor != null) {
+            final Bson query = createIdQuery(_id);
+            return write(query, () -> mongoCollection.updateOne(manageFilterBson(query), incrementVersion(update, versionAccessor)));
+        }
         return updateOne(
             createIdQuery(_id),
             update
         );
     }
 
+    /**
+     * Performs an update operation on the document with this _id, if it is at the given {@link Version version}, and
+     * increments the version along with the update.
+     *
+     * @param _id             The id of the document to update
+     * @param expectedVersion The version the document must be at
+     * @param update          update with which to update
+     * @return The write result
+     * @throws VersionConflictException   If the document isn't at the expected version
+     * @throws MongoWriteException        If the write failed due some other failure specific to the update command
+     * @throws MongoWriteConcernException If the write failed due being unable to fulfill the write concern
+     * @throws MongoException             If an error occurred
+     * @throws IllegalArgumentException   If the value class has no version
+     * @since 5.1.1
+     */
+    public UpdateResult updateById(Object _id, long expectedVersion, Bson update)
+        throws MongoException, MongoWriteException, MongoWriteConcernException {
+        final VersionAccessor versionAccessor = getVersionAccessor(valueClass);
+        if (versionAccessor == null) {
+            throw new IllegalArgumentException(valueClass + " has no @Version property");
+        }
+        final BsonValue id = createIdQuery(_id).toBsonDocument(valueClass, jacksonCodecRegistry).get("_id");
+        final BsonDocument query = new BsonDocument("_id", id).append(versionAccessor.getFieldName(), versionAccessor.toBson(expectedVersion));
+        final UpdateResult result = write(query, () -> mongoCollection.updateOne(query, incrementVersion(update, versionAccessor)));
+        if (result.wasAcknowledged() && result.getMatchedCount() == 0) {
+            throw new VersionConflictException(id, expectedVersion, null);
+        }
+        return result;
+    }
+
     @Override
     public Long getTimeout(TimeUnit timeUnit) {
         return mongoCollection.getTimeout(timeUnit);
@@ -592,7 +1630,9 @@ public class JacksonMongoCollection<TResult> extends MongoCollectionDecorator<TR
             clazz,
             objectMapper.constructType(clazz),
             mongoCollection.withDocumentClass(clazz),
-            serializationOptions
+            serializationOptions,
+            projectionPushdown,
+            entityCache
         );
     }
 
@@ -606,7 +1646,9 @@ public class JacksonMongoCollection<TResult> extends MongoCollectionDecorator<TR
                 valueClass,
                 type,
                 mongoCollection.withCodecRegistry(codecRegistry),
-                serializationOptions
+                serializationOptions,
+                projectionPushdown,
+                entityCache
             );
         }
         return mongoCollection.withCodecRegistry(codecRegistry);
@@ -621,7 +1663,9 @@ public class JacksonMongoCollection<TResult> extends MongoCollectionDecorator<TR
             valueClass,
             type,
             mongoCollection.withReadPreference(readPreference),
-            serializationOptions
+            serializationOptions,
+            projectionPushdown,
+            entityCache
         );
     }
 
@@ -634,7 +1678,9 @@ public class JacksonMongoCollection<TResult> extends MongoCollectionDecorator<TR
             valueClass,
             type,
             mongoCollection.withWriteConcern(writeConcern),
-            serializationOptions
+            serializationOptions,
+            projectionPushdown,
+            entityCache
         );
     }
 
@@ -647,7 +1693,9 @@ public class JacksonMongoCollection<TResult> extends MongoCollectionDecorator<TR
             valueClass,
             type,
             mongoCollection.withReadConcern(readConcern),
-            serializationOptions
+            serializationOptions,
+            projectionPushdown,
+            entityCache
         );
     }
 
@@ -660,18 +1708,20 @@ public class JacksonMongoCollection<TResult> extends MongoCollectionDecorator<TR
             valueClass,
             type,
             mongoCollection.withTimeout(l, timeUnit),
-            serializationOptions
+            serializationOptions,
+            projectionPushdown,
+            entityCache
         );
     }
 
     @Override
     public void drop(final DropCollectionOptions dropCollectionOptions) {
-        mongoCollection.drop(dropCollectionOptions);
+        write(null, () -> mongoCollection.drop(dropCollectionOptions));
     }
 
     @Override
     public void drop(final ClientSession clientSession, final DropCollectionOptions dropCollectionOptions) {
-        mongoCollection.drop(clientSession, dropCollectionOptions);
+        write(clientSession, null, () -> mongoCollection.drop(clientSession, dropCollectionOptions));
     }
 
     @Override
@@ -722,6 +1772,15 @@ public class JacksonMongoCollection<TResult> extends MongoCollectionDecorator<TR
         private ObjectMapper objectMapper;
         private Class<?> view;
         private SerializationOptions serializationOptions = SerializationOptions.builder().build();
+        private Class<?>[] warmUpClasses;
+        private ForkJoinPool warmUpPool;
+        private JacksonCodecRegistryFactory codecRegistryFactory = JacksonCodecRegistryFactory.getDefault();
+        private IdGenerators idGenerators;
+        private boolean entityTracking;
+        private boolean projectionPushdown;
+        private long entityCacheMaximumSize;
+        private Duration entityCacheTimeToLive;
+        private boolean entityCacheChangeStream;
 
         private JacksonMongoCollectionBuilder() {
         }
@@ -754,6 +1813,128 @@ public class JacksonMongoCollection<TResult> extends MongoCollectionDecorator<TR
             return this;
         }
 
+        /**
+         * Set the factory the codec registry of this collection is obtained from.  By default, collections share the
+         * registries of {@link JacksonCodecRegistryFactory#getDefault()}.  Optional.
+         *
+         * @param codecRegistryFactory the factory, or null to give this collection a registry of its own
+         * @return the builder
+         * @since 5.1.1
+         */
+        public JacksonMongoCollectionBuilder withCodecRegistryFactory(final JacksonCodecRegistryFactory codecRegistryFactory) {
+            this.codecRegistryFactory = codecRegistryFactory;
+            return this;
+        }
+
+        /**
+         * Set the {@link IdGenerator} instances used for the classes annotated with {@link IdGeneration} that name
+         * their class; generators of other classes are created with their no-arg constructor.  Generators that need
+         * configuring, like {@link HiLoIdGenerator}, have to be given here.  A collection given generators has a codec
+         * registry of its own, whatever the {@link #withCodecRegistryFactory(JacksonCodecRegistryFactory) factory}.
+         * Optional.
+         *
+         * @param generators the generators
+         * @return the builder
+         * @since 5.1.1
+         */
+        public JacksonMongoCollectionBuilder withIdGenerators(final IdGenerator<?>... generators) {
+            this.idGenerators = new IdGenerators(generators);
+            return this;
+        }
+
+        /**
+         * Track the entities this collection loads, so that {@link JacksonMongoCollection#saveChanges(Object)} can
+         * write only what changed.  A tracking collection has a codec registry of its own, whatever the
+         * {@link #withCodecRegistryFactory(JacksonCodecRegistryFactory) factory}.  Optional, off by default.
+         *
+         * @param entityTracking whether to track loaded entities
+         * @return the builder
+         * @since 5.1.1
+         */
+        public JacksonMongoCollectionBuilder withEntityTracking(final boolean entityTracking) {
+            this.entityTracking = entityTracking;
+            return this;
+        }
+
+        /**
+         * Fetch only the fields the results of a find are read from, as worked out from the properties Jackson
+         * deserializes with the view of the collection, when the find isn't given a projection.  Finds for a class
+         * other than the value type, with {@link JacksonMongoCollection#withDocumentClass(Class)} or
+         * {@link JacksonMongoCollection#find(Bson, Class)}, are projected on the properties of that class.  Off by
+         * default, as properties Jackson can't see statically, such as {@code @JsonAnySetter}, {@code JsonNode} or
+         * {@code Map} catch-alls, subtype fields and custom deserializers, aren't fetched when it's on.
+         *
+         * @param projectionPushdown whether to derive projections
+         * @return the builder
+         * @since 5.1.1
+         */
+        public JacksonMongoCollectionBuilder withProjectionPushdown(final boolean projectionPushdown) {
+            this.projectionPushdown = projectionPushdown;
+            return this;
+        }
+
+        /**
+         * Cache the documents read by {@link JacksonMongoCollection#findOneById(Object)}, see {@link EntityCache}.
+         * Optional, off by default.
+         *
+         * @param maximumSize the maximum number of documents cached, past which the least recently used are evicted
+         * @param timeToLive  how long a document is cached for
+         * @return the builder
+         * @since 5.1.1
+         */
+        public JacksonMongoCollectionBuilder withEntityCache(final long maximumSize, final Duration timeToLive) {
+            this.entityCacheMaximumSize = maximumSize;
+            this.entityCacheTimeToLive = timeToLive;
+            return this;
+        }
+
+        /**
+         * Also forget the cached documents that the change stream of the collection reports changes of, so that writes
+         * made elsewhere are noticed.  The stream is watched on a daemon thread until the collection is
+         * {@link JacksonMongoCollection#close() closed}, or neither it nor the collections derived from it are used
+         * any more, and documents are only cached while it is open, so this needs a replica set or a sharded cluster.
+         * Optional, off by default.
+         *
+         * @param entityCacheChangeStream whether to watch the change stream
+         * @return the builder
+         * @since 5.1.1
+         */
+        public JacksonMongoCollectionBuilder withEntityCacheChangeStream(final boolean entityCacheChangeStream) {
+            this.entityCacheChangeStream = entityCacheChangeStream;
+            return this;
+        }
+
+        /**
+         * Warm up the codecs of the value type, and of any additional classes given, when the collection is built,
+         * rather than on first use.  Optional.
+         *
+         * @param additionalClasses other classes that are encoded or decoded through this collection
+         * @return the builder
+         * @see JacksonCodecRegistry#warmUp(Class[])
+         * @since 5.1.1
+         */
+        public JacksonMongoCollectionBuilder withWarmUp(final Class<?>... additionalClasses) {
+            this.warmUpClasses = additionalClasses;
+            this.warmUpPool = null;
+            return this;
+        }
+
+        /**
+         * Like {@link #withWarmUp(Class[])}, but warms up the classes in parallel on the given pool, which pays off
+         * when there are many additional classes.  Optional.
+         *
+         * @param pool              the pool to warm up on
+         * @param additionalClasses other classes that are encoded or decoded through this collection
+         * @return the builder
+         * @see JacksonCodecRegistry#warmUp(ForkJoinPool, Class[])
+         * @since 5.1.1
+         */
+        public JacksonMongoCollectionBuilder withWarmUp(final ForkJoinPool pool, final Class<?>... additionalClasses) {
+            this.warmUpClasses = additionalClasses;
+            this.warmUpPool = pool;
+            return this;
+        }
+
         /**
          * Builds a {@link JacksonMongoCollection}. Required parameters are set here.
          *
@@ -819,7 +2000,26 @@ public class JacksonMongoCollection<TResult> extends MongoCollectionDecorator<TR
          * @return A constructed collection
          */
         public <CT> JacksonMongoCollection<CT> build(com.mongodb.client.MongoCollection<CT> mongoCollection, Class<CT> valueType, final UuidRepresentation uuidRepresentation) {
-            return new JacksonMongoCollection<>(mongoCollection, this.objectMapper, valueType, view, serializationOptions, uuidRepresentation);
+            if (entityCacheChangeStream && entityCacheTimeToLive == null) {
+                throw new IllegalStateException("The change stream can only be watched for an entity cache");
+            }
+            final EntityCache entityCache = entityCacheTimeToLive == null ? null : new EntityCache(entityCacheMaximumSize, entityCacheTimeToLive);
+            final JacksonMongoCollection<CT> collection =
+                new JacksonMongoCollection<>(mongoCollection, this.objectMapper, valueType, view, serializationOptions, uuidRepresentation, codecRegistryFactory, idGenerators, entityTracking, projectionPushdown, entityCache);
+            if (warmUpClasses != null) {
+                final Class<?>[] classes = new Class<?>[warmUpClasses.length + 1];
+                classes[0] = valueType;
+                System.arraycopy(warmUpClasses, 0, classes, 1, warmUpClasses.length);
+                if (warmUpPool == null) {
+                    collection.jacksonCodecRegistry.warmUp(classes);
+                } else {
+                    collection.jacksonCodecRegistry.warmUp(warmUpPool, classes);
+                }
+            }
+            if (entityCacheChangeStream) {
+                entityCache.watch(mongoCollection);
+            }
+            return collection;
         }
 
     }
@@ -36,10 +36,13 @@ import com.mongodb.client.result.InsertOneResult;
 import com.mongodb.client.result.UpdateResult;
 import com.mongodb.lang.Nullable;
 import org.bson.Document;
+import org.bson.RawBsonDocument;
 import org.bson.codecs.configuration.CodecRegistry;
 import org.bson.conversions.Bson;
 
 import java.util.List;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 /**
  * A base class for decorating a MongoCollection.
@@ -121,6 +124,20 @@ public abstract class MongoCollectionDecorator<TDocument> implements MongoCollec
      */
     protected abstract <T> FindIterable<T> wrapIterable(FindIterable<T> input);
 
+    /**
+     * Wraps the iterable of a find, given what it takes to run the same find for raw documents.  By default, the same
+     * as {@link #wrapIterable(FindIterable)}.
+     *
+     * @param input       a valid iterable
+     * @param resultClass the class of the results
+     * @param rawQuery    runs the same find for raw documents
+     * @param <T>         return type of the iterable
+     * @return a wrapped iterable that supports some extended filter operations
+     */
+    protected <T> FindIterable<T> wrapIterable(FindIterable<T> input, Class<T> resultClass, Supplier<FindIterable<RawBsonDocument>> rawQuery) {
+        return wrapIterable(input);
+    }
+
     /**
      * Wraps an iterable that supports further .filter() calls so that we can perform mapping on them.
      *
@@ -130,6 +147,79 @@ public abstract class MongoCollectionDecorator<TDocument> implements MongoCollec
      */
     protected abstract <T> MapReduceIterable<T> wrapIterable(MapReduceIterable<T> input);
 
+    /**
+     * Runs a write that may change the documents matching a filter.  Subclasses that hold on to documents, in a cache
+     * for example, can override this to forget them once the write is done.
+     *
+     * @param filter    the filter of the write, as it was given, or null if the write may change any document
+     * @param operation the write
+     * @param <R>       the type of the result of the write
+     * @return the result of the write
+     */
+    protected <R> R write(final Bson filter, final Supplier<R> operation) {
+        return operation.get();
+    }
+
+    /**
+     * Like {@link #write(Bson, Supplier)}, for a write made with a session, which may be part of a transaction.
+     *
+     * @param clientSession the session of the write, or null if it has none
+     * @param filter        the filter of the write, as it was given, or null if the write may change any document
+     * @param operation     the write
+     * @param <R>           the type of the result of the write
+     * @return the result of the write
+     */
+    protected <R> R write(final ClientSession clientSession, final Bson filter, final Supplier<R> operation) {
+        return write(filter, operation);
+    }
+
+    /**
+     * Like {@link #write(ClientSession, Bson, Supplier)}, for writes without a result.
+     *
+     * @param clientSession the session of the write, or null if it has none
+     * @param filter        the filter of the write, as it was given, or null if the write may change any document
+     * @param operation     the write
+     */
+    protected void write(final ClientSession clientSession, final Bson filter, final Runnable operation) {
+        write(clientSession, filter, () -> {
+            operation.run();
+            return null;
+        });
+    }
+
+    /**
+     * Runs a bulk write with the requests as they come out of {@link #manageBulkWriteRequests(List)}.  Subclasses that
+     * change the documents of the requests while managing them can override this to undo the changes that weren't
+     * written.
+     *
+     * @param clientSession the session of the bulk write, or null if it has none
+     * @param requests      the requests, as they were given
+     * @param ordered       whether the requests are written in order, stopping at the first failure
+     * @param operation     writes the managed requests
+     * @return the result of the bulk write
+     */
+    protected BulkWriteResult executeBulkWrite(
+        final ClientSession clientSession,
+        final List<? extends WriteModel<? extends TDocument>> requests,
+        final boolean ordered,
+        final Function<List<WriteModel<TDocument>>, BulkWriteResult> operation
+    ) {
+        return write(clientSession, null, () -> operation.apply(manageBulkWriteRequests(requests)));
+    }
+
+    /**
+     * Like {@link #write(Bson, Supplier)}, for writes without a result.
+     *
+     * @param filter    the filter of the write, as it was given, or null if the write may change any document
+     * @param operation the write
+     */
+    protected void write(final Bson filter, final Runnable operation) {
+        write(filter, () -> {
+            operation.run();
+            return null;
+        });
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -284,7 +374,7 @@ public abstract class MongoCollectionDecorator<TDocument> implements MongoCollec
      */
     @Override
     public FindIterable<TDocument> find() {
-        return wrapIterable(mongoCollection().find());
+        return wrapIterable(mongoCollection().find(), getDocumentClass(), () -> mongoCollection().find(RawBsonDocument.class));
     }
 
     /**
@@ -292,7 +382,7 @@ public abstract class MongoCollectionDecorator<TDocument> implements MongoCollec
      */
     @Override
     public <TResult> FindIterable<TResult> find(final Class<TResult> tResultClass) {
-        return wrapIterable(mongoCollection().find(tResultClass));
+        return wrapIterable(mongoCollection().find(tResultClass), tResultClass, () -> mongoCollection().find(RawBsonDocument.class));
     }
 
     /**
@@ -300,7 +390,8 @@ public abstract class MongoCollectionDecorator<TDocument> implements MongoCollec
      */
     @Override
     public FindIterable<TDocument> find(final Bson filter) {
-        return wrapIterable(mongoCollection().find(manageFilterBson(filter)));
+        final Bson managedFilter = manageFilterBson(filter);
+        return wrapIterable(mongoCollection().find(managedFilter), getDocumentClass(), () -> mongoCollection().find(managedFilter, RawBsonDocument.class));
     }
 
     /**
@@ -308,7 +399,8 @@ public abstract class MongoCollectionDecorator<TDocument> implements MongoCollec
      */
     @Override
     public <TResult> FindIterable<TResult> find(final Bson filter, final Class<TResult> tResultClass) {
-        return wrapIterable(mongoCollection().find(manageFilterBson(filter), tResultClass));
+        final Bson managedFilter = manageFilterBson(filter);
+        return wrapIterable(mongoCollection().find(managedFilter, tResultClass), tResultClass, () -> mongoCollection().find(managedFilter, RawBsonDocument.class));
     }
 
     /**
@@ -316,7 +408,7 @@ public abstract class MongoCollectionDecorator<TDocument> implements MongoCollec
      */
     @Override
     public FindIterable<TDocument> find(final ClientSession clientSession) {
-        return wrapIterable(mongoCollection().find(clientSession));
+        return wrapIterable(mongoCollection().find(clientSession), getDocumentClass(), () -> mongoCollection().find(clientSession, RawBsonDocument.class));
     }
 
     /**
@@ -324,7 +416,7 @@ public abstract class MongoCollectionDecorator<TDocument> implements MongoCollec
      */
     @Override
     public <TResult> FindIterable<TResult> find(final ClientSession clientSession, final Class<TResult> tResultClass) {
-        return wrapIterable(mongoCollection().find(clientSession, tResultClass));
+        return wrapIterable(mongoCollection().find(clientSession, tResultClass), tResultClass, () -> mongoCollection().find(clientSession, RawBsonDocument.class));
     }
 
     /**
@@ -332,7 +424,8 @@ public abstract class MongoCollectionDecorator<TDocument> implements MongoCollec
      */
     @Override
     public FindIterable<TDocument> find(final ClientSession clientSession, final Bson filter) {
-        return wrapIterable(mongoCollection().find(clientSession, manageFilterBson(filter)));
+        final Bson managedFilter = manageFilterBson(filter);
+        return wrapIterable(mongoCollection().find(clientSession, managedFilter), getDocumentClass(), () -> mongoCollection().find(clientSession, managedFilter, RawBsonDocument.class));
     }
 
     /**
@@ -340,7 +433,8 @@ public abstract class MongoCollectionDecorator<TDocument> implements MongoCollec
      */
     @Override
     public <TResult> FindIterable<TResult> find(final ClientSession clientSession, final Bson filter, final Class<TResult> tResultClass) {
-        return wrapIterable(mongoCollection().find(clientSession, manageFilterBson(filter), tResultClass));
+        final Bson managedFilter = manageFilterBson(filter);
+        return wrapIterable(mongoCollection().find(clientSession, managedFilter, tResultClass), tResultClass, () -> mongoCollection().find(clientSession, managedFilter, RawBsonDocument.class));
     }
 
     /**
@@ -489,7 +583,7 @@ public abstract class MongoCollectionDecorator<TDocument> implements MongoCollec
      */
     @Override
     public BulkWriteResult bulkWrite(final List<? extends WriteModel<? extends TDocument>> requests) {
-        return mongoCollection().bulkWrite(manageBulkWriteRequests(requests));
+        return executeBulkWrite(null, requests, true, managed -> mongoCollection().bulkWrite(managed));
     }
 
     /**
@@ -497,7 +591,7 @@ public abstract class MongoCollectionDecorator<TDocument> implements MongoCollec
      */
     @Override
     public BulkWriteResult bulkWrite(final List<? extends WriteModel<? extends TDocument>> requests, final BulkWriteOptions options) {
-        return mongoCollection().bulkWrite(manageBulkWriteRequests(requests), options);
+        return executeBulkWrite(null, requests, options.isOrdered(), managed -> mongoCollection().bulkWrite(managed, options));
     }
 
     /**
@@ -505,7 +599,7 @@ public abstract class MongoCollectionDecorator<TDocument> implements MongoCollec
      */
     @Override
     public BulkWriteResult bulkWrite(final ClientSession clientSession, final List<? extends WriteModel<? extends TDocument>> requests) {
-        return mongoCollection().bulkWrite(clientSession, manageBulkWriteRequests(requests));
+        return executeBulkWrite(clientSession, requests, true, managed -> mongoCollection().bulkWrite(clientSession, managed));
     }
 
     /**
@@ -517,7 +611,7 @@ public abstract class MongoCollectionDecorator<TDocument> implements MongoCollec
         final List<? extends WriteModel<? extends TDocument>> requests,
         final BulkWriteOptions options
     ) {
-        return mongoCollection().bulkWrite(clientSession, manageBulkWriteRequests(requests), options);
+        return executeBulkWrite(clientSession, requests, options.isOrdered(), managed -> mongoCollection().bulkWrite(clientSession, managed, options));
     }
 
     /**
@@ -589,7 +683,7 @@ public abstract class MongoCollectionDecorator<TDocument> implements MongoCollec
      */
     @Override
     public DeleteResult deleteOne(final Bson filter) {
-        return mongoCollection().deleteOne(manageFilterBson(filter));
+        return write(filter, () -> mongoCollection().deleteOne(manageFilterBson(filter)));
     }
 
     /**
@@ -597,7 +691,7 @@ public abstract class MongoCollectionDecorator<TDocument> implements MongoCollec
      */
     @Override
     public DeleteResult deleteOne(final Bson filter, final DeleteOptions options) {
-        return mongoCollection().deleteOne(manageFilterBson(filter), options);
+        return write(filter, () -> mongoCollection().deleteOne(manageFilterBson(filter), options));
     }
 
     /**
@@ -605,7 +699,7 @@ public abstract class MongoCollectionDecorator<TDocument> implements MongoCollec
      */
     @Override
     public DeleteResult deleteOne(final ClientSession clientSession, final Bson filter) {
-        return mongoCollection().deleteOne(clientSession, manageFilterBson(filter));
+        return write(clientSession, filter, () -> mongoCollection().deleteOne(clientSession, manageFilterBson(filter)));
     }
 
     /**
@@ -613,7 +707,7 @@ public abstract class MongoCollectionDecorator<TDocument> implements MongoCollec
      */
     @Override
     public DeleteResult deleteOne(final ClientSession clientSession, final Bson filter, final DeleteOptions options) {
-        return mongoCollection().deleteOne(clientSession, manageFilterBson(filter), options);
+        return write(clientSession, filter, () -> mongoCollection().deleteOne(clientSession, manageFilterBson(filter), options));
     }
 
     /**
@@ -621,7 +715,7 @@ public abstract class MongoCollectionDecorator<TDocument> implements MongoCollec
      */
     @Override
     public DeleteResult deleteMany(final Bson filter) {
-        return mongoCollection().deleteMany(manageFilterBson(filter));
+        return write(filter, () -> mongoCollection().deleteMany(manageFilterBson(filter)));
     }
 
     /**
@@ -629,7 +723,7 @@ public abstract class MongoCollectionDecorator<TDocument> implements MongoCollec
      */
     @Override
     public DeleteResult deleteMany(final Bson filter, final DeleteOptions options) {
-        return mongoCollection().deleteMany(manageFilterBson(filter), options);
+        return write(filter, () -> mongoCollection().deleteMany(manageFilterBson(filter), options));
     }
 
     /**
@@ -637,7 +731,7 @@ public abstract class MongoCollectionDecorator<TDocument> implements MongoCollec
      */
     @Override
     public DeleteResult deleteMany(final ClientSession clientSession, final Bson filter) {
-        return mongoCollection().deleteMany(clientSession, manageFilterBson(filter));
+        return write(clientSession, filter, () -> mongoCollection().deleteMany(clientSession, manageFilterBson(filter)));
     }
 
     /**
@@ -645,7 +739,7 @@ public abstract class MongoCollectionDecorator<TDocument> implements MongoCollec
      */
     @Override
     public DeleteResult deleteMany(final ClientSession clientSession, final Bson filter, final DeleteOptions options) {
-        return mongoCollection().deleteMany(clientSession, manageFilterBson(filter), options);
+        return write(clientSession, filter, () -> mongoCollection().deleteMany(clientSession, manageFilterBson(filter), options));
     }
 
     /**
@@ -653,7 +747,7 @@ public abstract class MongoCollectionDecorator<TDocument> implements MongoCollec
      */
     @Override
     public UpdateResult replaceOne(final Bson filter, final TDocument replacement) {
-        return mongoCollection().replaceOne(manageFilterBson(filter), replacement);
+        return write(filter, () -> mongoCollection().replaceOne(manageFilterBson(filter), replacement));
     }
 
     /**
@@ -661,7 +755,7 @@ public abstract class MongoCollectionDecorator<TDocument> implements MongoCollec
      */
     @Override
     public UpdateResult replaceOne(final Bson filter, final TDocument replacement, final ReplaceOptions replaceOptions) {
-        return mongoCollection().replaceOne(manageFilterBson(filter), replacement, replaceOptions);
+        return write(filter, () -> mongoCollection().replaceOne(manageFilterBson(filter), replacement, replaceOptions));
     }
 
     /**
@@ -669,7 +763,7 @@ public abstract class MongoCollectionDecorator<TDocument> implements MongoCollec
      */
     @Override
     public UpdateResult replaceOne(final ClientSession clientSession, final Bson filter, final TDocument replacement) {
-        return mongoCollection().replaceOne(clientSession, manageFilterBson(filter), replacement);
+        return write(clientSession, filter, () -> mongoCollection().replaceOne(clientSession, manageFilterBson(filter), replacement));
     }
 
     /**
@@ -682,7 +776,7 @@ public abstract class MongoCollectionDecorator<TDocument> implements MongoCollec
         final TDocument replacement,
         final ReplaceOptions replaceOptions
     ) {
-        return mongoCollection().replaceOne(clientSession, manageFilterBson(filter), replacement, replaceOptions);
+        return write(clientSession, filter, () -> mongoCollection().replaceOne(clientSession, manageFilterBson(filter), replacement, replaceOptions));
     }
 
     /**
@@ -690,7 +784,7 @@ public abstract class MongoCollectionDecorator<TDocument> implements MongoCollec
      */
     @Override
     public UpdateResult updateOne(final Bson filter, final Bson update) {
-        return mongoCollection().updateOne(manageFilterBson(filter), manageUpdateBson(update));
+        return write(filter, () -> mongoCollection().updateOne(manageFilterBson(filter), manageUpdateBson(update)));
     }
 
     /**
@@ -698,7 +792,7 @@ public abstract class MongoCollectionDecorator<TDocument> implements MongoCollec
      */
     @Override
     public UpdateResult updateOne(final Bson filter, final Bson update, final UpdateOptions updateOptions) {
-        return mongoCollection().updateOne(manageFilterBson(filter), manageUpdateBson(update), updateOptions);
+        return write(filter, () -> mongoCollection().updateOne(manageFilterBson(filter), manageUpdateBson(update), updateOptions));
     }
 
     /**
@@ -706,7 +800,7 @@ public abstract class MongoCollectionDecorator<TDocument> implements MongoCollec
      */
     @Override
     public UpdateResult updateOne(final ClientSession clientSession, final Bson filter, final Bson update) {
-        return mongoCollection().updateOne(clientSession, manageFilterBson(filter), manageUpdateBson(update));
+        return write(clientSession, filter, () -> mongoCollection().updateOne(clientSession, manageFilterBson(filter), manageUpdateBson(update)));
     }
 
     /**
@@ -719,7 +813,7 @@ public abstract class MongoCollectionDecorator<TDocument> implements MongoCollec
         final Bson update,
         final UpdateOptions updateOptions
     ) {
-        return mongoCollection().updateOne(clientSession, manageFilterBson(filter), manageUpdateBson(update), updateOptions);
+        return write(clientSession, filter, () -> mongoCollection().updateOne(clientSession, manageFilterBson(filter), manageUpdateBson(update), updateOptions));
     }
 
     /**
@@ -727,7 +821,7 @@ public abstract class MongoCollectionDecorator<TDocument> implements MongoCollec
      */
     @Override
     public UpdateResult updateOne(final Bson filter, final List<? extends Bson> update) {
-        return mongoCollection().updateOne(manageFilterBson(filter), manageUpdatePipeline(update));
+        return write(filter, () -> mongoCollection().updateOne(manageFilterBson(filter), manageUpdatePipeline(update)));
     }
 
     /**
@@ -739,7 +833,7 @@ public abstract class MongoCollectionDecorator<TDocument> implements MongoCollec
         final List<? extends Bson> update,
         final UpdateOptions updateOptions
     ) {
-        return mongoCollection().updateOne(manageFilterBson(filter), manageUpdatePipeline(update), updateOptions);
+        return write(filter, () -> mongoCollection().updateOne(manageFilterBson(filter), manageUpdatePipeline(update), updateOptions));
     }
 
     /**
@@ -747,7 +841,7 @@ public abstract class MongoCollectionDecorator<TDocument> implements MongoCollec
      */
     @Override
     public UpdateResult updateOne(final ClientSession clientSession, final Bson filter, final List<? extends Bson> update) {
-        return mongoCollection().updateOne(clientSession, manageFilterBson(filter), manageUpdatePipeline(update));
+        return write(clientSession, filter, () -> mongoCollection().updateOne(clientSession, manageFilterBson(filter), manageUpdatePipeline(update)));
     }
 
     /**
@@ -760,7 +854,7 @@ public abstract class MongoCollectionDecorator<TDocument> implements MongoCollec
         final List<? extends Bson> update,
         final UpdateOptions updateOptions
     ) {
-        return mongoCollection().updateOne(clientSession, manageFilterBson(filter), manageUpdatePipeline(update), updateOptions);
+        return write(clientSession, filter, () -> mongoCollection().updateOne(clientSession, manageFilterBson(filter), manageUpdatePipeline(update), updateOptions));
     }
 
     /**
@@ -768,7 +862,7 @@ public abstract class MongoCollectionDecorator<TDocument> implements MongoCollec
      */
     @Override
     public UpdateResult updateMany(final Bson filter, final Bson update) {
-        return mongoCollection().updateMany(manageFilterBson(filter), manageUpdateBson(update));
+        return write(filter, () -> mongoCollection().updateMany(manageFilterBson(filter), manageUpdateBson(update)));
     }
 
     /**
@@ -776,7 +870,7 @@ public abstract class MongoCollectionDecorator<TDocument> implements MongoCollec
      */
     @Override
     public UpdateResult updateMany(final Bson filter, final Bson update, final UpdateOptions updateOptions) {
-        return mongoCollection().updateMany(manageFilterBson(filter), manageUpdateBson(update), updateOptions);
+        return write(filter, () -> mongoCollection().updateMany(manageFilterBson(filter), manageUpdateBson(update), updateOptions));
     }
 
     /**
@@ -784,7 +878,7 @@ public abstract class MongoCollectionDecorator<TDocument> implements MongoCollec
      */
     @Override
     public UpdateResult updateMany(final ClientSession clientSession, final Bson filter, final Bson update) {
-        return mongoCollection().updateMany(clientSession, manageFilterBson(filter), manageUpdateBson(update));
+        return write(clientSession, filter, () -> mongoCollection().updateMany(clientSession, manageFilterBson(filter), manageUpdateBson(update)));
     }
 
     /**
@@ -797,7 +891,7 @@ public abstract class MongoCollectionDecorator<TDocument> implements MongoCollec
         final Bson update,
         final UpdateOptions updateOptions
     ) {
-        return mongoCollection().updateMany(clientSession, manageFilterBson(filter), manageUpdateBson(update), updateOptions);
+        return write(clientSession, filter, () -> mongoCollection().updateMany(clientSession, manageFilterBson(filter), manageUpdateBson(update), updateOptions));
     }
 
     /**
@@ -805,7 +899,7 @@ public abstract class MongoCollectionDecorator<TDocument> implements MongoCollec
      */
     @Override
     public UpdateResult updateMany(final Bson filter, final List<? extends Bson> update) {
-        return mongoCollection().updateMany(manageFilterBson(filter), manageUpdatePipeline(update));
+        return write(filter, () -> mongoCollection().updateMany(manageFilterBson(filter), manageUpdatePipeline(update)));
     }
 
     /**
@@ -817,7 +911,7 @@ public abstract class MongoCollectionDecorator<TDocument> implements MongoCollec
         final List<? extends Bson> update,
         final UpdateOptions updateOptions
     ) {
-        return mongoCollection().updateMany(manageFilterBson(filter), manageUpdatePipeline(update), updateOptions);
+        return write(filter, () -> mongoCollection().updateMany(manageFilterBson(filter), manageUpdatePipeline(update), updateOptions));
     }
 
     /**
@@ -825,7 +919,7 @@ public abstract class MongoCollectionDecorator<TDocument> implements MongoCollec
      */
     @Override
     public UpdateResult updateMany(final ClientSession clientSession, final Bson filter, final List<? extends Bson> update) {
-        return mongoCollection().updateMany(clientSession, manageFilterBson(filter), manageUpdatePipeline(update));
+        return write(clientSession, filter, () -> mongoCollection().updateMany(clientSession, manageFilterBson(filter), manageUpdatePipeline(update)));
     }
 
     /**
@@ -838,7 +932,7 @@ public abstract class MongoCollectionDecorator<TDocument> implements MongoCollec
         final List<? extends Bson> update,
         final UpdateOptions updateOptions
     ) {
-        return mongoCollection().updateMany(clientSession, manageFilterBson(filter), manageUpdatePipeline(update), updateOptions);
+        return write(clientSession, filter, () -> mongoCollection().updateMany(clientSession, manageFilterBson(filter), manageUpdatePipeline(update), updateOptions));
     }
 
     /**
@@ -847,7 +941,7 @@ public abstract class MongoCollectionDecorator<TDocument> implements MongoCollec
     @Override
     @Nullable
     public TDocument findOneAndDelete(final Bson filter) {
-        return mongoCollection().findOneAndDelete(manageFilterBson(filter));
+        return write(filter, () -> mongoCollection().findOneAndDelete(manageFilterBson(filter)));
     }
 
     /**
@@ -856,7 +950,7 @@ public abstract class MongoCollectionDecorator<TDocument> implements MongoCollec
     @Override
     @Nullable
     public TDocument findOneAndDelete(final Bson filter, final FindOneAndDeleteOptions options) {
-        return mongoCollection().findOneAndDelete(manageFilterBson(filter), options);
+        return write(filter, () -> mongoCollection().findOneAndDelete(manageFilterBson(filter), options));
     }
 
     /**
@@ -865,7 +959,7 @@ public abstract class MongoCollectionDecorator<TDocument> implements MongoCollec
     @Override
     @Nullable
     public TDocument findOneAndDelete(final ClientSession clientSession, final Bson filter) {
-        return mongoCollection().findOneAndDelete(clientSession, manageFilterBson(filter));
+        return write(clientSession, filter, () -> mongoCollection().findOneAndDelete(clientSession, manageFilterBson(filter)));
     }
 
     /**
@@ -874,7 +968,7 @@ public abstract class MongoCollectionDecorator<TDocument> implements MongoCollec
     @Override
     @Nullable
     public TDocument findOneAndDelete(final ClientSession clientSession, final Bson filter, final FindOneAndDeleteOptions options) {
-        return mongoCollection().findOneAndDelete(clientSession, manageFilterBson(filter), options);
+        return write(clientSession, filter, () -> mongoCollection().findOneAndDelete(clientSession, manageFilterBson(filter), options));
     }
 
     /**
@@ -883,7 +977,7 @@ public abstract class MongoCollectionDecorator<TDocument> implements MongoCollec
     @Override
     @Nullable
     public TDocument findOneAndReplace(final Bson filter, final TDocument replacement) {
-        return mongoCollection().findOneAndReplace(manageFilterBson(filter), replacement);
+        return write(filter, () -> mongoCollection().findOneAndReplace(manageFilterBson(filter), replacement));
     }
 
     /**
@@ -892,7 +986,7 @@ public abstract class MongoCollectionDecorator<TDocument> implements MongoCollec
     @Override
     @Nullable
     public TDocument findOneAndReplace(final Bson filter, final TDocument replacement, final FindOneAndReplaceOptions options) {
-        return mongoCollection().findOneAndReplace(manageFilterBson(filter), replacement, options);
+        return write(filter, () -> mongoCollection().findOneAndReplace(manageFilterBson(filter), replacement, options));
     }
 
     /**
@@ -901,7 +995,7 @@ public abstract class MongoCollectionDecorator<TDocument> implements MongoCollec
     @Override
     @Nullable
     public TDocument findOneAndReplace(final ClientSession clientSession, final Bson filter, final TDocument replacement) {
-        return mongoCollection().findOneAndReplace(clientSession, manageFilterBson(filter), replacement);
+        return write(clientSession, filter, () -> mongoCollection().findOneAndReplace(clientSession, manageFilterBson(filter), replacement));
     }
 
     /**
@@ -910,7 +1004,7 @@ public abstract class MongoCollectionDecorator<TDocument> implements MongoCollec
     @Override
     @Nullable
     public TDocument findOneAndReplace(final ClientSession clientSession, final Bson filter, final TDocument replacement, final FindOneAndReplaceOptions options) {
-        return mongoCollection().findOneAndReplace(clientSession, manageFilterBson(filter), replacement, options);
+        return write(clientSession, filter, () -> mongoCollection().findOneAndReplace(clientSession, manageFilterBson(filter), replacement, options));
     }
 
     /**
@@ -919,7 +1013,7 @@ public abstract class MongoCollectionDecorator<TDocument> implements MongoCollec
     @Override
     @Nullable
     public TDocument findOneAndUpdate(final Bson filter, final Bson update) {
-        return mongoCollection().findOneAndUpdate(manageFilterBson(filter), manageUpdateBson(update));
+        return write(filter, () -> mongoCollection().findOneAndUpdate(manageFilterBson(filter), manageUpdateBson(update)));
     }
 
     /**
@@ -928,7 +1022,7 @@ public abstract class MongoCollectionDecorator<TDocument> implements MongoCollec
     @Override
     @Nullable
     public TDocument findOneAndUpdate(final Bson filter, final Bson update, final FindOneAndUpdateOptions options) {
-        return mongoCollection().findOneAndUpdate(manageFilterBson(filter), manageUpdateBson(update), options);
+        return write(filter, () -> mongoCollection().findOneAndUpdate(manageFilterBson(filter), manageUpdateBson(update), options));
     }
 
     /**
@@ -937,7 +1031,7 @@ public abstract class MongoCollectionDecorator<TDocument> implements MongoCollec
     @Override
     @Nullable
     public TDocument findOneAndUpdate(final ClientSession clientSession, final Bson filter, final Bson update) {
-        return mongoCollection().findOneAndUpdate(clientSession, manageFilterBson(filter), manageUpdateBson(update));
+        return write(clientSession, filter, () -> mongoCollection().findOneAndUpdate(clientSession, manageFilterBson(filter), manageUpdateBson(update)));
     }
 
     /**
@@ -951,7 +1045,7 @@ public abstract class MongoCollectionDecorator<TDocument> implements MongoCollec
         final Bson update,
         final FindOneAndUpdateOptions options
     ) {
-        return mongoCollection().findOneAndUpdate(clientSession, manageFilterBson(filter), manageUpdateBson(update), options);
+        return write(clientSession, filter, () -> mongoCollection().findOneAndUpdate(clientSession, manageFilterBson(filter), manageUpdateBson(update), options));
     }
 
     /**
@@ -960,7 +1054,7 @@ public abstract class MongoCollectionDecorator<TDocument> implements MongoCollec
     @Override
     @Nullable
     public TDocument findOneAndUpdate(final Bson filter, final List<? extends Bson> update) {
-        return mongoCollection().findOneAndUpdate(manageFilterBson(filter), manageUpdatePipeline(update));
+        return write(filter, () -> mongoCollection().findOneAndUpdate(manageFilterBson(filter), manageUpdatePipeline(update)));
     }
 
     /**
@@ -969,7 +1063,7 @@ public abstract class MongoCollectionDecorator<TDocument> implements MongoCollec
     @Override
     @Nullable
     public TDocument findOneAndUpdate(final Bson filter, final List<? extends Bson> update, final FindOneAndUpdateOptions options) {
-        return mongoCollection().findOneAndUpdate(manageFilterBson(filter), manageUpdatePipeline(update), options);
+        return write(filter, () -> mongoCollection().findOneAndUpdate(manageFilterBson(filter), manageUpdatePipeline(update), options));
     }
 
     /**
@@ -978,7 +1072,7 @@ public abstract class MongoCollectionDecorator<TDocument> implements MongoCollec
     @Override
     @Nullable
     public TDocument findOneAndUpdate(final ClientSession clientSession, final Bson filter, final List<? extends Bson> update) {
-        return mongoCollection().findOneAndUpdate(clientSession, manageFilterBson(filter), manageUpdatePipeline(update));
+        return write(clientSession, filter, () -> mongoCollection().findOneAndUpdate(clientSession, manageFilterBson(filter), manageUpdatePipeline(update)));
     }
 
     /**
@@ -992,7 +1086,7 @@ public abstract class MongoCollectionDecorator<TDocument> implements MongoCollec
         final List<? extends Bson> update,
         final FindOneAndUpdateOptions options
     ) {
-        return mongoCollection().findOneAndUpdate(clientSession, manageFilterBson(filter), manageUpdatePipeline(update), options);
+        return write(clientSession, filter, () -> mongoCollection().findOneAndUpdate(clientSession, manageFilterBson(filter), manageUpdatePipeline(update), options));
     }
 
     /**
@@ -1000,7 +1094,7 @@ public abstract class MongoCollectionDecorator<TDocument> implements MongoCollec
      */
     @Override
     public void drop() {
-        mongoCollection().drop();
+        write(null, () -> mongoCollection().drop());
     }
 
     /**
@@ -1008,7 +1102,7 @@ public abstract class MongoCollectionDecorator<TDocument> implements MongoCollec
      */
     @Override
     public void drop(final ClientSession clientSession) {
-        mongoCollection().drop(clientSession);
+        write(clientSession, null, () -> mongoCollection().drop(clientSession));
     }
 
     /**
@@ -1212,7 +1306,7 @@ public abstract class MongoCollectionDecorator<TDocument> implements MongoCollec
      */
     @Override
     public void renameCollection(final MongoNamespace newCollectionNamespace) {
-        mongoCollection().renameCollection(newCollectionNamespace);
+        write(null, () -> mongoCollection().renameCollection(newCollectionNamespace));
     }
 
     /**
@@ -1220,7 +1314,7 @@ public abstract class MongoCollectionDecorator<TDocument> implements MongoCollec
      */
     @Override
     public void renameCollection(final MongoNamespace newCollectionNamespace, final RenameCollectionOptions renameCollectionOptions) {
-        mongoCollection().renameCollection(newCollectionNamespace, renameCollectionOptions);
+        write(null, () -> mongoCollection().renameCollection(newCollectionNamespace, renameCollectionOptions));
     }
 
     /**
@@ -1228,7 +1322,7 @@ public abstract class MongoCollectionDecorator<TDocument> implements MongoCollec
      */
     @Override
     public void renameCollection(final ClientSession clientSession, final MongoNamespace newCollectionNamespace) {
-        mongoCollection().renameCollection(clientSession, newCollectionNamespace);
+        write(clientSession, null, () -> mongoCollection().renameCollection(clientSession, newCollectionNamespace));
     }
 
     /**
@@ -1240,7 +1334,7 @@ public abstract class MongoCollectionDecorator<TDocument> implements MongoCollec
         final MongoNamespace newCollectionNamespace,
         final RenameCollectionOptions renameCollectionOptions
     ) {
-        mongoCollection().renameCollection(clientSession, newCollectionNamespace, renameCollectionOptions);
+        write(clientSession, null, () -> mongoCollection().renameCollection(clientSession, newCollectionNamespace, renameCollectionOptions));
     }
 
 }
@@ -0,0 +1,62 @@
+package org.mongojack;
+
+import org.bson.types.ObjectId;
+
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Generates ObjectIds the way the driver does, taking the next value of a counter as each id is created, except that
+ * batches take all the values they need at once.
+ * <p>
+ * The ids have the layout of those generated by the driver, but with a random value of their own, so that they can't
+ * collide with ObjectIds generated elsewhere in the process.
+ *
+ * @since 5.1.1
+ */
+public class ObjectIdGenerator implements IdGenerator<ObjectId> {
+
+    private final byte[] randomValue = new byte[5];
+    private final AtomicInteger counter;
+
+    public ObjectIdGenerator() {
+        final SecureRandom random = new SecureRandom();
+        random.nextBytes(randomValue);
+        counter = new AtomicInteger(random.nextInt());
+    }
+
+    @Override
+    public ObjectId generate(final Class<?> documentClass) {
+        return create(currentTimestamp(), counter.getAndIncrement());
+    }
+
+    @Override
+    public List<ObjectId> generate(final Class<?> documentClass, final int count) {
+        final int timestamp = currentTimestamp();
+        final int first = counter.getAndAdd(count);
+        final List<ObjectId> ids = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            ids.add(create(timestamp, first + i));
+        }
+        return ids;
+    }
+
+    private ObjectId create(final int timestamp, final int counterValue) {
+        final byte[] bytes = new byte[12];
+        bytes[0] = (byte) (timestamp >> 24);
+        bytes[1] = (byte) (timestamp >> 16);
+        bytes[2] = (byte) (timestamp >> 8);
+        bytes[3] = (byte) timestamp;
+        System.arraycopy(randomValue, 0, bytes, 4, 5);
+        bytes[9] = (byte) (counterValue >> 16);
+        bytes[10] = (byte) (counterValue >> 8);
+        bytes[11] = (byte) counterValue;
+        return new ObjectId(bytes);
+    }
+
+    private static int currentTimestamp() {
+        return (int) (System.currentTimeMillis() / 1000);
+    }
+}
@@ -0,0 +1,49 @@
+package org.mongojack;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A page of documents found by {@link JacksonMongoCollection#findPage(org.bson.conversions.Bson, org.bson.conversions.Bson, int, String)},
+ * along with the continuation the next page starts after.
+ *
+ * @param <T> the type of the documents
+ * @since 5.1.1
+ */
+public final class Page<T> {
+
+    private final List<T> items;
+    private final String continuation;
+
+    Page(final List<T> items, final String continuation) {
+        this.items = Collections.unmodifiableList(items);
+        this.continuation = continuation;
+    }
+
+    /**
+     * @return the documents of the page, in the order of the sort
+     */
+    public List<T> getItems() {
+        return items;
+    }
+
+    /**
+     * @return the opaque continuation to find the next page with, which encodes the sort keys of the last document of
+     * this page, or null if this is the last page
+     */
+    public String getContinuation() {
+        return continuation;
+    }
+
+    /**
+     * @return whether there are documents after this page
+     */
+    public boolean hasNext() {
+        return continuation != null;
+    }
+
+    @Override
+    public String toString() {
+        return "Page{items=" + items + ", continuation=" + continuation + "}";
+    }
+}
@@ -0,0 +1,81 @@
+package org.mongojack;
+
+import org.bson.BsonDocument;
+import org.bson.conversions.Bson;
+import org.mongojack.internal.util.BsonTemplate;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A filter or update that is serialized once, with named parameters in place of the values that change from one
+ * execution to the next.  Binding values is cheaper than serializing the whole filter or update again, which
+ * pays off for the same query shape run over and over.
+ * <p>
+ * Parameters are created with {@link #parameter(String)} and used wherever a value would go:
+ * <pre>
+ * PreparedBson byOwner = collection.prepareFilter(
+ *     Filters.and(
+ *         Filters.eq("owner", PreparedBson.parameter("owner")),
+ *         new Document("status", new Document("$in", PreparedBson.parameter("statuses")))
+ *     )
+ * );
+ * collection.find(byOwner.bind(ownerId, Arrays.asList(Status.OPEN, Status.HELD)));
+ * </pre>
+ * A parameter that stands for the whole array of an $in, $nin or $all takes a collection or an array, any other
+ * parameter, including one that is an element of such an array, takes a single value.  Filter values go through the
+ * same serializers as in a filter that isn't prepared, update values are encoded with the collection's codecs like
+ * in the driver's update builders.
+ * <p>
+ * Prepared filters and updates are thread safe, and the documents returned by {@code bind} are passed to the driver
+ * as is.  They belong to the collection that prepared them.
+ *
+ * @since 5.1.1
+ */
+public final class PreparedBson {
+
+    private final BsonTemplate template;
+
+    PreparedBson(final BsonTemplate template) {
+        this.template = template;
+    }
+
+    /**
+     * Creates the placeholder for a parameter.
+     *
+     * @param name the name of the parameter, a name may be used more than once
+     * @return the placeholder, to use in place of a value in a filter or update
+     */
+    public static BsonDocument parameter(final String name) {
+        return BsonTemplate.parameter(name);
+    }
+
+    /**
+     * @return the names of the parameters, in the order their values are passed to {@link #bind(Object...)}
+     */
+    public List<String> getParameterNames() {
+        return template.getParameterNames();
+    }
+
+    /**
+     * Binds values to the parameters by position.
+     *
+     * @param values the values, in the order of {@link #getParameterNames()}
+     * @return the filter or update with the values in place
+     * @throws IllegalArgumentException if the number of values doesn't match the number of parameters
+     */
+    public Bson bind(final Object... values) {
+        return template.bind(values);
+    }
+
+    /**
+     * Binds values to the parameters by name.
+     *
+     * @param values the values of all the parameters
+     * @return the filter or update with the values in place
+     * @throws IllegalArgumentException if a parameter has no value
+     */
+    public Bson bind(final Map<String, ?> values) {
+        return template.bind(values);
+    }
+}
@@ -0,0 +1,28 @@
+package org.mongojack;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Generates version 7 UUIDs (RFC 9562): a millisecond timestamp followed by random bits, so that ids are ordered by
+ * creation time to the millisecond, and inserts land at the end of the _id index rather than all over it the way
+ * random UUIDs do.
+ * <p>
+ * The id property must be a {@link UUID}; how it's stored is set by the UUID representation of the collection.
+ *
+ * @since 5.1.1
+ */
+public class UuidV7Generator implements IdGenerator<UUID> {
+
+    @Override
+    public UUID generate(final Class<?> documentClass) {
+        final ThreadLocalRandom random = ThreadLocalRandom.current();
+        final long timestamp = System.currentTimeMillis();
+        final long randomA = random.nextInt() & 0xfffL;
+        final long randomB = random.nextLong() & 0x3fffffffffffffffL;
+        return new UUID(
+            (timestamp << 16) | 0x7000L | randomA,
+            randomB | 0x8000000000000000L
+        );
+    }
+}
@@ -0,0 +1,31 @@
+package org.mongojack;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks the version property of a document class, for optimistic locking.  The property must be an int, a long, or
+ * their boxed types.
+ * <p>
+ * {@link JacksonMongoCollection#save(Object)}, {@link JacksonMongoCollection#saveAll(java.util.List)},
+ * {@link JacksonMongoCollection#replaceOneById(Object, Object)} and replacements in
+ * {@link JacksonMongoCollection#bulkWrite(java.util.List) bulk writes} only replace the stored document if it still
+ * has the version of the document being written, and increment the version in the same operation;
+ * {@link JacksonMongoCollection#updateById(Object, long, org.bson.conversions.Bson)} does the same for updates.  A
+ * write that finds the stored document at another version fails with a {@link VersionConflictException}, no
+ * transaction is needed.  A document without a version is saved with version 0.
+ * {@link JacksonMongoCollection#updateById(Object, org.bson.conversions.Bson)} increments the version without
+ * checking it, other updates, such as {@code updateOne}, leave it alone.
+ * <p>
+ * Replacements in a plain bulk write increment the version of the replacement when the bulk write is prepared, and
+ * get it back if the bulk write fails before writing them.  Their conflicts only show as requests that didn't match,
+ * or as duplicate keys for upserts; {@code saveAll} sorts that out.
+ *
+ * @since 5.1.1
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.METHOD, ElementType.FIELD, ElementType.ANNOTATION_TYPE})
+public @interface Version {
+}
@@ -0,0 +1,36 @@
+package org.mongojack;
+
+import com.mongodb.MongoException;
+import org.bson.BsonValue;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Thrown when a versioned document is written, but the stored document is at another version than the one written,
+ * because it was changed or deleted since the document was loaded.
+ *
+ * @see Version
+ * @since 5.1.1
+ */
+public class VersionConflictException extends MongoException {
+
+    private final List<BsonValue> ids;
+
+    public VersionConflictException(final BsonValue id, final Object expectedVersion, final Throwable cause) {
+        super("Document " + id + " is no longer at version " + expectedVersion, cause);
+        this.ids = Collections.singletonList(id);
+    }
+
+    public VersionConflictException(final List<BsonValue> ids, final Throwable cause) {
+        super("Documents " + ids + " are no longer at the versions written", cause);
+        this.ids = Collections.unmodifiableList(ids);
+    }
+
+    /**
+     * @return the ids of the documents that were not written
+     */
+    public List<BsonValue> getIds() {
+        return ids;
+    }
+}
@@ -0,0 +1,607 @@
+package org.mongojack.internal.stream;
+
+import com.fasterxml.jackson.core.Base64Variant;
+import com.fasterxml.jackson.core.JsonLocation;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonStreamContext;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.ObjectCodec;
+import com.fasterxml.jackson.core.Version;
+import com.fasterxml.jackson.core.base.ParserMinimalBase;
+import com.fasterxml.jackson.core.io.ContentReference;
+import com.fasterxml.jackson.core.json.JsonReadContext;
+import com.fasterxml.jackson.core.json.PackageVersion;
+import com.fasterxml.jackson.core.util.RecyclerPool;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.bson.AbstractBsonReader;
+import org.bson.BsonBinary;
+import org.bson.BsonBinaryReader;
+import org.bson.BsonBinarySubType;
+import org.bson.BsonDbPointer;
+import org.bson.BsonDocument;
+import org.bson.BsonDocumentReader;
+import org.bson.BsonJavaScript;
+import org.bson.BsonJavaScriptWithScope;
+import org.bson.BsonRegularExpression;
+import org.bson.BsonSerializationException;
+import org.bson.BsonTimestamp;
+import org.bson.BsonType;
+import org.bson.RawBsonDocument;
+import org.bson.UuidRepresentation;
+import org.bson.codecs.BsonDocumentCodec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.PatternCodec;
+import org.bson.types.Decimal128;
+import org.bson.types.Symbol;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Date;
+
+/**
+ * Parser that walks the raw bytes of a BSON document, rather than going through the state machine of a
+ * {@link org.bson.BsonReader}.
+ * <p>
+ * It produces exactly the same tokens and values as {@link DBDecoderBsonParser}, so deserializers can't tell the
+ * two apart, but skips a layer of per-token bookkeeping.  The document is copied out of the driver's buffer into a
+ * reusable array first, which also lets field names be canonicalized rather than decoded per document.  Instances are
+ * pooled per decoder, see {@link Pool}.
+ */
+public class BsonBytesParser extends ParserMinimalBase implements RecyclerPool.WithPool<BsonBytesParser> {
+
+    private static final PatternCodec PATTERN_CODEC = new PatternCodec();
+
+    private static final BsonDocumentCodec BSON_DOCUMENT_CODEC = new BsonDocumentCodec();
+
+    private static final DecoderContext DECODER_CONTEXT = DecoderContext.builder().build();
+
+    private final ByteArrayBsonInput input;
+
+    private final UuidRepresentation uuidRepresentation;
+
+    private ObjectCodec codec;
+
+    private RecyclerPool<BsonBytesParser> pool;
+
+    private JsonReadContext parsingContext = JsonReadContext.createRootContext(null);
+
+    private boolean closed;
+
+    private boolean started;
+
+    /**
+     * End positions of the documents and arrays currently open, used to verify their sizes.
+     */
+    private int[] containerEnds = new int[16];
+
+    private int depth;
+
+    /**
+     * The type of the value following the field name that was just returned, or 0 if there isn't one.
+     */
+    private byte pendingType;
+
+    private int tokenPosition;
+
+    private Object currentValue;
+
+    private NumberType numberType;
+
+    private int intValue;
+
+    private long longValue;
+
+    private double doubleValue;
+
+    BsonBytesParser(
+        final ObjectMapper objectMapper,
+        final UuidRepresentation uuidRepresentation,
+        final FieldNameCanonicalizer canonicalizer
+    ) {
+        super(0);
+        this.codec = objectMapper;
+        this.uuidRepresentation = uuidRepresentation;
+        this.input = new ByteArrayBsonInput(canonicalizer);
+    }
+
+    /**
+     * Whether this parser can take over the document that the given reader is about to read: either a whole
+     * document (state INITIAL, as for {@link RawBsonDocument#decode}) or an embedded one (state VALUE with type
+     * DOCUMENT, as for cursor batches).
+     *
+     * @param reader the reader
+     * @return true if {@link #rebind(BsonBinaryReader)} can be used with this reader
+     */
+    public static boolean canRead(final BsonBinaryReader reader) {
+        AbstractBsonReader.State state = reader.getState();
+        return state == AbstractBsonReader.State.INITIAL
+            || (state == AbstractBsonReader.State.VALUE && reader.getCurrentBsonType() == BsonType.DOCUMENT);
+    }
+
+    /**
+     * Binds this parser to a copy of the document the given reader is positioned at, and moves the reader past that
+     * document, leaving it in the same state it would be in had the document been read through it.
+     *
+     * @param reader a reader for which {@link #canRead(BsonBinaryReader)} is true
+     * @return this parser
+     */
+    public BsonBytesParser rebind(final BsonBinaryReader reader) {
+        input.copyCurrentDocument(reader);
+        reset();
+        return this;
+    }
+
+    private void reset() {
+        while (parsingContext.getParent() != null) {
+            parsingContext = parsingContext.getParent();
+        }
+        parsingContext.reset(JsonStreamContext.TYPE_ROOT, 1, 0);
+        _currToken = null;
+        closed = false;
+        started = false;
+        depth = 0;
+        pendingType = 0;
+        currentValue = null;
+        numberType = null;
+    }
+
+    @Override
+    public BsonBytesParser withPool(final RecyclerPool<BsonBytesParser> pool) {
+        this.pool = pool;
+        return this;
+    }
+
+    /**
+     * Hands this parser back to the pool it was acquired from.  The parser must not be used afterwards.
+     */
+    @Override
+    public void releaseToPool() {
+        if (pool != null) {
+            RecyclerPool<BsonBytesParser> owner = pool;
+            pool = null;
+            reset();
+            input.release();
+            owner.releasePooled(this);
+        }
+    }
+
+    @Override
+    public JsonToken nextToken() throws IOException {
+        currentValue = null;
+        numberType = null;
+        if (closed) {
+            return _currToken = null;
+        }
+        tokenPosition = input.getPosition();
+        if (pendingType != 0) {
+            byte type = pendingType;
+            pendingType = 0;
+            return _currToken = toJsonToken(type);
+        }
+        if (!started) {
+            started = true;
+            openContainer(false);
+            return _currToken = JsonToken.START_OBJECT;
+        }
+        if (depth == 0) {
+            return _currToken = null;
+        }
+        byte type = input.readByte();
+        if (type == 0) {
+            return _currToken = closeContainer();
+        }
+        if (parsingContext.inArray()) {
+            input.skipCString();
+            parsingContext.expectComma();
+            return _currToken = toJsonToken(type);
+        }
+        parsingContext.setCurrentName(input.readCString());
+        pendingType = type;
+        return _currToken = JsonToken.FIELD_NAME;
+    }
+
+    private void openContainer(final boolean array) {
+        int start = input.getPosition();
+        int size = input.readInt32();
+        if (size < 5) {
+            throw new BsonSerializationException(String.format("Invalid document size %d", size));
+        }
+        if (depth == containerEnds.length) {
+            containerEnds = Arrays.copyOf(containerEnds, depth * 2);
+        }
+        containerEnds[depth++] = start + size;
+        parsingContext = array ? parsingContext.createChildArrayContext(-1, -1) : parsingContext.createChildObjectContext(-1, -1);
+    }
+
+    private JsonToken closeContainer() {
+        int end = containerEnds[--depth];
+        if (input.getPosition() != end) {
+            throw new BsonSerializationException(String.format(
+                "Document size mismatch, expected the document to end at %d, but it ended at %d", end, input.getPosition()));
+        }
+        boolean array = parsingContext.inArray();
+        parsingContext = parsingContext.clearAndGetParent();
+        return array ? JsonToken.END_ARRAY : JsonToken.END_OBJECT;
+    }
+
+    private JsonToken toJsonToken(final byte typeByte) throws IOException {
+        BsonType type = BsonType.findByValue(typeByte);
+        if (type == null) {
+            throw new JsonParseException(this, "Unknown element type " + typeByte, getTokenLocation());
+        }
+        switch (type) {
+            case DOCUMENT:
+                openContainer(false);
+                return JsonToken.START_OBJECT;
+            case ARRAY:
+                openContainer(true);
+                return JsonToken.START_ARRAY;
+            case STRING:
+                currentValue = input.readString();
+                return JsonToken.VALUE_STRING;
+            case DOUBLE:
+                doubleValue = input.readDouble();
+                numberType = NumberType.DOUBLE;
+                return JsonToken.VALUE_NUMBER_FLOAT;
+            case DECIMAL128:
+                long low = input.readInt64();
+                long high = input.readInt64();
+                currentValue = Decimal128.fromIEEE754BIDEncoding(high, low).bigDecimalValue();
+                numberType = NumberType.BIG_DECIMAL;
+                return JsonToken.VALUE_NUMBER_FLOAT;
+            case INT32:
+                intValue = input.readInt32();
+                numberType = NumberType.INT;
+                return JsonToken.VALUE_NUMBER_INT;
+            case INT64:
+                longValue = input.readInt64();
+                numberType = NumberType.LONG;
+                return JsonToken.VALUE_NUMBER_INT;
+            case NULL:
+            case UNDEFINED:
+                return JsonToken.VALUE_NULL;
+            case TIMESTAMP:
+                currentValue = new BsonTimestamp(input.readInt64());
+                return JsonToken.VALUE_EMBEDDED_OBJECT;
+            case SYMBOL:
+                currentValue = new Symbol(input.readString());
+                return JsonToken.VALUE_EMBEDDED_OBJECT;
+            case JAVASCRIPT_WITH_SCOPE:
+                currentValue = readJavaScriptWithScope();
+                return JsonToken.VALUE_EMBEDDED_OBJECT;
+            case JAVASCRIPT:
+                currentValue = new BsonJavaScript(input.readString());
+                return JsonToken.VALUE_EMBEDDED_OBJECT;
+            case DB_POINTER:
+                currentValue = new BsonDbPointer(input.readString(), input.readObjectId());
+                return JsonToken.VALUE_EMBEDDED_OBJECT;
+            case REGULAR_EXPRESSION:
+                currentValue = readPattern();
+                return JsonToken.VALUE_EMBEDDED_OBJECT;
+            case DATE_TIME:
+                currentValue = new Date(input.readInt64());
+                return JsonToken.VALUE_EMBEDDED_OBJECT;
+            case OBJECT_ID:
+                currentValue = input.readObjectId();
+                return JsonToken.VALUE_EMBEDDED_OBJECT;
+            case BINARY:
+                currentValue = readBinary();
+                return JsonToken.VALUE_EMBEDDED_OBJECT;
+            case MIN_KEY:
+                currentValue = "MinKey";
+                return JsonToken.VALUE_STRING;
+            case MAX_KEY:
+                currentValue = "MaxKey";
+                return JsonToken.VALUE_STRING;
+            case BOOLEAN:
+                byte value = input.readByte();
+                if (value != 0 && value != 1) {
+                    throw new BsonSerializationException(String.format("Expected a boolean value but found %d", value));
+                }
+                currentValue = value == 1 ? Boolean.TRUE : Boolean.FALSE;
+                return value == 1 ? JsonToken.VALUE_TRUE : JsonToken.VALUE_FALSE;
+            default:
+                throw new JsonParseException(this, "Unknown element type " + type, getTokenLocation());
+        }
+    }
+
+    private Object readBinary() {
+        int size = input.readInt32();
+        byte subtype = input.readByte();
+        if (subtype == BsonBinarySubType.OLD_BINARY.getValue()) {
+            int repeatedSize = input.readInt32();
+            if (repeatedSize != size - 4) {
+                throw new BsonSerializationException("Binary sub type OldBinary has inconsistent sizes");
+            }
+            size -= 4;
+        }
+        if (size < 0) {
+            throw new BsonSerializationException(String.format("Invalid binary data size %d", size));
+        }
+        byte[] data = new byte[size];
+        input.readBytes(data);
+        if (BsonBinarySubType.isUuid(subtype)) {
+            return new BsonBinary(subtype, data).asUuid(uuidRepresentation);
+        }
+        return data;
+    }
+
+    private Object readPattern() {
+        BsonRegularExpression regularExpression = new BsonRegularExpression(input.readPlainCString(), input.readPlainCString());
+        // regular expressions are rare, so let the driver's codec deal with the option flags
+        try (BsonDocumentReader reader = new BsonDocumentReader(new BsonDocument("r", regularExpression))) {
+            reader.readStartDocument();
+            reader.readBsonType();
+            reader.skipName();
+            return PATTERN_CODEC.decode(reader, DECODER_CONTEXT);
+        }
+    }
+
+    private Object readJavaScriptWithScope() {
+        int start = input.getPosition();
+        int size = input.readInt32();
+        String code = input.readString();
+        int scopeSize = start + size - input.getPosition();
+        if (scopeSize < 5) {
+            throw new BsonSerializationException(String.format("Invalid JavaScript with scope size %d", size));
+        }
+        byte[] scope = new byte[scopeSize];
+        input.readBytes(scope);
+        return new BsonJavaScriptWithScope(code, new RawBsonDocument(scope).decode(BSON_DOCUMENT_CODEC));
+    }
+
+    @Override
+    protected void _handleEOF() throws JsonParseException {
+        _reportInvalidEOF();
+    }
+
+    @Override
+    public ObjectCodec getCodec() {
+        return codec;
+    }
+
+    @Override
+    public void setCodec(final ObjectCodec codec) {
+        this.codec = codec;
+    }
+
+    @Override
+    public Version version() {
+        return PackageVersion.VERSION;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+    }
+
+    @Override
+    public boolean isClosed() {
+        return closed;
+    }
+
+    @Override
+    public JsonStreamContext getParsingContext() {
+        return parsingContext;
+    }
+
+    @Override
+    public JsonLocation getCurrentLocation() {
+        return new JsonLocation(ContentReference.unknown(), input.getPosition(), -1, -1);
+    }
+
+    @Override
+    public JsonLocation getTokenLocation() {
+        return new JsonLocation(ContentReference.unknown(), tokenPosition, -1, -1);
+    }
+
+    @Override
+    public String getCurrentName() {
+        if (_currToken == JsonToken.START_OBJECT || _currToken == JsonToken.START_ARRAY) {
+            JsonReadContext parent = parsingContext.getParent();
+            if (parent != null) {
+                return parent.getCurrentName();
+            }
+        }
+        return parsingContext.getCurrentName();
+    }
+
+    @Override
+    public void overrideCurrentName(final String name) {
+        JsonReadContext context = parsingContext;
+        if (_currToken == JsonToken.START_OBJECT || _currToken == JsonToken.START_ARRAY) {
+            context = context.getParent();
+        }
+        try {
+            context.setCurrentName(name);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public String getText() {
+        if (_currToken == JsonToken.FIELD_NAME) {
+            return getCurrentName();
+        }
+        if (_currToken == JsonToken.VALUE_EMBEDDED_OBJECT) {
+            return null;
+        }
+        if (numberType != null) {
+            switch (numberType) {
+                case INT:
+                    return Integer.toString(intValue);
+                case LONG:
+                    return Long.toString(longValue);
+                case DOUBLE:
+                    return Double.toString(doubleValue);
+                default:
+                    break;
+            }
+        }
+        return String.valueOf(currentValue);
+    }
+
+    @Override
+    public char[] getTextCharacters() {
+        return getText().toCharArray();
+    }
+
+    @Override
+    public int getTextLength() {
+        return getText().length();
+    }
+
+    @Override
+    public int getTextOffset() {
+        return 0;
+    }
+
+    @Override
+    public boolean hasTextCharacters() {
+        return false;
+    }
+
+    @Override
+    public Number getNumberValue() {
+        if (numberType != null) {
+            switch (numberType) {
+                case INT:
+                    return intValue;
+                case LONG:
+                    return longValue;
+                case DOUBLE:
+                    return doubleValue;
+                default:
+                    break;
+            }
+        }
+        return (Number) currentValue;
+    }
+
+    @Override
+    public NumberType getNumberType() {
+        return numberType;
+    }
+
+    @Override
+    public int getIntValue() {
+        if (numberType == NumberType.INT) {
+            return intValue;
+        } else if (numberType == NumberType.LONG) {
+            return (int) longValue;
+        } else if (numberType == NumberType.DOUBLE) {
+            return (int) doubleValue;
+        }
+        return ((Number) currentValue).intValue();
+    }
+
+    @Override
+    public long getLongValue() {
+        if (numberType == NumberType.LONG) {
+            return longValue;
+        } else if (numberType == NumberType.INT) {
+            return intValue;
+        } else if (numberType == NumberType.DOUBLE) {
+            return (long) doubleValue;
+        }
+        return ((Number) currentValue).longValue();
+    }
+
+    @Override
+    public BigInteger getBigIntegerValue() {
+        if (numberType == NumberType.INT) {
+            return BigInteger.valueOf(intValue);
+        } else if (numberType == NumberType.LONG) {
+            return BigInteger.valueOf(longValue);
+        } else if (numberType == NumberType.DOUBLE) {
+            return BigDecimal.valueOf(doubleValue).toBigInteger();
+        }
+        return ((BigDecimal) currentValue).toBigInteger();
+    }
+
+    @Override
+    public float getFloatValue() {
+        if (numberType == NumberType.DOUBLE) {
+            return (float) doubleValue;
+        } else if (numberType == NumberType.INT) {
+            return intValue;
+        } else if (numberType == NumberType.LONG) {
+            return longValue;
+        }
+        return ((Number) currentValue).floatValue();
+    }
+
+    @Override
+    public double getDoubleValue() {
+        if (numberType == NumberType.DOUBLE) {
+            return doubleValue;
+        } else if (numberType == NumberType.INT) {
+            return intValue;
+        } else if (numberType == NumberType.LONG) {
+            return longValue;
+        }
+        return ((Number) currentValue).doubleValue();
+    }
+
+    @Override
+    public boolean isNaN() {
+        return numberType == NumberType.DOUBLE && (Double.isNaN(doubleValue) || Double.isInfinite(doubleValue));
+    }
+
+    @Override
+    public BigDecimal getDecimalValue() {
+        if (numberType == NumberType.INT) {
+            return BigDecimal.valueOf(intValue);
+        } else if (numberType == NumberType.LONG) {
+            return BigDecimal.valueOf(longValue);
+        } else if (numberType == NumberType.DOUBLE) {
+            return BigDecimal.valueOf(doubleValue);
+        }
+        return (BigDecimal) currentValue;
+    }
+
+    @Override
+    public byte[] getBinaryValue(final Base64Variant b64variant) {
+        return (byte[]) currentValue;
+    }
+
+    @Override
+    public Object getEmbeddedObject() {
+        if (numberType != null) {
+            return getNumberValue();
+        }
+        return currentValue;
+    }
+
+    /**
+     * Bounded pool of parsers for a single decoder.  Backed by Jackson's {@link RecyclerPool.BoundedPoolBase}, which
+     * doesn't rely on thread locals, so it also works with virtual threads.
+     */
+    public static class Pool extends RecyclerPool.BoundedPoolBase<BsonBytesParser> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final transient ObjectMapper objectMapper;
+        private final transient UuidRepresentation uuidRepresentation;
+        private final transient FieldNameCanonicalizer canonicalizer;
+
+        Pool(
+            final ObjectMapper objectMapper,
+            final UuidRepresentation uuidRepresentation,
+            final FieldNameCanonicalizer canonicalizer
+        ) {
+            super(DEFAULT_CAPACITY);
+            this.objectMapper = objectMapper;
+            this.uuidRepresentation = uuidRepresentation;
+            this.canonicalizer = canonicalizer;
+        }
+
+        @Override
+        public BsonBytesParser createPooled() {
+            return new BsonBytesParser(objectMapper, uuidRepresentation, canonicalizer);
+        }
+    }
+}
@@ -0,0 +1,491 @@
+package org.mongojack.internal.stream;
+
+import com.fasterxml.jackson.core.Base64Variant;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.json.JsonWriteContext;
+import com.fasterxml.jackson.core.util.RecyclerPool;
+import org.bson.BsonBinary;
+import org.bson.BsonBinarySubType;
+import org.bson.BsonBinaryWriter;
+import org.bson.BsonSerializationException;
+import org.bson.BsonType;
+import org.bson.BsonValue;
+import org.bson.BsonWriter;
+import org.bson.UuidRepresentation;
+import org.bson.io.BasicOutputBuffer;
+import org.bson.io.BsonOutput;
+import org.bson.types.Decimal128;
+import org.bson.types.ObjectId;
+import org.mongojack.internal.util.DocumentSerializationUtils;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.UUID;
+
+/**
+ * {@link DBEncoderBsonGenerator} that writes straight into the {@link BsonOutput} of a {@link BsonBinaryWriter}.
+ * <p>
+ * The document itself and its top level fields still go through the writer, so the driver keeps validating top level
+ * field names (eg. no update operators in a replacement), the maximum document size and its own state.  Everything
+ * nested inside a top level field is written to the output directly: the driver's field name validators don't look
+ * at nested names anyway, and the structure is already checked by Jackson's {@link JsonWriteContext}, which this
+ * generator maintains.  Lengths of the nested documents and arrays written this way are back-patched here.
+ * <p>
+ * Only the nested names are copied from the UTF-8 bytes Jackson keeps for bean properties.  Top level names go to
+ * {@link BsonWriter#writeName(String)}, which has no variant taking bytes, and so do all the names of documents the
+ * driver encodes through a writer of its own rather than a {@link BsonBinaryWriter}, such as inserted documents,
+ * which {@link DBEncoderBsonGenerator} writes.
+ */
+public class BsonOutputGenerator extends DBEncoderBsonGenerator {
+
+    /**
+     * Nesting depth of the write context from which values are written to the output directly: depth 1 is the
+     * document itself, depth 2 the containers that are values of its fields.
+     */
+    private static final int DIRECT_DEPTH = 2;
+
+    private static final int ARRAY_INDEX_CACHE_SIZE = 1000;
+
+    private static final byte[][] ARRAY_INDEXES = new byte[ARRAY_INDEX_CACHE_SIZE][];
+
+    static {
+        for (int i = 0; i < ARRAY_INDEX_CACHE_SIZE; i++) {
+            byte[] digits = Integer.toString(i).getBytes(StandardCharsets.US_ASCII);
+            ARRAY_INDEXES[i] = Arrays.copyOf(digits, digits.length + 1);
+        }
+    }
+
+    private BsonOutput output;
+
+    /**
+     * Start positions of the containers this generator opened on the output itself, innermost last.
+     */
+    private int[] containerStarts = new int[16];
+
+    private int containerDepth;
+
+    private String pendingName;
+
+    private SerializableString pendingSerializedName;
+
+    private BasicOutputBuffer scratchBuffer;
+
+    public BsonOutputGenerator(final BsonBinaryWriter writer, final UuidRepresentation uuidRepresentation) {
+        super(writer, uuidRepresentation);
+        this.output = writer == null ? null : writer.getBsonOutput();
+    }
+
+    /**
+     * Rebinds this generator to the given writer, which must be a {@link BsonBinaryWriter}.
+     *
+     * @param writer the writer to write to
+     * @return this generator
+     */
+    @Override
+    public DBEncoderBsonGenerator rebind(final BsonWriter writer) {
+        if (!(writer instanceof BsonBinaryWriter)) {
+            throw new IllegalArgumentException("BsonOutputGenerator requires a BsonBinaryWriter, got " + writer);
+        }
+        return super.rebind(writer);
+    }
+
+    @Override
+    protected void reset(final BsonWriter writer) {
+        super.reset(writer);
+        output = writer == null ? null : ((BsonBinaryWriter) writer).getBsonOutput();
+        containerDepth = 0;
+        pendingName = null;
+        pendingSerializedName = null;
+    }
+
+    @Override
+    public void writeStartArray() throws IOException {
+        _verifyValueWrite("start an array");
+        if (isDirect()) {
+            writeElementHeader(BsonType.ARRAY);
+            pushContainer();
+        } else {
+            writer.writeStartArray();
+        }
+        _writeContext = _writeContext.createChildArrayContext();
+        streamWriteConstraints().validateNestingDepth(_writeContext.getNestingDepth());
+    }
+
+    @Override
+    public void writeEndArray() throws IOException {
+        if (!_writeContext.inArray()) {
+            _reportError("Current context not Array but " + _writeContext.typeDesc());
+        }
+        boolean direct = _writeContext.getNestingDepth() > DIRECT_DEPTH;
+        _writeContext = _writeContext.clearAndGetParent();
+        if (direct) {
+            popContainer();
+        } else {
+            writer.writeEndArray();
+        }
+    }
+
+    @Override
+    public void writeStartObject() throws IOException {
+        _verifyValueWrite("start an object");
+        if (isDirect()) {
+            writeElementHeader(BsonType.DOCUMENT);
+            pushContainer();
+        } else {
+            writer.writeStartDocument();
+        }
+        _writeContext = _writeContext.createChildObjectContext();
+        streamWriteConstraints().validateNestingDepth(_writeContext.getNestingDepth());
+    }
+
+    @Override
+    public void writeEndObject() throws IOException {
+        if (!_writeContext.inObject()) {
+            _reportError("Current context not Object but " + _writeContext.typeDesc());
+        }
+        boolean direct = _writeContext.getNestingDepth() > DIRECT_DEPTH;
+        _writeContext = _writeContext.clearAndGetParent();
+        if (direct) {
+            popContainer();
+        } else {
+            writer.writeEndDocument();
+        }
+    }
+
+    @Override
+    public void writeFieldName(final String name) throws IOException {
+        if (_writeContext.writeFieldName(name) == JsonWriteContext.STATUS_EXPECT_VALUE) {
+            _reportError("Can not write a field name, expecting a value");
+        }
+        if (isDirect()) {
+            // the type byte comes before the name in BSON, so the name is written along with the value
+            pendingName = name;
+            pendingSerializedName = null;
+        } else {
+            writer.writeName(name);
+        }
+    }
+
+    /**
+     * Bean properties come with their names already encoded, which are copied to the output as they are rather than
+     * being encoded again for every document, for the names nested inside a top level field.  Top level names are
+     * passed to the writer as strings.
+     */
+    @Override
+    public void writeFieldName(final SerializableString name) throws IOException {
+        if (_writeContext.writeFieldName(name.getValue()) == JsonWriteContext.STATUS_EXPECT_VALUE) {
+            _reportError("Can not write a field name, expecting a value");
+        }
+        if (isDirect()) {
+            pendingName = null;
+            pendingSerializedName = name;
+        } else {
+            writer.writeName(name.getValue());
+        }
+    }
+
+    @Override
+    public void writeString(final String text) throws IOException {
+        _verifyValueWrite("write a string");
+        if (isDirect()) {
+            writeElementHeader(BsonType.STRING);
+            output.writeString(text);
+        } else {
+            writer.writeString(text);
+        }
+    }
+
+    @Override
+    public void writeString(final char[] text, final int offset, final int len) throws IOException {
+        writeString(new String(text, offset, len));
+    }
+
+    @Override
+    public void writeRawUTF8String(final byte[] text, final int offset, final int length) throws IOException {
+        writeString(new String(text, offset, length, StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public void writeUTF8String(final byte[] text, final int offset, final int length) throws IOException {
+        writeString(new String(text, offset, length, StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public void writeBinary(final Base64Variant bv, final byte[] data, final int offset, final int len) throws IOException {
+        _verifyValueWrite("write a binary value");
+        if (isDirect()) {
+            writeElementHeader(BsonType.BINARY);
+            output.writeInt32(len);
+            output.writeByte(BsonBinarySubType.BINARY.getValue());
+            output.writeBytes(data, offset, len);
+        } else {
+            writer.writeBinaryData(new BsonBinary(Arrays.copyOfRange(data, offset, offset + len)));
+        }
+    }
+
+    @Override
+    public void writeNumber(final int v) throws IOException {
+        _verifyValueWrite("write a number");
+        if (isDirect()) {
+            writeElementHeader(BsonType.INT32);
+            output.writeInt32(v);
+        } else {
+            writer.writeInt32(v);
+        }
+    }
+
+    @Override
+    public void writeNumber(final long v) throws IOException {
+        _verifyValueWrite("write a number");
+        if (isDirect()) {
+            writeElementHeader(BsonType.INT64);
+            output.writeInt64(v);
+        } else {
+            writer.writeInt64(v);
+        }
+    }
+
+    @Override
+    public void writeNumber(final double v) throws IOException {
+        _verifyValueWrite("write a number");
+        if (isDirect()) {
+            writeElementHeader(BsonType.DOUBLE);
+            output.writeDouble(v);
+        } else {
+            writer.writeDouble(v);
+        }
+    }
+
+    @Override
+    public void writeNumber(final BigDecimal v) throws IOException {
+        _verifyValueWrite("write a number");
+        Decimal128 decimal = new Decimal128(v);
+        if (isDirect()) {
+            writeElementHeader(BsonType.DECIMAL128);
+            output.writeInt64(decimal.getLow());
+            output.writeInt64(decimal.getHigh());
+        } else {
+            writer.writeDecimal128(decimal);
+        }
+    }
+
+    @Override
+    public void writeBoolean(final boolean state) throws IOException {
+        _verifyValueWrite("write a boolean value");
+        if (isDirect()) {
+            writeElementHeader(BsonType.BOOLEAN);
+            output.writeByte(state ? 1 : 0);
+        } else {
+            writer.writeBoolean(state);
+        }
+    }
+
+    @Override
+    public void writeNull() throws IOException {
+        _verifyValueWrite("write a null");
+        if (isDirect()) {
+            writeElementHeader(BsonType.NULL);
+        } else {
+            writer.writeNull();
+        }
+    }
+
+    @Override
+    public void writeBsonObjectId(final ObjectId objectId) {
+        verifyValueWrite("write an ObjectId");
+        if (isDirect()) {
+            writeElementHeader(BsonType.OBJECT_ID);
+            output.writeObjectId(objectId);
+        } else {
+            writer.writeObjectId(objectId);
+        }
+    }
+
+    @Override
+    public void writeBsonValue(final BsonValue value) {
+        verifyValueWrite("write a BSON value");
+        if (isDirect() ? !writeKnownTypeDirect(value) : !DocumentSerializationUtils.writeKnownType(value, writer)) {
+            throw new IllegalStateException("Asked to write unknown type " + value.getClass());
+        }
+    }
+
+    @Override
+    protected void _writeSimpleObject(final Object value) throws IOException {
+        if (value instanceof String) {
+            writeString((String) value);
+        } else if (value instanceof Integer) {
+            writeNumber((Integer) value);
+        } else if (value instanceof Long) {
+            writeNumber((Long) value);
+        } else if (value instanceof Double) {
+            writeNumber((Double) value);
+        } else if (value instanceof Boolean) {
+            writeBoolean((Boolean) value);
+        } else if (value instanceof Date) {
+            writeDateTime(((Date) value).getTime());
+        } else if (value instanceof Calendar) {
+            writeDateTime(((Calendar) value).getTime().getTime());
+        } else if (value instanceof ObjectId) {
+            writeBsonObjectId((ObjectId) value);
+        } else if (value instanceof UUID) {
+            _verifyValueWrite("write a UUID");
+            BsonBinary binary = new BsonBinary((UUID) value, uuidRepresentation);
+            if (isDirect()) {
+                writeBinaryElement(binary);
+            } else {
+                writer.writeBinaryData(binary);
+            }
+        } else if (DocumentSerializationUtils.isKnownType(value)) {
+            _verifyValueWrite("write a value");
+            if (isDirect()) {
+                writeKnownTypeDirect(value);
+            } else {
+                DocumentSerializationUtils.writeKnownType(value, writer);
+            }
+        } else {
+            // DBRefs, and whatever else Jackson can write, come back through the methods above
+            super._writeSimpleObject(value);
+        }
+    }
+
+    @Override
+    protected void _verifyValueWrite(final String typeMsg) throws IOException {
+        if (_writeContext.writeValue() == JsonWriteContext.STATUS_EXPECT_NAME) {
+            _reportError("Can not " + typeMsg + ", expecting field name");
+        }
+    }
+
+    private void verifyValueWrite(final String typeMsg) {
+        try {
+            _verifyValueWrite(typeMsg);
+        } catch (IOException e) {
+            throw new IllegalStateException(e.getMessage(), e);
+        }
+    }
+
+    private boolean isDirect() {
+        return _writeContext.getNestingDepth() >= DIRECT_DEPTH;
+    }
+
+    private void writeDateTime(final long millis) throws IOException {
+        _verifyValueWrite("write a date");
+        if (isDirect()) {
+            writeElementHeader(BsonType.DATE_TIME);
+            output.writeInt64(millis);
+        } else {
+            writer.writeDateTime(millis);
+        }
+    }
+
+    /**
+     * Writes binary data the way {@link BsonBinaryWriter} does, including the redundant length of the old binary
+     * subtype.
+     */
+    private void writeBinaryElement(final BsonBinary binary) {
+        byte[] data = binary.getData();
+        boolean oldBinary = binary.getType() == BsonBinarySubType.OLD_BINARY.getValue();
+        writeElementHeader(BsonType.BINARY);
+        output.writeInt32(oldBinary ? data.length + 4 : data.length);
+        output.writeByte(binary.getType());
+        if (oldBinary) {
+            output.writeInt32(data.length);
+        }
+        output.writeBytes(data);
+    }
+
+    /**
+     * Writes one of the types known to {@link DocumentSerializationUtils#writeKnownType(Object, BsonWriter)}.  They
+     * are rare enough not to warrant their own encoding here, so they are written into a scratch document by a
+     * writer, and the value bytes copied over from there.
+     *
+     * @return false if the value isn't of a known type, in which case nothing was written
+     */
+    private boolean writeKnownTypeDirect(final Object value) {
+        if (scratchBuffer == null) {
+            scratchBuffer = new BasicOutputBuffer(64);
+        }
+        scratchBuffer.truncateToPosition(0);
+        BsonBinaryWriter scratch = new BsonBinaryWriter(scratchBuffer);
+        scratch.writeStartDocument();
+        scratch.writeName("");
+        if (!DocumentSerializationUtils.writeKnownType(value, scratch)) {
+            return false;
+        }
+        scratch.writeEndDocument();
+        // size (4 bytes), type (1 byte), empty name (1 byte), value, document terminator (1 byte)
+        byte[] bytes = scratchBuffer.getInternalBuffer();
+        writeElementHeader(BsonType.findByValue(bytes[4]));
+        output.writeBytes(bytes, 6, scratchBuffer.getPosition() - 7);
+        return true;
+    }
+
+    private void writeElementHeader(final BsonType type) {
+        output.writeByte(type.getValue());
+        if (_writeContext.inArray()) {
+            int index = _writeContext.getCurrentIndex();
+            if (index < ARRAY_INDEX_CACHE_SIZE) {
+                output.writeBytes(ARRAY_INDEXES[index]);
+            } else {
+                output.writeCString(Integer.toString(index));
+            }
+        } else if (pendingSerializedName != null) {
+            writeCString(pendingSerializedName);
+            pendingSerializedName = null;
+        } else {
+            output.writeCString(pendingName);
+            pendingName = null;
+        }
+    }
+
+    private void writeCString(final SerializableString name) {
+        byte[] bytes = name.asUnquotedUTF8();
+        for (byte b : bytes) {
+            if (b == 0) {
+                throw new BsonSerializationException(String.format("BSON cstring '%s' is not valid because it contains a "
+                    + "null character at index %d", name.getValue(), name.getValue().indexOf('\0')));
+            }
+        }
+        output.writeBytes(bytes);
+        output.writeByte(0);
+    }
+
+    private void pushContainer() {
+        if (containerDepth == containerStarts.length) {
+            containerStarts = Arrays.copyOf(containerStarts, containerDepth * 2);
+        }
+        containerStarts[containerDepth++] = output.getPosition();
+        // back-patched once the container ends
+        output.writeInt32(0);
+    }
+
+    private void popContainer() {
+        output.writeByte(0);
+        int start = containerStarts[--containerDepth];
+        output.writeInt32(start, output.getPosition() - start);
+    }
+
+    /**
+     * Bounded pool of {@link BsonOutputGenerator}s for a single UUID representation, see
+     * {@link DBEncoderBsonGenerator.Pool}.
+     */
+    public static class Pool extends RecyclerPool.BoundedPoolBase<DBEncoderBsonGenerator> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final transient UuidRepresentation uuidRepresentation;
+
+        public Pool(final UuidRepresentation uuidRepresentation) {
+            super(DEFAULT_CAPACITY);
+            this.uuidRepresentation = uuidRepresentation;
+        }
+
+        @Override
+        public DBEncoderBsonGenerator createPooled() {
+            return new BsonOutputGenerator(null, uuidRepresentation);
+        }
+    }
+}
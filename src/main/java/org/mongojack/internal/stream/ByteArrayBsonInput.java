@@ -0,0 +1,228 @@
+package org.mongojack.internal.stream;
+
+import org.bson.AbstractBsonReader;
+import org.bson.BsonBinaryReader;
+import org.bson.BsonSerializationException;
+import org.bson.io.BsonInput;
+import org.bson.io.BsonInputMark;
+import org.bson.types.ObjectId;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+import static java.lang.String.format;
+
+/**
+ * {@link BsonInput} over a reusable byte array holding a single BSON document.
+ * <p>
+ * Having the raw bytes at hand lets field names (which the {@link BsonBinaryReader} reads with
+ * {@link #readCString()}) go through a {@link FieldNameCanonicalizer} rather than being decoded into a new String
+ * for every document.  Instances are not thread safe, they are owned by one pooled parser at a time.
+ */
+class ByteArrayBsonInput implements BsonInput {
+
+    /**
+     * Buffers larger than this aren't kept around once a document has been decoded, so that pooled parsers don't pin
+     * the memory of the largest document they ever saw.
+     */
+    private static final int MAX_RETAINED_BUFFER_SIZE = 64 * 1024;
+
+    private static final VarHandle INT = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+
+    private static final VarHandle LONG = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+    private final FieldNameCanonicalizer canonicalizer;
+
+    private byte[] buffer = new byte[1024];
+
+    private int position;
+
+    private int limit;
+
+    ByteArrayBsonInput(final FieldNameCanonicalizer canonicalizer) {
+        this.canonicalizer = canonicalizer;
+    }
+
+    /**
+     * Copies the document the given reader is positioned at into this input, and moves the reader past it.  A reader
+     * in state VALUE is left as if {@link BsonBinaryReader#skipValue()} had been called, a reader in state INITIAL
+     * as if the whole document had been read.
+     *
+     * @param reader a reader in state INITIAL, or in state VALUE with current BSON type DOCUMENT
+     */
+    void copyCurrentDocument(final BsonBinaryReader reader) {
+        BsonInput source = reader.getBsonInput();
+        BsonInputMark mark = source.getMark(Integer.MAX_VALUE);
+        int size = source.readInt32();
+        if (size < 5) {
+            throw new BsonSerializationException(format("Invalid document size %d", size));
+        }
+        mark.reset();
+        if (buffer == null || buffer.length < size) {
+            buffer = new byte[Math.max(size, 1024)];
+        }
+        source.readBytes(buffer, 0, size);
+        mark.reset();
+        if (reader.getState() == AbstractBsonReader.State.INITIAL) {
+            // skips the elements without reading them, reading their names would decode every name once more
+            reader.readStartDocument();
+            source.skip(size - 5);
+            reader.readEndDocument();
+        } else {
+            reader.skipValue();
+        }
+        position = 0;
+        limit = size;
+    }
+
+    /**
+     * Drops the buffer if it grew too large to be worth keeping.
+     */
+    void release() {
+        if (buffer != null && buffer.length > MAX_RETAINED_BUFFER_SIZE) {
+            buffer = null;
+        }
+        position = 0;
+        limit = 0;
+    }
+
+    @Override
+    public int getPosition() {
+        return position;
+    }
+
+    @Override
+    public byte readByte() {
+        ensureAvailable(1);
+        return buffer[position++];
+    }
+
+    @Override
+    public void readBytes(final byte[] bytes) {
+        readBytes(bytes, 0, bytes.length);
+    }
+
+    @Override
+    public void readBytes(final byte[] bytes, final int offset, final int length) {
+        ensureAvailable(length);
+        System.arraycopy(buffer, position, bytes, offset, length);
+        position += length;
+    }
+
+    @Override
+    public long readInt64() {
+        ensureAvailable(8);
+        long value = (long) LONG.get(buffer, position);
+        position += 8;
+        return value;
+    }
+
+    @Override
+    public double readDouble() {
+        return Double.longBitsToDouble(readInt64());
+    }
+
+    @Override
+    public int readInt32() {
+        ensureAvailable(4);
+        int value = (int) INT.get(buffer, position);
+        position += 4;
+        return value;
+    }
+
+    @Override
+    public String readString() {
+        int size = readInt32();
+        if (size <= 0) {
+            throw new BsonSerializationException(format("While decoding a BSON string found a size that is not a positive number: %d",
+                size));
+        }
+        ensureAvailable(size);
+        if (buffer[position + size - 1] != 0) {
+            throw new BsonSerializationException("Found a BSON string that is not null-terminated");
+        }
+        String value = new String(buffer, position, size - 1, StandardCharsets.UTF_8);
+        position += size;
+        return value;
+    }
+
+    @Override
+    public ObjectId readObjectId() {
+        ensureAvailable(12);
+        ObjectId value = new ObjectId(ByteBuffer.wrap(buffer, position, 12));
+        position += 12;
+        return value;
+    }
+
+    @Override
+    public String readCString() {
+        int length = cStringLength();
+        String value = canonicalizer.canonicalize(buffer, position, length);
+        position += length + 1;
+        return value;
+    }
+
+    /**
+     * Reads a cstring that isn't a field name, bypassing the canonicalizer.
+     *
+     * @return the string
+     */
+    String readPlainCString() {
+        int length = cStringLength();
+        String value = new String(buffer, position, length, StandardCharsets.UTF_8);
+        position += length + 1;
+        return value;
+    }
+
+    @Override
+    public void skipCString() {
+        position += cStringLength() + 1;
+    }
+
+    @Override
+    public void skip(final int numBytes) {
+        ensureAvailable(numBytes);
+        position += numBytes;
+    }
+
+    @Override
+    public BsonInputMark getMark(final int readLimit) {
+        return new BsonInputMark() {
+            private final int mark = position;
+
+            @Override
+            public void reset() {
+                position = mark;
+            }
+        };
+    }
+
+    @Override
+    public boolean hasRemaining() {
+        return position < limit;
+    }
+
+    @Override
+    public void close() {
+        // the buffer is reused, see release()
+    }
+
+    private int cStringLength() {
+        for (int i = position; i < limit; i++) {
+            if (buffer[i] == 0) {
+                return i - position;
+            }
+        }
+        throw new BsonSerializationException("Found a BSON string that is not null-terminated");
+    }
+
+    private void ensureAvailable(final int bytesNeeded) {
+        if (limit - position < bytesNeeded) {
+            throw new BsonSerializationException(format("While decoding a BSON document %d bytes were required, "
+                + "but only %d remain", bytesNeeded, limit - position));
+        }
+    }
+}
@@ -18,11 +18,14 @@ package org.mongojack.internal.stream;
 
 import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.core.io.IOContext;
+import com.fasterxml.jackson.core.util.BufferRecycler;
+import com.fasterxml.jackson.core.util.RecyclerPool;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.bson.AbstractBsonReader;
 import org.bson.UuidRepresentation;
 
 import java.io.IOException;
+import java.io.InputStream;
 
 /**
  * Parser that wraps BSONParser to convert bson4jackson ObjectIds to org.bson
@@ -31,7 +34,11 @@ import java.io.IOException;
  * @author James Roper
  * @since 1.1.2
  */
-public class DBDecoderBsonParser extends JsonParserAdapter {
+public class DBDecoderBsonParser extends JsonParserAdapter implements RecyclerPool.WithPool<DBDecoderBsonParser> {
+
+    private static final InputStream EMPTY_INPUT_STREAM = new EmptyInputStream();
+
+    private RecyclerPool<DBDecoderBsonParser> pool;
 
     public DBDecoderBsonParser(
         IOContext ctxt,
@@ -45,6 +52,37 @@ public class DBDecoderBsonParser extends JsonParserAdapter {
         setCodec(objectMapper);
     }
 
+    /**
+     * Rebinds this parser to the given reader.
+     *
+     * @param reader Bson reader to read from
+     * @return this parser
+     */
+    public DBDecoderBsonParser rebind(AbstractBsonReader reader) {
+        reset(reader);
+        return this;
+    }
+
+    @Override
+    public DBDecoderBsonParser withPool(RecyclerPool<DBDecoderBsonParser> pool) {
+        this.pool = pool;
+        return this;
+    }
+
+    /**
+     * Hands this parser back to the pool it was acquired from.  The parser must not be used afterwards.
+     */
+    @Override
+    public void releaseToPool() {
+        if (pool != null) {
+            RecyclerPool<DBDecoderBsonParser> owner = pool;
+            pool = null;
+            // don't keep the last document's reader reachable from the pool
+            reset(null);
+            owner.releasePooled(this);
+        }
+    }
+
     @Override
     public String getText() throws IOException {
         if (JsonToken.VALUE_EMBEDDED_OBJECT == getCurrentToken()) {
@@ -53,4 +91,45 @@ public class DBDecoderBsonParser extends JsonParserAdapter {
         return super.getText();
     }
 
+    /**
+     * Bounded pool of parsers for a single ObjectMapper and UUID representation.  Backed by Jackson's
+     * {@link RecyclerPool.BoundedPoolBase}, which doesn't rely on thread locals, so it also works with virtual
+     * threads.
+     */
+    public static class Pool extends RecyclerPool.BoundedPoolBase<DBDecoderBsonParser> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final transient ObjectMapper objectMapper;
+        private final transient UuidRepresentation uuidRepresentation;
+
+        public Pool(final ObjectMapper objectMapper, final UuidRepresentation uuidRepresentation) {
+            super(DEFAULT_CAPACITY);
+            this.objectMapper = objectMapper;
+            this.uuidRepresentation = uuidRepresentation;
+        }
+
+        @Override
+        public DBDecoderBsonParser createPooled() {
+            return new DBDecoderBsonParser(
+                new IOContext(new BufferRecycler(), EMPTY_INPUT_STREAM, false),
+                0,
+                null,
+                objectMapper,
+                uuidRepresentation
+            );
+        }
+    }
+
+    private static class EmptyInputStream extends InputStream {
+        @Override
+        public int available() {
+            return 0;
+        }
+
+        public int read() {
+            return -1;
+        }
+    }
+
 }
@@ -17,6 +17,7 @@
 package org.mongojack.internal.stream;
 
 import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.util.RecyclerPool;
 import com.mongodb.DBRef;
 import org.bson.BsonBinary;
 import org.bson.BsonWriter;
@@ -33,7 +34,9 @@ import java.util.UUID;
  * BsonGenerator that adds a bit of functionality specific to DBEncoding to the
  * bson4jackson DBEncoder
  */
-public class DBEncoderBsonGenerator extends JsonGeneratorAdapter {
+public class DBEncoderBsonGenerator extends JsonGeneratorAdapter implements RecyclerPool.WithPool<DBEncoderBsonGenerator> {
+
+    private RecyclerPool<DBEncoderBsonGenerator> pool;
 
     public DBEncoderBsonGenerator(int jsonFeatures, BsonWriter out, final UuidRepresentation uuidRepresentation) {
         super(jsonFeatures, null, out, uuidRepresentation);
@@ -43,6 +46,36 @@ public class DBEncoderBsonGenerator extends JsonGeneratorAdapter {
         this(JsonGenerator.Feature.collectDefaults(), writer, uuidRepresentation);
     }
 
+    /**
+     * Rebinds this generator to the given writer.
+     *
+     * @param writer the writer to write to
+     * @return this generator
+     */
+    public DBEncoderBsonGenerator rebind(final BsonWriter writer) {
+        reset(writer);
+        return this;
+    }
+
+    @Override
+    public DBEncoderBsonGenerator withPool(final RecyclerPool<DBEncoderBsonGenerator> pool) {
+        this.pool = pool;
+        return this;
+    }
+
+    /**
+     * Hands this generator back to the pool it was acquired from.  The generator must not be used afterwards.
+     */
+    @Override
+    public void releaseToPool() {
+        if (pool != null) {
+            RecyclerPool<DBEncoderBsonGenerator> owner = pool;
+            pool = null;
+            reset(null);
+            owner.releasePooled(this);
+        }
+    }
+
     @Override
     protected void _writeSimpleObject(Object value) throws IOException {
         if (value instanceof Date) {
@@ -71,4 +104,26 @@ public class DBEncoderBsonGenerator extends JsonGeneratorAdapter {
             }
         }
     }
+
+    /**
+     * Bounded pool of generators for a single UUID representation.  Backed by Jackson's
+     * {@link RecyclerPool.BoundedPoolBase}, which doesn't rely on thread locals, so it also works with virtual
+     * threads.
+     */
+    public static class Pool extends RecyclerPool.BoundedPoolBase<DBEncoderBsonGenerator> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final transient UuidRepresentation uuidRepresentation;
+
+        public Pool(final UuidRepresentation uuidRepresentation) {
+            super(DEFAULT_CAPACITY);
+            this.uuidRepresentation = uuidRepresentation;
+        }
+
+        @Override
+        public DBEncoderBsonGenerator createPooled() {
+            return new DBEncoderBsonGenerator(null, uuidRepresentation);
+        }
+    }
 }
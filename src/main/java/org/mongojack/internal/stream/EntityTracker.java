@@ -0,0 +1,88 @@
+package org.mongojack.internal.stream;
+
+import org.bson.RawBsonDocument;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The documents tracked entities were last loaded from or saved as, keyed by the identity of the entities.  The
+ * entities are only weakly referenced, an entity that is no longer used elsewhere is dropped along with its snapshot.
+ */
+public class EntityTracker {
+
+    private final ConcurrentHashMap<EntityReference, RawBsonDocument> snapshots = new ConcurrentHashMap<>();
+    private final ReferenceQueue<Object> collected = new ReferenceQueue<>();
+
+    /**
+     * Records the document an entity was loaded from or saved as, replacing the previous one.
+     *
+     * @param entity   the entity
+     * @param snapshot the document
+     */
+    public void track(final Object entity, final RawBsonDocument snapshot) {
+        purgeCollected();
+        snapshots.put(new EntityReference(entity, collected), snapshot);
+    }
+
+    /**
+     * @param entity the entity
+     * @return the document the entity was last loaded from or saved as, or null if it isn't tracked
+     */
+    public RawBsonDocument getSnapshot(final Object entity) {
+        purgeCollected();
+        return snapshots.get(new EntityReference(entity, null));
+    }
+
+    /**
+     * Stops tracking an entity.
+     *
+     * @param entity the entity
+     */
+    public void untrack(final Object entity) {
+        snapshots.remove(new EntityReference(entity, null));
+    }
+
+    /**
+     * @return the number of entities that are tracked, including ones that have been collected but not purged yet
+     */
+    public int size() {
+        purgeCollected();
+        return snapshots.size();
+    }
+
+    private void purgeCollected() {
+        Reference<?> reference;
+        while ((reference = collected.poll()) != null) {
+            snapshots.remove(reference);
+        }
+    }
+
+    private static final class EntityReference extends WeakReference<Object> {
+        private final int hash;
+
+        private EntityReference(final Object entity, final ReferenceQueue<Object> queue) {
+            super(entity, queue);
+            this.hash = System.identityHashCode(entity);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof EntityReference)) {
+                return false;
+            }
+            final Object entity = get();
+            return entity != null && entity == ((EntityReference) o).get();
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package org.mongojack.internal.stream;
+
+import com.fasterxml.jackson.core.util.InternCache;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Symbol table that maps the UTF-8 bytes of BSON field names to canonical String instances, in the spirit of
+ * Jackson's ByteQuadsCanonicalizer.
+ * <p>
+ * The same handful of field names appear in every document of a collection, so decoding them to a fresh String each
+ * time is wasted work.  Names that are in the table are returned without allocating, and since they are interned
+ * (when the ObjectMapper interns field names, which is the default) Jackson matches them against bean properties by
+ * identity.
+ * <p>
+ * The table has a fixed size and is shared by all threads decoding with one codec.  Entries are immutable, so
+ * concurrent readers either see a complete entry or none; a lost race only means a name gets decoded once more.
+ * Names that are too long, or that don't find a free slot within a few probes, are simply decoded without being
+ * cached, so the table can't grow unbounded on documents with arbitrary keys.
+ */
+final class FieldNameCanonicalizer {
+
+    static final int MAX_NAME_LENGTH = 64;
+
+    private static final int TABLE_SIZE = 1024;
+
+    private static final int MAX_PROBES = 8;
+
+    private final Entry[] table = new Entry[TABLE_SIZE];
+
+    private final boolean intern;
+
+    FieldNameCanonicalizer(final boolean intern) {
+        this.intern = intern;
+    }
+
+    /**
+     * Returns the canonical name for the given UTF-8 bytes.
+     *
+     * @param buffer the buffer holding the name
+     * @param offset the offset of the first byte of the name
+     * @param length the length of the name in bytes, not including the NUL terminator
+     * @return the name
+     */
+    String canonicalize(final byte[] buffer, final int offset, final int length) {
+        if (length > MAX_NAME_LENGTH) {
+            return decode(buffer, offset, length);
+        }
+        final int hash = hash(buffer, offset, length);
+        int index = hash & (TABLE_SIZE - 1);
+        for (int probe = 0; probe < MAX_PROBES; probe++) {
+            final Entry entry = table[index];
+            if (entry == null) {
+                final String name = decode(buffer, offset, length);
+                table[index] = new Entry(hash, Arrays.copyOfRange(buffer, offset, offset + length), name);
+                return name;
+            }
+            if (entry.hash == hash && entry.matches(buffer, offset, length)) {
+                return entry.name;
+            }
+            index = (index + 1) & (TABLE_SIZE - 1);
+        }
+        return decode(buffer, offset, length);
+    }
+
+    private String decode(final byte[] buffer, final int offset, final int length) {
+        final String name = new String(buffer, offset, length, StandardCharsets.UTF_8);
+        return intern ? InternCache.instance.intern(name) : name;
+    }
+
+    private static int hash(final byte[] buffer, final int offset, final int length) {
+        int hash = length;
+        for (int i = offset, end = offset + length; i < end; i++) {
+            hash = hash * 31 + buffer[i];
+        }
+        return hash ^ (hash >>> 16);
+    }
+
+    private static final class Entry {
+        private final int hash;
+        private final byte[] bytes;
+        private final String name;
+
+        private Entry(final int hash, final byte[] bytes, final String name) {
+            this.hash = hash;
+            this.bytes = bytes;
+            this.name = name;
+        }
+
+        private boolean matches(final byte[] buffer, final int offset, final int length) {
+            return bytes.length == length && Arrays.equals(bytes, 0, length, buffer, offset, offset + length);
+        }
+    }
+}
@@ -0,0 +1,229 @@
+package org.mongojack.internal.stream;
+
+import com.fasterxml.jackson.databind.introspect.AnnotatedMember;
+import org.bson.BsonNull;
+import org.bson.BsonValue;
+import org.bson.types.ObjectId;
+import org.mongojack.IdGenerator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * Reads and writes the id of documents of one class, for {@link JacksonCodec}'s implementation of
+ * {@link org.bson.codecs.CollectibleCodec}.
+ * <p>
+ * Getters and setters are compiled into lambdas with {@link LambdaMetafactory} where the member is accessible to us,
+ * with a method handle as the next best thing, and Jackson's reflective access as the last resort.  How the id value
+ * converts to BSON, how ids are generated, and how a generated id converts to the id property, is worked out once per
+ * class.
+ */
+final class IdAccessor {
+
+    private final static Logger logger = LoggerFactory.getLogger(IdAccessor.class);
+
+    static final IdAccessor NONE = new IdAccessor(Object.class, null, null, false, null, null, null);
+
+    private final Class<?> documentClass;
+    private final Function<Object, Object> getter;
+    private final Function<Object, BsonValue> toBson;
+    private final boolean primitive;
+    private final BiConsumer<Object, Object> setter;
+    private final Function<Object, Object> toProperty;
+    private final IdGenerator<?> generator;
+
+    /**
+     * @param documentClass the class of the documents
+     * @param getter        the id getter, or null if the id can't be read
+     * @param toBson        converts the value returned by the getter to BSON
+     * @param primitive     whether the id property is a primitive, which reads as 0 until it is set
+     * @param setter        the id setter, or null if the id can't be written
+     * @param toProperty    converts a generated id to the value passed to the setter, may throw for id types that
+     *                      can't be generated
+     * @param generator     the generator of ids, or null to generate ObjectIds
+     */
+    IdAccessor(
+        final Class<?> documentClass,
+        final Function<Object, Object> getter,
+        final Function<Object, BsonValue> toBson,
+        final boolean primitive,
+        final BiConsumer<Object, Object> setter,
+        final Function<Object, Object> toProperty,
+        final IdGenerator<?> generator
+    ) {
+        this.documentClass = documentClass;
+        this.getter = getter;
+        this.toBson = toBson;
+        this.primitive = primitive;
+        this.setter = setter;
+        this.toProperty = toProperty;
+        this.generator = generator;
+    }
+
+    BsonValue getId(final Object document) {
+        if (getter == null) {
+            return BsonNull.VALUE;
+        }
+        try {
+            return toBson.apply(getter.apply(document));
+        } catch (Exception e) {
+            logger.warn("Suppressed error attempting to get reader for object id in " + documentClass, e);
+            return BsonNull.VALUE;
+        }
+    }
+
+    void generateIdIfAbsent(final Object document) {
+        if (setter == null || hasId(document)) {
+            return;
+        }
+        setId(document, generator == null ? new ObjectId() : generator.generate(documentClass));
+    }
+
+    /**
+     * Generates the missing ids of a batch of documents of this accessor's class, with a single call to the generator.
+     */
+    void generateIdsIfAbsent(final List<?> documents) {
+        if (setter == null) {
+            return;
+        }
+        final List<Object> missing = new ArrayList<>();
+        for (Object document : documents) {
+            if (!hasId(document)) {
+                missing.add(document);
+            }
+        }
+        if (missing.isEmpty()) {
+            return;
+        }
+        final List<?> ids = generator == null ? null : generator.generate(documentClass, missing.size());
+        for (int i = 0; i < missing.size(); i++) {
+            setId(missing.get(i), ids == null ? new ObjectId() : ids.get(i));
+        }
+    }
+
+    private boolean hasId(final Object document) {
+        final BsonValue id = getId(document);
+        if (id == null || id.isNull()) {
+            return false;
+        }
+        // a primitive id can't be missing, when it's generated its default value stands for not set yet
+        return !(primitive && generator != null && id.isNumber() && id.asNumber().longValue() == 0);
+    }
+
+    private void setId(final Object document, final Object id) {
+        if (id == null) {
+            return;
+        }
+        if (generator != null) {
+            // an id that doesn't fit the property is a configuration error, the document mustn't be written without it
+            try {
+                setter.accept(document, toProperty.apply(id));
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException(
+                    "Can't set the id " + id + " generated by " + generator.getClass().getName() + " on the id property of " + documentClass,
+                    e
+                );
+            }
+            return;
+        }
+        try {
+            setter.accept(document, toProperty.apply(id));
+        } catch (Exception e) {
+            logger.warn("Suppressed error attempting to get writer for object id in " + documentClass, e);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    static Function<Object, Object> compileGetter(final AnnotatedMember accessor) {
+        final Member member = accessor.getMember();
+        try {
+            final MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(member.getDeclaringClass(), MethodHandles.lookup());
+            if (member instanceof Method) {
+                final MethodHandle handle = lookup.unreflect((Method) member);
+                try {
+                    return (Function<Object, Object>) LambdaMetafactory.metafactory(
+                        lookup,
+                        "apply",
+                        MethodType.methodType(Function.class),
+                        MethodType.methodType(Object.class, Object.class),
+                        handle,
+                        handle.type().wrap()
+                    ).getTarget().invokeExact();
+                } catch (Throwable e) {
+                    logger.debug("Could not compile the id getter of " + member.getDeclaringClass() + ", using a method handle", e);
+                }
+                return invokingGetter(handle.asType(MethodType.methodType(Object.class, Object.class)));
+            } else if (member instanceof Field) {
+                return invokingGetter(lookup.unreflectGetter((Field) member).asType(MethodType.methodType(Object.class, Object.class)));
+            }
+        } catch (IllegalAccessException | RuntimeException e) {
+            logger.debug("Could not access the id getter of " + member.getDeclaringClass() + ", using reflection", e);
+        }
+        return accessor::getValue;
+    }
+
+    @SuppressWarnings("unchecked")
+    static BiConsumer<Object, Object> compileSetter(final AnnotatedMember mutator) {
+        final Member member = mutator.getMember();
+        try {
+            final MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(member.getDeclaringClass(), MethodHandles.lookup());
+            if (member instanceof Method) {
+                final MethodHandle handle = lookup.unreflect((Method) member);
+                try {
+                    // setters that return something, like fluent ones, are fine, the result is dropped
+                    return (BiConsumer<Object, Object>) LambdaMetafactory.metafactory(
+                        lookup,
+                        "accept",
+                        MethodType.methodType(BiConsumer.class),
+                        MethodType.methodType(void.class, Object.class, Object.class),
+                        handle,
+                        MethodType.methodType(void.class, handle.type().wrap().parameterArray())
+                    ).getTarget().invokeExact();
+                } catch (Throwable e) {
+                    logger.debug("Could not compile the id setter of " + member.getDeclaringClass() + ", using a method handle", e);
+                }
+                return invokingSetter(handle.asType(MethodType.methodType(void.class, Object.class, Object.class)));
+            } else if (member instanceof Field) {
+                return invokingSetter(lookup.unreflectSetter((Field) member).asType(MethodType.methodType(void.class, Object.class, Object.class)));
+            }
+        } catch (IllegalAccessException | RuntimeException e) {
+            logger.debug("Could not access the id setter of " + member.getDeclaringClass() + ", using reflection", e);
+        }
+        return mutator::setValue;
+    }
+
+    private static Function<Object, Object> invokingGetter(final MethodHandle getter) {
+        return document -> {
+            try {
+                return (Object) getter.invokeExact(document);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new IllegalStateException(e);
+            }
+        };
+    }
+
+    private static BiConsumer<Object, Object> invokingSetter(final MethodHandle setter) {
+        return (document, value) -> {
+            try {
+                setter.invokeExact(document, value);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new IllegalStateException(e);
+            }
+        };
+    }
+}
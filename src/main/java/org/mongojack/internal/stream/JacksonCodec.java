@@ -2,15 +2,17 @@ package org.mongojack.internal.stream;
 
 import com.fasterxml.jackson.databind.BeanDescription;
 import com.fasterxml.jackson.databind.DeserializationConfig;
+import com.fasterxml.jackson.databind.JavaType;
 import com.fasterxml.jackson.databind.MapperFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationConfig;
-import com.fasterxml.jackson.databind.introspect.AnnotatedMember;
-import com.fasterxml.jackson.databind.introspect.AnnotatedMethod;
-import com.fasterxml.jackson.databind.introspect.AnnotatedWithParams;
 import com.fasterxml.jackson.databind.introspect.BeanPropertyDefinition;
+import com.fasterxml.jackson.databind.ser.std.BeanSerializerBase;
+import com.fasterxml.jackson.databind.util.ClassUtil;
+import org.bson.BsonBinary;
 import org.bson.BsonDecimal128;
 import org.bson.BsonDocument;
+import org.bson.BsonDocumentWrapper;
 import org.bson.BsonDocumentWriter;
 import org.bson.BsonDouble;
 import org.bson.BsonInt32;
@@ -29,27 +31,42 @@ import org.bson.codecs.EncoderContext;
 import org.bson.codecs.OverridableUuidRepresentationCodec;
 import org.bson.types.Decimal128;
 import org.bson.types.ObjectId;
+import org.mongojack.IdGeneration;
+import org.mongojack.IdGenerator;
 import org.mongojack.JacksonCodecRegistry;
+import org.mongojack.Version;
 import org.mongojack.internal.AnnotationHelper;
+import org.mongojack.internal.util.DocumentSerializationUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.function.Consumer;
-import java.util.function.Supplier;
+import java.util.function.Function;
 
 @SuppressWarnings("WeakerAccess")
 public class JacksonCodec<T> implements Codec<T>, CollectibleCodec<T>, OverridableUuidRepresentationCodec<T> {
 
     private final static Logger logger = LoggerFactory.getLogger(JacksonCodec.class);
 
+    private static final EncoderContext ENCODER_CONTEXT = EncoderContext.builder().build();
+
     private final JacksonEncoder<T> encoder;
     private final JacksonDecoder<T> decoder;
     private final ObjectMapper objectMapper;
     private final ConcurrentHashMap<Class<?>, Optional<BeanPropertyDefinition>> serializationBPDCache = new ConcurrentHashMap<>();
     private final ConcurrentHashMap<Class<?>, Optional<BeanPropertyDefinition>> deSerializationBPDCache = new ConcurrentHashMap<>();
     private final JacksonCodecRegistry jacksonCodecRegistry;
+    private final ConcurrentHashMap<Class<?>, IdAccessor> idAccessors = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Class<?>, Optional<VersionAccessor>> versionAccessors = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Class<?>, Function<Object, BsonValue>> complexIdConverters = new ConcurrentHashMap<>();
 
     public JacksonCodec(
         JacksonEncoder<T> encoder,
@@ -78,14 +95,42 @@ public class JacksonCodec<T> implements Codec<T>, CollectibleCodec<T>, Overridab
         return decoder.decode(reader, decoderContext);
     }
 
+    /**
+     * @return a copy of the projection of the fields the decoder reads, or null if it needs the whole document
+     * @see JacksonDecoder#getProjection()
+     */
+    public BsonDocument getProjection() {
+        return decoder.getProjection();
+    }
+
     @Override
     public T generateIdIfAbsentFromDocument(final T t) {
-        if (!documentHasId(t)) {
-            getIdWriter(t).accept(new BsonObjectId());
-        }
+        getIdAccessor(t.getClass()).generateIdIfAbsent(t);
         return t;
     }
 
+    /**
+     * Generates the ids of the documents that don't have one, asking the {@link IdGenerator} of each document class
+     * for all the ids it needs at once.
+     *
+     * @param documents the documents
+     */
+    public void generateIdsIfAbsent(final List<? extends T> documents) {
+        if (documents.isEmpty()) {
+            return;
+        }
+        final Class<?> firstClass = documents.get(0).getClass();
+        if (documents.stream().allMatch(document -> document.getClass() == firstClass)) {
+            getIdAccessor(firstClass).generateIdsIfAbsent(documents);
+            return;
+        }
+        final Map<Class<?>, List<T>> byClass = new LinkedHashMap<>();
+        for (T document : documents) {
+            byClass.computeIfAbsent(document.getClass(), c -> new ArrayList<>()).add(document);
+        }
+        byClass.forEach((documentClass, group) -> getIdAccessor(documentClass).generateIdsIfAbsent(group));
+    }
+
     @Override
     public boolean documentHasId(final T t) {
         final BsonValue readValue = getDocumentId(t);
@@ -94,7 +139,7 @@ public class JacksonCodec<T> implements Codec<T>, CollectibleCodec<T>, Overridab
 
     @Override
     public BsonValue getDocumentId(final T t) {
-        return getIdReader(t).get();
+        return getIdAccessor(t.getClass()).getId(t);
     }
 
     @Override
@@ -107,52 +152,159 @@ public class JacksonCodec<T> implements Codec<T>, CollectibleCodec<T>, Overridab
         );
     }
 
-    private Supplier<BsonValue> getIdReader(final T t) {
-        final Optional<BeanPropertyDefinition> maybeBpd = getIdElementDeserializationDescription(t.getClass());
-        return maybeBpd.<Supplier<BsonValue>>map(beanPropertyDefinition -> () -> {
-            try {
-                return constructIdValue(beanPropertyDefinition.getAccessor().getValue(t), maybeBpd);
-            } catch (Exception e) {
-                logger.warn("Suppressed error attempting to get reader for object id in " + t.getClass(), e);
-                return BsonNull.VALUE;
+    /**
+     * Eagerly does the work that is otherwise done lazily when the first document is encoded or decoded: the lookup of
+     * the id property, and the construction of the serializers and deserializers of the types reachable through
+     * bean properties.  The root serializer and deserializer are already built with the codec.
+     */
+    public void warmUp() {
+        final Class<T> documentClass = getEncoderClass();
+        getIdElementSerializationDescription(documentClass);
+        getIdElementDeserializationDescription(documentClass);
+        warmUp(objectMapper.constructType(documentClass), new HashSet<>());
+    }
+
+    private void warmUp(final JavaType type, final Set<JavaType> seen) {
+        if (!seen.add(type)) {
+            return;
+        }
+        if (type.isContainerType() || type.isReferenceType()) {
+            if (type.getKeyType() != null) {
+                warmUp(type.getKeyType(), seen);
+            }
+            if (type.getContentType() != null) {
+                warmUp(type.getContentType(), seen);
             }
-        }).orElseGet(() -> () -> BsonNull.VALUE);
+            return;
+        }
+        final Class<?> rawClass = type.getRawClass();
+        if (rawClass.isPrimitive() || rawClass.isEnum() || rawClass == Object.class || rawClass.getName().startsWith("java.")
+            || DocumentSerializationUtils.isKnownClass(rawClass)) {
+            return;
+        }
+        try {
+            objectMapper.getSerializerProviderInstance().findValueSerializer(type);
+            // readers prefetch the deserializer of their type
+            objectMapper.readerFor(type);
+        } catch (Exception e) {
+            logger.debug("Could not warm up serializers for " + type + ", they will be built on first use", e);
+            return;
+        }
+        final SerializationConfig serializationConfig = objectMapper.getSerializationConfig();
+        for (BeanPropertyDefinition property : serializationConfig.introspect(type).findProperties()) {
+            warmUp(property.getPrimaryType(), seen);
+        }
     }
 
-    private Consumer<BsonObjectId> getIdWriter(final T t) {
-        final Optional<BeanPropertyDefinition> maybeBpd = getIdElementSerializationDescription(t.getClass());
-        return maybeBpd.<Consumer<BsonObjectId>>map(beanPropertyDefinition -> (bsonObjectId) -> {
-            try {
-                if (bsonObjectId != null) {
-                    beanPropertyDefinition.getNonConstructorMutator().setValue(
-                        t,
-                        extractIdValue(bsonObjectId, beanPropertyDefinition.getRawPrimaryType())
-                    );
-                }
-            } catch (Exception e) {
-                logger.warn("Suppressed error attempting to get writer for object id in " + t.getClass(), e);
+    private IdAccessor getIdAccessor(final Class<?> documentClass) {
+        final IdAccessor idAccessor = idAccessors.get(documentClass);
+        if (idAccessor != null) {
+            return idAccessor;
+        }
+        return idAccessors.computeIfAbsent(documentClass, this::createIdAccessor);
+    }
+
+    private IdAccessor createIdAccessor(final Class<?> documentClass) {
+        final Optional<BeanPropertyDefinition> reader = getIdElementDeserializationDescription(documentClass);
+        final Optional<BeanPropertyDefinition> writer = getIdElementSerializationDescription(documentClass);
+        if (!reader.isPresent() && !writer.isPresent()) {
+            return IdAccessor.NONE;
+        }
+        return new IdAccessor(
+            documentClass,
+            reader.map(bpd -> IdAccessor.compileGetter(bpd.getAccessor())).orElse(null),
+            reader.map(this::idValueConverter).orElse(null),
+            reader.map(bpd -> bpd.getRawPrimaryType().isPrimitive()).orElse(false),
+            writer.map(bpd -> IdAccessor.compileSetter(bpd.getNonConstructorMutator())).orElse(null),
+            writer.map(bpd -> idGenerationConverter(bpd.getRawPrimaryType())).orElse(null),
+            generator(documentClass)
+        );
+    }
+
+    /**
+     * @param documentClass the class of the documents
+     * @return the accessor of the {@link org.mongojack.Version version} property of the class, or null if it has none
+     * @throws IllegalArgumentException if the version property isn't an int or a long, or can't be read and written
+     */
+    public VersionAccessor getVersionAccessor(final Class<?> documentClass) {
+        return versionAccessors.computeIfAbsent(
+            documentClass,
+            (documentClazz) -> {
+                final SerializationConfig serializationConfig = objectMapper.getSerializationConfig();
+                return serializationConfig.introspect(serializationConfig.constructType(documentClazz)).findProperties().stream()
+                    .filter(bpd -> bpd.getPrimaryMember() != null && bpd.getPrimaryMember().hasAnnotation(Version.class))
+                    .findFirst()
+                    .map(bpd -> VersionAccessor.create(documentClazz, bpd));
+            }
+        ).orElse(null);
+    }
+
+    private IdGenerator<?> generator(final Class<?> documentClass) {
+        final IdGeneration idGeneration = documentClass.getAnnotation(IdGeneration.class);
+        return idGeneration == null ? null : jacksonCodecRegistry.getIdGenerator(idGeneration.value());
+    }
+
+    /**
+     * Picks the conversion of id values to BSON for an id property, based on its declared type, falling back to
+     * {@link #constructIdValue(Object, Optional)} for the types that need looking at the value.
+     */
+    private Function<Object, BsonValue> idValueConverter(final BeanPropertyDefinition bpd) {
+        final Class<?> rawType = bpd.getRawPrimaryType();
+        final Class<?> type = rawType.isPrimitive() ? ClassUtil.wrapperType(rawType) : rawType;
+        if (bpd.getPrimaryMember().hasAnnotation(org.mongojack.ObjectId.class)) {
+            if (type == String.class) {
+                return value -> value == null ? BsonNull.VALUE : new BsonObjectId(new ObjectId((String) value));
             }
-        }).orElseGet(() -> (bsonObjectId) -> {
-        });
+            final Optional<BeanPropertyDefinition> element = Optional.of(bpd);
+            return value -> constructIdValue(value, element);
+        }
+        if (type == String.class) {
+            return value -> value == null ? BsonNull.VALUE : new BsonString((String) value);
+        } else if (type == ObjectId.class) {
+            return value -> value == null ? BsonNull.VALUE : new BsonObjectId((ObjectId) value);
+        } else if (type == Integer.class) {
+            return value -> value == null ? BsonNull.VALUE : new BsonInt32((Integer) value);
+        } else if (type == Long.class) {
+            return value -> value == null ? BsonNull.VALUE : new BsonInt64((Long) value);
+        } else if (type == UUID.class) {
+            // the default codec registry's UUID codec doesn't know the representation of this registry
+            return value -> value == null ? BsonNull.VALUE : new BsonBinary((UUID) value, jacksonCodecRegistry.getUuidRepresentation());
+        }
+        final Optional<BeanPropertyDefinition> element = Optional.of(bpd);
+        return value -> constructIdValue(value, element);
     }
 
     /**
-     * This is only used for GENERATING an object id, and since we are only interested in auto-generating ObjectIds, then we only have to
-     * deal with object ids here.
+     * This is only used for GENERATING an id.  Generated ObjectIds are converted as in
+     * {@link #extractIdValue(ObjectId, Class)}, ids from an {@link IdGenerator} are converted to strings for string
+     * properties, and are set as they are otherwise.
+     */
+    private Function<Object, Object> idGenerationConverter(final Class<?> valueType) {
+        if (String.class.equals(valueType)) {
+            return value -> value instanceof ObjectId ? ((ObjectId) value).toHexString() : value.toString();
+        } else if (ObjectId.class.equals(valueType)) {
+            return value -> value;
+        }
+        return value -> value instanceof ObjectId ? extractIdValue((ObjectId) value, valueType) : value;
+    }
+
+    /**
+     * This is only used for GENERATING an object id, the conversion of ObjectIds to the types of id properties that
+     * don't use an {@link IdGenerator}.
      *
      * @param value
      * @param valueType
      * @return
      */
-    private Object extractIdValue(BsonObjectId value, Class<?> valueType) {
+    private Object extractIdValue(ObjectId value, Class<?> valueType) {
         if (String.class.equals(valueType)) {
-            return value.asObjectId().getValue().toHexString();
+            return value.toHexString();
         } else if (ObjectId.class.equals(valueType)) {
-            return value.asObjectId().getValue();
+            return value;
         } else if (byte[].class.equals(valueType)) {
-            return value.asObjectId().getValue().toByteArray();
+            return value.toByteArray();
         } else if (Byte[].class.equals(valueType)) {
-            final byte[] inputArray = value.asObjectId().getValue().toByteArray();
+            final byte[] inputArray = value.toByteArray();
             Byte[] outputArray = new Byte[inputArray.length];
             for (int i = 0; i < inputArray.length; i++) {
                 outputArray[i] = inputArray[i];
@@ -195,16 +347,37 @@ public class JacksonCodec<T> implements Codec<T>, CollectibleCodec<T>, Overridab
         } else if (value instanceof Decimal128) {
             return new BsonDecimal128((Decimal128) value);
         } else {
+            return complexIdConverters.computeIfAbsent(value.getClass(), this::complexIdConverter).apply(value);
+        }
+    }
+
+    /**
+     * Ids that are beans are wrapped with their codec, and only encoded if and when the driver needs them.  Anything
+     * else is encoded right away, as the value of a field since it may not encode to a document.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private Function<Object, BsonValue> complexIdConverter(final Class<?> idClass) {
+        final Codec codec = jacksonCodecRegistry.get(idClass);
+        boolean isBean;
+        try {
+            isBean = codec instanceof JacksonCodec
+                && objectMapper.getSerializerProviderInstance().findValueSerializer(idClass) instanceof BeanSerializerBase;
+        } catch (Exception e) {
+            isBean = false;
+        }
+        if (isBean) {
+            return value -> new BsonDocumentWrapper<>(value, codec);
+        }
+        return value -> {
             final BsonDocument doc = new BsonDocument();
             try (BsonDocumentWriter bdw = new BsonDocumentWriter(doc)) {
                 bdw.writeStartDocument();
                 bdw.writeName("_id");
-                final Codec codec = jacksonCodecRegistry.get(value.getClass());
-                codec.encode(bdw, value, EncoderContext.builder().build());
+                codec.encode(bdw, value, ENCODER_CONTEXT);
                 bdw.writeEndDocument();
                 return bdw.getDocument().get("_id");
             }
-        }
+        };
     }
 
     public Optional<BeanPropertyDefinition> getIdElementDeserializationDescription(final Class<?> documentClass) {
@@ -1,31 +1,61 @@
 package org.mongojack.internal.stream;
 
-import com.fasterxml.jackson.core.io.IOContext;
-import com.fasterxml.jackson.core.util.BufferRecycler;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.util.RecyclerPool;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 import org.bson.AbstractBsonReader;
+import org.bson.BsonBinaryReader;
+import org.bson.BsonDocument;
 import org.bson.BsonReader;
 import org.bson.UuidRepresentation;
 import org.bson.codecs.Decoder;
 import org.bson.codecs.DecoderContext;
 
 import java.io.IOException;
-import java.io.InputStream;
+import java.util.Optional;
 
 public class JacksonDecoder<T> implements Decoder<T> {
 
-    private static final InputStream EMPTY_INPUT_STREAM = new EmptyInputStream();
-
     private final Class<T> clazz;
     private final ObjectMapper objectMapper;
     private final Class<?> view;
     private final UuidRepresentation uuidRepresentation;
+    private final ObjectReader objectReader;
+    private final FieldNameCanonicalizer canonicalizer;
+    private final DBDecoderBsonParser.Pool parserPool;
+    private final BsonBytesParser.Pool bytesParserPool;
+    private volatile Optional<BsonDocument> projection;
 
     public JacksonDecoder(Class<T> clazz, Class<?> view, ObjectMapper objectMapper, final UuidRepresentation uuidRepresentation) {
+        this(
+            clazz,
+            view,
+            objectMapper,
+            uuidRepresentation,
+            objectMapper.readerWithView(view).forType(clazz),
+            new FieldNameCanonicalizer(objectMapper.getFactory().isEnabled(JsonFactory.Feature.INTERN_FIELD_NAMES))
+        );
+    }
+
+    private JacksonDecoder(
+        Class<T> clazz,
+        Class<?> view,
+        ObjectMapper objectMapper,
+        final UuidRepresentation uuidRepresentation,
+        final ObjectReader objectReader,
+        final FieldNameCanonicalizer canonicalizer
+    ) {
         this.clazz = clazz;
         this.objectMapper = objectMapper;
         this.view = view;
         this.uuidRepresentation = uuidRepresentation;
+        // ObjectReader is immutable and forType() prefetches the root deserializer, so it is safe to share
+        this.objectReader = objectReader;
+        this.canonicalizer = canonicalizer;
+        this.parserPool = new DBDecoderBsonParser.Pool(objectMapper, uuidRepresentation);
+        this.bytesParserPool = new BsonBytesParser.Pool(objectMapper, uuidRepresentation, canonicalizer);
     }
 
     public JacksonDecoder<T> withUuidRepresentation(final UuidRepresentation uuidRepresentation) {
@@ -33,27 +63,47 @@ public class JacksonDecoder<T> implements Decoder<T> {
             clazz,
             view,
             objectMapper,
-            uuidRepresentation
+            uuidRepresentation,
+            objectReader,
+            canonicalizer
         );
     }
 
-    @Override
-    public T decode(BsonReader reader, DecoderContext decoderContext) {
-        try (DBDecoderBsonParser parser = new DBDecoderBsonParser(new IOContext(new BufferRecycler(), EMPTY_INPUT_STREAM, false), 0, (AbstractBsonReader) reader, objectMapper, uuidRepresentation)) {
-            return objectMapper.reader().forType(clazz).withView(view).readValue(parser);
-        } catch (IOException e) {
-            throw new RuntimeException("IOException encountered while parsing", e);
+    /**
+     * The projection of the fields this decoder reads, worked out on first use, see {@link ProjectionDeriver}.
+     *
+     * @return a copy of the projection, or null if the whole document is needed
+     */
+    public BsonDocument getProjection() {
+        Optional<BsonDocument> derived = projection;
+        if (derived == null) {
+            derived = Optional.ofNullable(ProjectionDeriver.derive(objectMapper, objectMapper.constructType(clazz), view));
+            projection = derived;
         }
+        // the derived projection is shared by every find, so callers only get to change their own copy
+        return derived.map(BsonDocument::clone).orElse(null);
     }
 
-    private static class EmptyInputStream extends InputStream {
-        @Override
-        public int available() {
-            return 0;
+    @Override
+    public T decode(BsonReader reader, DecoderContext decoderContext) {
+        if (reader instanceof BsonBinaryReader && BsonBytesParser.canRead((BsonBinaryReader) reader)) {
+            // binary input, as from cursor batches or raw documents, can be parsed straight from the bytes
+            return readValue(bytesParserPool.acquireAndLinkPooled().rebind((BsonBinaryReader) reader));
         }
+        return readValue(parserPool.acquireAndLinkPooled().rebind((AbstractBsonReader) reader));
+    }
 
-        public int read() {
-            return -1;
+    private <P extends JsonParser & RecyclerPool.WithPool<P>> T readValue(P parser) {
+        try {
+            T value = objectReader.readValue(parser);
+            parser.close();
+            return value;
+        } catch (IOException e) {
+            throw new RuntimeException("IOException encountered while parsing", e);
+        } finally {
+            // releasing resets the parser completely, so one that failed halfway through a document goes back too,
+            // and lets go of the reader and of the bytes it was reading
+            parser.releaseToPool();
         }
     }
 
@@ -1,9 +1,10 @@
 package org.mongojack.internal.stream;
 
-import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.JsonMappingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import com.mongodb.MongoException;
+import org.bson.BsonBinaryWriter;
 import org.bson.BsonWriter;
 import org.bson.UuidRepresentation;
 import org.bson.codecs.Encoder;
@@ -18,12 +19,32 @@ public class JacksonEncoder<T> implements Encoder<T> {
     private final Class<?> view;
     private final ObjectMapper objectMapper;
     private final UuidRepresentation uuidRepresentation;
+    private final ObjectWriter objectWriter;
+    private final ObjectWriter typedObjectWriter;
+    private final DBEncoderBsonGenerator.Pool generatorPool;
+    private final BsonOutputGenerator.Pool outputGeneratorPool;
 
     public JacksonEncoder(Class<T> clazz, Class<?> view, ObjectMapper objectMapper, final UuidRepresentation uuidRepresentation) {
+        this(clazz, view, objectMapper, uuidRepresentation, objectMapper.writerWithView(view));
+    }
+
+    private JacksonEncoder(
+        Class<T> clazz,
+        Class<?> view,
+        ObjectMapper objectMapper,
+        final UuidRepresentation uuidRepresentation,
+        final ObjectWriter objectWriter
+    ) {
         this.clazz = clazz;
         this.view = view;
         this.objectMapper = objectMapper;
         this.uuidRepresentation = uuidRepresentation;
+        this.objectWriter = objectWriter;
+        // a writer bound to clazz prefetches the root serializer, but would also serialize subclasses as clazz,
+        // so it is only used when the runtime class matches exactly
+        this.typedObjectWriter = objectWriter.forType(clazz);
+        this.generatorPool = new DBEncoderBsonGenerator.Pool(uuidRepresentation);
+        this.outputGeneratorPool = new BsonOutputGenerator.Pool(uuidRepresentation);
     }
 
     public JacksonEncoder<T> withUuidRepresentation(final UuidRepresentation uuidRepresentation) {
@@ -31,19 +52,37 @@ public class JacksonEncoder<T> implements Encoder<T> {
             clazz,
             view,
             objectMapper,
-            uuidRepresentation
+            uuidRepresentation,
+            objectWriter
         );
     }
 
     @Override
     public void encode(BsonWriter writer, T value, EncoderContext encoderContext) {
-        try(JsonGenerator generator = new DBEncoderBsonGenerator(writer, uuidRepresentation)) {
-            objectMapper.writerWithView(view).writeValue(generator, value);
+        // binary writers (replacements, raw documents) get their nested content written to the output directly,
+        // anything else (eg. the driver's wrapper that extracts the _id of inserts) goes through the writer
+        DBEncoderBsonGenerator generator = writer instanceof BsonBinaryWriter
+            ? outputGeneratorPool.acquireAndLinkPooled().rebind(writer)
+            : generatorPool.acquireAndLinkPooled().rebind(writer);
+        try {
+            writerFor(value).writeValue(generator, value);
+            generator.close();
         } catch (JsonMappingException e) {
             throw new MongoJsonMappingException(e);
         } catch (IOException e) {
             throw new MongoException("Error writing object out", e);
+        } finally {
+            // releasing resets the generator completely, so one that failed halfway through a document goes back too,
+            // and lets go of the writer
+            generator.releaseToPool();
+        }
+    }
+
+    private ObjectWriter writerFor(T value) {
+        if (value != null && value.getClass() == clazz) {
+            return typedObjectWriter;
         }
+        return objectWriter;
     }
 
     @Override
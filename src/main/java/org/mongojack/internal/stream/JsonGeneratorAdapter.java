@@ -1,6 +1,7 @@
 package org.mongojack.internal.stream;
 
 import com.fasterxml.jackson.core.Base64Variant;
+import com.fasterxml.jackson.core.JsonStreamContext;
 import com.fasterxml.jackson.core.ObjectCodec;
 import com.fasterxml.jackson.core.base.GeneratorBase;
 import com.fasterxml.jackson.core.json.JsonWriteContext;
@@ -20,7 +21,7 @@ import java.util.Arrays;
 
 public class JsonGeneratorAdapter extends GeneratorBase {
 
-    protected final BsonWriter writer;
+    protected BsonWriter writer;
     protected final UuidRepresentation uuidRepresentation;
 
     protected JsonGeneratorAdapter(final int features, final ObjectCodec codec, final BsonWriter writer,
@@ -38,6 +39,22 @@ public class JsonGeneratorAdapter extends GeneratorBase {
         this.uuidRepresentation = uuidRepresentation;
     }
 
+    /**
+     * Rebinds this generator to a new writer, so that it can be reused for another document.
+     *
+     * @param writer the writer to write to
+     */
+    protected void reset(final BsonWriter writer) {
+        this.writer = writer;
+        JsonWriteContext context = _writeContext;
+        while (context.getParent() != null) {
+            context = context.getParent();
+        }
+        context.reset(JsonStreamContext.TYPE_ROOT, null);
+        _writeContext = context;
+        _closed = false;
+    }
+
     @Override
     public void writeStartArray() throws IOException {
         writer.writeStartArray();
@@ -105,7 +122,7 @@ public class JsonGeneratorAdapter extends GeneratorBase {
 
     @Override
     public void writeBinary(final Base64Variant bv, final byte[] data, final int offset, final int len) throws IOException {
-        writer.writeBinaryData(new BsonBinary(Arrays.copyOfRange(data, offset, len)));
+        writer.writeBinaryData(new BsonBinary(Arrays.copyOfRange(data, offset, offset + len)));
     }
 
     @Override
@@ -4,10 +4,12 @@ import com.fasterxml.jackson.core.Base64Variant;
 import com.fasterxml.jackson.core.JsonLocation;
 import com.fasterxml.jackson.core.JsonParseException;
 import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonStreamContext;
 import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.core.ObjectCodec;
 import com.fasterxml.jackson.core.base.ParserBase;
 import com.fasterxml.jackson.core.io.IOContext;
+import com.fasterxml.jackson.core.json.JsonReadContext;
 import com.mongodb.MongoClientSettings;
 import org.bson.AbstractBsonReader;
 import org.bson.BsonBinary;
@@ -25,20 +27,33 @@ import java.io.IOException;
 import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.util.Date;
-import java.util.concurrent.atomic.AtomicReference;
 
 public class JsonParserAdapter extends ParserBase {
 
-    protected ObjectCodec _codec;
+    private static final PatternCodec PATTERN_CODEC = new PatternCodec();
+
+    private static final DecoderContext DECODER_CONTEXT = DecoderContext.builder().build();
 
-    protected final AbstractBsonReader reader;
+    protected ObjectCodec _codec;
 
-    protected final PatternCodec patternCodec = new PatternCodec();
+    protected AbstractBsonReader reader;
 
-    private final AtomicReference<BsonJavaScriptWithScopeCodec> withScopeCodec = new AtomicReference<>();
+    protected final PatternCodec patternCodec = PATTERN_CODEC;
 
     protected Object currentValue;
 
+    /**
+     * Type of the current number token, or null if the current token isn't a number.  INT, LONG and DOUBLE values are
+     * kept unboxed in the slots below, anything else lives in {@link #currentValue}.
+     */
+    private NumberType numberType;
+
+    private int intValue;
+
+    private long longValue;
+
+    private double doubleValue;
+
     private final UuidRepresentation uuidRepresentation;
 
     /**
@@ -55,6 +70,28 @@ public class JsonParserAdapter extends ParserBase {
         this.uuidRepresentation = uuidRepresentation;
     }
 
+    /**
+     * Rebinds this parser to a new reader, so that it can be reused for another document.  Only safe to call once the
+     * previous document has been completely read (or the parser has been abandoned).
+     *
+     * @param reader Bson reader to read from
+     */
+    protected void reset(AbstractBsonReader reader) {
+        this.reader = reader;
+        JsonReadContext context = _parsingContext;
+        while (context.getParent() != null) {
+            context = context.getParent();
+        }
+        context.reset(JsonStreamContext.TYPE_ROOT, 1, 0);
+        _parsingContext = context;
+        _currToken = null;
+        _closed = false;
+        _binaryValue = null;
+        _numTypesValid = NR_UNKNOWN;
+        currentValue = null;
+        numberType = null;
+    }
+
     @Override
     public ObjectCodec getCodec() {
         return _codec;
@@ -80,6 +117,7 @@ public class JsonParserAdapter extends ParserBase {
 
     private JsonToken _nextToken() throws IOException {
         currentValue = null;
+        numberType = null;
 
         while (state() == AbstractBsonReader.State.TYPE) {
             reader.readBsonType();
@@ -126,16 +164,20 @@ public class JsonParserAdapter extends ParserBase {
                 currentValue = reader.readString();
                 return JsonToken.VALUE_STRING;
             case DOUBLE:
-                currentValue = reader.readDouble();
+                doubleValue = reader.readDouble();
+                numberType = NumberType.DOUBLE;
                 return JsonToken.VALUE_NUMBER_FLOAT;
             case DECIMAL128:
                 currentValue = reader.readDecimal128().bigDecimalValue();
+                numberType = NumberType.BIG_DECIMAL;
                 return JsonToken.VALUE_NUMBER_FLOAT;
             case INT32:
-                currentValue = reader.readInt32();
+                intValue = reader.readInt32();
+                numberType = NumberType.INT;
                 return JsonToken.VALUE_NUMBER_INT;
             case INT64:
-                currentValue = reader.readInt64();
+                longValue = reader.readInt64();
+                numberType = NumberType.LONG;
                 return JsonToken.VALUE_NUMBER_INT;
             case NULL:
                 reader.readNull();
@@ -150,7 +192,7 @@ public class JsonParserAdapter extends ParserBase {
                 currentValue = new Symbol(reader.readSymbol());
                 return JsonToken.VALUE_EMBEDDED_OBJECT;
             case JAVASCRIPT_WITH_SCOPE:
-                currentValue = getWithScopeCodec().decode(reader, DecoderContext.builder().build());
+                currentValue = WithScopeCodecHolder.CODEC.decode(reader, DECODER_CONTEXT);
                 return JsonToken.VALUE_EMBEDDED_OBJECT;
             case JAVASCRIPT:
                 currentValue = new BsonJavaScript(reader.readJavaScript());
@@ -159,7 +201,7 @@ public class JsonParserAdapter extends ParserBase {
                 currentValue = reader.readDBPointer();
                 return JsonToken.VALUE_EMBEDDED_OBJECT;
             case REGULAR_EXPRESSION:
-                currentValue = patternCodec.decode(reader, DecoderContext.builder().build());
+                currentValue = patternCodec.decode(reader, DECODER_CONTEXT);
                 return JsonToken.VALUE_EMBEDDED_OBJECT;
             case DATE_TIME:
                 currentValue = new Date(reader.readDateTime());
@@ -244,6 +286,18 @@ public class JsonParserAdapter extends ParserBase {
         if (currentToken() == JsonToken.FIELD_NAME) {
             return getCurrentName();
         }
+        if (numberType != null) {
+            switch (numberType) {
+                case INT:
+                    return Integer.toString(intValue);
+                case LONG:
+                    return Long.toString(longValue);
+                case DOUBLE:
+                    return Double.toString(doubleValue);
+                default:
+                    break;
+            }
+        }
         return String.valueOf(currentValue);
     }
 
@@ -270,8 +324,23 @@ public class JsonParserAdapter extends ParserBase {
         return false;
     }
 
+    /**
+     * Boxes the current number, primitive number values are only boxed when this is actually called.
+     */
     @Override
     public Number getNumberValue() {
+        if (numberType != null) {
+            switch (numberType) {
+                case INT:
+                    return intValue;
+                case LONG:
+                    return longValue;
+                case DOUBLE:
+                    return doubleValue;
+                default:
+                    break;
+            }
+        }
         return (Number) currentValue;
     }
 
@@ -286,37 +355,40 @@ public class JsonParserAdapter extends ParserBase {
 
     @Override
     public JsonParser.NumberType getNumberType() {
-        if (currentValue == null) {
-            return null;
-        }
-        if (currentValue instanceof Integer) {
-            return NumberType.INT;
-        } else if (currentValue instanceof Long) {
-            return NumberType.LONG;
-        } else if (currentValue instanceof BigInteger) {
-            return NumberType.BIG_INTEGER;
-        } else if (currentValue instanceof Float) {
-            return NumberType.FLOAT;
-        } else if (currentValue instanceof Double) {
-            return NumberType.DOUBLE;
-        } else if (currentValue instanceof BigDecimal) {
-            return NumberType.BIG_DECIMAL;
-        }
-        return null;
+        return numberType;
     }
 
     @Override
     public int getIntValue() {
+        if (numberType == NumberType.INT) {
+            return intValue;
+        } else if (numberType == NumberType.LONG) {
+            return (int) longValue;
+        } else if (numberType == NumberType.DOUBLE) {
+            return (int) doubleValue;
+        }
         return ((Number) currentValue).intValue();
     }
 
     @Override
     public long getLongValue() {
+        if (numberType == NumberType.LONG) {
+            return longValue;
+        } else if (numberType == NumberType.INT) {
+            return intValue;
+        } else if (numberType == NumberType.DOUBLE) {
+            return (long) doubleValue;
+        }
         return ((Number) currentValue).longValue();
     }
 
     @Override
     public BigInteger getBigIntegerValue() {
+        if (numberType == NumberType.INT) {
+            return BigInteger.valueOf(intValue);
+        } else if (numberType == NumberType.LONG) {
+            return BigInteger.valueOf(longValue);
+        }
         Number n = getNumberValue();
         if (n == null) {
             return null;
@@ -332,16 +404,42 @@ public class JsonParserAdapter extends ParserBase {
 
     @Override
     public float getFloatValue() {
+        if (numberType == NumberType.DOUBLE) {
+            return (float) doubleValue;
+        } else if (numberType == NumberType.INT) {
+            return intValue;
+        } else if (numberType == NumberType.LONG) {
+            return longValue;
+        }
         return ((Number) currentValue).floatValue();
     }
 
     @Override
     public double getDoubleValue() {
+        if (numberType == NumberType.DOUBLE) {
+            return doubleValue;
+        } else if (numberType == NumberType.INT) {
+            return intValue;
+        } else if (numberType == NumberType.LONG) {
+            return longValue;
+        }
         return ((Number) currentValue).doubleValue();
     }
 
+    @Override
+    public boolean isNaN() {
+        return numberType == NumberType.DOUBLE && (Double.isNaN(doubleValue) || Double.isInfinite(doubleValue));
+    }
+
     @Override
     public BigDecimal getDecimalValue() {
+        if (numberType == NumberType.INT) {
+            return BigDecimal.valueOf(intValue);
+        } else if (numberType == NumberType.LONG) {
+            return BigDecimal.valueOf(longValue);
+        } else if (numberType == NumberType.DOUBLE) {
+            return BigDecimal.valueOf(doubleValue);
+        }
         Number n = getNumberValue();
         if (n == null) {
             return null;
@@ -362,6 +460,9 @@ public class JsonParserAdapter extends ParserBase {
 
     @Override
     public Object getEmbeddedObject() {
+        if (numberType != null) {
+            return getNumberValue();
+        }
         return currentValue;
     }
 
@@ -383,12 +484,11 @@ public class JsonParserAdapter extends ParserBase {
         return reader.getCurrentBsonType();
     }
 
-    private BsonJavaScriptWithScopeCodec getWithScopeCodec() {
-        return withScopeCodec.updateAndGet((existing) -> {
-            if (existing == null) {
-                return new BsonJavaScriptWithScopeCodec(new BsonDocumentCodec(MongoClientSettings.getDefaultCodecRegistry()));
-            }
-            return existing;
-        });
+    /**
+     * Lazily created, as code with scope is rare and the codec is stateless, so it can be shared by all parsers.
+     */
+    private static class WithScopeCodecHolder {
+        private static final BsonJavaScriptWithScopeCodec CODEC =
+            new BsonJavaScriptWithScopeCodec(new BsonDocumentCodec(MongoClientSettings.getDefaultCodecRegistry()));
     }
 }
@@ -0,0 +1,235 @@
+package org.mongojack.internal.stream;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonTypeInfo;
+import com.fasterxml.jackson.databind.AnnotationIntrospector;
+import com.fasterxml.jackson.databind.BeanDescription;
+import com.fasterxml.jackson.databind.DeserializationConfig;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.PropertyName;
+import com.fasterxml.jackson.databind.deser.BasicDeserializerFactory;
+import com.fasterxml.jackson.databind.deser.BeanDeserializerBase;
+import com.fasterxml.jackson.databind.deser.BuilderBasedDeserializer;
+import com.fasterxml.jackson.databind.deser.DefaultDeserializationContext;
+import com.fasterxml.jackson.databind.deser.SettableBeanProperty;
+import com.fasterxml.jackson.databind.deser.ValueInstantiator;
+import com.fasterxml.jackson.databind.deser.std.ContainerDeserializerBase;
+import com.fasterxml.jackson.databind.introspect.AnnotatedMember;
+import com.fasterxml.jackson.databind.introspect.BeanPropertyDefinition;
+import com.fasterxml.jackson.databind.jsontype.TypeDeserializer;
+import org.bson.BsonDocument;
+import org.bson.BsonInt32;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Works out the projection of the fields a class reads when it is deserialized, from the bean deserializers Jackson
+ * builds for it, so that a query whose results are deserialized into a class, or with a view, doesn't fetch fields
+ * the deserializer would skip anyway.
+ * <p>
+ * Nested beans, and collections and arrays of them, are projected on their own properties.  Any value whose fields
+ * can't be told, because its deserializer isn't a bean deserializer, it's polymorphic, it has an any setter or
+ * unwrapped properties, or it's created from a delegate, is fetched whole.  If that's the document itself, there's no
+ * projection.
+ */
+public final class ProjectionDeriver {
+
+    private final static Logger logger = LoggerFactory.getLogger(ProjectionDeriver.class);
+
+    private static final BsonInt32 INCLUDED = new BsonInt32(1);
+
+    private final DeserializationContext context;
+    private final Class<?> view;
+    private final Set<JsonDeserializer<?>> inProgress = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    private ProjectionDeriver(final DeserializationContext context, final Class<?> view) {
+        this.context = context;
+        this.view = view;
+    }
+
+    /**
+     * @param objectMapper the ObjectMapper the documents are deserialized with
+     * @param type         the type they are deserialized into
+     * @param view         the view they are deserialized with, or null
+     * @return the projection, or null if the whole document is needed
+     */
+    public static BsonDocument derive(final ObjectMapper objectMapper, final JavaType type, final Class<?> view) {
+        final DeserializationConfig config = objectMapper.getDeserializationConfig().withView(view);
+        if (config.isEnabled(MapperFeature.ACCEPT_CASE_INSENSITIVE_PROPERTIES)) {
+            return null;
+        }
+        final List<String> paths = new ArrayList<>();
+        try {
+            final DefaultDeserializationContext context =
+                ((DefaultDeserializationContext) objectMapper.getDeserializationContext()).createDummyInstance(config);
+            if (!new ProjectionDeriver(context, view).addPaths("", context.findRootValueDeserializer(type), paths)) {
+                return null;
+            }
+        } catch (JsonMappingException | RuntimeException e) {
+            logger.debug("Could not derive a projection for " + type + ", the whole documents will be fetched", e);
+            return null;
+        }
+        // a path and one of its descendants can't both be projected
+        final BsonDocument projection = new BsonDocument();
+        for (String path : new TreeSet<>(paths)) {
+            if (!hasIncludedAncestor(projection, path)) {
+                projection.append(path, INCLUDED);
+            }
+        }
+        return projection;
+    }
+
+    private static boolean hasIncludedAncestor(final BsonDocument projection, final String path) {
+        for (int dot = path.indexOf('.'); dot >= 0; dot = path.indexOf('.', dot + 1)) {
+            if (projection.containsKey(path.substring(0, dot))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Adds the paths of the fields a deserializer reads.
+     *
+     * @return false, with nothing added, if the fields can't be told
+     */
+    private boolean addPaths(final String prefix, final JsonDeserializer<?> deserializer, final List<String> paths) throws JsonMappingException {
+        if (!(deserializer instanceof BeanDeserializerBase) || !inProgress.add(deserializer)) {
+            return false;
+        }
+        try {
+            final BeanDeserializerBase bean = (BeanDeserializerBase) deserializer;
+            if (!hasOnlyNamedProperties(bean)) {
+                return false;
+            }
+            final List<String> beanPaths = new ArrayList<>();
+            for (Iterator<SettableBeanProperty> it = bean.properties(); it.hasNext(); ) {
+                if (!addPaths(prefix, it.next(), beanPaths)) {
+                    return false;
+                }
+            }
+            for (Iterator<SettableBeanProperty> it = bean.creatorProperties(); it.hasNext(); ) {
+                if (!addPaths(prefix, it.next(), beanPaths)) {
+                    return false;
+                }
+            }
+            if (beanPaths.isEmpty()) {
+                return false;
+            }
+            paths.addAll(beanPaths);
+            return true;
+        } finally {
+            inProgress.remove(deserializer);
+        }
+    }
+
+    private boolean addPaths(final String prefix, final SettableBeanProperty property, final List<String> paths) throws JsonMappingException {
+        if (view != null && !property.visibleInView(view)) {
+            return true;
+        }
+        final List<String> names = new ArrayList<>();
+        names.add(property.getName());
+        for (PropertyName alias : property.findAliases(context.getConfig())) {
+            names.add(alias.getSimpleName());
+        }
+        final TypeDeserializer typeDeserializer = property.getValueTypeDeserializer();
+        if (typeDeserializer != null && typeDeserializer.getTypeInclusion() == JsonTypeInfo.As.EXTERNAL_PROPERTY) {
+            names.add(typeDeserializer.getPropertyName());
+        }
+        for (String name : names) {
+            if (!isAddressable(name)) {
+                return false;
+            }
+            final JsonDeserializer<?> nested = typeDeserializer == null ? beanDeserializerOf(property) : null;
+            if (nested == null || !addPaths(prefix + name + ".", nested, paths)) {
+                paths.add(prefix + name);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the deserializer of the value of the property, or of its elements if it's a collection or an array,
+     * provided it isn't polymorphic, or null
+     */
+    private JsonDeserializer<?> beanDeserializerOf(final SettableBeanProperty property) throws JsonMappingException {
+        final JsonDeserializer<?> deserializer = property.getValueDeserializer();
+        if (!(deserializer instanceof ContainerDeserializerBase)) {
+            return deserializer;
+        }
+        final ContainerDeserializerBase<?> container = (ContainerDeserializerBase<?>) deserializer;
+        final JavaType containerType = container.getValueType();
+        if (containerType == null || !(containerType.isCollectionLikeType() || containerType.isArrayType())) {
+            return null;
+        }
+        final JavaType contentType = containerType.getContentType();
+        if (context.getFactory().findTypeDeserializer(context.getConfig(), contentType) != null) {
+            return null;
+        }
+        final AnnotatedMember member = property.getMember();
+        if (member != null && context.getFactory() instanceof BasicDeserializerFactory
+            && ((BasicDeserializerFactory) context.getFactory()).findPropertyContentTypeDeserializer(context.getConfig(), containerType, member) != null) {
+            return null;
+        }
+        return container.getContentDeserializer();
+    }
+
+    /**
+     * @return whether the bean only reads the properties it lists, by their names
+     */
+    private boolean hasOnlyNamedProperties(final BeanDeserializerBase bean) {
+        if (bean.getObjectIdReader() != null) {
+            return false;
+        }
+        final ValueInstantiator instantiator = bean.getValueInstantiator();
+        if (instantiator != null && (instantiator.canCreateUsingDelegate() || instantiator.canCreateUsingArrayDelegate())) {
+            return false;
+        }
+        final DeserializationConfig config = context.getConfig();
+        BeanDescription description = config.introspect(context.constructType(bean.handledType()));
+        final JsonFormat.Value format = description.findExpectedFormat(config.getDefaultPropertyFormat(bean.handledType()));
+        if (Boolean.TRUE.equals(format.getFeature(JsonFormat.Feature.ACCEPT_CASE_INSENSITIVE_PROPERTIES))) {
+            return false;
+        }
+        if (bean instanceof BuilderBasedDeserializer) {
+            final Class<?> builder = description.findPOJOBuilder();
+            if (builder == null) {
+                return false;
+            }
+            description = config.introspectForBuilder(context.constructType(builder), description);
+        }
+        if (description.findAnySetterAccessor() != null) {
+            return false;
+        }
+        final AnnotationIntrospector introspector = config.getAnnotationIntrospector();
+        for (BeanPropertyDefinition property : description.findProperties()) {
+            for (AnnotatedMember member : new AnnotatedMember[]{property.getField(), property.getSetter(), property.getConstructorParameter(), property.getGetter()}) {
+                if (member != null && introspector.findUnwrappingNameTransformer(member) != null) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return whether the name can be used in a projection, which reads dots as path separators and rejects a leading
+     * dollar sign
+     */
+    private static boolean isAddressable(final String name) {
+        return name != null && !name.isEmpty() && name.indexOf('.') < 0 && !name.startsWith("$");
+    }
+}
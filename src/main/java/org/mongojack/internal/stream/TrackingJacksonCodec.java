@@ -0,0 +1,80 @@
+package org.mongojack.internal.stream;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.bson.BsonReader;
+import org.bson.RawBsonDocument;
+import org.bson.UuidRepresentation;
+import org.bson.codecs.Codec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.RawBsonDocumentCodec;
+import org.mongojack.JacksonCodecRegistry;
+
+/**
+ * A {@link JacksonCodec} that records the document every entity it decodes was loaded from with an
+ * {@link EntityTracker}.  The document is kept as the raw bytes read from the server, which is all loading a tracked
+ * entity costs on top of decoding it.
+ */
+public class TrackingJacksonCodec<T> extends JacksonCodec<T> {
+
+    private static final RawBsonDocumentCodec RAW_BSON_DOCUMENT_CODEC = new RawBsonDocumentCodec();
+
+    private final JacksonEncoder<T> encoder;
+    private final JacksonDecoder<T> decoder;
+    private final ObjectMapper objectMapper;
+    private final JacksonCodecRegistry jacksonCodecRegistry;
+    private final EntityTracker tracker;
+
+    public TrackingJacksonCodec(
+        final JacksonEncoder<T> encoder,
+        final JacksonDecoder<T> decoder,
+        final ObjectMapper objectMapper,
+        final JacksonCodecRegistry jacksonCodecRegistry,
+        final EntityTracker tracker
+    ) {
+        super(encoder, decoder, objectMapper, jacksonCodecRegistry);
+        this.encoder = encoder;
+        this.decoder = decoder;
+        this.objectMapper = objectMapper;
+        this.jacksonCodecRegistry = jacksonCodecRegistry;
+        this.tracker = tracker;
+    }
+
+    @Override
+    public T decode(final BsonReader reader, final DecoderContext decoderContext) {
+        final RawBsonDocument snapshot = RAW_BSON_DOCUMENT_CODEC.decode(reader, decoderContext);
+        try (BsonReader snapshotReader = snapshot.asBsonReader()) {
+            final T entity = super.decode(snapshotReader, decoderContext);
+            if (entity != null) {
+                tracker.track(entity, snapshot);
+            }
+            return entity;
+        }
+    }
+
+    /**
+     * Decodes a document without tracking the result.
+     *
+     * @param document the document
+     * @return the entity
+     */
+    public T decodeUntracked(final RawBsonDocument document) {
+        try (BsonReader reader = document.asBsonReader()) {
+            return super.decode(reader, DecoderContext.builder().build());
+        }
+    }
+
+    public EntityTracker getTracker() {
+        return tracker;
+    }
+
+    @Override
+    public Codec<T> withUuidRepresentation(final UuidRepresentation uuidRepresentation) {
+        return new TrackingJacksonCodec<>(
+            encoder.withUuidRepresentation(uuidRepresentation),
+            decoder.withUuidRepresentation(uuidRepresentation),
+            objectMapper,
+            jacksonCodecRegistry,
+            tracker
+        );
+    }
+}
@@ -0,0 +1,41 @@
+package org.mongojack.internal.stream;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.bson.UuidRepresentation;
+import org.bson.codecs.configuration.CodecRegistry;
+import org.mongojack.IdGenerators;
+import org.mongojack.JacksonCodecRegistry;
+
+/**
+ * A {@link JacksonCodecRegistry} whose codec for the entity class of a collection tracks the entities it decodes.
+ * The tracked entities belong to one collection, so unlike other registries, this one isn't shared.
+ */
+public class TrackingJacksonCodecRegistry extends JacksonCodecRegistry {
+
+    private final Class<?> entityClass;
+    private final EntityTracker tracker = new EntityTracker();
+
+    public TrackingJacksonCodecRegistry(
+        final ObjectMapper objectMapper,
+        final CodecRegistry defaultCodecRegistry,
+        final Class<?> view,
+        final UuidRepresentation uuidRepresentation,
+        final IdGenerators idGenerators,
+        final Class<?> entityClass
+    ) {
+        super(objectMapper, defaultCodecRegistry, view, uuidRepresentation, idGenerators);
+        this.entityClass = entityClass;
+    }
+
+    @Override
+    protected <T> JacksonCodec<T> createCodec(final JacksonEncoder<T> encoder, final JacksonDecoder<T> decoder) {
+        if (encoder.getEncoderClass() == entityClass) {
+            return new TrackingJacksonCodec<>(encoder, decoder, getObjectMapper(), this, tracker);
+        }
+        return super.createCodec(encoder, decoder);
+    }
+
+    public EntityTracker getTracker() {
+        return tracker;
+    }
+}
@@ -0,0 +1,90 @@
+package org.mongojack.internal.stream;
+
+import com.fasterxml.jackson.databind.introspect.BeanPropertyDefinition;
+import com.fasterxml.jackson.databind.util.ClassUtil;
+import org.bson.BsonInt32;
+import org.bson.BsonInt64;
+import org.bson.BsonNull;
+import org.bson.BsonValue;
+
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * Reads and writes the {@link org.mongojack.Version version} of documents of one class.
+ */
+public final class VersionAccessor {
+
+    private final String fieldName;
+    private final boolean isInt;
+    private final Function<Object, Object> getter;
+    private final BiConsumer<Object, Object> setter;
+
+    private VersionAccessor(
+        final String fieldName,
+        final boolean isInt,
+        final Function<Object, Object> getter,
+        final BiConsumer<Object, Object> setter
+    ) {
+        this.fieldName = fieldName;
+        this.isInt = isInt;
+        this.getter = getter;
+        this.setter = setter;
+    }
+
+    static VersionAccessor create(final Class<?> documentClass, final BeanPropertyDefinition bpd) {
+        final Class<?> rawType = bpd.getRawPrimaryType();
+        final Class<?> type = rawType.isPrimitive() ? ClassUtil.wrapperType(rawType) : rawType;
+        if (type != Integer.class && type != Long.class) {
+            throw new IllegalArgumentException("The version property " + bpd.getName() + " of " + documentClass + " must be an int or a long, not " + rawType);
+        }
+        if (bpd.getAccessor() == null || bpd.getNonConstructorMutator() == null) {
+            throw new IllegalArgumentException("The version property " + bpd.getName() + " of " + documentClass + " must be readable and writable");
+        }
+        return new VersionAccessor(
+            bpd.getName(),
+            type == Integer.class,
+            IdAccessor.compileGetter(bpd.getAccessor()),
+            IdAccessor.compileSetter(bpd.getNonConstructorMutator())
+        );
+    }
+
+    /**
+     * @return the name of the version field in the stored documents
+     */
+    public String getFieldName() {
+        return fieldName;
+    }
+
+    /**
+     * @param document the document
+     * @return the version of the document, or null if it has none
+     */
+    public Long getVersion(final Object document) {
+        final Object version = getter.apply(document);
+        return version == null ? null : ((Number) version).longValue();
+    }
+
+    /**
+     * @param document the document
+     * @param version  the version to set, null only for boxed properties
+     */
+    public void setVersion(final Object document, final Long version) {
+        if (version != null && isInt) {
+            setter.accept(document, version.intValue());
+        } else {
+            setter.accept(document, version);
+        }
+    }
+
+    /**
+     * @param version the version
+     * @return the version as it is stored
+     */
+    public BsonValue toBson(final Long version) {
+        if (version == null) {
+            return BsonNull.VALUE;
+        }
+        return isInt ? new BsonInt32(version.intValue()) : new BsonInt64(version);
+    }
+}
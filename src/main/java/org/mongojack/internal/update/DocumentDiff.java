@@ -0,0 +1,124 @@
+package org.mongojack.internal.update;
+
+import org.bson.BsonArray;
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+import org.mongojack.UpdateOperationValue;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Works out the update that turns one version of a document into another: {@code $set} for the fields that were
+ * added or changed, {@code $unset} for the ones that were removed, and {@code $push} for arrays that only had elements
+ * appended.  Embedded documents are compared field by field, arrays of the same length element by element when less
+ * than half their elements changed, so the update only carries what changed.
+ */
+public final class DocumentDiff {
+
+    private static final String ID_FIELD = "_id";
+
+    private final Map<String, UpdateOperationValue> set = new LinkedHashMap<>();
+    private final Map<String, UpdateOperationValue> unset = new LinkedHashMap<>();
+    private final Map<String, UpdateOperationValue> push = new LinkedHashMap<>();
+
+    private DocumentDiff() {
+    }
+
+    /**
+     * Compares two versions of a document, ignoring their ids.
+     *
+     * @param before the document as it is stored
+     * @param after  the document as it should be stored
+     * @return the update operations by operator, empty if the documents are the same, or null if the change can't be
+     * expressed as an update because a top level field name can't be used in a field path
+     */
+    public static Map<String, Map<String, UpdateOperationValue>> diff(final BsonDocument before, final BsonDocument after) {
+        if (!isAddressable(before) || !isAddressable(after)) {
+            return null;
+        }
+        final DocumentDiff diff = new DocumentDiff();
+        diff.diffDocuments("", before, after);
+        final Map<String, Map<String, UpdateOperationValue>> update = new LinkedHashMap<>();
+        if (!diff.set.isEmpty()) {
+            update.put("$set", diff.set);
+        }
+        if (!diff.unset.isEmpty()) {
+            update.put("$unset", diff.unset);
+        }
+        if (!diff.push.isEmpty()) {
+            update.put("$push", diff.push);
+        }
+        return update;
+    }
+
+    private void diffDocuments(final String prefix, final BsonDocument before, final BsonDocument after) {
+        for (Map.Entry<String, BsonValue> field : after.entrySet()) {
+            if (prefix.isEmpty() && field.getKey().equals(ID_FIELD)) {
+                continue;
+            }
+            final BsonValue previous = before.get(field.getKey());
+            if (previous == null) {
+                set(prefix + field.getKey(), field.getValue());
+            } else if (!previous.equals(field.getValue())) {
+                diffValues(prefix + field.getKey(), previous, field.getValue());
+            }
+        }
+        for (String name : before.keySet()) {
+            if (!after.containsKey(name) && !(prefix.isEmpty() && name.equals(ID_FIELD))) {
+                unset.put(prefix + name, new SingleUpdateOperationValue(false, false, ""));
+            }
+        }
+    }
+
+    private void diffValues(final String path, final BsonValue before, final BsonValue after) {
+        if (before.isDocument() && after.isDocument()
+            && isAddressable(before.asDocument()) && isAddressable(after.asDocument())) {
+            diffDocuments(path + ".", before.asDocument(), after.asDocument());
+        } else if (before.isArray() && after.isArray()) {
+            diffArrays(path, before.asArray(), after.asArray());
+        } else {
+            set(path, after);
+        }
+    }
+
+    private void diffArrays(final String path, final BsonArray before, final BsonArray after) {
+        final int size = before.size();
+        if (after.size() > size && after.getValues().subList(0, size).equals(before.getValues())) {
+            final List<BsonValue> appended = after.getValues().subList(size, after.size());
+            push.put(path, new MultiUpdateOperationValue(false, false, appended));
+        } else if (after.size() == size) {
+            int changed = 0;
+            for (int i = 0; i < size; i++) {
+                if (!before.get(i).equals(after.get(i))) {
+                    changed++;
+                }
+            }
+            if (changed * 2 > size) {
+                set(path, after);
+                return;
+            }
+            for (int i = 0; i < size; i++) {
+                if (!before.get(i).equals(after.get(i))) {
+                    diffValues(path + "." + i, before.get(i), after.get(i));
+                }
+            }
+        } else {
+            set(path, after);
+        }
+    }
+
+    private void set(final String path, final BsonValue value) {
+        set.put(path, new SingleUpdateOperationValue(false, false, value));
+    }
+
+    private static boolean isAddressable(final BsonDocument document) {
+        for (String name : document.keySet()) {
+            if (name.isEmpty() || name.indexOf('.') >= 0 || name.charAt(0) == '$') {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,28 @@
+package org.mongojack.internal.util;
+
+import org.bson.BsonDocument;
+import org.bson.codecs.configuration.CodecRegistry;
+import org.bson.conversions.Bson;
+
+/**
+ * A filter or update bound from a {@link BsonTemplate}.  It's serialized already, so collections pass it to the
+ * driver as it is rather than serializing it again.
+ */
+public final class BoundBson implements Bson {
+
+    private final BsonDocument document;
+
+    BoundBson(final BsonDocument document) {
+        this.document = document;
+    }
+
+    @Override
+    public <TDocument> BsonDocument toBsonDocument(final Class<TDocument> documentClass, final CodecRegistry codecRegistry) {
+        return document;
+    }
+
+    @Override
+    public String toString() {
+        return document.toJson();
+    }
+}
@@ -0,0 +1,332 @@
+package org.mongojack.internal.util;
+
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import org.bson.BsonBinaryWriter;
+import org.bson.BsonDocument;
+import org.bson.BsonString;
+import org.bson.BsonValue;
+import org.bson.RawBsonDocument;
+import org.bson.UuidRepresentation;
+import org.bson.codecs.BsonValueCodec;
+import org.bson.codecs.Encoder;
+import org.bson.codecs.EncoderContext;
+import org.bson.codecs.configuration.CodecRegistry;
+import org.bson.conversions.Bson;
+import org.bson.io.BasicOutputBuffer;
+import org.mongojack.internal.stream.DBEncoderBsonGenerator;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A filter or update compiled once, with placeholders for the values that change between executions.
+ * <p>
+ * Everything that isn't a parameter is serialized when the template is compiled, and the serializer each parameter
+ * goes through is resolved then too.  Binding replays the compiled document into a BSON buffer, writing only the
+ * parameter values, and returns it as a {@link BoundBson} that the collection hands to the driver as is.
+ * <p>
+ * Templates are immutable and thread safe.
+ */
+public class BsonTemplate {
+
+    /**
+     * The key of the single-field documents that stand for parameters in a template.
+     */
+    public static final String PARAMETER_KEY = "$param";
+
+    private static final BsonValueCodec BSON_VALUE_CODEC = new BsonValueCodec();
+
+    private static final EncoderContext ENCODER_CONTEXT = EncoderContext.builder().build();
+
+    private final Op[] ops;
+    private final List<String> parameterNames;
+    private final CodecRegistry registry;
+    private final DocumentSerializationUtilsImpl utils;
+    private final ObjectMapper objectMapper;
+    private final JavaType type;
+    private final UuidRepresentation uuidRepresentation;
+    private final boolean reserialize;
+    private volatile int sizeHint = 256;
+
+    private BsonTemplate(
+        final Op[] ops,
+        final List<String> parameterNames,
+        final CodecRegistry registry,
+        final DocumentSerializationUtilsImpl utils,
+        final ObjectMapper objectMapper,
+        final JavaType type,
+        final UuidRepresentation uuidRepresentation,
+        final boolean reserialize
+    ) {
+        this.ops = ops;
+        this.parameterNames = Collections.unmodifiableList(parameterNames);
+        this.registry = registry;
+        this.utils = utils;
+        this.objectMapper = objectMapper;
+        this.type = type;
+        this.uuidRepresentation = uuidRepresentation;
+        this.reserialize = reserialize;
+    }
+
+    /**
+     * Creates the placeholder for a parameter, to be used in place of a value in a filter or update.
+     *
+     * @param name the name of the parameter
+     * @return the placeholder
+     */
+    public static BsonDocument parameter(final String name) {
+        return new BsonDocument(PARAMETER_KEY, new BsonString(name));
+    }
+
+    static boolean isParameter(final BsonValue value) {
+        if (!value.isDocument()) {
+            return false;
+        }
+        final BsonDocument document = value.asDocument();
+        return document.size() == 1 && document.get(PARAMETER_KEY) instanceof BsonString;
+    }
+
+    static String parameterName(final BsonValue value) {
+        return value.asDocument().getString(PARAMETER_KEY).getValue();
+    }
+
+    /**
+     * Compiles a template whose parameters are written with the serializers resolved for them, in the order they
+     * appear in the template.
+     */
+    static BsonTemplate typed(
+        final BsonDocument serialized,
+        final List<Slot> slots,
+        final DocumentSerializationUtilsImpl utils,
+        final ObjectMapper objectMapper,
+        final UuidRepresentation uuidRepresentation
+    ) {
+        final Compiler compiler = new Compiler(slots);
+        compiler.document(serialized);
+        return new BsonTemplate(compiler.ops(), compiler.names, null, utils, objectMapper, null, uuidRepresentation, false);
+    }
+
+    /**
+     * Compiles a template whose parameters are encoded with the codecs of the registry, the way the driver's
+     * builders encode values.  If a type is given, bound documents are then serialized as filters against it.
+     */
+    static BsonTemplate encoded(
+        final BsonDocument template,
+        final CodecRegistry registry,
+        final DocumentSerializationUtilsImpl utils,
+        final ObjectMapper objectMapper,
+        final JavaType type
+    ) {
+        final Compiler compiler = new Compiler(null);
+        compiler.document(template);
+        return new BsonTemplate(compiler.ops(), compiler.names, registry, utils, objectMapper, type, null, type != null);
+    }
+
+    /**
+     * @return the names of the parameters, in the order their values are passed to {@link #bind(Object...)}
+     */
+    public List<String> getParameterNames() {
+        return parameterNames;
+    }
+
+    /**
+     * Binds values to the parameters by name.
+     *
+     * @param values the values of all the parameters
+     * @return the document
+     * @throws IllegalArgumentException if a parameter has no value
+     */
+    public Bson bind(final Map<String, ?> values) {
+        final Object[] ordered = new Object[parameterNames.size()];
+        for (int i = 0; i < ordered.length; i++) {
+            final String name = parameterNames.get(i);
+            if (!values.containsKey(name)) {
+                throw new IllegalArgumentException("No value for parameter " + name);
+            }
+            ordered[i] = values.get(name);
+        }
+        return bind(ordered);
+    }
+
+    /**
+     * Binds values to the parameters by position.
+     *
+     * @param values the values of the parameters, in the order of {@link #getParameterNames()}
+     * @return the document
+     * @throws IllegalArgumentException if the number of values doesn't match the number of parameters
+     */
+    public Bson bind(final Object... values) {
+        if (values.length != parameterNames.size()) {
+            throw new IllegalArgumentException(
+                "Expected " + parameterNames.size() + " parameter values " + parameterNames + ", got " + values.length
+            );
+        }
+        final BasicOutputBuffer buffer = new BasicOutputBuffer(sizeHint);
+        try (BsonBinaryWriter writer = new BsonBinaryWriter(buffer)) {
+            final Binding binding = new Binding(writer, values);
+            for (Op op : ops) {
+                op.write(binding);
+            }
+            binding.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        sizeHint = buffer.getPosition();
+        final RawBsonDocument document = new RawBsonDocument(buffer.getInternalBuffer(), 0, buffer.getPosition());
+        if (reserialize) {
+            return new BoundBson(DocumentSerializationUtils.serializeFilter(objectMapper, type, document, registry).toBsonDocument());
+        }
+        return new BoundBson(document);
+    }
+
+    /**
+     * How a parameter of a typed template is written: through its serializer, as an array of values that each go
+     * through the serializer when the parameter stands for the whole array of an $in, $nin or $all.
+     */
+    static final class Slot {
+        private final JsonSerializer<?> serializer;
+        private final boolean array;
+
+        Slot(final JsonSerializer<?> serializer, final boolean array) {
+            this.serializer = serializer;
+            this.array = array;
+        }
+    }
+
+    private final class Binding {
+        private final BsonBinaryWriter writer;
+        private final Object[] values;
+        private SerializerProvider serializerProvider;
+        private DBEncoderBsonGenerator generator;
+
+        private Binding(final BsonBinaryWriter writer, final Object[] values) {
+            this.writer = writer;
+            this.values = values;
+        }
+
+        private void writeParameter(final int index, final Slot slot) throws IOException {
+            final Object value = values[index];
+            if (slot == null) {
+                encode(value);
+                return;
+            }
+            if (generator == null) {
+                serializerProvider = JacksonAccessor.getSerializerProvider(objectMapper);
+                generator = new DBEncoderBsonGenerator(writer, uuidRepresentation);
+            }
+            if (!slot.array) {
+                utils.serializeQueryField(value, slot.serializer, serializerProvider, writer, generator);
+                return;
+            }
+            final Collection<?> items;
+            if (value instanceof Collection) {
+                items = (Collection<?>) value;
+            } else if (value instanceof Object[]) {
+                items = Arrays.asList((Object[]) value);
+            } else {
+                throw new IllegalArgumentException("The value of an array parameter must be a collection or an array: " + value);
+            }
+            writer.writeStartArray();
+            for (Object item : items) {
+                utils.serializeQueryField(item, slot.serializer, serializerProvider, writer, generator);
+            }
+            writer.writeEndArray();
+        }
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        private void encode(final Object value) {
+            if (value == null) {
+                writer.writeNull();
+            } else if (value instanceof Bson) {
+                BSON_VALUE_CODEC.encode(writer, ((Bson) value).toBsonDocument(BsonDocument.class, registry), ENCODER_CONTEXT);
+            } else {
+                ((Encoder) registry.get(value.getClass())).encode(writer, value, ENCODER_CONTEXT);
+            }
+        }
+
+        private void close() throws IOException {
+            if (generator != null) {
+                generator.close();
+            }
+        }
+    }
+
+    private interface Op {
+        void write(Binding binding) throws IOException;
+    }
+
+    /**
+     * Turns a document into the ops that write it, with whole values that contain no parameter written in one go.
+     */
+    private static final class Compiler {
+        private final List<Op> ops = new ArrayList<>();
+        private final List<String> names = new ArrayList<>();
+        private final List<Slot> slots;
+        private int slot;
+
+        private Compiler(final List<Slot> slots) {
+            this.slots = slots;
+        }
+
+        private Op[] ops() {
+            if (slots != null && slot != slots.size()) {
+                throw new IllegalStateException("Expected " + slots.size() + " parameters, found " + slot);
+            }
+            return ops.toArray(new Op[0]);
+        }
+
+        private void document(final BsonDocument document) {
+            ops.add(binding -> binding.writer.writeStartDocument());
+            for (Map.Entry<String, BsonValue> entry : document.entrySet()) {
+                final String name = entry.getKey();
+                ops.add(binding -> binding.writer.writeName(name));
+                value(entry.getValue());
+            }
+            ops.add(binding -> binding.writer.writeEndDocument());
+        }
+
+        private void value(final BsonValue value) {
+            if (isParameter(value)) {
+                final String name = parameterName(value);
+                int index = names.indexOf(name);
+                if (index < 0) {
+                    index = names.size();
+                    names.add(name);
+                }
+                final int parameterIndex = index;
+                final Slot parameterSlot = slots == null ? null : slots.get(slot++);
+                ops.add(binding -> binding.writeParameter(parameterIndex, parameterSlot));
+            } else if (!containsParameter(value)) {
+                ops.add(binding -> BSON_VALUE_CODEC.encode(binding.writer, value, ENCODER_CONTEXT));
+            } else if (value.isDocument()) {
+                document(value.asDocument());
+            } else {
+                ops.add(binding -> binding.writer.writeStartArray());
+                for (BsonValue item : value.asArray()) {
+                    value(item);
+                }
+                ops.add(binding -> binding.writer.writeEndArray());
+            }
+        }
+
+        private static boolean containsParameter(final BsonValue value) {
+            if (isParameter(value)) {
+                return true;
+            } else if (value.isDocument()) {
+                return value.asDocument().values().stream().anyMatch(Compiler::containsParameter);
+            } else if (value.isArray()) {
+                return value.asArray().stream().anyMatch(Compiler::containsParameter);
+            }
+            return false;
+        }
+    }
+}
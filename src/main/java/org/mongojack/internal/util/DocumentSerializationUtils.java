@@ -17,7 +17,9 @@
 package org.mongojack.internal.util;
 
 import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.JsonSerializer;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import org.bson.BsonDocumentWriter;
 import org.bson.BsonWriter;
 import org.bson.codecs.configuration.CodecRegistry;
 import org.bson.conversions.Bson;
@@ -76,6 +78,40 @@ public class DocumentSerializationUtils {
         return instance.serializeFilter(objectMapper, type, query, registry);
     }
 
+    public static BsonTemplate prepareFilter(
+        ObjectMapper objectMapper,
+        JavaType type,
+        Bson query,
+        CodecRegistry registry
+    ) {
+        return instance.prepareFilter(objectMapper, type, query, registry);
+    }
+
+    public static BsonTemplate prepareEncoded(
+        Bson bson,
+        CodecRegistry registry
+    ) {
+        return instance.prepareEncoded(bson, registry);
+    }
+
+    public static JsonSerializer<?> findPathSerializer(
+        ObjectMapper objectMapper,
+        JavaType type,
+        String fieldPath,
+        boolean update,
+        boolean targetIsCollection
+    ) {
+        return instance.findPathSerializer(objectMapper, type, fieldPath, update, targetIsCollection);
+    }
+
+    public static TypedValueWriter typedValueWriter(
+        ObjectMapper objectMapper,
+        BsonDocumentWriter writer,
+        CodecRegistry registry
+    ) {
+        return instance.typedValueWriter(objectMapper, writer, registry);
+    }
+
     public static Bson serializeUpdates(
         Map<String, Map<String, UpdateOperationValue>> update,
         ObjectMapper objectMapper,
@@ -85,6 +121,17 @@ public class DocumentSerializationUtils {
         return instance.serializeUpdates(update, objectMapper, javaType, registry);
     }
 
+    /**
+     * @return the memo of the serializers that query and update field paths resolve to, or null if the current
+     * instance isn't a {@link DocumentSerializationUtilsImpl}
+     */
+    public static SerializerLookupCache getSerializerLookupCache() {
+        final DocumentSerializationUtilsApi current = instance;
+        return current instanceof DocumentSerializationUtilsImpl
+            ? ((DocumentSerializationUtilsImpl) current).getSerializerLookupCache()
+            : null;
+    }
+
     @SuppressWarnings("unused")
     public static DocumentSerializationUtilsApi getInstance() {
         return instance;
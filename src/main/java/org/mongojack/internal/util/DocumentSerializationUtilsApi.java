@@ -17,7 +17,9 @@
 package org.mongojack.internal.util;
 
 import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.JsonSerializer;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import org.bson.BsonDocumentWriter;
 import org.bson.BsonWriter;
 import org.bson.codecs.configuration.CodecRegistry;
 import org.bson.conversions.Bson;
@@ -63,6 +65,51 @@ interface DocumentSerializationUtilsApi {
         CodecRegistry registry
     );
 
+    /**
+     * Compiles a filter with parameter placeholders, see {@link BsonTemplate#parameter(String)}.  Bound filters are
+     * the same as the filter with the values in place of the placeholders, passed to
+     * {@link #serializeFilter(ObjectMapper, JavaType, Bson, CodecRegistry)}.
+     */
+    BsonTemplate prepareFilter(
+        ObjectMapper objectMapper,
+        JavaType type,
+        Bson query,
+        CodecRegistry registry
+    );
+
+    /**
+     * Compiles an update, or a filter that isn't serialized with Jackson, with parameter placeholders, see
+     * {@link BsonTemplate#parameter(String)}.  Bound values are encoded with the codecs of the registry, like the
+     * values of the driver's builders.
+     */
+    BsonTemplate prepareEncoded(
+        Bson bson,
+        CodecRegistry registry
+    );
+
+    /**
+     * Resolves the serializer that filters, or updates, on a field path of a type write their values with.
+     *
+     * @return the serializer, or null if the values go through the default serializers
+     */
+    JsonSerializer<?> findPathSerializer(
+        ObjectMapper objectMapper,
+        JavaType type,
+        String fieldPath,
+        boolean update,
+        boolean targetIsCollection
+    );
+
+    /**
+     * Creates a writer for the values of filters and updates whose serializers have been resolved with
+     * {@link #findPathSerializer(ObjectMapper, JavaType, String, boolean, boolean)}.
+     */
+    TypedValueWriter typedValueWriter(
+        ObjectMapper objectMapper,
+        BsonDocumentWriter writer,
+        CodecRegistry registry
+    );
+
     Bson serializeUpdates(
         Map<String, Map<String, UpdateOperationValue>> update,
         ObjectMapper objectMapper,
@@ -16,6 +16,7 @@
  */
 package org.mongojack.internal.util;
 
+import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.JavaType;
 import com.fasterxml.jackson.databind.JsonSerializer;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -25,8 +26,10 @@ import com.fasterxml.jackson.databind.ser.std.AsArraySerializerBase;
 import com.fasterxml.jackson.databind.ser.std.BeanSerializerBase;
 import com.fasterxml.jackson.databind.ser.std.MapSerializer;
 import org.bson.*;
+import org.bson.codecs.BsonValueCodec;
 import org.bson.codecs.Codec;
 import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
 import org.bson.codecs.UuidCodec;
 import org.bson.codecs.configuration.CodecRegistry;
 import org.bson.conversions.Bson;
@@ -38,6 +41,7 @@ import org.mongojack.MongoJsonMappingException;
 import org.mongojack.UpdateOperationValue;
 import org.mongojack.internal.ObjectIdSerializer;
 import org.mongojack.internal.stream.DBEncoderBsonGenerator;
+import org.mongojack.internal.stream.JacksonCodec;
 import org.mongojack.internal.update.MultiUpdateOperationValue;
 
 import java.io.IOException;
@@ -52,6 +56,12 @@ import java.util.regex.Pattern;
  */
 public class DocumentSerializationUtilsImpl implements DocumentSerializationUtilsApi {
 
+    private static final BsonValueCodec BSON_VALUE_CODEC = new BsonValueCodec();
+
+    private static final EncoderContext ENCODER_CONTEXT = EncoderContext.builder().build();
+
+    private final SerializerLookupCache serializerLookupCache = new SerializerLookupCache();
+
     protected final Set<Class<?>> BASIC_TYPES;
 
     protected DocumentSerializationUtilsImpl() {
@@ -100,6 +110,13 @@ public class DocumentSerializationUtilsImpl implements DocumentSerializationUtil
         return object.toBsonDocument(Document.class, registry);
     }
 
+    /**
+     * @return the memo of the serializers that query and update field paths resolve to
+     */
+    public SerializerLookupCache getSerializerLookupCache() {
+        return serializerLookupCache;
+    }
+
     protected boolean keyIsNotOperator(String key) {
         return !key.startsWith("$");
     }
@@ -109,7 +126,7 @@ public class DocumentSerializationUtilsImpl implements DocumentSerializationUtil
         Object value,
         JsonSerializer serializer,
         SerializerProvider serializerProvider,
-        BsonDocumentWriter writer,
+        BsonWriter writer,
         DBEncoderBsonGenerator generator
     ) throws IOException {
         if (value == null) {
@@ -329,6 +346,9 @@ public class DocumentSerializationUtilsImpl implements DocumentSerializationUtil
         Bson query,
         CodecRegistry registry
     ) {
+        if (query instanceof BoundBson) {
+            return query;
+        }
         SerializerProvider serializerProvider = JacksonAccessor.getSerializerProvider(objectMapper);
         JsonSerializer serializer = JacksonAccessor.findValueSerializer(
             serializerProvider, type);
@@ -337,13 +357,87 @@ public class DocumentSerializationUtilsImpl implements DocumentSerializationUtil
             BsonDocumentWriter writer = new BsonDocumentWriter(document);
             DBEncoderBsonGenerator generator = new DBEncoderBsonGenerator(writer, attemptToExtractUuidRepresentation(registry))
         ) {
-            serializeFilter(serializerProvider, serializer, query, registry, writer, generator);
+            if (canStreamFilter(objectMapper, registry)) {
+                final UuidRepresentation uuidRepresentation = ((JacksonCodecRegistry) registry).getUuidRepresentation();
+                serializeFilter(serializerProvider, serializer, query.toBsonDocument(Document.class, registry), uuidRepresentation, null, writer, generator);
+            } else {
+                serializeFilter(serializerProvider, serializer, query, registry, writer, generator);
+            }
             return document;
         } catch (Exception e) {
             return query;
         }
     }
 
+    @SuppressWarnings("rawtypes")
+    @Override
+    public BsonTemplate prepareFilter(
+        ObjectMapper objectMapper,
+        JavaType type,
+        Bson query,
+        CodecRegistry registry
+    ) {
+        final BsonDocument template = query.toBsonDocument(Document.class, registry);
+        if (canStreamFilter(objectMapper, registry)) {
+            SerializerProvider serializerProvider = JacksonAccessor.getSerializerProvider(objectMapper);
+            JsonSerializer serializer = JacksonAccessor.findValueSerializer(serializerProvider, type);
+            final UuidRepresentation uuidRepresentation = attemptToExtractUuidRepresentation(registry);
+            final BsonDocument document = new BsonDocument();
+            final List<BsonTemplate.Slot> parameters = new ArrayList<>();
+            try (
+                BsonDocumentWriter writer = new BsonDocumentWriter(document);
+                DBEncoderBsonGenerator generator = new DBEncoderBsonGenerator(writer, uuidRepresentation)
+            ) {
+                serializeFilter(
+                    serializerProvider,
+                    serializer,
+                    template,
+                    ((JacksonCodecRegistry) registry).getUuidRepresentation(),
+                    parameters,
+                    writer,
+                    generator
+                );
+                return BsonTemplate.typed(document, parameters, this, objectMapper, uuidRepresentation);
+            } catch (Exception e) {
+                // as serializeFilter would, fall back to serializing every bound filter in full
+            }
+        }
+        return BsonTemplate.encoded(template, registry, this, objectMapper, type);
+    }
+
+    @Override
+    public BsonTemplate prepareEncoded(
+        Bson bson,
+        CodecRegistry registry
+    ) {
+        return BsonTemplate.encoded(bson.toBsonDocument(Document.class, registry), registry, this, null, null);
+    }
+
+    @Override
+    public JsonSerializer<?> findPathSerializer(
+        ObjectMapper objectMapper,
+        JavaType type,
+        String fieldPath,
+        boolean update,
+        boolean targetIsCollection
+    ) {
+        SerializerProvider serializerProvider = JacksonAccessor.getSerializerProvider(objectMapper);
+        JsonSerializer<?> serializer = JacksonAccessor.findValueSerializer(serializerProvider, type);
+        if (update) {
+            return findUpdateSerializer(targetIsCollection, fieldPath, serializerProvider, serializer);
+        }
+        return findQuerySerializer(targetIsCollection, fieldPath, serializerProvider, serializer);
+    }
+
+    @Override
+    public TypedValueWriter typedValueWriter(
+        ObjectMapper objectMapper,
+        BsonDocumentWriter writer,
+        CodecRegistry registry
+    ) {
+        return new TypedValueWriter(this, objectMapper, writer, registry);
+    }
+
     protected UuidRepresentation attemptToExtractUuidRepresentation(final CodecRegistry registry) {
         UuidRepresentation uuidRepresentation = UuidRepresentation.STANDARD;
         Codec<UUID> uuidCodec = registry.get(UUID.class);
@@ -369,6 +463,140 @@ public class DocumentSerializationUtilsImpl implements DocumentSerializationUtil
         serializeFilter(serializerProvider, serializer, decoded, writer, generator);
     }
 
+    /**
+     * Whether the leaves of a filter can be converted straight from BSON to the values that the registry's Map codec
+     * would have decoded them to.  That's the case for the Jackson Map codec, unless the mapper is configured to
+     * decode numbers to other types than their BSON counterparts.
+     */
+    protected boolean canStreamFilter(final ObjectMapper objectMapper, final CodecRegistry registry) {
+        return registry instanceof JacksonCodecRegistry
+            && registry.get(Map.class) instanceof JacksonCodec
+            && !objectMapper.getDeserializationConfig().hasSomeOfFeatures(
+                DeserializationFeature.USE_BIG_INTEGER_FOR_INTS.getMask()
+                    | DeserializationFeature.USE_LONG_FOR_INTS.getMask()
+                    | DeserializationFeature.USE_BIG_DECIMAL_FOR_FLOATS.getMask()
+            );
+    }
+
+    /**
+     * Serializes a filter in a single pass over its BSON, converting only the leaf values, which go through the
+     * serializer of the property they are compared to.
+     */
+    protected void serializeFilter(
+        final SerializerProvider serializerProvider,
+        final JsonSerializer<?> serializer,
+        final BsonDocument filter,
+        final UuidRepresentation uuidRepresentation,
+        final List<BsonTemplate.Slot> parameters,
+        BsonDocumentWriter writer,
+        DBEncoderBsonGenerator generator
+    ) throws IOException {
+        writer.writeStartDocument();
+        for (Entry<String, BsonValue> field : filter.entrySet()) {
+            String key = field.getKey();
+            writer.writeName(key);
+            serializeFilterCondition(serializerProvider, serializer, key, field.getValue(), isCollectionOperator(key), uuidRepresentation, parameters, writer, generator);
+        }
+        writer.writeEndDocument();
+    }
+
+    protected void serializeFilterCondition(
+        SerializerProvider serializerProvider,
+        JsonSerializer<?> serializer,
+        String key,
+        BsonValue condition,
+        boolean targetIsCollection,
+        UuidRepresentation uuidRepresentation,
+        List<BsonTemplate.Slot> parameters,
+        BsonDocumentWriter writer,
+        DBEncoderBsonGenerator generator
+    ) throws IOException {
+        if (parameters != null && BsonTemplate.isParameter(condition)) {
+            // the serializer the value will go through, as a scalar or as the elements of an array
+            if (keyIsNotOperator(key)) {
+                serializer = findQuerySerializer(false, key, serializerProvider, serializer);
+            }
+            parameters.add(new BsonTemplate.Slot(serializer, targetIsCollection && !key.equals("$")));
+            BSON_VALUE_CODEC.encode(writer, condition, ENCODER_CONTEXT);
+            return;
+        }
+        switch (condition.getBsonType()) {
+            case ARRAY:
+                if (keyIsNotOperator(key)) {
+                    serializer = findQuerySerializer(targetIsCollection, key, serializerProvider, serializer);
+                }
+                writer.writeStartArray();
+                for (BsonValue item : condition.asArray()) {
+                    serializeFilterCondition(serializerProvider, serializer, "$", item, targetIsCollection, uuidRepresentation, parameters, writer, generator);
+                }
+                writer.writeEndArray();
+                return;
+            case DOCUMENT:
+                if (keyIsNotOperator(key)) {
+                    serializer = findQuerySerializer(targetIsCollection, key, serializerProvider, serializer);
+                }
+                serializeFilter(serializerProvider, serializer, condition.asDocument(), uuidRepresentation, parameters, writer, generator);
+                return;
+            case REGULAR_EXPRESSION:
+                writer.writeRegularExpression(condition.asRegularExpression());
+                return;
+            default:
+                break;
+        }
+        final Object value;
+        switch (condition.getBsonType()) {
+            case NULL:
+                value = null;
+                break;
+            case STRING:
+                value = condition.asString().getValue();
+                break;
+            case INT32:
+                value = condition.asInt32().getValue();
+                break;
+            case INT64:
+                value = condition.asInt64().getValue();
+                break;
+            case DOUBLE:
+                value = condition.asDouble().getValue();
+                break;
+            case DECIMAL128:
+                value = condition.asDecimal128().getValue().bigDecimalValue();
+                break;
+            case BOOLEAN:
+                value = condition.asBoolean().getValue();
+                break;
+            case OBJECT_ID:
+                value = condition.asObjectId().getValue();
+                break;
+            case DATE_TIME:
+                value = new Date(condition.asDateTime().getValue());
+                break;
+            case BINARY:
+                final BsonBinary binary = condition.asBinary();
+                if (BsonBinarySubType.isUuid(binary.getType())) {
+                    value = binary.asUuid(uuidRepresentation);
+                    break;
+                } else if (binary.getType() == BsonBinarySubType.BINARY.getValue() || binary.getType() == BsonBinarySubType.OLD_BINARY.getValue()) {
+                    value = binary.getData();
+                    break;
+                }
+                // fall through, other subtypes are no byte arrays to the property serializers
+            default:
+                // timestamps, symbols, code, min and max keys, ... can't be compared to anything a serializer makes
+                BSON_VALUE_CODEC.encode(writer, condition, ENCODER_CONTEXT);
+                return;
+        }
+        if (keyIsNotOperator(key)) {
+            serializer = findQuerySerializer(false, key, serializerProvider, serializer);
+        }
+        serializeQueryField(value, serializer, serializerProvider, writer, generator);
+    }
+
+    protected boolean isCollectionOperator(String key) {
+        return key.equals("$in") || key.equals("$nin") || key.equals("$all");
+    }
+
     protected void serializeFilter(
         final SerializerProvider serializerProvider,
         final JsonSerializer<?> serializer,
@@ -381,7 +609,7 @@ public class DocumentSerializationUtilsImpl implements DocumentSerializationUtil
             String key = field.getKey();
             Object condition = field.getValue();
             writer.writeName(key);
-            serializeFilterCondition(serializerProvider, serializer, key, condition, key.matches("^\\$(?:in|nin|all)$"), writer, generator);
+            serializeFilterCondition(serializerProvider, serializer, key, condition, isCollectionOperator(key), writer, generator);
         }
         writer.writeEndDocument();
     }
@@ -439,6 +667,9 @@ public class DocumentSerializationUtilsImpl implements DocumentSerializationUtil
         if (value == null) {
             writer.writeNull();
             return;
+        } else if (value instanceof BsonValue) {
+            BSON_VALUE_CODEC.encode(writer, (BsonValue) value, ENCODER_CONTEXT);
+            return;
         } else if (value instanceof Bson) {
             BsonDocument document = ((Bson) value).toBsonDocument(Document.class, registry);
             BsonDocumentReader reader = new BsonDocumentReader(document);
@@ -583,10 +814,23 @@ public class DocumentSerializationUtilsImpl implements DocumentSerializationUtil
         serializer.serialize(value, generator, serializerProvider);
     }
 
-    @SuppressWarnings({"rawtypes", "StatementWithEmptyBody"})
     protected JsonSerializer<?> findUpdateSerializer(
         boolean targetIsCollection, String fieldPath,
         SerializerProvider serializerProvider, JsonSerializer<?> serializer
+    ) {
+        if (!(serializer instanceof BeanSerializerBase)) {
+            return null;
+        }
+        return serializerLookupCache.find(
+            true, serializer, fieldPath, targetIsCollection,
+            () -> resolveUpdateSerializer(targetIsCollection, fieldPath, serializerProvider, serializer)
+        );
+    }
+
+    @SuppressWarnings({"rawtypes", "StatementWithEmptyBody"})
+    protected JsonSerializer<?> resolveUpdateSerializer(
+        boolean targetIsCollection, String fieldPath,
+        SerializerProvider serializerProvider, JsonSerializer<?> serializer
     ) {
         if (serializer instanceof BeanSerializerBase) {
             JsonSerializer<?> fieldSerializer = serializer;
@@ -598,7 +842,7 @@ public class DocumentSerializationUtilsImpl implements DocumentSerializationUtil
                     // so give up
                     return null;
                 }
-                if (field.equals("$") || field.matches("\\d+")) {
+                if (field.equals("$") || isIndex(field)) {
                     // The current serializer must be a collection
                     if (fieldSerializer instanceof ContainerSerializer) {
                         fieldSerializer = getJsonSerializerForContainer(serializerProvider, fieldSerializer);
@@ -662,10 +906,23 @@ public class DocumentSerializationUtilsImpl implements DocumentSerializationUtil
         return fieldSerializer;
     }
 
-    @SuppressWarnings({"StatementWithEmptyBody", "rawtypes"})
     protected JsonSerializer<?> findQuerySerializer(
         boolean targetIsCollection, String fieldPath,
         SerializerProvider serializerProvider, JsonSerializer<?> serializer
+    ) {
+        if (!(serializer instanceof BeanSerializerBase || serializer instanceof MapSerializer)) {
+            return null;
+        }
+        return serializerLookupCache.find(
+            false, serializer, fieldPath, targetIsCollection,
+            () -> resolveQuerySerializer(targetIsCollection, fieldPath, serializerProvider, serializer)
+        );
+    }
+
+    @SuppressWarnings({"StatementWithEmptyBody", "rawtypes"})
+    protected JsonSerializer<?> resolveQuerySerializer(
+        boolean targetIsCollection, String fieldPath,
+        SerializerProvider serializerProvider, JsonSerializer<?> serializer
     ) {
         if (serializer instanceof BeanSerializerBase
             || serializer instanceof MapSerializer) {
@@ -679,7 +936,7 @@ public class DocumentSerializationUtilsImpl implements DocumentSerializationUtil
                     return null;
                 }
 
-                boolean isIndex = field.matches("\\d+");
+                boolean isIndex = isIndex(field);
 
                 // First step into the collection if there is one
                 if (!isIndex) {
@@ -729,4 +986,16 @@ public class DocumentSerializationUtilsImpl implements DocumentSerializationUtil
             return null;
         }
     }
+
+    private static boolean isIndex(String field) {
+        if (field.isEmpty()) {
+            return false;
+        }
+        for (int i = 0; i < field.length(); i++) {
+            if (field.charAt(i) < '0' || field.charAt(i) > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
 }
@@ -13,18 +13,25 @@ import com.mongodb.client.model.Collation;
 import com.mongodb.lang.Nullable;
 import org.bson.BsonValue;
 import org.bson.Document;
+import org.bson.RawBsonDocument;
 import org.bson.conversions.Bson;
 import org.mongojack.InitializationRequiredForTransformation;
 import org.mongojack.JacksonCodecRegistry;
 import org.mongojack.SerializationOptions;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 import java.util.Spliterator;
+import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 /**
- * Wraps a FindIterable so we can map the incoming filters.
+ * Wraps a FindIterable so we can map the incoming filters.  The options set on it are remembered, so that the same
+ * query can be run again for raw documents to {@link #parallelDecode(Executor, boolean, int) decode them in
+ * parallel}.  The option methods return the decorator itself, so a filter chained after them is mapped as well.
  *
  * @param <TResult> the type this iterable produces
  */
@@ -35,6 +42,9 @@ public class FindIterableDecorator<TResult> implements FindIterable<TResult> {
     private final JavaType type;
     private final JacksonCodecRegistry codecRegistry;
     private final SerializationOptions serializationOptions;
+    private final Class<TResult> resultClass;
+    private final Supplier<FindIterable<RawBsonDocument>> rawQuery;
+    private final List<Consumer<FindIterable<?>>> options = new ArrayList<>();
 
     public FindIterableDecorator(
         final FindIterable<TResult> delegate,
@@ -42,12 +52,71 @@ public class FindIterableDecorator<TResult> implements FindIterable<TResult> {
         final JavaType type,
         final JacksonCodecRegistry codecRegistry,
         final SerializationOptions serializationOptions
+    ) {
+        this(delegate, objectMapper, type, codecRegistry, serializationOptions, null, null);
+    }
+
+    /**
+     * @param resultClass the class of the results, decoded with the codec registry
+     * @param rawQuery    runs the same query for raw documents, or null if it can't be
+     */
+    public FindIterableDecorator(
+        final FindIterable<TResult> delegate,
+        final ObjectMapper objectMapper,
+        final JavaType type,
+        final JacksonCodecRegistry codecRegistry,
+        final SerializationOptions serializationOptions,
+        final Class<TResult> resultClass,
+        final Supplier<FindIterable<RawBsonDocument>> rawQuery
     ) {
         this.delegate = delegate;
         this.objectMapper = objectMapper;
         this.type = type;
         this.codecRegistry = codecRegistry;
         this.serializationOptions = serializationOptions;
+        this.resultClass = resultClass;
+        this.rawQuery = rawQuery;
+    }
+
+    private FindIterable<TResult> apply(final Consumer<FindIterable<?>> option) {
+        option.accept(delegate);
+        options.add(option);
+        return this;
+    }
+
+    /**
+     * Runs the query for raw documents, and decodes them on an executor rather than on the consuming thread, for large
+     * results whose decoding would otherwise keep a single core busy.
+     *
+     * @param executor the executor to decode on
+     * @param ordered  whether the results keep the order of the query
+     * @param window   the maximum number of results decoded or being decoded ahead of the consumer, which bounds the
+     *                 memory they hold
+     * @return the results
+     * @throws IllegalStateException if this iterable doesn't come from a {@link org.mongojack.JacksonMongoCollection}
+     * @since 5.1.1
+     */
+    public MongoIterable<TResult> parallelDecode(final Executor executor, final boolean ordered, final int window) {
+        if (rawQuery == null) {
+            throw new IllegalStateException("Only the find iterables of a JacksonMongoCollection can be decoded in parallel");
+        }
+        final FindIterable<RawBsonDocument> raw = rawQuery.get();
+        options.forEach(option -> option.accept(raw));
+        return new ParallelDecodingIterable<>(raw, ParallelDecodingIterable.decodingWith(codecRegistry.get(resultClass)), executor, ordered, window);
+    }
+
+    /**
+     * Like {@link #parallelDecode(Executor, boolean, int)}, with a window of
+     * {@value ParallelDecodingIterable#DEFAULT_WINDOW} results.
+     *
+     * @param executor the executor to decode on
+     * @param ordered  whether the results keep the order of the query
+     * @return the results
+     * @throws IllegalStateException if this iterable doesn't come from a {@link org.mongojack.JacksonMongoCollection}
+     * @since 5.1.1
+     */
+    public MongoIterable<TResult> parallelDecode(final Executor executor, final boolean ordered) {
+        return parallelDecode(executor, ordered, ParallelDecodingIterable.DEFAULT_WINDOW);
     }
 
     /**
@@ -57,12 +126,13 @@ public class FindIterableDecorator<TResult> implements FindIterable<TResult> {
     public FindIterable<TResult> filter(final Bson filter) {
         if (filter instanceof InitializationRequiredForTransformation) {
             ((InitializationRequiredForTransformation) filter).initialize(objectMapper, type, codecRegistry);
-            return delegate.filter(filter);
+            return apply(iterable -> iterable.filter(filter));
         }
         if (serializationOptions.isSimpleFilterSerialization()) {
-            return delegate.filter(filter);
+            return apply(iterable -> iterable.filter(filter));
         }
-        return delegate.filter(DocumentSerializationUtils.serializeFilter(objectMapper, type, filter, codecRegistry));
+        final Bson serialized = DocumentSerializationUtils.serializeFilter(objectMapper, type, filter, codecRegistry);
+        return apply(iterable -> iterable.filter(serialized));
     }
 
     /**
@@ -70,7 +140,7 @@ public class FindIterableDecorator<TResult> implements FindIterable<TResult> {
      */
     @Override
     public FindIterable<TResult> limit(final int limit) {
-        return delegate.limit(limit);
+        return apply(iterable -> iterable.limit(limit));
     }
 
     /**
@@ -78,7 +148,7 @@ public class FindIterableDecorator<TResult> implements FindIterable<TResult> {
      */
     @Override
     public FindIterable<TResult> skip(final int skip) {
-        return delegate.skip(skip);
+        return apply(iterable -> iterable.skip(skip));
     }
 
     /**
@@ -86,7 +156,7 @@ public class FindIterableDecorator<TResult> implements FindIterable<TResult> {
      */
     @Override
     public FindIterable<TResult> maxTime(final long maxTime, final TimeUnit timeUnit) {
-        return delegate.maxTime(maxTime, timeUnit);
+        return apply(iterable -> iterable.maxTime(maxTime, timeUnit));
     }
 
     /**
@@ -94,7 +164,7 @@ public class FindIterableDecorator<TResult> implements FindIterable<TResult> {
      */
     @Override
     public FindIterable<TResult> maxAwaitTime(final long maxAwaitTime, final TimeUnit timeUnit) {
-        return delegate.maxAwaitTime(maxAwaitTime, timeUnit);
+        return apply(iterable -> iterable.maxAwaitTime(maxAwaitTime, timeUnit));
     }
 
     /**
@@ -102,7 +172,7 @@ public class FindIterableDecorator<TResult> implements FindIterable<TResult> {
      */
     @Override
     public FindIterable<TResult> projection(final Bson projection) {
-        return delegate.projection(projection);
+        return apply(iterable -> iterable.projection(projection));
     }
 
     /**
@@ -110,7 +180,7 @@ public class FindIterableDecorator<TResult> implements FindIterable<TResult> {
      */
     @Override
     public FindIterable<TResult> sort(final Bson sort) {
-        return delegate.sort(sort);
+        return apply(iterable -> iterable.sort(sort));
     }
 
     /**
@@ -118,7 +188,7 @@ public class FindIterableDecorator<TResult> implements FindIterable<TResult> {
      */
     @Override
     public FindIterable<TResult> noCursorTimeout(final boolean noCursorTimeout) {
-        return delegate.noCursorTimeout(noCursorTimeout);
+        return apply(iterable -> iterable.noCursorTimeout(noCursorTimeout));
     }
 
     /**
@@ -126,7 +196,7 @@ public class FindIterableDecorator<TResult> implements FindIterable<TResult> {
      */
     @Override
     public FindIterable<TResult> partial(final boolean partial) {
-        return delegate.partial(partial);
+        return apply(iterable -> iterable.partial(partial));
     }
 
     /**
@@ -134,7 +204,7 @@ public class FindIterableDecorator<TResult> implements FindIterable<TResult> {
      */
     @Override
     public FindIterable<TResult> cursorType(final CursorType cursorType) {
-        return delegate.cursorType(cursorType);
+        return apply(iterable -> iterable.cursorType(cursorType));
     }
 
     /**
@@ -142,7 +212,7 @@ public class FindIterableDecorator<TResult> implements FindIterable<TResult> {
      */
     @Override
     public FindIterable<TResult> batchSize(final int batchSize) {
-        return delegate.batchSize(batchSize);
+        return apply(iterable -> iterable.batchSize(batchSize));
     }
 
     /**
@@ -150,7 +220,7 @@ public class FindIterableDecorator<TResult> implements FindIterable<TResult> {
      */
     @Override
     public FindIterable<TResult> collation(final Collation collation) {
-        return delegate.collation(collation);
+        return apply(iterable -> iterable.collation(collation));
     }
 
     /**
@@ -158,12 +228,12 @@ public class FindIterableDecorator<TResult> implements FindIterable<TResult> {
      */
     @Override
     public FindIterable<TResult> comment(final String comment) {
-        return delegate.comment(comment);
+        return apply(iterable -> iterable.comment(comment));
     }
 
     @Override
     public FindIterable<TResult> comment(final BsonValue bsonValue) {
-        return delegate.comment(bsonValue);
+        return apply(iterable -> iterable.comment(bsonValue));
     }
 
     /**
@@ -171,7 +241,7 @@ public class FindIterableDecorator<TResult> implements FindIterable<TResult> {
      */
     @Override
     public FindIterable<TResult> hint(final Bson hint) {
-        return delegate.hint(hint);
+        return apply(iterable -> iterable.hint(hint));
     }
 
     /**
@@ -179,12 +249,12 @@ public class FindIterableDecorator<TResult> implements FindIterable<TResult> {
      */
     @Override
     public FindIterable<TResult> hintString(final String hint) {
-        return delegate.hintString(hint);
+        return apply(iterable -> iterable.hintString(hint));
     }
 
     @Override
     public FindIterable<TResult> let(final Bson bson) {
-        return delegate.let(bson);
+        return apply(iterable -> iterable.let(bson));
     }
 
     /**
@@ -192,7 +262,7 @@ public class FindIterableDecorator<TResult> implements FindIterable<TResult> {
      */
     @Override
     public FindIterable<TResult> max(final Bson max) {
-        return delegate.max(max);
+        return apply(iterable -> iterable.max(max));
     }
 
     /**
@@ -200,7 +270,7 @@ public class FindIterableDecorator<TResult> implements FindIterable<TResult> {
      */
     @Override
     public FindIterable<TResult> min(final Bson min) {
-        return delegate.min(min);
+        return apply(iterable -> iterable.min(min));
     }
 
     /**
@@ -208,7 +278,7 @@ public class FindIterableDecorator<TResult> implements FindIterable<TResult> {
      */
     @Override
     public FindIterable<TResult> returnKey(final boolean returnKey) {
-        return delegate.returnKey(returnKey);
+        return apply(iterable -> iterable.returnKey(returnKey));
     }
 
     /**
@@ -216,7 +286,7 @@ public class FindIterableDecorator<TResult> implements FindIterable<TResult> {
      */
     @Override
     public FindIterable<TResult> showRecordId(final boolean showRecordId) {
-        return delegate.showRecordId(showRecordId);
+        return apply(iterable -> iterable.showRecordId(showRecordId));
     }
 
     /**
@@ -224,12 +294,12 @@ public class FindIterableDecorator<TResult> implements FindIterable<TResult> {
      */
     @Override
     public FindIterable<TResult> allowDiskUse(final Boolean aBoolean) {
-        return delegate.allowDiskUse(aBoolean);
+        return apply(iterable -> iterable.allowDiskUse(aBoolean));
     }
 
     @Override
     public FindIterable<TResult> timeoutMode(TimeoutMode timeoutMode) {
-        return delegate.timeoutMode(timeoutMode);
+        return apply(iterable -> iterable.timeoutMode(timeoutMode));
     }
 
     /**
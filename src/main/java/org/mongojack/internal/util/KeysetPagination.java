@@ -0,0 +1,270 @@
+package org.mongojack.internal.util;
+
+import org.bson.BsonArray;
+import org.bson.BsonBinaryWriter;
+import org.bson.BsonDocument;
+import org.bson.BsonInt32;
+import org.bson.BsonType;
+import org.bson.BsonValue;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.BsonDocumentCodec;
+import org.bson.codecs.EncoderContext;
+import org.bson.io.BasicOutputBuffer;
+
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The filters, sorts and continuations of keyset pagination, which pages through documents by seeking past the sort
+ * keys of the last document of the previous page, and of partitioned scans, which split documents into ranges of _id.
+ * <p>
+ * The sort keys are read from the documents as they are stored, so they go back into the filters as they are, with no
+ * serialization that could change their type.
+ */
+public final class KeysetPagination {
+
+    private static final BsonInt32 ASCENDING = new BsonInt32(1);
+    private static final BsonInt32 DESCENDING = new BsonInt32(-1);
+    private static final BsonDocumentCodec BSON_DOCUMENT_CODEC = new BsonDocumentCodec();
+
+    private KeysetPagination() {
+    }
+
+    /**
+     * @param sort a sort, or null
+     * @return the sort, with its directions as 1 or -1, and _id appended as the tie breaker unless it's in it already
+     * @throws IllegalArgumentException if a key of the sort is neither ascending nor descending
+     */
+    public static BsonDocument keysetSort(final BsonDocument sort) {
+        final BsonDocument keyset = new BsonDocument();
+        if (sort != null) {
+            for (Map.Entry<String, BsonValue> key : sort.entrySet()) {
+                final BsonValue direction = key.getValue();
+                if (!direction.isNumber() || direction.asNumber().doubleValue() == 0) {
+                    throw new IllegalArgumentException("Only ascending and descending keys can be paged on, got " + key.getKey() + ": " + direction);
+                }
+                keyset.append(key.getKey(), direction.asNumber().doubleValue() > 0 ? ASCENDING : DESCENDING);
+            }
+        }
+        if (!keyset.containsKey("_id")) {
+            keyset.append("_id", ASCENDING);
+        }
+        return keyset;
+    }
+
+    /**
+     * @param sort   a {@link #keysetSort(BsonDocument) keyset sort}
+     * @param values the values of its keys in a document
+     * @return the filter of the documents that come after that document in the order of the sort
+     */
+    public static BsonDocument after(final BsonDocument sort, final BsonArray values) {
+        final List<String> keys = new ArrayList<>(sort.keySet());
+        final BsonArray branches = new BsonArray();
+        for (int i = 0; i < keys.size(); i++) {
+            final BsonDocument branch = new BsonDocument();
+            for (int j = 0; j < i; j++) {
+                branch.append(keys.get(j), new BsonDocument("$eq", values.get(j)));
+            }
+            final String comparison = sort.getInt32(keys.get(i)).getValue() > 0 ? "$gt" : "$lt";
+            branch.append(keys.get(i), new BsonDocument(comparison, values.get(i)));
+            branches.add(branch);
+        }
+        return branches.size() == 1 ? branches.get(0).asDocument() : new BsonDocument("$or", branches);
+    }
+
+    /**
+     * @param sort     a {@link #keysetSort(BsonDocument) keyset sort}
+     * @param document a document
+     * @return the values of the keys of the sort in the document
+     * @throws IllegalStateException if one of them is missing, null or an array, which can't be ranged over
+     */
+    public static BsonArray valuesOf(final BsonDocument sort, final BsonDocument document) {
+        final BsonArray values = new BsonArray();
+        for (String key : sort.keySet()) {
+            final BsonValue value = valueAt(document, key);
+            if (value == null || value.isNull() || value.isArray()) {
+                throw new IllegalStateException(
+                    "Can't page past a document whose sort key " + key + " is " + (value == null ? "missing" : value.isNull() ? "null" : "an array")
+                        + ", sort keys must be single values in all the documents paged through"
+                );
+            }
+            values.add(value);
+        }
+        return values;
+    }
+
+    private static BsonValue valueAt(final BsonDocument document, final String path) {
+        BsonValue value = document;
+        for (String name : path.split("\\.", -1)) {
+            if (!value.isDocument()) {
+                return null;
+            }
+            value = value.asDocument().get(name);
+            if (value == null) {
+                return null;
+            }
+        }
+        return value;
+    }
+
+    /**
+     * @param projection a projection of included fields, or null
+     * @param sort       a sort
+     * @return the projection, also including the keys of the sort, or null if there was no projection
+     */
+    public static BsonDocument withSortKeys(final BsonDocument projection, final BsonDocument sort) {
+        if (projection == null) {
+            return null;
+        }
+        final BsonDocument merged = projection.clone();
+        for (String key : sort.keySet()) {
+            if (isIncluded(merged, key)) {
+                continue;
+            }
+            // a path and one of its descendants can't both be projected
+            merged.keySet().removeIf(path -> path.startsWith(key + "."));
+            merged.append(key, ASCENDING);
+        }
+        return merged;
+    }
+
+    private static boolean isIncluded(final BsonDocument projection, final String path) {
+        for (int dot = path.indexOf('.'); dot >= 0; dot = path.indexOf('.', dot + 1)) {
+            if (projection.containsKey(path.substring(0, dot))) {
+                return true;
+            }
+        }
+        return projection.containsKey(path);
+    }
+
+    /**
+     * @param sort   a {@link #keysetSort(BsonDocument) keyset sort}
+     * @param values the values of its keys in the last document of a page
+     * @return the opaque continuation the next page starts after
+     */
+    public static String encode(final BsonDocument sort, final BsonArray values) {
+        final BasicOutputBuffer buffer = new BasicOutputBuffer();
+        try (BsonBinaryWriter writer = new BsonBinaryWriter(buffer)) {
+            BSON_DOCUMENT_CODEC.encode(writer, new BsonDocument("sort", sort).append("after", values), EncoderContext.builder().build());
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(buffer.toByteArray());
+    }
+
+    /**
+     * @param sort         a {@link #keysetSort(BsonDocument) keyset sort}
+     * @param continuation a continuation {@link #encode(BsonDocument, BsonArray) made} for that sort
+     * @return the values of the keys of the sort the next page starts after
+     * @throws IllegalArgumentException if it isn't a continuation, or it was made for another sort
+     */
+    public static BsonArray decode(final BsonDocument sort, final String continuation) {
+        final BsonDocument token;
+        try {
+            token = new RawBsonDocument(Base64.getUrlDecoder().decode(continuation)).decode(BSON_DOCUMENT_CODEC);
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Not a continuation: " + continuation, e);
+        }
+        final BsonValue after = token.get("after");
+        if (!sort.equals(token.get("sort")) || after == null || !after.isArray() || after.asArray().size() != sort.size()) {
+            throw new IllegalArgumentException("The continuation was made for another sort than " + sort + ": " + continuation);
+        }
+        return after.asArray();
+    }
+
+    /**
+     * @param sample     a sample of ids, in ascending order
+     * @param partitions the number of partitions wanted
+     * @return the distinct bounds that split the sample into at most that many ranges, in ascending order, or none if
+     * the ids aren't all of one type, as a range of ids only matches the ids of the type of its bounds
+     */
+    public static List<BsonValue> partitionBounds(final List<BsonValue> sample, final int partitions) {
+        if (sample.isEmpty() || partitions < 2) {
+            return Collections.emptyList();
+        }
+        final BsonType type = typeBracket(sample.get(0));
+        for (BsonValue id : sample) {
+            if (typeBracket(id) != type) {
+                return Collections.emptyList();
+            }
+        }
+        final List<BsonValue> bounds = new ArrayList<>();
+        for (int i = 1; i < partitions; i++) {
+            final BsonValue bound = sample.get(i * sample.size() / partitions);
+            if (!bound.equals(sample.get(0)) && (bounds.isEmpty() || !bound.equals(bounds.get(bounds.size() - 1)))) {
+                bounds.add(bound);
+            }
+        }
+        return bounds;
+    }
+
+    private static BsonType typeBracket(final BsonValue value) {
+        if (value.isNumber() || value.isDecimal128()) {
+            return BsonType.DOUBLE;
+        }
+        return value.getBsonType() == BsonType.SYMBOL ? BsonType.STRING : value.getBsonType();
+    }
+
+    /**
+     * @param id an id of the type the ranges of ids are bounded by
+     * @return the filter of the ids of the other types, which no range bounded by ids of that type matches
+     */
+    public static BsonDocument otherTypes(final BsonValue id) {
+        final BsonType bracket = typeBracket(id);
+        final BsonArray types = new BsonArray();
+        if (bracket == BsonType.DOUBLE) {
+            for (BsonType type : new BsonType[]{BsonType.DOUBLE, BsonType.INT32, BsonType.INT64, BsonType.DECIMAL128}) {
+                types.add(new BsonInt32(type.getValue()));
+            }
+        } else if (bracket == BsonType.STRING) {
+            types.add(new BsonInt32(BsonType.STRING.getValue()));
+            types.add(new BsonInt32(BsonType.SYMBOL.getValue()));
+        } else {
+            types.add(new BsonInt32(bracket.getValue()));
+        }
+        return new BsonDocument("_id", new BsonDocument("$not", new BsonDocument("$type", types)));
+    }
+
+    /**
+     * @param lower the lowest id of the range, or null if it's unbounded below
+     * @param upper the id the range stops before, or null if it's unbounded above
+     * @return the filter of the ids in the range
+     */
+    public static BsonDocument idRange(final BsonValue lower, final BsonValue upper) {
+        final BsonDocument range = new BsonDocument();
+        if (lower != null) {
+            range.append("$gte", lower);
+        }
+        if (upper != null) {
+            range.append("$lt", upper);
+        }
+        return range.isEmpty() ? new BsonDocument() : new BsonDocument("_id", range);
+    }
+
+    /**
+     * @return a filter matching the documents either filter matches
+     */
+    public static BsonDocument or(final BsonDocument first, final BsonDocument second) {
+        final BsonArray either = new BsonArray();
+        either.add(first);
+        either.add(second);
+        return new BsonDocument("$or", either);
+    }
+
+    /**
+     * @return a filter matching the documents both filters match
+     */
+    public static BsonDocument and(final BsonDocument first, final BsonDocument second) {
+        if (first.isEmpty()) {
+            return second;
+        }
+        if (second.isEmpty()) {
+            return first;
+        }
+        final BsonArray both = new BsonArray();
+        both.add(first);
+        both.add(second);
+        return new BsonDocument("$and", both);
+    }
+}
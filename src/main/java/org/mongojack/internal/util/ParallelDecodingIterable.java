@@ -0,0 +1,251 @@
+package org.mongojack.internal.util;
+
+import com.mongodb.ServerAddress;
+import com.mongodb.ServerCursor;
+import com.mongodb.client.MongoCursor;
+import com.mongodb.client.MongoIterable;
+import org.bson.BsonReader;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.Decoder;
+import org.bson.codecs.DecoderContext;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.NoSuchElementException;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Iterates the results of a query or aggregation fetched as raw documents, decoding them on an executor rather than
+ * on the consuming thread.  Fetching stays on the consuming thread, one batch after the other, while the documents
+ * fetched so far are decoded in parallel, up to a window of documents that are decoded or being decoded but not
+ * consumed yet, which bounds the memory held on top of the driver's batch.
+ * <p>
+ * Ordered results come out in the order of the raw documents, unordered ones as soon as they are decoded, which
+ * keeps a slow document from holding up the ones behind it.
+ *
+ * @param <T> the type of the decoded documents
+ */
+public class ParallelDecodingIterable<T> implements MongoIterable<T> {
+
+    /**
+     * The window used unless told otherwise.
+     */
+    public static final int DEFAULT_WINDOW = 256;
+
+    private final MongoIterable<RawBsonDocument> documents;
+    private final Function<RawBsonDocument, T> decoder;
+    private final Executor executor;
+    private final boolean ordered;
+    private final int window;
+
+    /**
+     * @param documents the raw documents
+     * @param decoder   decodes a raw document, called concurrently
+     * @param executor  the executor to decode on
+     * @param ordered   whether the decoded documents keep the order of the raw ones
+     * @param window    the maximum number of documents decoded or being decoded ahead of the consumer
+     */
+    public ParallelDecodingIterable(
+        final MongoIterable<RawBsonDocument> documents,
+        final Function<RawBsonDocument, T> decoder,
+        final Executor executor,
+        final boolean ordered,
+        final int window
+    ) {
+        if (window < 1) {
+            throw new IllegalArgumentException("The window must hold at least one document, got " + window);
+        }
+        this.documents = documents;
+        this.decoder = decoder;
+        this.executor = executor;
+        this.ordered = ordered;
+        this.window = window;
+    }
+
+    /**
+     * @param decoder a decoder
+     * @param <T>     the type of the decoded documents
+     * @return a function that decodes raw documents with the decoder
+     */
+    public static <T> Function<RawBsonDocument, T> decodingWith(final Decoder<T> decoder) {
+        final DecoderContext decoderContext = DecoderContext.builder().build();
+        return document -> {
+            try (BsonReader reader = document.asBsonReader()) {
+                return decoder.decode(reader, decoderContext);
+            }
+        };
+    }
+
+    @Override
+    public MongoCursor<T> iterator() {
+        return new ParallelDecodingCursor(documents.iterator());
+    }
+
+    @Override
+    public MongoCursor<T> cursor() {
+        return iterator();
+    }
+
+    /**
+     * Decodes the first document on the calling thread.  The raw documents close the cursor they fetch it with before
+     * it is decoded, so a document that fails to decode leaves no cursor open.
+     */
+    @Override
+    public T first() {
+        final RawBsonDocument first = documents.first();
+        return first == null ? null : decoder.apply(first);
+    }
+
+    /**
+     * Maps the decoded documents, the mapper runs on the executor along with the decoding.
+     */
+    @Override
+    public <U> MongoIterable<U> map(final com.mongodb.Function<T, U> mapper) {
+        return new ParallelDecodingIterable<>(documents, decoder.andThen(mapper::apply), executor, ordered, window);
+    }
+
+    @Override
+    public <A extends Collection<? super T>> A into(final A target) {
+        try (MongoCursor<T> cursor = iterator()) {
+            while (cursor.hasNext()) {
+                target.add(cursor.next());
+            }
+        }
+        return target;
+    }
+
+    /**
+     * Closes the cursor once done, including when the action or the decoding of a document fails, which cancels the
+     * documents still waiting to be decoded.
+     */
+    @Override
+    public void forEach(final Consumer<? super T> action) {
+        try (MongoCursor<T> cursor = iterator()) {
+            while (cursor.hasNext()) {
+                action.accept(cursor.next());
+            }
+        }
+    }
+
+    @Override
+    public MongoIterable<T> batchSize(final int batchSize) {
+        documents.batchSize(batchSize);
+        return this;
+    }
+
+    private final class ParallelDecodingCursor implements MongoCursor<T> {
+
+        private final MongoCursor<RawBsonDocument> cursor;
+        /**
+         * The documents being decoded or decoded but not consumed yet, in the order they were fetched.
+         */
+        private final Queue<CompletableFuture<T>> pending = new ArrayDeque<>();
+        /**
+         * The documents that are decoded, in the order they were decoded, only used if unordered.
+         */
+        private final LinkedBlockingQueue<CompletableFuture<T>> decoded = new LinkedBlockingQueue<>();
+        private int inFlight;
+
+        private ParallelDecodingCursor(final MongoCursor<RawBsonDocument> cursor) {
+            this.cursor = cursor;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return inFlight > 0 || cursor.hasNext();
+        }
+
+        @Override
+        public T next() {
+            while (inFlight < window && cursor.hasNext()) {
+                submit(cursor.next());
+            }
+            if (inFlight == 0) {
+                throw new NoSuchElementException();
+            }
+            return take();
+        }
+
+        @Override
+        public T tryNext() {
+            if (inFlight == 0) {
+                final RawBsonDocument document = cursor.tryNext();
+                if (document == null) {
+                    return null;
+                }
+                submit(document);
+            }
+            return take();
+        }
+
+        private void submit(final RawBsonDocument document) {
+            final CompletableFuture<T> future = CompletableFuture.supplyAsync(() -> decoder.apply(document), executor);
+            pending.add(future);
+            if (!ordered) {
+                future.whenComplete((result, e) -> decoded.add(future));
+            }
+            inFlight++;
+        }
+
+        private T take() {
+            final CompletableFuture<T> future;
+            if (ordered) {
+                future = pending.remove();
+            } else {
+                try {
+                    future = decoded.take();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted while waiting for a document to be decoded", e);
+                }
+                // mostly at the head, documents tend to be decoded in the order they were submitted
+                pending.remove(future);
+            }
+            inFlight--;
+            try {
+                return future.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw e;
+            }
+        }
+
+        @Override
+        public int available() {
+            return inFlight + cursor.available();
+        }
+
+        @Override
+        public ServerCursor getServerCursor() {
+            return cursor.getServerCursor();
+        }
+
+        @Override
+        public ServerAddress getServerAddress() {
+            return cursor.getServerAddress();
+        }
+
+        /**
+         * Closes the cursor, and cancels the documents that aren't decoded yet, whether ordered or not.
+         */
+        @Override
+        public void close() {
+            try {
+                pending.forEach(future -> future.cancel(false));
+                pending.clear();
+                decoded.clear();
+                inFlight = 0;
+            } finally {
+                cursor.close();
+            }
+        }
+    }
+}
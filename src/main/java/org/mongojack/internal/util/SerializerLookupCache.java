@@ -0,0 +1,232 @@
+package org.mongojack.internal.util;
+
+import com.fasterxml.jackson.databind.JsonSerializer;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Memo of the serializers that query and update field paths resolve to, keyed by the serializer the path is
+ * resolved against, the path, and whether the target is a collection.
+ * <p>
+ * Serializers are per ObjectMapper and immutable once built, so a resolution never goes stale.  "No serializer" is
+ * cached too, since the paths that resolve to nothing (operators, map keys, unknown properties) are just as frequent.
+ * <p>
+ * The cache is shared by every ObjectMapper, so it only holds serializers weakly: the paths of a serializer are
+ * dropped once the serializer, and so the mapper it belongs to, is no longer used.  It is also bounded, evicting the
+ * oldest paths first once full, so filters on arbitrary paths can't grow it without bound.
+ */
+public class SerializerLookupCache {
+
+    public static final int DEFAULT_MAX_SIZE = 4096;
+
+    private static final Object NO_SERIALIZER = new Object();
+
+    private final ConcurrentHashMap<Key, Object> entries = new ConcurrentHashMap<>();
+    private final Queue<Key> insertionOrder = new ConcurrentLinkedQueue<>();
+    private final ReferenceQueue<JsonSerializer<?>> collected = new ReferenceQueue<>();
+    private final int maxSize;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public SerializerLookupCache() {
+        this(DEFAULT_MAX_SIZE);
+    }
+
+    public SerializerLookupCache(final int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Resolves a path.
+     *
+     * @param update             whether the path is of an update rather than a query
+     * @param serializer         the serializer the path is resolved against
+     * @param fieldPath          the path
+     * @param targetIsCollection whether the value is an element of the property rather than the property itself
+     * @param resolver           resolves the path on a miss
+     * @return the serializer, or null if the path doesn't resolve to one
+     */
+    JsonSerializer<?> find(
+        final boolean update,
+        final JsonSerializer<?> serializer,
+        final String fieldPath,
+        final boolean targetIsCollection,
+        final Resolver resolver
+    ) {
+        final Object cached = entries.get(new Key(update, serializer, fieldPath, targetIsCollection, null));
+        if (cached == NO_SERIALIZER) {
+            hits.increment();
+            return null;
+        }
+        if (cached != null) {
+            final JsonSerializer<?> resolved = ((ResolvedReference) cached).get();
+            if (resolved != null) {
+                hits.increment();
+                return resolved;
+            }
+        }
+        misses.increment();
+        final JsonSerializer<?> resolved = resolver.resolve();
+        put(new Key(update, serializer, fieldPath, targetIsCollection, collected), resolved);
+        return resolved;
+    }
+
+    private void put(final Key key, final JsonSerializer<?> resolved) {
+        expungeCollected();
+        // the resolved serializer is held weakly too, as it is often the serializer itself, for recursive types
+        final Object previous = entries.put(key, resolved == null ? NO_SERIALIZER : new ResolvedReference(resolved));
+        if (previous != null) {
+            // a resolution that was collected, the key is already in the insertion order
+            return;
+        }
+        insertionOrder.add(key);
+        while (entries.size() > maxSize) {
+            final Key oldest = insertionOrder.poll();
+            if (oldest == null) {
+                break;
+            }
+            if (entries.remove(oldest) != null) {
+                evictions.increment();
+            }
+        }
+    }
+
+    /**
+     * Drops the paths of the serializers that have been garbage collected.
+     */
+    private void expungeCollected() {
+        Reference<? extends JsonSerializer<?>> reference;
+        while ((reference = collected.poll()) != null) {
+            final Key key = ((SerializerReference) reference).key;
+            entries.remove(key);
+            insertionOrder.remove(key);
+        }
+    }
+
+    /**
+     * @return the number of lookups answered from the cache
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * @return the number of lookups that had to be resolved
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * @return the number of paths dropped to make room for others
+     */
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * @return the number of cached paths
+     */
+    public int size() {
+        expungeCollected();
+        return entries.size();
+    }
+
+    /**
+     * Drops all cached paths, and resets the counters.
+     */
+    public void clear() {
+        entries.clear();
+        insertionOrder.clear();
+        hits.reset();
+        misses.reset();
+        evictions.reset();
+    }
+
+    @Override
+    public String toString() {
+        return "SerializerLookupCache{" +
+            "size=" + size() +
+            ", hits=" + getHits() +
+            ", misses=" + getMisses() +
+            ", evictions=" + getEvictions() +
+            '}';
+    }
+
+    interface Resolver {
+        JsonSerializer<?> resolve();
+    }
+
+    /**
+     * The key of a path.  Lookups hold the serializer strongly, the keys stored in the cache only weakly.
+     */
+    private static final class Key {
+        private final boolean update;
+        private final JsonSerializer<?> lookupSerializer;
+        private final SerializerReference storedSerializer;
+        private final String fieldPath;
+        private final boolean targetIsCollection;
+        private final int hash;
+
+        private Key(
+            final boolean update,
+            final JsonSerializer<?> serializer,
+            final String fieldPath,
+            final boolean targetIsCollection,
+            final ReferenceQueue<JsonSerializer<?>> queue
+        ) {
+            this.update = update;
+            this.lookupSerializer = queue == null ? serializer : null;
+            this.storedSerializer = queue == null ? null : new SerializerReference(serializer, queue, this);
+            this.fieldPath = fieldPath;
+            this.targetIsCollection = targetIsCollection;
+            this.hash = (System.identityHashCode(serializer) * 31 + fieldPath.hashCode()) * 4
+                + (update ? 2 : 0) + (targetIsCollection ? 1 : 0);
+        }
+
+        private JsonSerializer<?> serializer() {
+            return storedSerializer == null ? lookupSerializer : storedSerializer.get();
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            final Key that = (Key) o;
+            final JsonSerializer<?> serializer = serializer();
+            // serializers don't define equality, and are compared by identity; a collected one matches nothing
+            return serializer != null &&
+                serializer == that.serializer() &&
+                update == that.update &&
+                targetIsCollection == that.targetIsCollection &&
+                fieldPath.equals(that.fieldPath);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    private static final class SerializerReference extends WeakReference<JsonSerializer<?>> {
+        private final Key key;
+
+        private SerializerReference(final JsonSerializer<?> serializer, final ReferenceQueue<JsonSerializer<?>> queue, final Key key) {
+            super(serializer, queue);
+            this.key = key;
+        }
+    }
+
+    private static final class ResolvedReference extends WeakReference<JsonSerializer<?>> {
+        private ResolvedReference(final JsonSerializer<?> serializer) {
+            super(serializer);
+        }
+    }
+}
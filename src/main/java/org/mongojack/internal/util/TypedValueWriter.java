@@ -0,0 +1,76 @@
+package org.mongojack.internal.util;
+
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import org.bson.BsonDocumentWriter;
+import org.bson.codecs.configuration.CodecRegistry;
+import org.mongojack.internal.stream.DBEncoderBsonGenerator;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Writes the values of filters and updates whose serializers have been resolved up front, like the typed filters and
+ * updates of {@link org.mongojack.metamodel}.  Values are written the way {@link DocumentSerializationUtils} writes
+ * them once it has found the serializer of their field path.
+ */
+public final class TypedValueWriter implements Closeable {
+
+    private final DocumentSerializationUtilsImpl utils;
+    private final SerializerProvider serializerProvider;
+    private final BsonDocumentWriter writer;
+    private final DBEncoderBsonGenerator generator;
+    private final CodecRegistry registry;
+
+    TypedValueWriter(
+        final DocumentSerializationUtilsImpl utils,
+        final ObjectMapper objectMapper,
+        final BsonDocumentWriter writer,
+        final CodecRegistry registry
+    ) {
+        this.utils = utils;
+        this.serializerProvider = JacksonAccessor.getSerializerProvider(objectMapper);
+        this.writer = writer;
+        this.generator = new DBEncoderBsonGenerator(writer, utils.attemptToExtractUuidRepresentation(registry));
+        this.registry = registry;
+    }
+
+    /**
+     * @return the writer the values are written to, for the names and structure around them
+     */
+    public BsonDocumentWriter getWriter() {
+        return writer;
+    }
+
+    /**
+     * Writes a value of a filter.
+     *
+     * @param value      the value
+     * @param serializer the serializer of the property the value is compared with, or null for the default one
+     */
+    public void writeFilterValue(final Object value, final JsonSerializer<?> serializer) throws IOException {
+        utils.serializeQueryField(value, serializer, serializerProvider, writer, generator);
+    }
+
+    /**
+     * Writes a value of an update.
+     *
+     * @param value      the value
+     * @param serializer the serializer of the property the value is assigned to, or null for the default one
+     */
+    public void writeUpdateValue(final Object value, final JsonSerializer<?> serializer) throws IOException {
+        if (value == null) {
+            writer.writeNull();
+        } else if (serializer == null) {
+            utils.serializeUpdateField(value, serializerProvider, writer, generator, registry);
+        } else {
+            utils.serializeUpdateField(value, serializer, serializerProvider, generator);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        generator.close();
+    }
+}
@@ -0,0 +1,110 @@
+package org.mongojack.metamodel;
+
+import org.bson.BsonInt32;
+
+import java.util.Collection;
+
+/**
+ * A collection property of the metamodel of a class, stored as an array.  Besides the filters and updates on the
+ * whole collection, it has the ones that match or change elements, whose values are written with the serializer of
+ * the elements.
+ *
+ * @param <E> the class the property belongs to
+ * @param <T> the type of the elements
+ * @since 5.1.1
+ */
+public class ArrayProperty<E, T> extends Property<E, Collection<T>> {
+
+    /**
+     * @param entityClass the class the property belongs to
+     * @param path        the field path of the property in the documents of the class
+     */
+    public ArrayProperty(final Class<E> entityClass, final String path) {
+        super(entityClass, path);
+    }
+
+    /**
+     * @param element the element
+     * @return a filter that matches documents whose collection contains the element
+     */
+    public TypedFilter contains(final T element) {
+        return TypedFilter.condition(this, null, TypedBson.Kind.ELEMENT, element);
+    }
+
+    /**
+     * @param elements the elements
+     * @return a filter that matches documents whose collection contains all the elements
+     */
+    public TypedFilter containsAll(final Collection<? extends T> elements) {
+        return TypedFilter.condition(this, "$all", TypedBson.Kind.ELEMENTS, elements);
+    }
+
+    /**
+     * @param elements the elements
+     * @return a filter that matches documents whose collection contains any of the elements
+     */
+    public TypedFilter containsAny(final Collection<? extends T> elements) {
+        return TypedFilter.condition(this, "$in", TypedBson.Kind.ELEMENTS, elements);
+    }
+
+    /**
+     * @param size the size
+     * @return a filter that matches documents whose collection has the size
+     */
+    public TypedFilter size(final int size) {
+        return TypedFilter.condition(this, "$size", TypedBson.Kind.BSON, new BsonInt32(size));
+    }
+
+    /**
+     * @param element the element
+     * @return an update that appends the element to the collection
+     */
+    public TypedUpdate push(final T element) {
+        return TypedUpdate.operation("$push", this, TypedBson.Kind.ELEMENT, element);
+    }
+
+    /**
+     * @param elements the elements
+     * @return an update that appends the elements to the collection
+     */
+    public TypedUpdate pushEach(final Collection<? extends T> elements) {
+        return TypedUpdate.operation("$push", this, TypedBson.Kind.EACH, elements);
+    }
+
+    /**
+     * @param element the element
+     * @return an update that adds the element to the collection unless it's there already
+     */
+    public TypedUpdate addToSet(final T element) {
+        return TypedUpdate.operation("$addToSet", this, TypedBson.Kind.ELEMENT, element);
+    }
+
+    /**
+     * @param elements the elements
+     * @return an update that adds the elements that aren't there already to the collection
+     */
+    public TypedUpdate addEachToSet(final Collection<? extends T> elements) {
+        return TypedUpdate.operation("$addToSet", this, TypedBson.Kind.EACH, elements);
+    }
+
+    /**
+     * @param element the element
+     * @return an update that removes all occurrences of the element from the collection
+     */
+    public TypedUpdate pull(final T element) {
+        return TypedUpdate.operation("$pull", this, TypedBson.Kind.ELEMENT, element);
+    }
+
+    /**
+     * @param elements the elements
+     * @return an update that removes all occurrences of the elements from the collection
+     */
+    public TypedUpdate pullAll(final Collection<? extends T> elements) {
+        return TypedUpdate.operation("$pullAll", this, TypedBson.Kind.ELEMENTS, elements);
+    }
+
+    @Override
+    boolean isCollection() {
+        return true;
+    }
+}
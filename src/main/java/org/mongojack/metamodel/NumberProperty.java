@@ -0,0 +1,51 @@
+package org.mongojack.metamodel;
+
+/**
+ * A numeric property of the metamodel of a class.
+ *
+ * @param <E> the class the property belongs to
+ * @param <T> the type of the property
+ * @since 5.1.1
+ */
+public class NumberProperty<E, T extends Number> extends Property<E, T> {
+
+    /**
+     * @param entityClass the class the property belongs to
+     * @param path        the field path of the property in the documents of the class
+     */
+    public NumberProperty(final Class<E> entityClass, final String path) {
+        super(entityClass, path);
+    }
+
+    /**
+     * @param amount the amount, written as is, like the driver's {@code Updates.inc} does
+     * @return an update that increments the property by the amount
+     */
+    public TypedUpdate inc(final Number amount) {
+        return TypedUpdate.operation("$inc", this, TypedBson.Kind.PLAIN, amount);
+    }
+
+    /**
+     * @param factor the factor, written as is
+     * @return an update that multiplies the property by the factor
+     */
+    public TypedUpdate mul(final Number factor) {
+        return TypedUpdate.operation("$mul", this, TypedBson.Kind.PLAIN, factor);
+    }
+
+    /**
+     * @param value the value
+     * @return an update that sets the property to the value if the value is less than the property
+     */
+    public TypedUpdate min(final T value) {
+        return TypedUpdate.operation("$min", this, TypedBson.Kind.VALUE, value);
+    }
+
+    /**
+     * @param value the value
+     * @return an update that sets the property to the value if the value is greater than the property
+     */
+    public TypedUpdate max(final T value) {
+        return TypedUpdate.operation("$max", this, TypedBson.Kind.VALUE, value);
+    }
+}
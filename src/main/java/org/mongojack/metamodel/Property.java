@@ -0,0 +1,196 @@
+package org.mongojack.metamodel;
+
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.bson.BsonBoolean;
+import org.bson.BsonString;
+import org.mongojack.internal.util.DocumentSerializationUtils;
+
+import java.util.Collection;
+
+/**
+ * A property of the metamodel of a class, the typed counterpart of a field path in a filter or update.
+ * <p>
+ * Properties are usually constants of the classes generated by
+ * {@link org.mongojack.metamodel.processor.MetamodelProcessor}, but can as well be declared by hand.  The serializers
+ * of a property are resolved the first time a filter or update on it is written, and kept for as long as the same
+ * ObjectMapper is used.
+ *
+ * @param <E> the class the property belongs to
+ * @param <T> the type of the property
+ * @since 5.1.1
+ */
+public class Property<E, T> {
+
+    private final Class<E> entityClass;
+    private final String path;
+    private volatile Serializers serializers;
+
+    /**
+     * @param entityClass the class the property belongs to
+     * @param path        the field path of the property in the documents of the class
+     */
+    public Property(final Class<E> entityClass, final String path) {
+        this.entityClass = entityClass;
+        this.path = path;
+    }
+
+    /**
+     * @return the class the property belongs to
+     */
+    public Class<E> getEntityClass() {
+        return entityClass;
+    }
+
+    /**
+     * @return the field path of the property
+     */
+    public String getPath() {
+        return path;
+    }
+
+    /**
+     * @param value the value
+     * @return a filter that matches documents whose property equals the value
+     */
+    public TypedFilter eq(final T value) {
+        return TypedFilter.condition(this, null, TypedBson.Kind.VALUE, value);
+    }
+
+    /**
+     * @param value the value
+     * @return a filter that matches documents whose property doesn't equal the value
+     */
+    public TypedFilter ne(final T value) {
+        return TypedFilter.condition(this, "$ne", TypedBson.Kind.VALUE, value);
+    }
+
+    /**
+     * @param value the value
+     * @return a filter that matches documents whose property is greater than the value
+     */
+    public TypedFilter gt(final T value) {
+        return TypedFilter.condition(this, "$gt", TypedBson.Kind.VALUE, value);
+    }
+
+    /**
+     * @param value the value
+     * @return a filter that matches documents whose property is greater than or equal to the value
+     */
+    public TypedFilter gte(final T value) {
+        return TypedFilter.condition(this, "$gte", TypedBson.Kind.VALUE, value);
+    }
+
+    /**
+     * @param value the value
+     * @return a filter that matches documents whose property is less than the value
+     */
+    public TypedFilter lt(final T value) {
+        return TypedFilter.condition(this, "$lt", TypedBson.Kind.VALUE, value);
+    }
+
+    /**
+     * @param value the value
+     * @return a filter that matches documents whose property is less than or equal to the value
+     */
+    public TypedFilter lte(final T value) {
+        return TypedFilter.condition(this, "$lte", TypedBson.Kind.VALUE, value);
+    }
+
+    /**
+     * @param values the values
+     * @return a filter that matches documents whose property equals one of the values
+     */
+    public TypedFilter in(final Collection<? extends T> values) {
+        return TypedFilter.condition(this, "$in", TypedBson.Kind.VALUES, values);
+    }
+
+    /**
+     * @param values the values
+     * @return a filter that matches documents whose property equals none of the values
+     */
+    public TypedFilter nin(final Collection<? extends T> values) {
+        return TypedFilter.condition(this, "$nin", TypedBson.Kind.VALUES, values);
+    }
+
+    /**
+     * @param exists whether the property must be there
+     * @return a filter that matches documents that have the property, or that don't
+     */
+    public TypedFilter exists(final boolean exists) {
+        return TypedFilter.condition(this, "$exists", TypedBson.Kind.BSON, BsonBoolean.valueOf(exists));
+    }
+
+    /**
+     * @param value the value
+     * @return an update that sets the property to the value
+     */
+    public TypedUpdate set(final T value) {
+        return TypedUpdate.operation("$set", this, TypedBson.Kind.VALUE, value);
+    }
+
+    /**
+     * @param value the value
+     * @return an update that sets the property to the value if the update inserts a document
+     */
+    public TypedUpdate setOnInsert(final T value) {
+        return TypedUpdate.operation("$setOnInsert", this, TypedBson.Kind.VALUE, value);
+    }
+
+    /**
+     * @return an update that removes the property
+     */
+    public TypedUpdate unset() {
+        return TypedUpdate.operation("$unset", this, TypedBson.Kind.BSON, new BsonString(""));
+    }
+
+    /**
+     * @return whether the property is a collection, whose elements filters and updates can target
+     */
+    boolean isCollection() {
+        return false;
+    }
+
+    JsonSerializer<?> getSerializer(final ObjectMapper objectMapper, final boolean update, final boolean element) {
+        Serializers current = serializers;
+        if (current == null || current.objectMapper != objectMapper) {
+            current = new Serializers(objectMapper);
+            serializers = current;
+        }
+        if (update) {
+            return element ? current.updateElement : current.update;
+        }
+        return element ? current.queryElement : current.query;
+    }
+
+    @Override
+    public String toString() {
+        return entityClass.getSimpleName() + "." + path;
+    }
+
+    /**
+     * The serializers of the property for one ObjectMapper, null where values go through the default ones.
+     */
+    private final class Serializers {
+        private final ObjectMapper objectMapper;
+        private final JsonSerializer<?> query;
+        private final JsonSerializer<?> queryElement;
+        private final JsonSerializer<?> update;
+        private final JsonSerializer<?> updateElement;
+
+        private Serializers(final ObjectMapper objectMapper) {
+            this.objectMapper = objectMapper;
+            final JavaType type = objectMapper.constructType(entityClass);
+            query = DocumentSerializationUtils.findPathSerializer(objectMapper, type, path, false, false);
+            update = DocumentSerializationUtils.findPathSerializer(objectMapper, type, path, true, false);
+            if (isCollection()) {
+                queryElement = DocumentSerializationUtils.findPathSerializer(objectMapper, type, path, false, true);
+                updateElement = DocumentSerializationUtils.findPathSerializer(objectMapper, type, path, true, true);
+            } else {
+                queryElement = query;
+                updateElement = update;
+            }
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package org.mongojack.metamodel;
+
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.bson.BsonDocument;
+import org.bson.BsonDocumentWriter;
+import org.bson.BsonValue;
+import org.bson.codecs.BsonValueCodec;
+import org.bson.codecs.EncoderContext;
+import org.bson.codecs.configuration.CodecRegistry;
+import org.bson.conversions.Bson;
+import org.mongojack.InitializationRequiredForTransformation;
+import org.mongojack.JacksonCodecRegistry;
+import org.mongojack.MongoJsonMappingException;
+import org.mongojack.internal.util.DocumentSerializationUtils;
+import org.mongojack.internal.util.TypedValueWriter;
+
+import java.io.IOException;
+import java.util.Collection;
+
+/**
+ * A filter or update built from the {@link Property properties} of a metamodel.
+ * <p>
+ * Its values are written with the serializers of their properties, which each property resolves once per
+ * ObjectMapper, so a {@link org.mongojack.JacksonMongoCollection} passes it to the driver as is, rather than working
+ * out the type of every field path of a filter or update each time it runs.  The ObjectMapper is the one of the
+ * {@link JacksonCodecRegistry} the document is written with, which makes these only usable with collections whose
+ * codec registry is one.
+ *
+ * @since 5.1.1
+ */
+public abstract class TypedBson implements Bson, InitializationRequiredForTransformation {
+
+    private static final BsonValueCodec BSON_VALUE_CODEC = new BsonValueCodec();
+
+    private static final EncoderContext ENCODER_CONTEXT = EncoderContext.builder().build();
+
+    TypedBson() {
+    }
+
+    /**
+     * Does nothing, the serializers are resolved with the ObjectMapper of the registry the document is written with.
+     */
+    @Override
+    public void initialize(final ObjectMapper objectMapper, final JavaType type, final JacksonCodecRegistry codecRegistry) {
+    }
+
+    @Override
+    public <TDocument> BsonDocument toBsonDocument(final Class<TDocument> documentClass, final CodecRegistry codecRegistry) {
+        if (!(codecRegistry instanceof JacksonCodecRegistry)) {
+            throw new IllegalStateException("Typed filters and updates can only be written with a JacksonCodecRegistry, got " + codecRegistry);
+        }
+        final ObjectMapper objectMapper = ((JacksonCodecRegistry) codecRegistry).getObjectMapper();
+        final BsonDocument document = new BsonDocument();
+        try (
+            BsonDocumentWriter writer = new BsonDocumentWriter(document);
+            TypedValueWriter out = DocumentSerializationUtils.typedValueWriter(objectMapper, writer, codecRegistry)
+        ) {
+            write(objectMapper, out);
+        } catch (IOException e) {
+            throw new MongoJsonMappingException(e.getMessage(), e);
+        }
+        return document;
+    }
+
+    abstract void write(ObjectMapper objectMapper, TypedValueWriter out) throws IOException;
+
+    /**
+     * How the value of a condition or an operation is written.
+     */
+    enum Kind {
+        /**
+         * With the serializer of the property.
+         */
+        VALUE,
+        /**
+         * With the serializer of the elements of the property.
+         */
+        ELEMENT,
+        /**
+         * As an array, with the serializer of the property.
+         */
+        VALUES,
+        /**
+         * As an array, with the serializer of the elements of the property.
+         */
+        ELEMENTS,
+        /**
+         * As an {@code $each} document with an array, with the serializer of the elements of the property.
+         */
+        EACH,
+        /**
+         * With the default serializers.
+         */
+        PLAIN,
+        /**
+         * A {@link BsonValue}, as is.
+         */
+        BSON
+    }
+
+    static void writeValue(
+        final ObjectMapper objectMapper,
+        final TypedValueWriter out,
+        final Property<?, ?> property,
+        final boolean update,
+        final Kind kind,
+        final Object value
+    ) throws IOException {
+        switch (kind) {
+            case VALUE:
+                writeValue(out, update, property.getSerializer(objectMapper, update, false), value);
+                return;
+            case ELEMENT:
+                writeValue(out, update, property.getSerializer(objectMapper, update, true), value);
+                return;
+            case VALUES:
+                writeArray(out, update, property.getSerializer(objectMapper, update, false), (Collection<?>) value);
+                return;
+            case ELEMENTS:
+                writeArray(out, update, property.getSerializer(objectMapper, update, true), (Collection<?>) value);
+                return;
+            case EACH:
+                out.getWriter().writeStartDocument();
+                out.getWriter().writeName("$each");
+                writeArray(out, update, property.getSerializer(objectMapper, update, true), (Collection<?>) value);
+                out.getWriter().writeEndDocument();
+                return;
+            case PLAIN:
+                writeValue(out, update, null, value);
+                return;
+            default:
+                BSON_VALUE_CODEC.encode(out.getWriter(), (BsonValue) value, ENCODER_CONTEXT);
+        }
+    }
+
+    private static void writeArray(
+        final TypedValueWriter out,
+        final boolean update,
+        final JsonSerializer<?> serializer,
+        final Collection<?> values
+    ) throws IOException {
+        out.getWriter().writeStartArray();
+        for (Object value : values) {
+            writeValue(out, update, serializer, value);
+        }
+        out.getWriter().writeEndArray();
+    }
+
+    private static void writeValue(
+        final TypedValueWriter out,
+        final boolean update,
+        final JsonSerializer<?> serializer,
+        final Object value
+    ) throws IOException {
+        if (update) {
+            out.writeUpdateValue(value, serializer);
+        } else {
+            out.writeFilterValue(value, serializer);
+        }
+    }
+}
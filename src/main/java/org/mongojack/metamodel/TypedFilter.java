@@ -0,0 +1,117 @@
+package org.mongojack.metamodel;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.bson.BsonDocumentWriter;
+import org.mongojack.internal.util.TypedValueWriter;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A filter built from the {@link Property properties} of a metamodel, see {@link TypedBson}.
+ *
+ * @since 5.1.1
+ */
+public abstract class TypedFilter extends TypedBson {
+
+    TypedFilter() {
+    }
+
+    /**
+     * @param filters the filters
+     * @return a filter that matches the documents that all the filters match
+     */
+    public static TypedFilter and(final TypedFilter... filters) {
+        return new Logical("$and", Arrays.asList(filters));
+    }
+
+    /**
+     * @param filters the filters
+     * @return a filter that matches the documents that any of the filters match
+     */
+    public static TypedFilter or(final TypedFilter... filters) {
+        return new Logical("$or", Arrays.asList(filters));
+    }
+
+    /**
+     * @param filters the filters
+     * @return a filter that matches the documents that none of the filters match
+     */
+    public static TypedFilter nor(final TypedFilter... filters) {
+        return new Logical("$nor", Arrays.asList(filters));
+    }
+
+    static TypedFilter condition(final Property<?, ?> property, final String operator, final Kind kind, final Object value) {
+        return new Condition(property, operator, kind, value);
+    }
+
+    /**
+     * A condition on a property, {@code {path: value}} or {@code {path: {operator: value}}}.
+     */
+    private static final class Condition extends TypedFilter {
+        private final Property<?, ?> property;
+        private final String operator;
+        private final Kind kind;
+        private final Object value;
+
+        private Condition(final Property<?, ?> property, final String operator, final Kind kind, final Object value) {
+            this.property = property;
+            this.operator = operator;
+            this.kind = kind;
+            this.value = value;
+        }
+
+        @Override
+        void write(final ObjectMapper objectMapper, final TypedValueWriter out) throws IOException {
+            final BsonDocumentWriter writer = out.getWriter();
+            writer.writeStartDocument();
+            writer.writeName(property.getPath());
+            if (operator == null) {
+                writeValue(objectMapper, out, property, false, kind, value);
+            } else {
+                writer.writeStartDocument();
+                writer.writeName(operator);
+                writeValue(objectMapper, out, property, false, kind, value);
+                writer.writeEndDocument();
+            }
+            writer.writeEndDocument();
+        }
+
+        @Override
+        public String toString() {
+            return "Filter{property=" + property + (operator == null ? "" : ", operator=" + operator) + ", value=" + value + '}';
+        }
+    }
+
+    /**
+     * {@code $and}, {@code $or} or {@code $nor} of filters.
+     */
+    private static final class Logical extends TypedFilter {
+        private final String operator;
+        private final List<TypedFilter> filters;
+
+        private Logical(final String operator, final List<TypedFilter> filters) {
+            this.operator = operator;
+            this.filters = filters;
+        }
+
+        @Override
+        void write(final ObjectMapper objectMapper, final TypedValueWriter out) throws IOException {
+            final BsonDocumentWriter writer = out.getWriter();
+            writer.writeStartDocument();
+            writer.writeName(operator);
+            writer.writeStartArray();
+            for (TypedFilter filter : filters) {
+                filter.write(objectMapper, out);
+            }
+            writer.writeEndArray();
+            writer.writeEndDocument();
+        }
+
+        @Override
+        public String toString() {
+            return "Filter{operator=" + operator + ", filters=" + filters + '}';
+        }
+    }
+}
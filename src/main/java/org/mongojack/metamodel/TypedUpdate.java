@@ -0,0 +1,106 @@
+package org.mongojack.metamodel;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.bson.BsonDocumentWriter;
+import org.mongojack.internal.util.TypedValueWriter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An update built from the {@link Property properties} of a metamodel, see {@link TypedBson}.
+ *
+ * @since 5.1.1
+ */
+public abstract class TypedUpdate extends TypedBson {
+
+    TypedUpdate() {
+    }
+
+    /**
+     * @param updates the updates
+     * @return an update that makes all the changes of the updates, grouped by operator
+     */
+    public static TypedUpdate combine(final TypedUpdate... updates) {
+        final List<Operation> operations = new ArrayList<>();
+        for (TypedUpdate update : updates) {
+            operations.addAll(update.operations());
+        }
+        return new Combined(operations);
+    }
+
+    static TypedUpdate operation(final String operator, final Property<?, ?> property, final Kind kind, final Object value) {
+        return new Operation(operator, property, kind, value);
+    }
+
+    abstract List<Operation> operations();
+
+    @Override
+    void write(final ObjectMapper objectMapper, final TypedValueWriter out) throws IOException {
+        final Map<String, List<Operation>> byOperator = new LinkedHashMap<>();
+        for (Operation operation : operations()) {
+            byOperator.computeIfAbsent(operation.operator, operator -> new ArrayList<>()).add(operation);
+        }
+        final BsonDocumentWriter writer = out.getWriter();
+        writer.writeStartDocument();
+        for (Map.Entry<String, List<Operation>> entry : byOperator.entrySet()) {
+            writer.writeName(entry.getKey());
+            writer.writeStartDocument();
+            for (Operation operation : entry.getValue()) {
+                writer.writeName(operation.property.getPath());
+                writeValue(objectMapper, out, operation.property, true, operation.kind, operation.value);
+            }
+            writer.writeEndDocument();
+        }
+        writer.writeEndDocument();
+    }
+
+    /**
+     * A change of a property, {@code {operator: {path: value}}}.
+     */
+    static final class Operation extends TypedUpdate {
+        private final String operator;
+        private final Property<?, ?> property;
+        private final Kind kind;
+        private final Object value;
+
+        private Operation(final String operator, final Property<?, ?> property, final Kind kind, final Object value) {
+            this.operator = operator;
+            this.property = property;
+            this.kind = kind;
+            this.value = value;
+        }
+
+        @Override
+        List<Operation> operations() {
+            return Collections.singletonList(this);
+        }
+
+        @Override
+        public String toString() {
+            return "Update{operator=" + operator + ", property=" + property + ", value=" + value + '}';
+        }
+    }
+
+    private static final class Combined extends TypedUpdate {
+        private final List<Operation> operations;
+
+        private Combined(final List<Operation> operations) {
+            this.operations = operations;
+        }
+
+        @Override
+        List<Operation> operations() {
+            return operations;
+        }
+
+        @Override
+        public String toString() {
+            return "Updates{updates=" + operations + '}';
+        }
+    }
+}
@@ -0,0 +1,425 @@
+package org.mongojack.metamodel.processor;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.PrimitiveType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.type.WildcardType;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Generates the metamodel of the classes annotated with {@link org.mongojack.MongoCollection}: a class next to each,
+ * named after it with a trailing underscore, with a {@link org.mongojack.metamodel.Property} constant per property.
+ * A misspelt property is then a compilation error rather than a filter that matches nothing, and filters and updates
+ * built from the constants are written without resolving their field paths, see
+ * {@link org.mongojack.metamodel.TypedBson}.
+ * <p>
+ * Properties are found the way Jackson finds them by default: public fields, public getters and fields annotated with
+ * {@code @JsonProperty}, renamed by {@code @JsonProperty}, left out with {@code @JsonIgnore}, and stored as _id if
+ * annotated with {@code @Id}.  Other Jackson configuration, naming strategies and mixins for example, isn't known at
+ * compile time and isn't taken into account.
+ * <p>
+ * The processor isn't registered as a service, so it only runs when asked for, with
+ * {@code javac -processor org.mongojack.metamodel.processor.MetamodelProcessor} or, with Maven:
+ * <pre>
+ * &lt;plugin&gt;
+ *   &lt;artifactId&gt;maven-compiler-plugin&lt;/artifactId&gt;
+ *   &lt;configuration&gt;
+ *     &lt;annotationProcessors&gt;
+ *       &lt;annotationProcessor&gt;org.mongojack.metamodel.processor.MetamodelProcessor&lt;/annotationProcessor&gt;
+ *     &lt;/annotationProcessors&gt;
+ *   &lt;/configuration&gt;
+ * &lt;/plugin&gt;
+ * </pre>
+ *
+ * @since 5.1.1
+ */
+@SupportedAnnotationTypes(MetamodelProcessor.MONGO_COLLECTION)
+public class MetamodelProcessor extends AbstractProcessor {
+
+    static final String MONGO_COLLECTION = "org.mongojack.MongoCollection";
+
+    private static final String METAMODEL_PACKAGE = "org.mongojack.metamodel.";
+    private static final String JSON_PROPERTY = "com.fasterxml.jackson.annotation.JsonProperty";
+    private static final String JSON_IGNORE = "com.fasterxml.jackson.annotation.JsonIgnore";
+    private static final Set<String> ID_ANNOTATIONS = new HashSet<>(
+        List.of("org.mongojack.Id", "javax.persistence.Id", "jakarta.persistence.Id")
+    );
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(final Set<? extends TypeElement> annotations, final RoundEnvironment roundEnv) {
+        final TypeElement mongoCollection = processingEnv.getElementUtils().getTypeElement(MONGO_COLLECTION);
+        if (mongoCollection == null) {
+            return false;
+        }
+        for (Element element : roundEnv.getElementsAnnotatedWith(mongoCollection)) {
+            if (element.getKind() != ElementKind.CLASS) {
+                continue;
+            }
+            final TypeElement type = (TypeElement) element;
+            if (!isAccessible(type)) {
+                processingEnv.getMessager().printMessage(
+                    Diagnostic.Kind.WARNING, "No metamodel for " + type + ", it is private", type
+                );
+                continue;
+            }
+            try {
+                generate(type);
+            } catch (IOException e) {
+                processingEnv.getMessager().printMessage(
+                    Diagnostic.Kind.ERROR, "Could not write the metamodel of " + type + ": " + e.getMessage(), type
+                );
+            }
+        }
+        // the annotation is left to other processors
+        return false;
+    }
+
+    private void generate(final TypeElement type) throws IOException {
+        final Elements elements = processingEnv.getElementUtils();
+        final String packageName = elements.getPackageOf(type).getQualifiedName().toString();
+        final String className = metamodelName(type);
+        final String qualifiedName = packageName.isEmpty() ? className : packageName + "." + className;
+        final String entity = processingEnv.getTypeUtils().erasure(type.asType()).toString();
+
+        final StringBuilder source = new StringBuilder();
+        if (!packageName.isEmpty()) {
+            source.append("package ").append(packageName).append(";\n\n");
+        }
+        source.append("/**\n * Metamodel of {@link ").append(entity).append("}.\n */\n");
+        if (elements.getTypeElement("javax.annotation.processing.Generated") != null
+            && processingEnv.getSourceVersion().compareTo(SourceVersion.RELEASE_8) > 0) {
+            source.append("@javax.annotation.processing.Generated(\"").append(getClass().getName()).append("\")\n");
+        }
+        if (type.getModifiers().contains(Modifier.PUBLIC)) {
+            source.append("public ");
+        }
+        source.append("final class ").append(className).append(" {\n");
+        final Set<String> constants = new HashSet<>();
+        for (Map.Entry<String, TypeMirror> property : findProperties(type).entrySet()) {
+            final String constant = constantName(property.getKey());
+            if (!constants.add(constant)) {
+                processingEnv.getMessager().printMessage(
+                    Diagnostic.Kind.WARNING, "No metamodel constant for property " + property.getKey() + " of " + type + ", its name clashes with another one", type
+                );
+                continue;
+            }
+            source.append("\n    public static final ").append(declaration(entity, property.getValue()))
+                .append(' ').append(constant).append(" =\n        new ").append(constructor(property.getValue()))
+                .append('(').append(entity).append(".class, \"").append(escape(property.getKey())).append("\");\n");
+        }
+        source.append("\n    private ").append(className).append("() {\n    }\n}\n");
+
+        final JavaFileObject file = processingEnv.getFiler().createSourceFile(qualifiedName, type);
+        try (Writer writer = file.openWriter()) {
+            writer.write(source.toString());
+        }
+    }
+
+    /**
+     * The properties Jackson serializes with its default visibility, by name, in declaration order.
+     */
+    private Map<String, TypeMirror> findProperties(final TypeElement type) {
+        final Map<String, TypeMirror> types = new LinkedHashMap<>();
+        final Map<String, Boolean> visible = new LinkedHashMap<>();
+        final Map<String, String> renames = new LinkedHashMap<>();
+        final Set<String> ignored = new HashSet<>();
+        for (Element member : processingEnv.getElementUtils().getAllMembers(type)) {
+            if (member.getModifiers().contains(Modifier.STATIC)) {
+                continue;
+            }
+            final String name;
+            final TypeMirror propertyType;
+            boolean isVisible = member.getModifiers().contains(Modifier.PUBLIC);
+            if (member.getKind() == ElementKind.FIELD) {
+                if (member.getModifiers().contains(Modifier.TRANSIENT)) {
+                    continue;
+                }
+                name = member.getSimpleName().toString();
+                propertyType = ((VariableElement) member).asType();
+            } else if (member.getKind() == ElementKind.METHOD) {
+                final ExecutableElement method = (ExecutableElement) member;
+                name = getterPropertyName(method);
+                if (name == null) {
+                    continue;
+                }
+                propertyType = method.getReturnType();
+            } else {
+                continue;
+            }
+            if (hasAnnotation(member, JSON_IGNORE)) {
+                ignored.add(name);
+            }
+            final String explicitName = jsonPropertyName(member);
+            if (explicitName != null) {
+                isVisible = true;
+                if (!explicitName.isEmpty()) {
+                    renames.put(name, explicitName);
+                }
+            }
+            if (ID_ANNOTATIONS.stream().anyMatch(annotation -> hasAnnotation(member, annotation))) {
+                renames.put(name, "_id");
+            }
+            // getters win over fields for the type, as they do for the serializer
+            if (member.getKind() == ElementKind.METHOD || !types.containsKey(name)) {
+                types.put(name, propertyType);
+            }
+            visible.merge(name, isVisible, Boolean::logicalOr);
+        }
+        final Map<String, TypeMirror> properties = new LinkedHashMap<>();
+        for (Map.Entry<String, TypeMirror> entry : types.entrySet()) {
+            final String name = entry.getKey();
+            if (visible.get(name) && !ignored.contains(name)) {
+                properties.putIfAbsent(renames.getOrDefault(name, name), entry.getValue());
+            }
+        }
+        return properties;
+    }
+
+    private String getterPropertyName(final ExecutableElement method) {
+        if (!method.getParameters().isEmpty() || !method.getTypeParameters().isEmpty()
+            || method.getReturnType().getKind() == TypeKind.VOID) {
+            return null;
+        }
+        final String name = method.getSimpleName().toString();
+        if (name.startsWith("get") && name.length() > 3 && !name.equals("getClass")) {
+            return manglePropertyName(name.substring(3));
+        }
+        if (name.startsWith("is") && name.length() > 2 && method.getReturnType().getKind() == TypeKind.BOOLEAN) {
+            return manglePropertyName(name.substring(2));
+        }
+        return null;
+    }
+
+    /**
+     * Lower cases the leading upper case characters, like Jackson does with the names of getters by default.
+     */
+    static String manglePropertyName(final String baseName) {
+        final StringBuilder name = new StringBuilder(baseName);
+        for (int i = 0; i < name.length(); i++) {
+            final char upper = name.charAt(i);
+            final char lower = Character.toLowerCase(upper);
+            if (upper == lower) {
+                break;
+            }
+            name.setCharAt(i, lower);
+        }
+        return name.toString();
+    }
+
+    private String declaration(final String entity, final TypeMirror propertyType) {
+        final TypeMirror type = boxed(propertyType);
+        final TypeMirror element = upperBound(collectionElement(type));
+        if (element != null) {
+            return METAMODEL_PACKAGE + "ArrayProperty<" + entity + ", " + render(element) + ">";
+        }
+        if (isNumber(type)) {
+            return METAMODEL_PACKAGE + "NumberProperty<" + entity + ", " + render(type) + ">";
+        }
+        return METAMODEL_PACKAGE + "Property<" + entity + ", " + render(type) + ">";
+    }
+
+    private String constructor(final TypeMirror propertyType) {
+        final TypeMirror type = boxed(propertyType);
+        if (collectionElement(type) != null) {
+            return METAMODEL_PACKAGE + "ArrayProperty<>";
+        }
+        if (isNumber(type)) {
+            return METAMODEL_PACKAGE + "NumberProperty<>";
+        }
+        return METAMODEL_PACKAGE + "Property<>";
+    }
+
+    /**
+     * @return the type boxed if it's a primitive, erased if it's a type variable
+     */
+    private TypeMirror boxed(final TypeMirror type) {
+        if (type.getKind() == TypeKind.TYPEVAR) {
+            return processingEnv.getTypeUtils().erasure(type);
+        }
+        if (type.getKind().isPrimitive()) {
+            return processingEnv.getTypeUtils().boxedClass((PrimitiveType) type).asType();
+        }
+        return type;
+    }
+
+    private boolean isNumber(final TypeMirror type) {
+        final TypeElement number = processingEnv.getElementUtils().getTypeElement("java.lang.Number");
+        return type.getKind() == TypeKind.DECLARED && processingEnv.getTypeUtils().isAssignable(type, number.asType());
+    }
+
+    /**
+     * @return the type of the elements if the type is a collection, Object if they can't be worked out, or null if
+     * it isn't a collection
+     */
+    private TypeMirror collectionElement(final TypeMirror type) {
+        if (type.getKind() != TypeKind.DECLARED) {
+            return null;
+        }
+        final Types types = processingEnv.getTypeUtils();
+        final TypeElement collection = processingEnv.getElementUtils().getTypeElement("java.util.Collection");
+        if (!types.isAssignable(types.erasure(type), types.erasure(collection.asType()))) {
+            return null;
+        }
+        for (TypeMirror supertype = type; supertype != null; supertype = collectionSupertype(supertype, collection)) {
+            final DeclaredType declared = (DeclaredType) supertype;
+            if (declared.asElement().equals(collection)) {
+                final List<? extends TypeMirror> arguments = declared.getTypeArguments();
+                return arguments.size() == 1 ? arguments.get(0) : objectType();
+            }
+        }
+        return objectType();
+    }
+
+    private TypeMirror collectionSupertype(final TypeMirror type, final TypeElement collection) {
+        final Types types = processingEnv.getTypeUtils();
+        for (TypeMirror supertype : types.directSupertypes(type)) {
+            if (supertype.getKind() == TypeKind.DECLARED
+                && types.isAssignable(types.erasure(supertype), types.erasure(collection.asType()))) {
+                return supertype;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the bound of a wildcard, as the type of the elements of a collection, or the type as is
+     */
+    private TypeMirror upperBound(final TypeMirror type) {
+        if (type != null && type.getKind() == TypeKind.WILDCARD) {
+            final TypeMirror extendsBound = ((WildcardType) type).getExtendsBound();
+            return extendsBound != null ? extendsBound : objectType();
+        }
+        return type;
+    }
+
+    private TypeMirror objectType() {
+        return processingEnv.getElementUtils().getTypeElement("java.lang.Object").asType();
+    }
+
+    /**
+     * Writes a type the way it can be used as a type argument in the metamodel, with type variables, which aren't in
+     * scope there, as their bounds.
+     */
+    private String render(final TypeMirror type) {
+        switch (type.getKind()) {
+            case DECLARED:
+                final DeclaredType declared = (DeclaredType) type;
+                final String name = ((TypeElement) declared.asElement()).getQualifiedName().toString();
+                if (declared.getTypeArguments().isEmpty()) {
+                    return name;
+                }
+                return name + declared.getTypeArguments().stream().map(this::render).collect(Collectors.joining(", ", "<", ">"));
+            case ARRAY:
+                return render(((ArrayType) type).getComponentType()) + "[]";
+            case WILDCARD:
+                final TypeMirror extendsBound = ((WildcardType) type).getExtendsBound();
+                final TypeMirror superBound = ((WildcardType) type).getSuperBound();
+                if (extendsBound != null) {
+                    return "? extends " + render(extendsBound);
+                } else if (superBound != null) {
+                    return "? super " + render(superBound);
+                }
+                return "?";
+            case TYPEVAR:
+                return render(processingEnv.getTypeUtils().erasure(type));
+            default:
+                return type.toString();
+        }
+    }
+
+    private static boolean isAccessible(final TypeElement type) {
+        for (Element element = type; element.getKind().isClass() || element.getKind().isInterface(); element = element.getEnclosingElement()) {
+            if (element.getModifiers().contains(Modifier.PRIVATE)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Outer_Inner_ for a class Inner nested in Outer.
+     */
+    private static String metamodelName(final TypeElement type) {
+        final StringBuilder name = new StringBuilder(type.getSimpleName()).append('_');
+        for (Element element = type.getEnclosingElement(); element.getKind().isClass() || element.getKind().isInterface(); element = element.getEnclosingElement()) {
+            name.insert(0, element.getSimpleName() + "_");
+        }
+        return name.toString();
+    }
+
+    static String constantName(final String propertyName) {
+        final StringBuilder name = new StringBuilder();
+        for (int i = 0; i < propertyName.length(); i++) {
+            final char c = propertyName.charAt(i);
+            name.append(i == 0 ? (Character.isJavaIdentifierStart(c) ? c : '_') : (Character.isJavaIdentifierPart(c) ? c : '_'));
+        }
+        if (name.length() == 0 || !SourceVersion.isName(name)) {
+            name.append('_');
+        }
+        return name.toString();
+    }
+
+    private static String escape(final String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"");
+    }
+
+    private static boolean hasAnnotation(final Element element, final String annotation) {
+        return findAnnotation(element, annotation) != null;
+    }
+
+    private static AnnotationMirror findAnnotation(final Element element, final String annotation) {
+        for (AnnotationMirror mirror : element.getAnnotationMirrors()) {
+            if (((TypeElement) mirror.getAnnotationType().asElement()).getQualifiedName().contentEquals(annotation)) {
+                return mirror;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the name given with {@code @JsonProperty}, empty if it doesn't give one, or null if there's no
+     * {@code @JsonProperty}
+     */
+    private static String jsonPropertyName(final Element element) {
+        final AnnotationMirror mirror = findAnnotation(element, JSON_PROPERTY);
+        if (mirror == null) {
+            return null;
+        }
+        for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> value : mirror.getElementValues().entrySet()) {
+            if (value.getKey().getSimpleName().contentEquals("value")) {
+                return value.getValue().getValue().toString();
+            }
+        }
+        return "";
+    }
+}
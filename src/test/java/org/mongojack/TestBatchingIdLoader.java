@@ -0,0 +1,131 @@
+package org.mongojack;
+
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class TestBatchingIdLoader extends MongoDBTestBase {
+
+    @Test
+    public void testLoadsWithinTheWindow() {
+        JacksonMongoCollection<Loaded> coll = getCollection(Loaded.class);
+        coll.insert(new Loaded("1", "one"), new Loaded("2", "two"), new Loaded("3", "three"));
+
+        try (BatchingIdLoader<Loaded> loader = new BatchingIdLoader<>(coll, 100, Duration.ofMillis(50))) {
+            CompletableFuture<Loaded> one = loader.load("1");
+            CompletableFuture<Loaded> two = loader.load("2");
+            CompletableFuture<Loaded> oneAgain = loader.load("1");
+            CompletableFuture<Loaded> missing = loader.load("missing");
+
+            assertThat(one.join().name).isEqualTo("one");
+            assertThat(two.join().name).isEqualTo("two");
+            // the callers of the same id don't share a mutable object
+            assertThat(oneAgain.join()).isNotSameAs(one.join());
+            assertThat(oneAgain.join().name).isEqualTo("one");
+            assertThat(missing.join()).isNull();
+            assertThat(loader.get("3").name).isEqualTo("three");
+        }
+    }
+
+    @Test
+    public void testSendsFullBatches() {
+        JacksonMongoCollection<Loaded> coll = getCollection(Loaded.class);
+        List<Loaded> all = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            all.add(new Loaded(Integer.toString(i), "name" + i));
+        }
+        coll.insert(all);
+
+        // the window is too long for the test to pass unless the batches are sent as soon as they are full
+        try (BatchingIdLoader<Loaded> loader = new BatchingIdLoader<>(coll, 5, Duration.ofMinutes(1))) {
+            List<CompletableFuture<Loaded>> futures = new ArrayList<>();
+            for (int i = 0; i < 10; i++) {
+                futures.add(loader.load(Integer.toString(i)));
+            }
+            for (int i = 0; i < 10; i++) {
+                assertThat(futures.get(i).join().name).isEqualTo("name" + i);
+            }
+        }
+    }
+
+    @Test
+    public void testConcurrentCallers() throws Exception {
+        JacksonMongoCollection<Loaded> coll = getCollection(Loaded.class);
+        coll.insert(new Loaded("1", "one"), new Loaded("2", "two"));
+        ExecutorService callers = Executors.newFixedThreadPool(8);
+        ExecutorService queries = Executors.newCachedThreadPool();
+        try (BatchingIdLoader<Loaded> loader = new BatchingIdLoader<>(coll, 50, Duration.ofMillis(5), queries)) {
+            List<Future<String>> names = new ArrayList<>();
+            for (int i = 0; i < 100; i++) {
+                final String id = Integer.toString(i % 3 + 1);
+                names.add(callers.submit(() -> {
+                    Loaded loaded = loader.get(id);
+                    return loaded == null ? null : loaded.name;
+                }));
+            }
+            for (int i = 0; i < 100; i++) {
+                assertThat(names.get(i).get()).isEqualTo(i % 3 == 0 ? "one" : i % 3 == 1 ? "two" : null);
+            }
+        } finally {
+            callers.shutdown();
+            queries.shutdown();
+        }
+    }
+
+    @Test
+    public void testCloseSendsThePendingBatch() {
+        JacksonMongoCollection<Loaded> coll = getCollection(Loaded.class);
+        coll.insert(new Loaded("1", "one"));
+
+        BatchingIdLoader<Loaded> loader = new BatchingIdLoader<>(coll, 100, Duration.ofMinutes(1));
+        CompletableFuture<Loaded> one = loader.load("1");
+        loader.close();
+
+        assertThat(one.join().name).isEqualTo("one");
+        assertThatThrownBy(() -> loader.load("1")).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    public void testFindsIdsStoredAsAnotherNumericType() {
+        JacksonMongoCollection<LongIdLoaded> coll = getCollection(LongIdLoaded.class);
+        // written by something else as an int32, where the mapper writes the id as an int64
+        getUnderlyingCollection(coll).insertOne(new Document("_id", 1).append("name", "one"));
+        getUnderlyingCollection(coll).insertOne(new Document("_id", 2.0).append("name", "two"));
+
+        try (BatchingIdLoader<LongIdLoaded> loader = new BatchingIdLoader<>(coll, 100, Duration.ofMillis(5))) {
+            CompletableFuture<LongIdLoaded> one = loader.load(1L);
+            CompletableFuture<LongIdLoaded> two = loader.load(2L);
+
+            assertThat(one.join().name).isEqualTo("one");
+            assertThat(two.join().name).isEqualTo("two");
+        }
+    }
+
+    public static class LongIdLoaded {
+        public Long _id;
+        public String name;
+    }
+
+    public static class Loaded {
+        public String _id;
+        public String name;
+
+        public Loaded() {
+        }
+
+        public Loaded(String _id, String name) {
+            this._id = _id;
+            this.name = name;
+        }
+    }
+}
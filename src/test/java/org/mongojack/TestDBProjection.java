@@ -16,13 +16,21 @@
  */
 package org.mongojack;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.exc.UnrecognizedPropertyException;
 import com.mongodb.client.model.Filters;
 import com.mongodb.client.model.Projections;
+import org.bson.BsonInt32;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mongojack.internal.stream.JacksonDecoder;
+import org.mongojack.mock.MockEmbeddedObject;
 import org.mongojack.mock.MockObject;
 
+import java.util.Arrays;
+
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.junit.jupiter.api.Assertions.assertNull;
 
 
@@ -112,4 +120,65 @@ public class TestDBProjection extends MongoDBTestBase {
         assertThat(result.longs).isEqualTo(20l);
     }
 
+    @Test
+    public void testDerivedProjectionForDocumentClass() {
+        MockObject o = new MockObject("string", 10);
+        o.longs = 20l;
+        o.object = new MockEmbeddedObject();
+        o.object.value = "value";
+        o.object.list = Arrays.asList("a", "b");
+        coll.save(o);
+
+        // Summary fails on the fields it doesn't have, so these only work if they aren't fetched
+        JacksonMongoCollection<MockObject> projected = projectedCollection();
+        Summary summary = projected.withDocumentClass(Summary.class).find().first();
+        assertThat(summary.string).isEqualTo("string");
+        assertThat(summary.object.value).isEqualTo("value");
+        assertThat(projected.find(Filters.eq("_id", o._id), Summary.class).first().object.value).isEqualTo("value");
+    }
+
+    @Test
+    public void testExplicitProjectionReplacesDerivedOne() {
+        MockObject o = new MockObject("string", 10);
+        o.object = new MockEmbeddedObject();
+        o.object.value = "value";
+        coll.save(o);
+
+        Summary summary = projectedCollection().withDocumentClass(Summary.class).find().projection(Projections.include("string")).first();
+        assertThat(summary.string).isEqualTo("string");
+        assertNull(summary.object);
+    }
+
+    @Test
+    public void testProjectionPushdownOffByDefault() {
+        coll.save(new MockObject("string", 10));
+
+        assertThatThrownBy(() -> coll.withDocumentClass(Summary.class).find().first())
+            .hasRootCauseInstanceOf(UnrecognizedPropertyException.class);
+    }
+
+    @Test
+    public void testDerivedProjectionIsNotShared() {
+        JacksonDecoder<Summary> decoder = new JacksonDecoder<>(Summary.class, null, new ObjectMapper(), uuidRepresentation);
+        decoder.getProjection().append("integer", new BsonInt32(1));
+
+        assertThat(decoder.getProjection().containsKey("integer")).isFalse();
+    }
+
+    private JacksonMongoCollection<MockObject> projectedCollection() {
+        return JacksonMongoCollection.builder()
+            .withProjectionPushdown(true)
+            .build(getMongoCollection(coll.getName(), MockObject.class), MockObject.class, uuidRepresentation);
+    }
+
+    public static class Summary {
+        public String _id;
+        public String string;
+        public EmbeddedSummary object;
+    }
+
+    public static class EmbeddedSummary {
+        public String value;
+    }
+
 }
@@ -0,0 +1,198 @@
+package org.mongojack;
+
+import com.mongodb.client.ClientSession;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Updates;
+import org.bson.BsonString;
+import org.bson.Document;
+import org.bson.RawBsonDocument;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class TestEntityCache extends MongoDBTestBase {
+
+    @Test
+    public void testHitsDecodeCopies() {
+        JacksonMongoCollection<Cached> coll = getCollection(Cached.class, JacksonMongoCollection.builder().withEntityCache(10, Duration.ofMinutes(1)));
+        coll.insert(new Cached("1", "one"));
+
+        Cached first = coll.findOneById("1");
+        first.name = "changed";
+        Cached second = coll.findOneById("1");
+
+        assertThat(second).isNotSameAs(first);
+        assertThat(second.name).isEqualTo("one");
+        EntityCache.Stats stats = coll.getEntityCache().getStats();
+        assertThat(stats.getMisses()).isEqualTo(1);
+        assertThat(stats.getHits()).isEqualTo(1);
+        assertThat(stats.getSize()).isEqualTo(1);
+        assertThat(coll.findOneById("missing")).isNull();
+        assertThat(coll.getEntityCache().getStats().getSize()).isEqualTo(1);
+    }
+
+    @Test
+    public void testWritesThroughTheCollectionInvalidate() {
+        JacksonMongoCollection<Cached> coll = getCollection(Cached.class, JacksonMongoCollection.builder().withEntityCache(10, Duration.ofMinutes(1)));
+        coll.insert(new Cached("1", "one"), new Cached("2", "two"));
+        coll.findOneById("1");
+        coll.findOneById("2");
+
+        coll.updateById("1", Updates.set("name", "uno"));
+        assertThat(coll.getEntityCache().getStats().getSize()).isEqualTo(1);
+        assertThat(coll.findOneById("1").name).isEqualTo("uno");
+
+        coll.withDocumentClass(Document.class).updateMany(Filters.eq("name", "two"), Updates.set("name", "dos"));
+        assertThat(coll.getEntityCache().getStats().getSize()).isEqualTo(0);
+        assertThat(coll.findOneById("2").name).isEqualTo("dos");
+
+        coll.save(new Cached("2", "deux"));
+        assertThat(coll.findOneById("2").name).isEqualTo("deux");
+        coll.removeById("2");
+        assertThat(coll.findOneById("2")).isNull();
+    }
+
+    @Test
+    public void testEviction() throws Exception {
+        JacksonMongoCollection<Cached> coll = getCollection(Cached.class, JacksonMongoCollection.builder().withEntityCache(2, Duration.ofSeconds(1)));
+        coll.insert(new Cached("1", "one"), new Cached("2", "two"), new Cached("3", "three"));
+        coll.findOneById("1");
+        coll.findOneById("2");
+        coll.findOneById("1");
+        coll.findOneById("3");
+
+        EntityCache.Stats stats = coll.getEntityCache().getStats();
+        assertThat(stats.getEvictions()).isEqualTo(1);
+        assertThat(stats.getSize()).isEqualTo(2);
+
+        // writes made elsewhere go unnoticed until the document expires
+        getUnderlyingCollection(coll).updateOne(new Document("_id", "1"), Updates.set("name", "uno"));
+        assertThat(coll.findOneById("1").name).isEqualTo("one");
+        Thread.sleep(1100);
+        assertThat(coll.findOneById("1").name).isEqualTo("uno");
+        assertThat(coll.getEntityCache().getStats().getEvictions()).isEqualTo(2);
+    }
+
+    @Test
+    public void testChangeStreamInvalidates() throws Exception {
+        JacksonMongoCollection<Cached> coll = getCollection(
+            Cached.class,
+            JacksonMongoCollection.builder().withEntityCache(10, Duration.ofMinutes(1)).withEntityCacheChangeStream(true)
+        );
+        try {
+            coll.insert(new Cached("1", "one"));
+            // documents are cached once the stream is open
+            awaitTrue(() -> {
+                coll.findOneById("1");
+                return coll.getEntityCache().getStats().getSize() == 1;
+            });
+
+            getUnderlyingCollection(coll).updateOne(new Document("_id", "1"), Updates.set("name", "uno"));
+            awaitTrue(() -> "uno".equals(coll.findOneById("1").name));
+        } finally {
+            coll.close();
+        }
+    }
+
+    @Test
+    public void testWritesToOtherDocumentsDontKeepReadsFromBeingCached() {
+        EntityCache cache = new EntityCache(10, Duration.ofMinutes(1));
+        BsonString one = new BsonString("1");
+        RawBsonDocument document = RawBsonDocument.parse("{_id: '1'}");
+
+        long generation = cache.getGeneration(one);
+        cache.invalidate(new BsonString("2"));
+        cache.put(one, document, generation);
+        assertThat(cache.get(one)).isSameAs(document);
+
+        generation = cache.getGeneration(one);
+        cache.invalidate(one);
+        cache.put(one, document, generation);
+        assertThat(cache.get(one)).isNull();
+
+        generation = cache.getGeneration(one);
+        cache.invalidateAll();
+        cache.put(one, document, generation);
+        assertThat(cache.get(one)).isNull();
+    }
+
+    @Test
+    public void testEvictionKeepsTheDocumentsReadAgain() {
+        EntityCache cache = new EntityCache(100, Duration.ofMinutes(1));
+        for (int i = 0; i < 100; i++) {
+            put(cache, i);
+        }
+        // half of them are read again, spread over the whole table
+        for (int i = 0; i < 100; i += 2) {
+            assertThat(cache.get(new BsonString(String.valueOf(i)))).isNotNull();
+        }
+        for (int i = 100; i < 150; i++) {
+            put(cache, i);
+        }
+
+        assertThat(cache.getStats().getEvictions()).isEqualTo(50);
+        assertThat(cache.getStats().getSize()).isEqualTo(100);
+        for (int i = 0; i < 100; i++) {
+            RawBsonDocument document = cache.get(new BsonString(String.valueOf(i)));
+            if (i % 2 == 0) {
+                assertThat(document).as("document %s", i).isNotNull();
+            } else {
+                assertThat(document).as("document %s", i).isNull();
+            }
+        }
+    }
+
+    private static void put(final EntityCache cache, final int i) {
+        BsonString id = new BsonString(String.valueOf(i));
+        cache.put(id, RawBsonDocument.parse("{_id: '" + i + "'}"), cache.getGeneration(id));
+    }
+
+    @Test
+    public void testTransactionWritesAreNotCachedBeforeCommit() {
+        JacksonMongoCollection<Cached> coll = getCollection(Cached.class, JacksonMongoCollection.builder().withEntityCache(10, Duration.ofMinutes(1)));
+        coll.insert(new Cached("1", "one"));
+
+        try (ClientSession session = mongo.startSession()) {
+            session.startTransaction();
+            coll.updateOne(session, Filters.eq("_id", "1"), Updates.set("name", "uno"));
+            // read outside the transaction, before it commits
+            assertThat(coll.findOneById("1").name).isEqualTo("one");
+            assertThat(coll.getEntityCache().getStats().getSize()).isEqualTo(0);
+            session.commitTransaction();
+        }
+
+        assertThat(coll.findOneById("1").name).isEqualTo("uno");
+        assertThat(coll.getEntityCache().getStats().getSize()).isEqualTo(1);
+    }
+
+    @Test
+    public void testChangeStreamNeedsCache() {
+        assertThatThrownBy(() -> getCollection(Cached.class, JacksonMongoCollection.builder().withEntityCacheChangeStream(true)))
+            .isInstanceOf(IllegalStateException.class);
+    }
+
+    private static void awaitTrue(Supplier<Boolean> condition) throws InterruptedException {
+        final long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        while (!condition.get()) {
+            assertThat(System.nanoTime()).as("condition met in time").isLessThan(deadline);
+            Thread.sleep(50);
+        }
+    }
+
+    public static class Cached {
+        public String _id;
+        public String name;
+
+        public Cached() {
+        }
+
+        public Cached(String _id, String name) {
+            this._id = _id;
+            this.name = name;
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package org.mongojack;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.mongodb.client.model.Updates;
+import com.mongodb.client.result.UpdateResult;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class TestEntityTracking extends MongoDBTestBase {
+
+    @Test
+    public void testSaveChangesWritesOnlyChanges() {
+        JacksonMongoCollection<Tracked> coll = getCollection(Tracked.class, JacksonMongoCollection.builder().withEntityTracking(true));
+        Tracked tracked = new Tracked();
+        tracked.name = "a";
+        tracked.tags = new ArrayList<>(Arrays.asList("x", "y"));
+        tracked.attributes = new LinkedHashMap<>();
+        tracked.attributes.put("size", 1);
+        coll.saveChanges(tracked);
+        assertThat(tracked._id).isNotNull();
+        getUnderlyingCollection(coll).updateOne(new Document("_id", tracked._id), Updates.set("other", 5));
+
+        Tracked loaded = coll.findOneById(tracked._id);
+        assertThat(coll.saveChanges(loaded).getModifiedCount()).isEqualTo(0);
+
+        loaded.tags.add("z");
+        loaded.attributes.put("size", 2);
+        loaded.name = null;
+        UpdateResult result = coll.saveChanges(loaded);
+        assertThat(result.getMatchedCount()).isEqualTo(1);
+
+        Document stored = getUnderlyingCollection(coll).find(new Document("_id", tracked._id)).first();
+        assertThat(stored.get("tags", List.class)).containsExactly("x", "y", "z");
+        assertThat(stored.get("attributes", Document.class).get("size")).isEqualTo(2);
+        assertThat(stored.containsKey("name")).isFalse();
+        // fields the entity doesn't map are left alone
+        assertThat(stored.get("other")).isEqualTo(5);
+
+        loaded.tags.set(0, "w");
+        coll.saveChanges(loaded);
+        assertThat(coll.findOneById(tracked._id).tags).containsExactly("w", "y", "z");
+    }
+
+    @Test
+    public void testSaveChangesNeedsTracking() {
+        JacksonMongoCollection<Tracked> coll = getCollection(Tracked.class);
+        assertThatThrownBy(() -> coll.saveChanges(new Tracked())).isInstanceOf(IllegalStateException.class);
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class Tracked {
+        @ObjectId
+        @Id
+        public String _id;
+        public String name;
+        public List<String> tags;
+        public Map<String, Object> attributes;
+    }
+}
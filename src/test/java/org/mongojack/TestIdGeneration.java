@@ -0,0 +1,153 @@
+package org.mongojack;
+
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class TestIdGeneration extends MongoDBTestBase {
+
+    @Test
+    public void testObjectIdGenerator() {
+        JacksonMongoCollection<ObjectIdGenerated> coll = getCollection(ObjectIdGenerated.class);
+        List<ObjectIdGenerated> objects = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            objects.add(new ObjectIdGenerated());
+        }
+        objects.get(0)._id = new org.bson.types.ObjectId().toHexString();
+
+        coll.insert(objects);
+        assertThat(objects).allSatisfy(object -> assertThat(org.bson.types.ObjectId.isValid(object._id)).isTrue());
+        assertThat(objects.stream().map(object -> object._id).distinct()).hasSize(10);
+        assertThat(coll.findOneById(objects.get(5)._id)).isNotNull();
+
+        ObjectIdGenerated single = new ObjectIdGenerated();
+        coll.insertOne(single);
+        assertThat(coll.findOneById(single._id)).isNotNull();
+    }
+
+    @Test
+    public void testUuidV7Generator() {
+        JacksonMongoCollection<UuidGenerated> coll = getCollection(UuidGenerated.class);
+        UuidGenerated object = new UuidGenerated();
+
+        coll.insert(object);
+        assertThat(object._id.version()).isEqualTo(7);
+        assertThat(object._id.variant()).isEqualTo(2);
+        assertThat(coll.findOneById(object._id)).isNotNull();
+    }
+
+    @Test
+    public void testHiLoIdGenerator() {
+        JacksonMongoCollection<HiLoGenerated> coll = getCollection(
+            HiLoGenerated.class,
+            JacksonMongoCollection.builder().withIdGenerators(new HiLoIdGenerator(getMongoCollection(Document.class), 5))
+        );
+        List<HiLoGenerated> objects = new ArrayList<>();
+        for (int i = 0; i < 7; i++) {
+            objects.add(new HiLoGenerated());
+        }
+
+        coll.insert(objects);
+        HiLoGenerated single = new HiLoGenerated();
+        coll.insert(single);
+        objects.add(single);
+        assertThat(objects.stream().map(object -> object._id).collect(Collectors.toList()))
+            .containsExactly(1L, 2L, 3L, 4L, 5L, 6L, 7L, 8L);
+        assertThat(coll.findOneById(8L)).isNotNull();
+    }
+
+    @Test
+    public void testHiLoIdGeneratorWithAPrimitiveId() {
+        JacksonMongoCollection<PrimitiveHiLoGenerated> coll = getCollection(
+            PrimitiveHiLoGenerated.class,
+            JacksonMongoCollection.builder().withIdGenerators(new HiLoIdGenerator(getMongoCollection(Document.class), 5))
+        );
+        List<PrimitiveHiLoGenerated> objects = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            objects.add(new PrimitiveHiLoGenerated());
+        }
+        objects.get(2)._id = 100L;
+
+        coll.insert(objects);
+        PrimitiveHiLoGenerated single = new PrimitiveHiLoGenerated();
+        coll.insert(single);
+        objects.add(single);
+        assertThat(objects.stream().map(object -> object._id).collect(Collectors.toList())).containsExactly(1L, 2L, 100L, 3L);
+        assertThat(coll.countDocuments()).isEqualTo(4);
+    }
+
+    @Test
+    public void testHiLoIdGeneratorsCreatingTheSameSequence() throws Exception {
+        // generators of separate processes, all creating the sequence at once
+        List<HiLoIdGenerator> generators = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            generators.add(new HiLoIdGenerator(getMongoCollection(Document.class), 5));
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(generators.size());
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<List<Long>>> results = new ArrayList<>();
+            for (HiLoIdGenerator generator : generators) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return generator.generate(HiLoGenerated.class, 12);
+                }));
+            }
+            start.countDown();
+
+            List<Long> ids = new ArrayList<>();
+            for (Future<List<Long>> result : results) {
+                ids.addAll(result.get());
+            }
+            assertThat(ids).hasSize(8 * 12).doesNotHaveDuplicates();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testGeneratedIdOfTheWrongTypeFails() {
+        JacksonMongoCollection<MismatchedGenerated> coll = getCollection(MismatchedGenerated.class);
+
+        assertThatThrownBy(() -> coll.insert(new MismatchedGenerated()))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessageContaining(UuidV7Generator.class.getName());
+        assertThat(coll.countDocuments()).isZero();
+    }
+
+    @IdGeneration(ObjectIdGenerator.class)
+    public static class ObjectIdGenerated {
+        public String _id;
+    }
+
+    @IdGeneration(UuidV7Generator.class)
+    public static class UuidGenerated {
+        public UUID _id;
+    }
+
+    @IdGeneration(HiLoIdGenerator.class)
+    public static class HiLoGenerated {
+        public Long _id;
+    }
+
+    @IdGeneration(HiLoIdGenerator.class)
+    public static class PrimitiveHiLoGenerated {
+        public long _id;
+    }
+
+    @IdGeneration(UuidV7Generator.class)
+    public static class MismatchedGenerated {
+        public Integer _id;
+    }
+}
@@ -27,7 +27,9 @@ import org.junit.jupiter.api.Test;
 import org.mongojack.mock.MockObject;
 import org.mongojack.mock.MockObjectWithWriteReadOnlyFields;
 
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -147,4 +149,52 @@ public class TestJacksonCodecRegistry extends MongoDBTestBase {
         assertThat(result2.string).isEqualTo("thirty");
     }
 
+    @Test
+    public void testWarmUp() {
+        JacksonCodecRegistry jacksonCodecRegistry = new JacksonCodecRegistry(ObjectMapperConfigurer.configureObjectMapper(new ObjectMapper()), coll.getCodecRegistry(), uuidRepresentation);
+        Map<Class<?>, Duration> durations = jacksonCodecRegistry.warmUp(MockObject.class, MockObjectWithWriteReadOnlyFields.class);
+        assertThat(durations).containsOnlyKeys(MockObject.class, MockObjectWithWriteReadOnlyFields.class);
+
+        MockObject object = new MockObject("1", "ten", 10);
+        coll.withCodecRegistry(jacksonCodecRegistry).insertOne(object);
+        assertThat(coll.withCodecRegistry(jacksonCodecRegistry).find(new Document("string", "ten")).first()).isEqualTo(object);
+    }
+
+    @Test
+    public void testParallelWarmUp() {
+        JacksonCodecRegistry jacksonCodecRegistry = new JacksonCodecRegistry(ObjectMapperConfigurer.configureObjectMapper(new ObjectMapper()), coll.getCodecRegistry(), uuidRepresentation);
+        Map<Class<?>, Duration> durations = jacksonCodecRegistry.warmUp(ForkJoinPool.commonPool(), MockObject.class, MockObjectWithWriteReadOnlyFields.class);
+        assertThat(durations.keySet()).containsExactly(MockObject.class, MockObjectWithWriteReadOnlyFields.class);
+    }
+
+    @Test
+    public void testParallelWarmUpOnBuild() {
+        JacksonMongoCollection<MockObject> warmed = getCollection(
+            MockObject.class,
+            JacksonMongoCollection.builder().withWarmUp(ForkJoinPool.commonPool(), MockObjectWithWriteReadOnlyFields.class)
+        );
+
+        MockObject object = new MockObject("1", "ten", 10);
+        warmed.insertOne(object);
+        assertThat(warmed.findOneById("1")).isEqualTo(object);
+    }
+
+    @Test
+    public void testSharedRegistries() {
+        JacksonCodecRegistryFactory factory = new JacksonCodecRegistryFactory();
+        ObjectMapper objectMapper = ObjectMapperConfigurer.configureObjectMapper(new ObjectMapper());
+        JacksonCodecRegistry registry = factory.getRegistry(objectMapper, coll.getCodecRegistry(), null, uuidRepresentation);
+        registry.addCodecForClass(MockObject.class);
+
+        assertThat(factory.getRegistry(objectMapper, coll.getCodecRegistry(), null, uuidRepresentation)).isSameAs(registry);
+        assertThat(factory.getRegistry(objectMapper, coll.getCodecRegistry(), Object.class, uuidRepresentation)).isNotSameAs(registry);
+        assertThat(factory.getRegistry(ObjectMapperConfigurer.configureObjectMapper(new ObjectMapper()), coll.getCodecRegistry(), null, uuidRepresentation))
+            .isNotSameAs(registry);
+
+        JacksonCodecRegistryFactory.Stats stats = factory.getStats();
+        assertThat(stats.getRequests()).isEqualTo(4);
+        assertThat(stats.getHits()).isEqualTo(1);
+        assertThat(stats.getCachedCodecs()).isGreaterThanOrEqualTo(1);
+    }
+
 }
@@ -0,0 +1,179 @@
+/*
+ * Copyright 2011 VZ Netzwerke Ltd
+ * Copyright 2014 devbliss GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mongojack;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mongodb.MongoClientSettings;
+import com.mongodb.client.model.mql.MqlValue;
+import org.bson.BsonDocument;
+import org.bson.BsonDocumentWriter;
+import org.bson.BsonInt32;
+import org.bson.BsonString;
+import org.bson.Document;
+import org.bson.RawBsonDocument;
+import org.bson.UuidRepresentation;
+import org.bson.codecs.BsonDocumentCodec;
+import org.bson.codecs.Codec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+import org.bson.codecs.configuration.CodecConfigurationException;
+import org.bson.codecs.configuration.CodecRegistry;
+import org.junit.jupiter.api.Test;
+import org.mongojack.internal.stream.JacksonCodec;
+import org.mongojack.mock.MockObject;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Checks that {@link JacksonCodecRegistry} hands out the same codec for every lookup of a class, whether it's ours or
+ * comes from the default registry.
+ */
+public class TestJacksonCodecRegistryLookup {
+
+    private final CodecRegistry defaultRegistry = MongoClientSettings.getDefaultCodecRegistry();
+    private final JacksonCodecRegistry registry = new JacksonCodecRegistry(
+        ObjectMapperConfigurer.configureObjectMapper(new ObjectMapper()), defaultRegistry, UuidRepresentation.STANDARD
+    );
+
+    @Test
+    public void testRepeatedLookupsReturnTheSameCodec() {
+        Codec<MockObject> codec = registry.get(MockObject.class);
+
+        assertThat(codec).isInstanceOf(JacksonCodec.class);
+        assertThat(registry.get(MockObject.class)).isSameAs(codec);
+        assertThat(registry.addCodecForClass(MockObject.class)).isSameAs(codec);
+        assertThat(registry.get(MockObject.class, defaultRegistry)).isSameAs(codec);
+        assertThat(registry.getCachedCodecCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void testDefaultClassesComeFromTheDefaultRegistry() {
+        assertThat(registry.get(Document.class)).isNotInstanceOf(JacksonCodec.class)
+            .isSameAs(registry.get(Document.class))
+            .hasSameClassAs(defaultRegistry.get(Document.class));
+        assertThat(registry.get(BsonDocument.class)).isNotInstanceOf(JacksonCodec.class)
+            .hasSameClassAs(defaultRegistry.get(BsonDocument.class));
+        assertThat(registry.get(String.class)).isNotInstanceOf(JacksonCodec.class)
+            .hasSameClassAs(defaultRegistry.get(String.class));
+        assertThat(registry.get(Document.class, defaultRegistry)).isNotInstanceOf(JacksonCodec.class);
+        assertThat(registry.getCachedCodecCount()).isZero();
+    }
+
+    @Test
+    public void testDefaultClassesWithoutACodecAreNotCached() {
+        assertThatThrownBy(() -> registry.get(UnknownBson.class)).isInstanceOf(CodecConfigurationException.class);
+        assertThatThrownBy(() -> registry.get(UnknownBson.class)).isInstanceOf(CodecConfigurationException.class);
+        assertThat(registry.getCachedCodecCount()).isZero();
+    }
+
+    @Test
+    public void testConcurrentLookupsReturnTheSameCodec() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        try {
+            List<Callable<Codec<?>[]>> lookups = new ArrayList<>();
+            for (int i = 0; i < 64; i++) {
+                lookups.add(() -> new Codec<?>[]{registry.get(MockObject.class), registry.get(Document.class)});
+            }
+            List<Future<Codec<?>[]>> results = executor.invokeAll(lookups);
+
+            Codec<?>[] first = results.get(0).get();
+            for (Future<Codec<?>[]> result : results) {
+                assertThat(result.get()[0]).isSameAs(first[0]);
+                assertThat(result.get()[1]).isSameAs(first[1]);
+            }
+            assertThat(registry.getCachedCodecCount()).isEqualTo(1);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public void testEncodedDocumentsAreReadAsStored() {
+        Codec<EncodedDocument> codec = registry.get(EncodedDocument.class);
+        RawBsonDocument stored = new RawBsonDocument(new BsonDocument("_id", new BsonString("1")).append("integer", new BsonInt32(10)), new BsonDocumentCodec());
+
+        EncodedDocument<?> read = codec.decode(stored.asBsonReader(), DecoderContext.builder().build());
+        assertThat(read.getDocument()).isEqualTo(stored);
+        assertThat(read.getId()).isEqualTo(new BsonString("1"));
+
+        BsonDocument written = new BsonDocument();
+        codec.encode(new BsonDocumentWriter(written), read, EncoderContext.builder().build());
+        assertThat(written).isEqualTo(stored);
+    }
+
+    @Test
+    public void testIdGeneratorsBelongToTheRegistry() {
+        ObjectIdGenerator given = new ObjectIdGenerator();
+        JacksonCodecRegistry withGenerator = new JacksonCodecRegistry(
+            ObjectMapperConfigurer.configureObjectMapper(new ObjectMapper()), defaultRegistry, null, UuidRepresentation.STANDARD, new IdGenerators(given)
+        );
+
+        assertThat(withGenerator.getIdGenerator(ObjectIdGenerator.class)).isSameAs(given);
+        assertThat(registry.getIdGenerator(ObjectIdGenerator.class)).isNotSameAs(given)
+            .isSameAs(registry.getIdGenerator(ObjectIdGenerator.class));
+        assertThatThrownBy(() -> registry.getIdGenerator(HiLoIdGenerator.class)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testIdsAreGeneratedForPrimitiveIdsThatAreNotSet() {
+        JacksonCodecRegistry withGenerator = new JacksonCodecRegistry(
+            ObjectMapperConfigurer.configureObjectMapper(new ObjectMapper()), defaultRegistry, null, UuidRepresentation.STANDARD,
+            new IdGenerators(new CountingGenerator())
+        );
+        JacksonCodec<PrimitiveId> codec = (JacksonCodec<PrimitiveId>) withGenerator.get(PrimitiveId.class);
+
+        PrimitiveId notSet = new PrimitiveId();
+        codec.generateIdIfAbsentFromDocument(notSet);
+        assertThat(notSet._id).isEqualTo(1L);
+
+        PrimitiveId set = new PrimitiveId();
+        set._id = 5L;
+        codec.generateIdIfAbsentFromDocument(set);
+        assertThat(set._id).isEqualTo(5L);
+    }
+
+    @IdGeneration(CountingGenerator.class)
+    public static class PrimitiveId {
+        public long _id;
+    }
+
+    public static class CountingGenerator implements IdGenerator<Long> {
+        private final AtomicLong last = new AtomicLong();
+
+        @Override
+        public Long generate(final Class<?> documentClass) {
+            return last.incrementAndGet();
+        }
+    }
+
+    /**
+     * An MqlValue the default registry has no codec for.
+     */
+    public abstract static class UnknownBson implements MqlValue {
+    }
+}
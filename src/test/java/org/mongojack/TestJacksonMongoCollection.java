@@ -18,24 +18,33 @@ package org.mongojack;
 
 import com.fasterxml.jackson.annotation.JsonTypeInfo;
 import com.mongodb.BasicDBObject;
+import com.mongodb.MongoBulkWriteException;
 import com.mongodb.WriteConcern;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
 import com.mongodb.client.model.*;
 import com.mongodb.client.result.UpdateResult;
+import org.bson.BsonString;
 import org.bson.Document;
+import org.bson.RawBsonDocument;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mongojack.internal.util.FindIterableDecorator;
 import org.mongojack.mock.MockObject;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 import java.util.Objects;
 import java.util.StringJoiner;
+import java.util.concurrent.ForkJoinPool;
 import java.util.stream.Collectors;
 import java.util.stream.StreamSupport;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowableOfType;
 
 
 public class TestJacksonMongoCollection extends MongoDBTestBase {
@@ -71,6 +80,111 @@ public class TestJacksonMongoCollection extends MongoDBTestBase {
         assertThat(results).contains(o1, o2);
     }
 
+    @Test
+    public void testInsertParallel() {
+        List<MockObject> objects = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            objects.add(new MockObject("parallel", i));
+        }
+        coll.insertParallel(objects, 4);
+
+        assertThat(objects).allMatch(object -> object._id != null);
+        assertThat(coll.find(Filters.eq("string", "parallel")).sort(Sorts.ascending("integer")).into(new ArrayList<>()))
+            .containsExactlyElementsOf(objects);
+    }
+
+    @Test
+    public void testParallelDecode() {
+        List<MockObject> objects = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            objects.add(new MockObject("decoded", i));
+        }
+        coll.insert(objects);
+        ForkJoinPool pool = new ForkJoinPool(2);
+        try {
+            FindIterableDecorator<MockObject> find = (FindIterableDecorator<MockObject>) coll.find(Filters.eq("string", "decoded"))
+                .sort(Sorts.ascending("integer"))
+                .batchSize(7);
+            assertThat(find.parallelDecode(pool, true, 4).into(new ArrayList<>())).containsExactlyElementsOf(objects);
+
+            List<MockObject> aggregated = coll.decodeParallel(
+                coll.aggregate(Collections.singletonList(Aggregates.match(Filters.eq("string", "decoded"))), RawBsonDocument.class),
+                pool,
+                false,
+                8
+            ).into(new ArrayList<>());
+            assertThat(aggregated).containsExactlyInAnyOrderElementsOf(objects);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testBulkWriteParallelKeepsErrorIndexes() {
+        MockObject existing = new MockObject("1", "one", 1);
+        coll.insert(existing);
+        MockObject replacement = new MockObject("1", "uno", 1);
+        ForkJoinPool pool = new ForkJoinPool(2);
+        try {
+            MongoBulkWriteException e = catchThrowableOfType(
+                () -> coll.bulkWriteParallel(
+                    Arrays.asList(
+                        new InsertOneModel<>(new MockObject("two", 2)),
+                        new ReplaceOneModel<>(Filters.eq("_id", "1"), replacement),
+                        new InsertOneModel<>(new MockObject("1", "duplicate", 1)),
+                        new DeleteOneModel<>(Filters.eq("string", "missing"))
+                    ),
+                    new BulkWriteOptions().ordered(false),
+                    pool
+                ),
+                MongoBulkWriteException.class
+            );
+            assertThat(e.getWriteErrors()).extracting(BulkWriteError::getIndex).containsExactly(2);
+        } finally {
+            pool.shutdown();
+        }
+        assertThat(coll.findOneById("1").string).isEqualTo("uno");
+        assertThat(coll.find(Filters.eq("string", "two")).first()).isNotNull();
+    }
+
+    @Test
+    public void testEncodedDocuments() {
+        MockObject object = new MockObject("encoded", 1);
+        EncodedDocument<MockObject> encoded = coll.encode(object);
+        assertThat(object._id).isNotNull();
+        object.string = "changed";
+        coll.insertOne(encoded);
+        assertThat(coll.findOneById(object._id).string).isEqualTo("encoded");
+
+        coll.save(coll.encode(object), WriteConcern.ACKNOWLEDGED);
+        assertThat(coll.findOneById(object._id).string).isEqualTo("changed");
+
+        object.integer = 2;
+        coll.replaceOne(Filters.eq("_id", object._id), coll.encode(object));
+        assertThat(coll.findOneById(object._id).integer).isEqualTo(2);
+
+        MockObject other = new MockObject("other", 3);
+        BulkWriteResult result = coll.bulkWriteEncoded(
+            Arrays.asList(
+                new InsertOneModel<>(coll.encode(other)),
+                new ReplaceOneModel<>(Filters.eq("_id", object._id), coll.encode(new MockObject(object._id, "replaced", 4)))
+            ),
+            new BulkWriteOptions()
+        );
+        assertThat(result.getInsertedCount()).isEqualTo(1);
+        assertThat(result.getModifiedCount()).isEqualTo(1);
+        assertThat(coll.findOneById(other._id)).isEqualTo(other);
+        assertThat(coll.findOneById(object._id).string).isEqualTo("replaced");
+
+        // read back as stored, and written again as they were read
+        EncodedDocument<?> read = coll.withDocumentClass(EncodedDocument.class).find(Filters.eq("_id", other._id)).first();
+        assertThat(read).isNotNull();
+        assertThat(read.getId()).isEqualTo(new BsonString(other._id));
+        coll.deleteOne(Filters.eq("_id", other._id));
+        coll.withDocumentClass(EncodedDocument.class).insertOne(read);
+        assertThat(coll.findOneById(other._id)).isEqualTo(other);
+    }
+
     @JsonTypeInfo(include = JsonTypeInfo.As.PROPERTY, use = JsonTypeInfo.Id.CLASS)
     interface GenericFieldValue {
 
@@ -0,0 +1,139 @@
+package org.mongojack;
+
+import com.mongodb.client.FindIterable;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.Sorts;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class TestKeysetPagination extends MongoDBTestBase {
+
+    @Test
+    public void testPagesThroughInSortOrder() {
+        JacksonMongoCollection<Paged> coll = getCollection(Paged.class);
+        List<Paged> all = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            // ties on rank are broken by _id
+            all.add(new Paged(i % 5, new Date(1000L * (i % 3))));
+        }
+        coll.insert(all);
+
+        List<Paged> paged = new ArrayList<>();
+        String continuation = null;
+        int pages = 0;
+        do {
+            Page<Paged> page = coll.findPage(Filters.gte("rank", 1), Sorts.orderBy(Sorts.descending("rank"), Sorts.ascending("created")), 7, continuation);
+            assertThat(page.getItems().size()).isLessThanOrEqualTo(7);
+            paged.addAll(page.getItems());
+            continuation = page.getContinuation();
+            pages++;
+        } while (continuation != null);
+
+        assertThat(pages).isEqualTo(3);
+        assertThat(paged).hasSize(20);
+        assertThat(paged).extracting(p -> p._id).doesNotHaveDuplicates();
+        for (int i = 1; i < paged.size(); i++) {
+            Paged previous = paged.get(i - 1);
+            Paged current = paged.get(i);
+            assertThat(current.rank).isLessThanOrEqualTo(previous.rank);
+            if (current.rank == previous.rank) {
+                assertThat(current.created).isAfterOrEqualTo(previous.created);
+            }
+        }
+    }
+
+    @Test
+    public void testPagesInIdOrderWithoutSort() {
+        JacksonMongoCollection<Paged> coll = getCollection(Paged.class);
+        for (int i = 0; i < 5; i++) {
+            coll.insert(new Paged(i, new Date()));
+        }
+
+        Page<Paged> first = coll.findPage(null, null, 5, null);
+        assertThat(first.getItems()).hasSize(5);
+        assertThat(first.hasNext()).isFalse();
+        assertThat(first.getItems()).extracting(p -> p.rank).containsExactly(0, 1, 2, 3, 4);
+    }
+
+    @Test
+    public void testContinuationMustMatchTheSort() {
+        JacksonMongoCollection<Paged> coll = getCollection(Paged.class);
+        coll.insert(new Paged(1, new Date()), new Paged(2, new Date()));
+
+        Page<Paged> first = coll.findPage(null, Sorts.ascending("rank"), 1, null);
+        assertThatThrownBy(() -> coll.findPage(null, Sorts.descending("rank"), 1, first.getContinuation()))
+            .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> coll.findPage(null, Sorts.ascending("rank"), 1, "not a continuation"))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void testPartitionsFindEveryDocumentOnce() {
+        JacksonMongoCollection<Paged> coll = getCollection(Paged.class);
+        List<Paged> all = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            all.add(new Paged(i, new Date()));
+        }
+        coll.insert(all);
+
+        List<FindIterable<Paged>> partitions = coll.findPartitions(Filters.lt("rank", 150), 4);
+        assertThat(partitions.size()).isBetween(2, 4);
+        List<Integer> ranks = new ArrayList<>();
+        partitions.parallelStream()
+            .map(partition -> partition.into(new ArrayList<>()))
+            .forEachOrdered(found -> found.forEach(p -> ranks.add(p.rank)));
+        assertThat(ranks).hasSize(150).doesNotHaveDuplicates().allMatch(rank -> rank < 150);
+
+        assertThat(coll.findPartitions(null, 1)).hasSize(1);
+    }
+
+    @Test
+    public void testPartitionsFindIdsOfOtherTypes() {
+        JacksonMongoCollection<Paged> coll = getCollection(Paged.class);
+        List<Paged> all = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            all.add(new Paged(i, new Date()));
+        }
+        coll.insert(all);
+
+        List<FindIterable<Paged>> partitions = coll.findPartitions(null, 4);
+        assertThat(partitions.size()).isBetween(2, 4);
+        // written after the sample was taken, with ids of types no range of ObjectIds matches, and that Paged can't read
+        getUnderlyingCollection(coll).insertMany(Arrays.asList(
+            new Document("_id", "a string").append("rank", 200),
+            new Document("_id", 201).append("rank", 201),
+            new Document("_id", 202.5).append("rank", 202),
+            new Document("_id", new Document("compound", true)).append("rank", 203)
+        ));
+
+        List<Integer> ranks = new ArrayList<>();
+        for (FindIterable<Paged> partition : partitions) {
+            partition.projection(Projections.fields(Projections.include("rank"), Projections.excludeId())).forEach(p -> ranks.add(p.rank));
+        }
+        assertThat(ranks).hasSize(204).doesNotHaveDuplicates();
+    }
+
+    public static class Paged {
+        @ObjectId
+        public String _id;
+        public int rank;
+        public Date created;
+
+        public Paged() {
+        }
+
+        public Paged(int rank, Date created) {
+            this.rank = rank;
+            this.created = created;
+        }
+    }
+}
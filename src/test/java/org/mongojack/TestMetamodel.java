@@ -0,0 +1,123 @@
+package org.mongojack;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mongojack.metamodel.ArrayProperty;
+import org.mongojack.metamodel.NumberProperty;
+import org.mongojack.metamodel.Property;
+import org.mongojack.metamodel.TypedFilter;
+import org.mongojack.metamodel.TypedUpdate;
+import org.mongojack.metamodel.processor.MetamodelProcessor;
+
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.ToolProvider;
+import java.io.File;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TestMetamodel extends MongoDBTestBase {
+
+    @Test
+    public void testTypedFiltersAndUpdates() {
+        JacksonMongoCollection<Entity> coll = getCollection(Entity.class);
+        Entity entity = new Entity();
+        entity.ref = new org.bson.types.ObjectId().toHexString();
+        entity.status = Status.OPEN;
+        entity.tags = Arrays.asList("a", "b");
+        entity.count = 1;
+        coll.insert(entity, new Entity());
+
+        assertThat(coll.find(Entity_.ref.eq(entity.ref)).first()._id).isEqualTo(entity._id);
+        assertThat(coll.countDocuments(TypedFilter.and(Entity_.status.in(Arrays.asList(Status.OPEN, Status.HELD)), Entity_.tags.contains("b")))).isEqualTo(1);
+        assertThat(coll.countDocuments(TypedFilter.or(Entity_.count.gt(0), Entity_.tags.eq(null)))).isEqualTo(2);
+
+        coll.updateOne(
+            Entity_._id.eq(entity._id),
+            TypedUpdate.combine(Entity_.status.set(Status.HELD), Entity_.count.inc(2), Entity_.tags.push("c"))
+        );
+        Entity updated = coll.findOneById(entity._id);
+        assertThat(updated.status).isEqualTo(Status.HELD);
+        assertThat(updated.count).isEqualTo(3);
+        assertThat(updated.tags).containsExactly("a", "b", "c");
+        assertThat(coll.find().filter(Entity_.tags.containsAll(Arrays.asList("a", "c"))).first()._id).isEqualTo(entity._id);
+    }
+
+    @Test
+    public void testProcessorGeneratesMetamodel(@TempDir Path generated) throws Exception {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        JavaFileObject source = new SimpleJavaFileObject(URI.create("string:///demo/Person.java"), JavaFileObject.Kind.SOURCE) {
+            @Override
+            public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+                return "package demo;\n" +
+                    "@org.mongojack.MongoCollection(name = \"people\")\n" +
+                    "public class Person {\n" +
+                    "    @org.mongojack.Id public String id;\n" +
+                    "    @com.fasterxml.jackson.annotation.JsonProperty(\"full_name\") public String name;\n" +
+                    "    @com.fasterxml.jackson.annotation.JsonIgnore public String password;\n" +
+                    "    private int age;\n" +
+                    "    public java.util.List<String> nicknames;\n" +
+                    "    public int getAge() { return age; }\n" +
+                    "}\n";
+            }
+        };
+        String classpath = classpathOf(MongoCollection.class) + File.pathSeparator + classpathOf(JsonProperty.class);
+        JavaCompiler.CompilationTask task = compiler.getTask(
+            null, null, null,
+            Arrays.asList("-proc:only", "-classpath", classpath, "-s", generated.toString()),
+            null,
+            Collections.singletonList(source)
+        );
+        task.setProcessors(Collections.singletonList(new MetamodelProcessor()));
+        assertThat(task.call()).isTrue();
+
+        String metamodel = new String(Files.readAllBytes(generated.resolve("demo/Person_.java")));
+        assertThat(metamodel)
+            .contains("public final class Person_")
+            .contains("Property<demo.Person, java.lang.String> _id")
+            .contains("Property<demo.Person, java.lang.String> full_name")
+            .contains("NumberProperty<demo.Person, java.lang.Integer> age")
+            .contains("ArrayProperty<demo.Person, java.lang.String> nicknames")
+            .doesNotContain("password");
+    }
+
+    private static String classpathOf(Class<?> clazz) throws Exception {
+        return Paths.get(clazz.getProtectionDomain().getCodeSource().getLocation().toURI()).toString();
+    }
+
+    public enum Status {
+        OPEN, HELD
+    }
+
+    @MongoCollection(name = "entities")
+    public static class Entity {
+        @ObjectId
+        @Id
+        public String _id;
+        @ObjectId
+        public String ref;
+        public Status status;
+        public List<String> tags;
+        public int count;
+    }
+
+    /**
+     * What the metamodel processor generates for {@link Entity}.
+     */
+    static final class Entity_ {
+        static final Property<Entity, String> _id = new Property<>(Entity.class, "_id");
+        static final Property<Entity, String> ref = new Property<>(Entity.class, "ref");
+        static final Property<Entity, Status> status = new Property<>(Entity.class, "status");
+        static final ArrayProperty<Entity, String> tags = new ArrayProperty<>(Entity.class, "tags");
+        static final NumberProperty<Entity, Integer> count = new NumberProperty<>(Entity.class, "count");
+    }
+}
@@ -28,9 +28,12 @@ import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import com.mongodb.DBRef;
 import com.mongodb.client.MongoCollection;
 import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.UpdateOneModel;
 import org.bson.BsonMaxKey;
 import org.bson.BsonMinKey;
 import org.bson.Document;
+import org.mongojack.internal.util.DocumentSerializationUtils;
+import org.mongojack.internal.util.SerializerLookupCache;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
@@ -356,6 +359,70 @@ public class TestQuerySerialization extends MongoDBTestBase {
         assertEquals(o1.id, coll.find(Filters.and(Filters.lte("_id", new BsonMaxKey()))).first().id);
     }
 
+    @SuppressWarnings({"ConstantConditions"})
+    @Test
+    public void testMinKeyNextToSerializedValue() {
+        MockObject o1 = new MockObject();
+        coll.insert(o1);
+
+        assertEquals(o1.id, coll.find(Filters.and(Filters.gte("_id", new BsonMinKey()), Filters.eq("_id", o1.id))).first().id);
+    }
+
+    @Test
+    public void testSerializerLookupsAreCached() {
+        MockObject o1 = new MockObject();
+        coll.insert(o1);
+        SerializerLookupCache cache = DocumentSerializationUtils.getSerializerLookupCache();
+
+        assertNotNull(coll.findOne(Filters.eq("_id", o1.id)));
+        long hits = cache.getHits();
+        assertNotNull(coll.findOne(Filters.eq("_id", o1.id)));
+        assertThat(cache.getHits()).isGreaterThan(hits);
+        assertThat(cache.size()).isLessThanOrEqualTo(SerializerLookupCache.DEFAULT_MAX_SIZE);
+    }
+
+    @SuppressWarnings({"ConstantConditions"})
+    @Test
+    public void testPreparedFilter() {
+        MockObject o1 = new MockObject();
+        o1.i = 5;
+        MockObject o2 = new MockObject();
+        o2.i = 20;
+        coll.insert(o1, o2);
+
+        PreparedBson byId = coll.prepareFilter(Filters.eq("_id", PreparedBson.parameter("id")));
+        assertThat(byId.getParameterNames()).containsExactly("id");
+        assertEquals(o1.id, coll.find(byId.bind(o1.id)).first().id);
+        assertEquals(o2.id, coll.find(byId.bind(Collections.singletonMap("id", o2.id))).first().id);
+
+        // values go through the property serializers, so 12 is compared as 22
+        PreparedBson lessThan = coll.prepareFilter(Filters.lt("i", PreparedBson.parameter("i")));
+        assertEquals(1, coll.countDocuments(lessThan.bind(12)));
+        assertEquals(2, coll.countDocuments(lessThan.bind(25)));
+
+        PreparedBson inIds = coll.prepareFilter(new Document("_id", new Document("$in", PreparedBson.parameter("ids"))));
+        assertEquals(2, coll.countDocuments(inIds.bind(Arrays.asList(o1.id, o2.id))));
+        assertEquals(1, coll.countDocuments(inIds.bind((Object) new String[] {o2.id})));
+
+        assertThrows(IllegalArgumentException.class, () -> byId.bind(o1.id, o2.id));
+    }
+
+    @SuppressWarnings({"ConstantConditions"})
+    @Test
+    public void testPreparedUpdate() {
+        MockObject o1 = new MockObject();
+        MockObject o2 = new MockObject();
+        coll.insert(o1, o2);
+
+        PreparedBson byId = coll.prepareFilter(Filters.eq("_id", PreparedBson.parameter("id")));
+        PreparedBson setText = coll.prepareUpdate(new Document("$set", new Document("text", PreparedBson.parameter("text"))));
+        coll.updateOne(byId.bind(o1.id), setText.bind("one"));
+        coll.bulkWrite(Collections.singletonList(new UpdateOneModel<>(byId.bind(o2.id), setText.bind("two"))));
+
+        assertEquals("one", coll.findOneById(o1.id).text);
+        assertEquals("two", coll.findOneById(o2.id).text);
+    }
+
     static class MockObject {
         @ObjectId
         @Id
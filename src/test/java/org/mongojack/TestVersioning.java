@@ -0,0 +1,120 @@
+package org.mongojack;
+
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.Indexes;
+import com.mongodb.client.model.ReplaceOneModel;
+import com.mongodb.client.model.Updates;
+import com.mongodb.client.model.WriteModel;
+import org.bson.BsonObjectId;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class TestVersioning extends MongoDBTestBase {
+
+    @Test
+    public void testSaveChecksAndIncrementsVersion() {
+        JacksonMongoCollection<Versioned> coll = getCollection(Versioned.class);
+        Versioned versioned = new Versioned();
+        versioned.name = "a";
+        coll.save(versioned);
+        assertThat(versioned.version).isEqualTo(0L);
+
+        Versioned first = coll.findOneById(versioned._id);
+        Versioned second = coll.findOneById(versioned._id);
+        first.name = "b";
+        coll.save(first);
+        assertThat(first.version).isEqualTo(1L);
+
+        second.name = "c";
+        assertThatThrownBy(() -> coll.save(second))
+            .isInstanceOf(VersionConflictException.class)
+            .satisfies(e -> assertThat(((VersionConflictException) e).getIds()).containsExactly(new BsonObjectId(new org.bson.types.ObjectId(versioned._id))));
+        assertThat(second.version).isEqualTo(0L);
+        assertThatThrownBy(() -> coll.replaceOneById(second._id, second)).isInstanceOf(VersionConflictException.class);
+        assertThat(coll.findOneById(versioned._id).name).isEqualTo("b");
+
+        coll.updateById(versioned._id, Updates.set("name", "d"));
+        Versioned updated = coll.findOneById(versioned._id);
+        assertThat(updated.name).isEqualTo("d");
+        assertThat(updated.version).isEqualTo(2L);
+        coll.updateOne(Filters.eq("name", "d"), Updates.set("name", "e"));
+        assertThat(coll.findOneById(versioned._id).version).isEqualTo(2L);
+        assertThatThrownBy(() -> coll.updateById(versioned._id, 1L, Updates.set("name", "e"))).isInstanceOf(VersionConflictException.class);
+        coll.updateById(versioned._id, 2L, Updates.combine(Updates.set("name", "e"), Updates.inc("count", 2)));
+        updated = coll.findOneById(versioned._id);
+        assertThat(updated.version).isEqualTo(3L);
+        assertThat(updated.count).isEqualTo(2);
+        coll.updateById(versioned._id, 3L, Updates.inc("version", 5));
+        assertThat(coll.findOneById(versioned._id).version).isEqualTo(8L);
+    }
+
+    @Test
+    public void testFailedBulkWriteKeepsVersions() {
+        JacksonMongoCollection<Versioned> coll = getCollection(Versioned.class);
+        coll.createIndex(Indexes.ascending("name"), new IndexOptions().unique(true));
+        Versioned a = new Versioned();
+        a.name = "a";
+        Versioned b = new Versioned();
+        b.name = "b";
+        coll.saveAll(Arrays.asList(a, b));
+
+        a.name = "a2";
+        b.name = "a2";
+        List<WriteModel<Versioned>> requests = Arrays.asList(
+            new ReplaceOneModel<>(coll.createIdQuery(a._id), a),
+            new ReplaceOneModel<>(coll.createIdQuery(b._id), b)
+        );
+        assertThatThrownBy(() -> coll.bulkWrite(requests)).isInstanceOf(MongoBulkWriteException.class);
+        // the first replacement was written, the second failed on the unique index
+        assertThat(a.version).isEqualTo(1L);
+        assertThat(b.version).isEqualTo(0L);
+
+        b.name = "b2";
+        coll.bulkWrite(Collections.singletonList(new ReplaceOneModel<>(coll.createIdQuery(b._id), b)));
+        assertThat(b.version).isEqualTo(1L);
+        assertThat(coll.findOneById(b._id).name).isEqualTo("b2");
+    }
+
+    @Test
+    public void testSaveAllReportsConflicts() {
+        JacksonMongoCollection<Versioned> coll = getCollection(Versioned.class);
+        Versioned a = new Versioned();
+        Versioned b = new Versioned();
+        coll.saveAll(Arrays.asList(a, b));
+        assertThat(a.version).isEqualTo(0L);
+
+        Versioned stale = coll.findOneById(b._id);
+        b.name = "newer";
+        coll.save(b);
+
+        a.name = "a";
+        stale.name = "stale";
+        Versioned c = new Versioned();
+        assertThatThrownBy(() -> coll.saveAll(Arrays.asList(a, stale, c)))
+            .isInstanceOf(VersionConflictException.class)
+            .satisfies(e -> assertThat(((VersionConflictException) e).getIds()).hasSize(1));
+        assertThat(a.version).isEqualTo(1L);
+        assertThat(stale.version).isEqualTo(0L);
+        assertThat(coll.findOneById(a._id).name).isEqualTo("a");
+        assertThat(coll.findOneById(b._id).name).isEqualTo("newer");
+        assertThat(coll.findOneById(c._id)).isNotNull();
+    }
+
+    public static class Versioned {
+        @ObjectId
+        @Id
+        public String _id;
+        public String name;
+        public int count;
+        @Version
+        public Long version;
+    }
+}
@@ -0,0 +1,108 @@
+package org.mongojack.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.bson.BsonBinaryWriter;
+import org.bson.UuidRepresentation;
+import org.bson.codecs.EncoderContext;
+import org.bson.io.BasicOutputBuffer;
+import org.mongojack.ObjectMapperConfigurer;
+import org.mongojack.internal.stream.DBEncoderBsonGenerator;
+import org.mongojack.internal.stream.JacksonEncoder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encoding of a large document with nested objects and arrays to a {@link BsonBinaryWriter}: written to its output
+ * directly, as the encoder does, and through the writer's own state machine and validation.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DirectEncodeBenchmark {
+
+    private static final EncoderContext ENCODER_CONTEXT = EncoderContext.builder().build();
+
+    private JacksonEncoder<Order> encoder;
+    private ObjectWriter objectWriter;
+    private DBEncoderBsonGenerator.Pool generatorPool;
+    private Order order;
+    private BasicOutputBuffer buffer;
+
+    @Setup
+    public void setUp() {
+        ObjectMapper objectMapper = ObjectMapperConfigurer.configureObjectMapper(new ObjectMapper());
+        encoder = new JacksonEncoder<>(Order.class, null, objectMapper, UuidRepresentation.STANDARD);
+        objectWriter = objectMapper.writerFor(Order.class);
+        generatorPool = new DBEncoderBsonGenerator.Pool(UuidRepresentation.STANDARD);
+        order = new Order();
+        order._id = "order-1";
+        order.customer = new Customer();
+        order.customer.name = "A customer";
+        order.customer.email = "customer@example.com";
+        order.customer.created = new Date(0);
+        order.lines = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            Line line = new Line();
+            line.sku = "sku-" + i;
+            line.quantity = i;
+            line.price = i * 1.5;
+            line.tags = new ArrayList<>();
+            line.tags.add("tag");
+            order.lines.add(line);
+        }
+        buffer = new BasicOutputBuffer(64 * 1024);
+    }
+
+    @Benchmark
+    public int encodeToOutput() {
+        buffer.truncateToPosition(0);
+        encoder.encode(new BsonBinaryWriter(buffer), order, ENCODER_CONTEXT);
+        return buffer.getPosition();
+    }
+
+    @Benchmark
+    public int encodeThroughWriter() throws IOException {
+        buffer.truncateToPosition(0);
+        DBEncoderBsonGenerator generator = generatorPool.acquireAndLinkPooled().rebind(new BsonBinaryWriter(buffer));
+        objectWriter.writeValue(generator, order);
+        generator.releaseToPool();
+        return buffer.getPosition();
+    }
+
+    public static class Order {
+        public String _id;
+        public Customer customer;
+        public List<Line> lines;
+    }
+
+    public static class Customer {
+        public String name;
+        public String email;
+        public Date created;
+    }
+
+    public static class Line {
+        public String sku;
+        public int quantity;
+        public double price;
+        public List<String> tags;
+    }
+}
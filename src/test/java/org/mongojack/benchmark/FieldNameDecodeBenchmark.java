@@ -0,0 +1,77 @@
+package org.mongojack.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import org.bson.BsonBinaryReader;
+import org.bson.BsonDocument;
+import org.bson.BsonInt32;
+import org.bson.RawBsonDocument;
+import org.bson.UuidRepresentation;
+import org.bson.codecs.BsonDocumentCodec;
+import org.bson.codecs.DecoderContext;
+import org.mongojack.ObjectMapperConfigurer;
+import org.mongojack.internal.stream.DBDecoderBsonParser;
+import org.mongojack.internal.stream.JacksonDecoder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decoding of a document with many fields into a map, which keeps every field name: from bytes, where the names are
+ * canonicalized, and through a {@link BsonBinaryReader}, which decodes every name afresh.  Run with {@code -prof gc}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FieldNameDecodeBenchmark {
+
+    private static final DecoderContext DECODER_CONTEXT = DecoderContext.builder().build();
+
+    private JacksonDecoder<Map> decoder;
+    private ObjectReader objectReader;
+    private DBDecoderBsonParser.Pool parserPool;
+    private byte[] bytes;
+
+    @Setup
+    public void setUp() {
+        ObjectMapper objectMapper = ObjectMapperConfigurer.configureObjectMapper(new ObjectMapper());
+        decoder = new JacksonDecoder<>(Map.class, null, objectMapper, UuidRepresentation.STANDARD);
+        objectReader = objectMapper.readerFor(Map.class);
+        parserPool = new DBDecoderBsonParser.Pool(objectMapper, UuidRepresentation.STANDARD);
+        BsonDocument document = new BsonDocument();
+        for (int i = 0; i < 24; i++) {
+            document.append("someAttributeName" + i, new BsonInt32(i));
+        }
+        RawBsonDocument raw = new RawBsonDocument(document, new BsonDocumentCodec());
+        bytes = Arrays.copyOf(raw.getByteBuffer().array(), raw.getByteBuffer().remaining());
+    }
+
+    @Benchmark
+    public Map decodeThroughReader() throws IOException {
+        DBDecoderBsonParser parser = parserPool.acquireAndLinkPooled().rebind(new BsonBinaryReader(ByteBuffer.wrap(bytes)));
+        Map value = objectReader.readValue(parser);
+        parser.releaseToPool();
+        return value;
+    }
+
+    @Benchmark
+    public Map decodeFromBytes() {
+        return decoder.decode(new BsonBinaryReader(ByteBuffer.wrap(bytes)), DECODER_CONTEXT);
+    }
+}
@@ -0,0 +1,94 @@
+package org.mongojack.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.bson.BsonBinaryReader;
+import org.bson.BsonDocument;
+import org.bson.BsonDocumentReader;
+import org.bson.BsonDocumentWriter;
+import org.bson.RawBsonDocument;
+import org.bson.UuidRepresentation;
+import org.bson.codecs.BsonDocumentCodec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+import org.mongojack.ObjectMapperConfigurer;
+import org.mongojack.internal.stream.JacksonDecoder;
+import org.mongojack.internal.stream.JacksonEncoder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decoding of a metric-like document, made of dozens of int32, int64 and double fields bound to primitives, whose
+ * allocation per document is mostly boxed numbers unless they are kept unboxed.  Run with {@code -prof gc}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class NumericDecodeBenchmark {
+
+    private static final DecoderContext DECODER_CONTEXT = DecoderContext.builder().build();
+
+    private JacksonDecoder<Metrics> decoder;
+    private BsonDocument document;
+    private byte[] bytes;
+
+    @Setup
+    public void setUp() {
+        ObjectMapper objectMapper = ObjectMapperConfigurer.configureObjectMapper(new ObjectMapper());
+        decoder = new JacksonDecoder<>(Metrics.class, null, objectMapper, UuidRepresentation.STANDARD);
+        Metrics metrics = new Metrics();
+        metrics.timestamp = 1_700_000_000_000L;
+        metrics.count = 12;
+        metrics.min = -1.5;
+        metrics.max = 99.25;
+        metrics.samples = new double[32];
+        metrics.buckets = new long[16];
+        metrics.codes = new int[16];
+        for (int i = 0; i < 32; i++) {
+            metrics.samples[i] = i * 1.25;
+        }
+        for (int i = 0; i < 16; i++) {
+            metrics.buckets[i] = i * 1_000_000_000L;
+            metrics.codes[i] = i;
+        }
+        document = new BsonDocument();
+        new JacksonEncoder<>(Metrics.class, null, objectMapper, UuidRepresentation.STANDARD)
+            .encode(new BsonDocumentWriter(document), metrics, EncoderContext.builder().build());
+        RawBsonDocument raw = new RawBsonDocument(document, new BsonDocumentCodec());
+        bytes = Arrays.copyOf(raw.getByteBuffer().array(), raw.getByteBuffer().remaining());
+    }
+
+    @Benchmark
+    public Metrics decodeFromReader() {
+        return decoder.decode(new BsonDocumentReader(document), DECODER_CONTEXT);
+    }
+
+    @Benchmark
+    public Metrics decodeFromBytes() {
+        return decoder.decode(new BsonBinaryReader(ByteBuffer.wrap(bytes)), DECODER_CONTEXT);
+    }
+
+    public static class Metrics {
+        public long timestamp;
+        public int count;
+        public double min;
+        public double max;
+        public double[] samples;
+        public long[] buckets;
+        public int[] codes;
+    }
+}
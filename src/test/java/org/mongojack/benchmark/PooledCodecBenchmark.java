@@ -0,0 +1,91 @@
+package org.mongojack.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.bson.BsonBinaryReader;
+import org.bson.BsonDocument;
+import org.bson.BsonDocumentReader;
+import org.bson.BsonDocumentWriter;
+import org.bson.RawBsonDocument;
+import org.bson.UuidRepresentation;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+import org.mongojack.ObjectMapperConfigurer;
+import org.mongojack.internal.stream.JacksonDecoder;
+import org.mongojack.internal.stream.JacksonEncoder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Round trips of a small document, where the parser or generator set up per document is a large share of the cost.
+ * Run with {@code -prof gc} to see the allocation per document.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PooledCodecBenchmark {
+
+    private static final DecoderContext DECODER_CONTEXT = DecoderContext.builder().build();
+    private static final EncoderContext ENCODER_CONTEXT = EncoderContext.builder().build();
+
+    private JacksonDecoder<Small> decoder;
+    private JacksonEncoder<Small> encoder;
+    private Small value;
+    private BsonDocument document;
+    private byte[] bytes;
+
+    @Setup
+    public void setUp() {
+        ObjectMapper objectMapper = ObjectMapperConfigurer.configureObjectMapper(new ObjectMapper());
+        decoder = new JacksonDecoder<>(Small.class, null, objectMapper, UuidRepresentation.STANDARD);
+        encoder = new JacksonEncoder<>(Small.class, null, objectMapper, UuidRepresentation.STANDARD);
+        value = new Small();
+        value._id = "id";
+        value.name = "name";
+        value.count = 42;
+        value.tags = Arrays.asList("a", "b");
+        document = new BsonDocument();
+        encoder.encode(new BsonDocumentWriter(document), value, ENCODER_CONTEXT);
+        RawBsonDocument raw = RawBsonDocument.parse(document.toJson());
+        bytes = Arrays.copyOf(raw.getByteBuffer().array(), raw.getByteBuffer().remaining());
+    }
+
+    @Benchmark
+    public Small decodeFromReader() {
+        return decoder.decode(new BsonDocumentReader(document), DECODER_CONTEXT);
+    }
+
+    @Benchmark
+    public Small decodeFromBytes() {
+        return decoder.decode(new BsonBinaryReader(ByteBuffer.wrap(bytes)), DECODER_CONTEXT);
+    }
+
+    @Benchmark
+    public BsonDocument encodeToWriter() {
+        BsonDocument encoded = new BsonDocument();
+        encoder.encode(new BsonDocumentWriter(encoded), value, ENCODER_CONTEXT);
+        return encoded;
+    }
+
+    public static class Small {
+        public String _id;
+        public String name;
+        public int count;
+        public List<String> tags;
+    }
+}
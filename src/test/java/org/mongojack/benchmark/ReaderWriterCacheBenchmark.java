@@ -0,0 +1,152 @@
+package org.mongojack.benchmark;
+
+import com.fasterxml.jackson.annotation.JsonView;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.bson.BsonDocument;
+import org.bson.BsonDocumentReader;
+import org.bson.BsonDocumentWriter;
+import org.bson.UuidRepresentation;
+import org.mongojack.ObjectMapperConfigurer;
+import org.mongojack.internal.stream.DBDecoderBsonParser;
+import org.mongojack.internal.stream.DBEncoderBsonGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decodes and encodes a document with a view, through the reader and writer the codecs build once, and through a
+ * reader and writer built for each document, as the codecs used to.  Both go through the same pooled parser and
+ * generator, so the difference is the reader and writer alone.  Run with {@code -prof gc} to see the allocation per
+ * document.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ReaderWriterCacheBenchmark {
+
+    private ObjectMapper objectMapper;
+    private ObjectReader cachedReader;
+    private ObjectWriter cachedWriter;
+    private DBDecoderBsonParser.Pool parserPool;
+    private DBEncoderBsonGenerator.Pool generatorPool;
+    private Entity value;
+    private BsonDocument document;
+
+    @Setup
+    public void setUp() throws IOException {
+        objectMapper = ObjectMapperConfigurer.configureObjectMapper(new ObjectMapper());
+        cachedReader = objectMapper.readerWithView(Views.Public.class).forType(Entity.class);
+        cachedWriter = objectMapper.writerWithView(Views.Public.class).forType(Entity.class);
+        parserPool = new DBDecoderBsonParser.Pool(objectMapper, UuidRepresentation.STANDARD);
+        generatorPool = new DBEncoderBsonGenerator.Pool(UuidRepresentation.STANDARD);
+        value = new Entity();
+        value._id = "id";
+        value.name = "name";
+        value.description = "description";
+        value.owner = "owner";
+        value.status = "active";
+        value.count = 42;
+        value.version = 3L;
+        value.score = 0.5;
+        value.enabled = true;
+        value.tags = Arrays.asList("a", "b");
+        value.created = 1700000000000L;
+        value.secret = "secret";
+        document = new BsonDocument();
+        write(cachedWriter, value, document);
+    }
+
+    @Benchmark
+    public Entity decodeCached() throws IOException {
+        return read(cachedReader);
+    }
+
+    @Benchmark
+    public Entity decodePerDocument() throws IOException {
+        return read(objectMapper.reader().forType(Entity.class).withView(Views.Public.class));
+    }
+
+    @Benchmark
+    public BsonDocument encodeCached() throws IOException {
+        return write(cachedWriter, value, new BsonDocument());
+    }
+
+    @Benchmark
+    public BsonDocument encodePerDocument() throws IOException {
+        return write(objectMapper.writer().forType(Entity.class).withView(Views.Public.class), value, new BsonDocument());
+    }
+
+    private Entity read(final ObjectReader reader) throws IOException {
+        DBDecoderBsonParser parser = parserPool.acquireAndLinkPooled().rebind(new BsonDocumentReader(document));
+        try {
+            Entity read = reader.readValue(parser);
+            parser.close();
+            return read;
+        } finally {
+            parser.releaseToPool();
+        }
+    }
+
+    private BsonDocument write(final ObjectWriter writer, final Entity entity, final BsonDocument target)
+        throws IOException {
+        DBEncoderBsonGenerator generator = generatorPool.acquireAndLinkPooled().rebind(new BsonDocumentWriter(target));
+        try {
+            writer.writeValue(generator, entity);
+            generator.close();
+            return target;
+        } finally {
+            generator.releaseToPool();
+        }
+    }
+
+    public static class Views {
+        public static class Public {
+        }
+
+        public static class Internal extends Public {
+        }
+    }
+
+    public static class Entity {
+        public String _id;
+        @JsonView(Views.Public.class)
+        public String name;
+        @JsonView(Views.Public.class)
+        public String description;
+        @JsonView(Views.Public.class)
+        public String owner;
+        @JsonView(Views.Public.class)
+        public String status;
+        @JsonView(Views.Public.class)
+        public int count;
+        @JsonView(Views.Public.class)
+        public long version;
+        @JsonView(Views.Public.class)
+        public double score;
+        @JsonView(Views.Public.class)
+        public boolean enabled;
+        @JsonView(Views.Public.class)
+        public List<String> tags;
+        @JsonView(Views.Public.class)
+        public long created;
+        @JsonView(Views.Internal.class)
+        public String secret;
+    }
+}
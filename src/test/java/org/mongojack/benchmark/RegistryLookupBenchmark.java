@@ -0,0 +1,103 @@
+package org.mongojack.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mongodb.MongoClientSettings;
+import org.bson.Document;
+import org.bson.UuidRepresentation;
+import org.bson.codecs.Codec;
+import org.bson.codecs.configuration.CodecRegistry;
+import org.mongojack.JacksonCodecRegistry;
+import org.mongojack.ObjectMapperConfigurer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Warm codec lookups from 64 threads at once, as the driver does for every operation of every collection, with the
+ * memoized registry and with one that classifies the class on each lookup, as the registry used to.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(64)
+@State(Scope.Benchmark)
+public class RegistryLookupBenchmark {
+
+    private JacksonCodecRegistry memoized;
+    private JacksonCodecRegistry classifying;
+
+    @Setup
+    public void setUp() {
+        ObjectMapper objectMapper = ObjectMapperConfigurer.configureObjectMapper(new ObjectMapper());
+        CodecRegistry defaultRegistry = MongoClientSettings.getDefaultCodecRegistry();
+        memoized = new JacksonCodecRegistry(objectMapper, defaultRegistry, UuidRepresentation.STANDARD);
+        classifying = new ClassifyingRegistry(objectMapper, defaultRegistry);
+        for (JacksonCodecRegistry registry : new JacksonCodecRegistry[]{memoized, classifying}) {
+            registry.get(Pojo.class);
+            registry.get(Document.class);
+            registry.get(String.class);
+        }
+    }
+
+    @Benchmark
+    public Codec<Pojo> pojo() {
+        return memoized.get(Pojo.class);
+    }
+
+    @Benchmark
+    public Codec<Document> document() {
+        return memoized.get(Document.class);
+    }
+
+    @Benchmark
+    public Codec<String> string() {
+        return memoized.get(String.class);
+    }
+
+    @Benchmark
+    public Codec<Pojo> pojoClassifying() {
+        return classifying.get(Pojo.class);
+    }
+
+    @Benchmark
+    public Codec<Document> documentClassifying() {
+        return classifying.get(Document.class);
+    }
+
+    @Benchmark
+    public Codec<String> stringClassifying() {
+        return classifying.get(String.class);
+    }
+
+    private static class ClassifyingRegistry extends JacksonCodecRegistry {
+        private final CodecRegistry defaultRegistry;
+
+        ClassifyingRegistry(final ObjectMapper objectMapper, final CodecRegistry defaultRegistry) {
+            super(objectMapper, defaultRegistry, UuidRepresentation.STANDARD);
+            this.defaultRegistry = defaultRegistry;
+        }
+
+        @Override
+        public <T> Codec<T> get(final Class<T> clazz) {
+            return isDefault(clazz) ? defaultRegistry.get(clazz) : addCodecForClass(clazz);
+        }
+    }
+
+    public static class Pojo {
+        public String _id;
+        public String name;
+        public int count;
+    }
+}
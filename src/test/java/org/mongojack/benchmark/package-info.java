@@ -0,0 +1,8 @@
+/**
+ * JMH microbenchmarks of the codec paths.  They are compiled with the tests but aren't run by them; to run them:
+ * <pre>
+ * mvn test-compile dependency:build-classpath -Dmdep.includeScope=test -Dmdep.outputFile=target/classpath.txt
+ * java -cp target/test-classes:target/classes:$(cat target/classpath.txt) org.openjdk.jmh.Main PooledCodecBenchmark -prof gc
+ * </pre>
+ */
+package org.mongojack.benchmark;
@@ -0,0 +1,255 @@
+/*
+ * Copyright 2011 VZ Netzwerke Ltd
+ * Copyright 2014 devbliss GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mongojack.internal.stream;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.bson.AbstractBsonReader;
+import org.bson.BsonArray;
+import org.bson.BsonBinary;
+import org.bson.BsonBinaryReader;
+import org.bson.BsonBinarySubType;
+import org.bson.BsonBoolean;
+import org.bson.BsonDateTime;
+import org.bson.BsonDbPointer;
+import org.bson.BsonDecimal128;
+import org.bson.BsonDocument;
+import org.bson.BsonDocumentReader;
+import org.bson.BsonDouble;
+import org.bson.BsonInt32;
+import org.bson.BsonInt64;
+import org.bson.BsonJavaScript;
+import org.bson.BsonJavaScriptWithScope;
+import org.bson.BsonMaxKey;
+import org.bson.BsonMinKey;
+import org.bson.BsonNull;
+import org.bson.BsonObjectId;
+import org.bson.BsonRegularExpression;
+import org.bson.BsonString;
+import org.bson.BsonSymbol;
+import org.bson.BsonTimestamp;
+import org.bson.BsonType;
+import org.bson.BsonUndefined;
+import org.bson.RawBsonDocument;
+import org.bson.UuidRepresentation;
+import org.bson.codecs.BsonDocumentCodec;
+import org.bson.codecs.DecoderContext;
+import org.bson.types.Decimal128;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Test;
+import org.mongojack.ObjectMapperConfigurer;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.UUID;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks that {@link BsonBytesParser} can't be told apart from the reader based {@link DBDecoderBsonParser}.
+ */
+public class TestBsonBytesParser {
+
+    private final ObjectMapper objectMapper = ObjectMapperConfigurer.configureObjectMapper(new ObjectMapper());
+
+    private static BsonDocument everyType() {
+        return new BsonDocument()
+            .append("double", new BsonDouble(1.5))
+            .append("nan", new BsonDouble(Double.NaN))
+            .append("string", new BsonString("héllo"))
+            .append("emptyString", new BsonString(""))
+            .append("document", new BsonDocument("a", new BsonInt32(1)).append("b", new BsonDocument("c", new BsonString("d"))))
+            .append("emptyDocument", new BsonDocument())
+            .append("array", new BsonArray(Arrays.asList(
+                new BsonInt32(1),
+                new BsonString("two"),
+                new BsonDocument("three", new BsonInt64(3)),
+                new BsonArray(Collections.singletonList(new BsonBoolean(true)))
+            )))
+            .append("emptyArray", new BsonArray())
+            .append("binary", new BsonBinary(new byte[]{1, 2, 3}))
+            .append("oldBinary", new BsonBinary(BsonBinarySubType.OLD_BINARY, new byte[]{4, 5}))
+            .append("uuid", new BsonBinary(UUID.fromString("4fd1a8a6-0cdb-4f8a-a4c1-0d2e1b3d3f1a"), UuidRepresentation.STANDARD))
+            .append("undefined", new BsonUndefined())
+            .append("objectId", new BsonObjectId(new ObjectId()))
+            .append("true", BsonBoolean.TRUE)
+            .append("false", BsonBoolean.FALSE)
+            .append("dateTime", new BsonDateTime(1234567890123L))
+            .append("null", BsonNull.VALUE)
+            .append("regex", new BsonRegularExpression("^a.*b$", "im"))
+            .append("dbPointer", new BsonDbPointer("db.coll", new ObjectId()))
+            .append("javaScript", new BsonJavaScript("function() {}"))
+            .append("symbol", new BsonSymbol("sym"))
+            .append("javaScriptWithScope", new BsonJavaScriptWithScope("function() { return x; }", new BsonDocument("x", new BsonInt32(1))))
+            .append("int32", new BsonInt32(-42))
+            .append("timestamp", new BsonTimestamp(12, 34))
+            .append("int64", new BsonInt64(Long.MAX_VALUE))
+            .append("decimal128", new BsonDecimal128(Decimal128.parse("12345.6789")))
+            .append("minKey", new BsonMinKey())
+            .append("maxKey", new BsonMaxKey());
+    }
+
+    private static RawBsonDocument raw(BsonDocument document) {
+        return new RawBsonDocument(document, new BsonDocumentCodec());
+    }
+
+    private DBDecoderBsonParser baselineParser(BsonDocument document) {
+        DBDecoderBsonParser.Pool pool = new DBDecoderBsonParser.Pool(objectMapper, UuidRepresentation.STANDARD);
+        return pool.acquireAndLinkPooled().rebind(new BsonDocumentReader(document));
+    }
+
+    private BsonBytesParser bytesParser(BsonDocument document) {
+        BsonBytesParser.Pool pool = new BsonBytesParser.Pool(objectMapper, UuidRepresentation.STANDARD, new FieldNameCanonicalizer(true));
+        BsonBinaryReader reader = new BsonBinaryReader(ByteBuffer.wrap(raw(document).getByteBuffer().array()));
+        assertThat(BsonBytesParser.canRead(reader)).isTrue();
+        return pool.acquireAndLinkPooled().rebind(reader);
+    }
+
+    @Test
+    public void testTokensAndValuesMatchBaselineForEveryType() throws IOException {
+        BsonDocument document = everyType();
+        JsonParser expected = baselineParser(document);
+        JsonParser actual = bytesParser(document);
+
+        int tokens = 0;
+        JsonToken token;
+        do {
+            token = expected.nextToken();
+            assertThat(actual.nextToken()).as("token %d", tokens).isEqualTo(token);
+            if (token != null) {
+                assertSameValue(expected, actual, token);
+            }
+            tokens++;
+        } while (token != null);
+        assertThat(tokens).isGreaterThan(document.size() * 2);
+    }
+
+    private static void assertSameValue(JsonParser expected, JsonParser actual, JsonToken token) throws IOException {
+        String description = token + " at " + expected.getParsingContext().getCurrentName();
+        assertThat(actual.getText()).as(description).isEqualTo(expected.getText());
+        if (token == JsonToken.FIELD_NAME) {
+            assertThat(actual.getCurrentName()).as(description).isEqualTo(expected.getCurrentName());
+        }
+        if (token.isNumeric()) {
+            assertThat(actual.getNumberType()).as(description).isEqualTo(expected.getNumberType());
+            assertThat(actual.getNumberValue()).as(description).isEqualTo(expected.getNumberValue());
+            assertThat(actual.getIntValue()).as(description).isEqualTo(expected.getIntValue());
+            assertThat(actual.getLongValue()).as(description).isEqualTo(expected.getLongValue());
+            // boxed, so that NaN equals NaN
+            assertThat(Double.valueOf(actual.getDoubleValue())).as(description).isEqualTo(Double.valueOf(expected.getDoubleValue()));
+            assertThat(actual.isNaN()).as(description).isEqualTo(expected.isNaN());
+            if (!expected.isNaN()) {
+                assertThat(actual.getDecimalValue()).as(description).isEqualTo(expected.getDecimalValue());
+            }
+        }
+        if (token.isScalarValue()) {
+            Object expectedValue = expected.getEmbeddedObject();
+            Object actualValue = actual.getEmbeddedObject();
+            if (expectedValue instanceof Pattern) {
+                // Pattern doesn't implement equals
+                assertThat(actualValue).as(description).isInstanceOf(Pattern.class);
+                assertThat(((Pattern) actualValue).pattern()).isEqualTo(((Pattern) expectedValue).pattern());
+                assertThat(((Pattern) actualValue).flags()).isEqualTo(((Pattern) expectedValue).flags());
+            } else {
+                assertThat(actualValue).as(description).isEqualTo(expectedValue);
+            }
+        }
+    }
+
+    @Test
+    public void testLeavesTheReaderPastTheDocument() {
+        BsonBytesParser.Pool pool = new BsonBytesParser.Pool(objectMapper, UuidRepresentation.STANDARD, new FieldNameCanonicalizer(true));
+
+        BsonBinaryReader whole = new BsonBinaryReader(ByteBuffer.wrap(raw(everyType()).getByteBuffer().array()));
+        pool.acquireAndLinkPooled().rebind(whole).releaseToPool();
+        assertThat(whole.getState()).isEqualTo(AbstractBsonReader.State.DONE);
+
+        BsonBinaryReader embedded = new BsonBinaryReader(ByteBuffer.wrap(
+            raw(new BsonDocument("a", everyType()).append("b", new BsonInt32(1))).getByteBuffer().array()));
+        embedded.readStartDocument();
+        assertThat(embedded.readBsonType()).isEqualTo(BsonType.DOCUMENT);
+        assertThat(embedded.readName()).isEqualTo("a");
+        pool.acquireAndLinkPooled().rebind(embedded).releaseToPool();
+        assertThat(embedded.readBsonType()).isEqualTo(BsonType.INT32);
+        assertThat(embedded.readName()).isEqualTo("b");
+        assertThat(embedded.readInt32()).isEqualTo(1);
+        embedded.readEndDocument();
+        assertThat(embedded.getState()).isEqualTo(AbstractBsonReader.State.DONE);
+    }
+
+    @Test
+    public void testBooleanText() throws IOException {
+        JsonParser parser = bytesParser(new BsonDocument("t", BsonBoolean.TRUE).append("f", BsonBoolean.FALSE));
+        assertThat(parser.nextToken()).isEqualTo(JsonToken.START_OBJECT);
+        assertThat(parser.nextToken()).isEqualTo(JsonToken.FIELD_NAME);
+        assertThat(parser.nextToken()).isEqualTo(JsonToken.VALUE_TRUE);
+        assertThat(parser.getText()).isEqualTo("true");
+        assertThat(parser.getValueAsString()).isEqualTo("true");
+        assertThat(parser.getEmbeddedObject()).isEqualTo(Boolean.TRUE);
+        assertThat(parser.nextToken()).isEqualTo(JsonToken.FIELD_NAME);
+        assertThat(parser.nextToken()).isEqualTo(JsonToken.VALUE_FALSE);
+        assertThat(parser.getText()).isEqualTo("false");
+        assertThat(parser.getValueAsString()).isEqualTo("false");
+    }
+
+    @Test
+    public void testDecodedValuesMatchBaseline() {
+        BsonDocument document = new BsonDocument()
+            .append("asString", BsonBoolean.TRUE)
+            .append("falseAsString", BsonBoolean.FALSE)
+            .append("intAsString", new BsonInt32(7))
+            .append("doubleAsString", new BsonDouble(2.25))
+            .append("values", new BsonDocument("i", new BsonInt32(1))
+                .append("l", new BsonInt64(2))
+                .append("d", new BsonDouble(3.5))
+                .append("s", new BsonString("four"))
+                .append("b", BsonBoolean.FALSE)
+                .append("n", BsonNull.VALUE)
+                .append("dec", new BsonDecimal128(Decimal128.parse("5.5")))
+                .append("a", new BsonArray(Arrays.asList(new BsonInt32(6), new BsonString("seven")))));
+        JacksonDecoder<Coercions> decoder = new JacksonDecoder<>(Coercions.class, null, objectMapper, UuidRepresentation.STANDARD);
+
+        Coercions expected = decoder.decode(new BsonDocumentReader(document), DecoderContext.builder().build());
+        Coercions actual = decoder.decode(
+            new BsonBinaryReader(ByteBuffer.wrap(raw(document).getByteBuffer().array())),
+            DecoderContext.builder().build()
+        );
+
+        assertThat(expected.asString).isEqualTo("true");
+        assertThat(actual.asString).isEqualTo("true");
+        assertThat(actual.falseAsString).isEqualTo("false");
+        assertThat(actual.intAsString).isEqualTo(expected.intAsString).isEqualTo("7");
+        assertThat(actual.doubleAsString).isEqualTo(expected.doubleAsString).isEqualTo("2.25");
+        assertThat(actual.values).isEqualTo(expected.values);
+        assertThat(actual.values.get("dec")).isEqualTo(new BigDecimal("5.5"));
+    }
+
+    public static class Coercions {
+        public String asString;
+        public String falseAsString;
+        public String intAsString;
+        public String doubleAsString;
+        public Map<String, Object> values;
+    }
+
+}
@@ -0,0 +1,170 @@
+/*
+ * Copyright 2011 VZ Netzwerke Ltd
+ * Copyright 2014 devbliss GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mongojack.internal.stream;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.bson.BsonBinaryWriter;
+import org.bson.BsonSerializationException;
+import org.bson.RawBsonDocument;
+import org.bson.UuidRepresentation;
+import org.bson.codecs.EncoderContext;
+import org.bson.io.BasicOutputBuffer;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Test;
+import org.mongojack.ObjectMapperConfigurer;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Checks that {@link BsonOutputGenerator} writes the very same bytes as {@link DBEncoderBsonGenerator} does through
+ * the writer.
+ */
+public class TestBsonOutputGenerator {
+
+    private final ObjectMapper objectMapper = ObjectMapperConfigurer.configureObjectMapper(new ObjectMapper());
+
+    private static Everything everything() {
+        Everything value = new Everything();
+        value.string = "héllo ✓";
+        value.character = 'c';
+        value.bool = true;
+        value.aByte = 1;
+        value.aShort = 2;
+        value.anInt = Integer.MIN_VALUE;
+        value.aLong = Long.MAX_VALUE;
+        value.aFloat = 1.25f;
+        value.aDouble = Double.NaN;
+        value.bigInteger = BigInteger.valueOf(Long.MAX_VALUE).add(BigInteger.ONE);
+        value.bigDecimal = new BigDecimal("12345.6789");
+        value.date = new Date(1_700_000_000_000L);
+        value.calendar = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+        value.calendar.setTimeInMillis(1_600_000_000_000L);
+        value.objectId = new ObjectId();
+        value.uuid = UUID.randomUUID();
+        value.bytes = new byte[]{1, 2, 3};
+        value.ints = new int[]{4, 5, 6};
+        value.emptyList = Collections.emptyList();
+        value.emptyMap = Collections.emptyMap();
+        value.mixed = Arrays.asList("a", 1, 2L, 3.5, true, null, Collections.singletonMap("ü", "v"), Arrays.asList(7, 8));
+        value.map = new LinkedHashMap<>();
+        value.map.put("ünicode", "key");
+        value.map.put("", "empty key");
+        value.map.put("nested", Collections.singletonMap("deeper", Collections.singletonList(new Date(0))));
+        // past the cached array index names
+        value.longList = new ArrayList<>();
+        for (int i = 0; i < 1100; i++) {
+            value.longList.add(i);
+        }
+        // past the initial capacity of the container stack
+        Map<String, Object> deep = new LinkedHashMap<>();
+        Map<String, Object> current = deep;
+        for (int i = 0; i < 40; i++) {
+            Map<String, Object> next = new LinkedHashMap<>();
+            current.put("level" + i, next);
+            current = next;
+        }
+        current.put("bottom", "reached");
+        value.deep = deep;
+        return value;
+    }
+
+    private byte[] writeThroughWriter(final Object value) throws IOException {
+        BasicOutputBuffer buffer = new BasicOutputBuffer();
+        objectMapper.writeValue(new DBEncoderBsonGenerator(new BsonBinaryWriter(buffer), UuidRepresentation.STANDARD), value);
+        return buffer.toByteArray();
+    }
+
+    private byte[] writeToOutput(final Object value) throws IOException {
+        BasicOutputBuffer buffer = new BasicOutputBuffer();
+        objectMapper.writeValue(new BsonOutputGenerator(new BsonBinaryWriter(buffer), UuidRepresentation.STANDARD), value);
+        return buffer.toByteArray();
+    }
+
+    @Test
+    public void testWritesTheSameBytesAsTheWriter() throws IOException {
+        Everything value = everything();
+        // at the top level, which goes through the writer, and nested, which is written to the output directly
+        value.child = everything();
+        value.children = Arrays.asList(everything(), new Everything());
+
+        byte[] expected = writeThroughWriter(value);
+        assertThat(writeToOutput(value)).isEqualTo(expected);
+
+        BasicOutputBuffer buffer = new BasicOutputBuffer();
+        new JacksonEncoder<>(Everything.class, null, objectMapper, UuidRepresentation.STANDARD)
+            .encode(new BsonBinaryWriter(buffer), value, EncoderContext.builder().build());
+        assertThat(buffer.toByteArray()).isEqualTo(expected);
+        assertThat(new RawBsonDocument(expected).getDocument("child").getString("string").getValue()).isEqualTo("héllo ✓");
+    }
+
+    @Test
+    public void testRejectsNullCharactersInNamesLikeTheWriter() {
+        Map<String, Object> value = Collections.singletonMap("top", Collections.singletonMap("bad\0name", 1));
+
+        assertThatThrownBy(() -> writeThroughWriter(value)).hasRootCauseInstanceOf(BsonSerializationException.class);
+        assertThatThrownBy(() -> writeToOutput(value)).hasRootCauseInstanceOf(BsonSerializationException.class);
+
+        Everything bean = new Everything();
+        bean.child = new Everything();
+        bean.child.map = Collections.singletonMap("bad\0name", 1);
+        assertThatThrownBy(() -> writeToOutput(bean)).hasRootCauseInstanceOf(BsonSerializationException.class);
+    }
+
+    public static class Everything {
+        public String string;
+        public char character;
+        public boolean bool;
+        public byte aByte;
+        public short aShort;
+        public int anInt;
+        public long aLong;
+        public float aFloat;
+        public double aDouble;
+        public BigInteger bigInteger;
+        public BigDecimal bigDecimal;
+        public Integer nothing;
+        public Date date;
+        public Calendar calendar;
+        public ObjectId objectId;
+        public UUID uuid;
+        public byte[] bytes;
+        public int[] ints;
+        public List<Object> emptyList;
+        public Map<String, Object> emptyMap;
+        public List<Object> mixed;
+        public Map<String, Object> map;
+        public List<Integer> longList;
+        public Map<String, Object> deep;
+        public Everything child;
+        public List<Everything> children;
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright 2011 VZ Netzwerke Ltd
+ * Copyright 2014 devbliss GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mongojack.internal.stream;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.bson.BsonBinaryReader;
+import org.bson.BsonDocument;
+import org.bson.BsonInt32;
+import org.bson.RawBsonDocument;
+import org.bson.UuidRepresentation;
+import org.bson.codecs.BsonDocumentCodec;
+import org.bson.codecs.DecoderContext;
+import org.junit.jupiter.api.Test;
+import org.mongojack.ObjectMapperConfigurer;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TestFieldNameCanonicalizer {
+
+    private static String canonicalize(final FieldNameCanonicalizer canonicalizer, final String name) {
+        // surrounded by other bytes, as names are in a document
+        byte[] bytes = ("xx" + name + "\0yy").getBytes(StandardCharsets.UTF_8);
+        return canonicalizer.canonicalize(bytes, 2, name.getBytes(StandardCharsets.UTF_8).length);
+    }
+
+    @Test
+    public void testReturnsTheSameInstanceForTheSameName() {
+        FieldNameCanonicalizer canonicalizer = new FieldNameCanonicalizer(false);
+        String first = canonicalize(canonicalizer, "name");
+        String second = canonicalize(canonicalizer, "name");
+
+        assertThat(first).isEqualTo("name").isSameAs(second);
+        assertThat(canonicalize(canonicalizer, "")).isEmpty();
+        assertThat(canonicalize(canonicalizer, "näme")).isEqualTo("näme").isSameAs(canonicalize(canonicalizer, "näme"));
+        assertThat(canonicalize(canonicalizer, "nam")).isEqualTo("nam");
+    }
+
+    @Test
+    public void testInternsWhenAsked() {
+        assertThat(canonicalize(new FieldNameCanonicalizer(true), new String("interned"))).isSameAs("interned");
+        assertThat(canonicalize(new FieldNameCanonicalizer(false), new String("notInterned"))).isNotSameAs("notInterned");
+    }
+
+    @Test
+    public void testDecodesNamesItDoesNotCache() {
+        FieldNameCanonicalizer canonicalizer = new FieldNameCanonicalizer(false);
+        StringBuilder longName = new StringBuilder();
+        for (int i = 0; i <= FieldNameCanonicalizer.MAX_NAME_LENGTH; i++) {
+            longName.append('l');
+        }
+        String first = canonicalize(canonicalizer, longName.toString());
+        assertThat(first).isEqualTo(longName.toString());
+        assertThat(canonicalize(canonicalizer, longName.toString())).isEqualTo(first).isNotSameAs(first);
+
+        // many more names than the table holds still decode to the right name
+        Map<String, String> canonical = new HashMap<>();
+        for (int i = 0; i < 10_000; i++) {
+            String name = "field" + i;
+            canonical.put(name, canonicalize(canonicalizer, name));
+        }
+        for (int i = 0; i < 10_000; i++) {
+            String name = "field" + i;
+            assertThat(canonicalize(canonicalizer, name)).isEqualTo(name).isEqualTo(canonical.get(name));
+        }
+    }
+
+    @Test
+    public void testDecodedDocumentsShareTheirNames() {
+        ObjectMapper objectMapper = ObjectMapperConfigurer.configureObjectMapper(new ObjectMapper());
+        JacksonDecoder<Map> decoder = new JacksonDecoder<>(Map.class, null, objectMapper, UuidRepresentation.STANDARD);
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            RawBsonDocument raw = new RawBsonDocument(
+                new BsonDocument("someField", new BsonInt32(i)).append("ünicode", new BsonInt32(i)),
+                new BsonDocumentCodec()
+            );
+            Map<?, ?> decoded = (Map<?, ?>) decoder.decode(
+                new BsonBinaryReader(ByteBuffer.wrap(raw.getByteBuffer().array(), 0, raw.getByteBuffer().remaining())),
+                DecoderContext.builder().build()
+            );
+            assertThat(decoded.get("someField")).isEqualTo(i);
+            assertThat(decoded.get("ünicode")).isEqualTo(i);
+            for (Object name : decoded.keySet()) {
+                names.add((String) name);
+            }
+        }
+        assertThat(names.get(2)).isSameAs(names.get(0));
+        assertThat(names.get(3)).isSameAs(names.get(1));
+    }
+}
@@ -0,0 +1,185 @@
+/*
+ * Copyright 2011 VZ Netzwerke Ltd
+ * Copyright 2014 devbliss GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mongojack.internal.stream;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.bson.BsonBinaryReader;
+import org.bson.BsonDecimal128;
+import org.bson.BsonDocument;
+import org.bson.BsonDocumentReader;
+import org.bson.BsonDouble;
+import org.bson.BsonInt32;
+import org.bson.BsonInt64;
+import org.bson.BsonValue;
+import org.bson.RawBsonDocument;
+import org.bson.UuidRepresentation;
+import org.bson.codecs.BsonDocumentCodec;
+import org.bson.codecs.DecoderContext;
+import org.bson.types.Decimal128;
+import org.junit.jupiter.api.Test;
+import org.mongojack.ObjectMapperConfigurer;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks that the unboxed numbers of {@link JsonParserAdapter} read the same as the boxed values they replace.
+ */
+public class TestJsonParserAdapterNumbers {
+
+    private static final Number[] VALUES = {
+        Integer.MAX_VALUE, Integer.MIN_VALUE, 0, -7,
+        Long.MAX_VALUE, Long.MIN_VALUE, 1L << 40, 5L,
+        1.5, -0.0, 1e300, -2.75, 3.0,
+        Double.POSITIVE_INFINITY, Double.NaN,
+        new BigDecimal("12.345")
+    };
+
+    private final ObjectMapper objectMapper = ObjectMapperConfigurer.configureObjectMapper(new ObjectMapper());
+
+    private static BsonValue toBson(final Number value) {
+        if (value instanceof Integer) {
+            return new BsonInt32(value.intValue());
+        } else if (value instanceof Long) {
+            return new BsonInt64(value.longValue());
+        } else if (value instanceof Double) {
+            return new BsonDouble(value.doubleValue());
+        }
+        return new BsonDecimal128(new Decimal128((BigDecimal) value));
+    }
+
+    private static JsonParser.NumberType numberType(final Number value) {
+        if (value instanceof Integer) {
+            return JsonParser.NumberType.INT;
+        } else if (value instanceof Long) {
+            return JsonParser.NumberType.LONG;
+        } else if (value instanceof Double) {
+            return JsonParser.NumberType.DOUBLE;
+        }
+        return JsonParser.NumberType.BIG_DECIMAL;
+    }
+
+    @Test
+    public void testNumbersReadAsTheirBoxedValues() throws IOException {
+        BsonDocument document = new BsonDocument();
+        for (int i = 0; i < VALUES.length; i++) {
+            document.append("v" + i, toBson(VALUES[i]));
+        }
+        DBDecoderBsonParser parser = new DBDecoderBsonParser.Pool(objectMapper, UuidRepresentation.STANDARD)
+            .acquireAndLinkPooled()
+            .rebind(new BsonDocumentReader(document));
+
+        assertThat(parser.nextToken()).isEqualTo(JsonToken.START_OBJECT);
+        for (Number expected : VALUES) {
+            assertThat(parser.nextToken()).isEqualTo(JsonToken.FIELD_NAME);
+            assertThat(parser.nextToken()).isIn(JsonToken.VALUE_NUMBER_INT, JsonToken.VALUE_NUMBER_FLOAT);
+
+            assertThat(parser.getNumberType()).as("type of %s", expected).isEqualTo(numberType(expected));
+            assertThat(parser.getNumberValue()).as("value of %s", expected)
+                .isInstanceOf(expected.getClass())
+                .isEqualTo(expected);
+            assertThat(parser.getIntValue()).as("int of %s", expected).isEqualTo(expected.intValue());
+            assertThat(parser.getLongValue()).as("long of %s", expected).isEqualTo(expected.longValue());
+            // boxed, so that NaN equals NaN
+            assertThat(Float.valueOf(parser.getFloatValue())).as("float of %s", expected).isEqualTo(Float.valueOf(expected.floatValue()));
+            assertThat(Double.valueOf(parser.getDoubleValue())).as("double of %s", expected).isEqualTo(Double.valueOf(expected.doubleValue()));
+            assertThat(parser.getText()).as("text of %s", expected).isEqualTo(expected.toString());
+            boolean notFinite = expected instanceof Double && !Double.isFinite(expected.doubleValue());
+            assertThat(parser.isNaN()).as("NaN of %s", expected).isEqualTo(notFinite);
+            if (!notFinite) {
+                assertThat(parser.getDecimalValue()).as("decimal of %s", expected).isEqualTo(decimal(expected));
+            }
+            if (!notFinite && !(expected instanceof BigDecimal)) {
+                assertThat(parser.getBigIntegerValue()).as("big integer of %s", expected).isEqualTo(decimal(expected).toBigInteger());
+            }
+        }
+        assertThat(parser.nextToken()).isEqualTo(JsonToken.END_OBJECT);
+    }
+
+    private static BigDecimal decimal(final Number value) {
+        if (value instanceof BigDecimal) {
+            return (BigDecimal) value;
+        } else if (value instanceof Double) {
+            return BigDecimal.valueOf(value.doubleValue());
+        }
+        return BigDecimal.valueOf(value.longValue());
+    }
+
+    @Test
+    public void testNumbersBindAlikeFromReadersAndBytes() {
+        BsonDocument document = new BsonDocument()
+            .append("anInt", new BsonInt32(1))
+            .append("aLong", new BsonInt32(2))
+            .append("aDouble", new BsonInt64(3))
+            .append("aFloat", new BsonDouble(4.5))
+            .append("anIntFromDouble", new BsonDouble(5.0))
+            .append("boxedInt", new BsonInt32(6))
+            .append("boxedLong", new BsonInt64(7))
+            .append("boxedDouble", new BsonDouble(8.25))
+            .append("number", new BsonInt64(9))
+            .append("object", new BsonInt32(10))
+            .append("text", new BsonDouble(11.5))
+            .append("bigInteger", new BsonInt64(Long.MAX_VALUE))
+            .append("bigDecimal", new BsonDecimal128(Decimal128.parse("13.125")));
+        JacksonDecoder<Numbers> decoder = new JacksonDecoder<>(Numbers.class, null, objectMapper, UuidRepresentation.STANDARD);
+        RawBsonDocument raw = new RawBsonDocument(document, new BsonDocumentCodec());
+
+        Numbers fromReader = decoder.decode(new BsonDocumentReader(document), DecoderContext.builder().build());
+        Numbers fromBytes = decoder.decode(
+            new BsonBinaryReader(ByteBuffer.wrap(raw.getByteBuffer().array(), 0, raw.getByteBuffer().remaining())),
+            DecoderContext.builder().build()
+        );
+
+        for (Numbers numbers : new Numbers[]{fromReader, fromBytes}) {
+            assertThat(numbers.anInt).isEqualTo(1);
+            assertThat(numbers.aLong).isEqualTo(2L);
+            assertThat(numbers.aDouble).isEqualTo(3.0);
+            assertThat(numbers.aFloat).isEqualTo(4.5f);
+            assertThat(numbers.anIntFromDouble).isEqualTo(5);
+            assertThat(numbers.boxedInt).isEqualTo(6);
+            assertThat(numbers.boxedLong).isEqualTo(7L);
+            assertThat(numbers.boxedDouble).isEqualTo(8.25);
+            assertThat(numbers.number).isEqualTo(9L);
+            assertThat(numbers.object).isEqualTo(10);
+            assertThat(numbers.text).isEqualTo("11.5");
+            assertThat(numbers.bigInteger).isEqualTo(BigInteger.valueOf(Long.MAX_VALUE));
+            assertThat(numbers.bigDecimal).isEqualTo(new BigDecimal("13.125"));
+        }
+    }
+
+    public static class Numbers {
+        public int anInt;
+        public long aLong;
+        public double aDouble;
+        public float aFloat;
+        public int anIntFromDouble;
+        public Integer boxedInt;
+        public Long boxedLong;
+        public Double boxedDouble;
+        public Number number;
+        public Object object;
+        public String text;
+        public BigInteger bigInteger;
+        public BigDecimal bigDecimal;
+    }
+}
@@ -0,0 +1,178 @@
+/*
+ * Copyright 2011 VZ Netzwerke Ltd
+ * Copyright 2014 devbliss GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mongojack.internal.stream;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.bson.BsonBinaryReader;
+import org.bson.BsonBinaryWriter;
+import org.bson.BsonDocument;
+import org.bson.BsonDocumentReader;
+import org.bson.BsonDocumentWriter;
+import org.bson.BsonInt32;
+import org.bson.BsonString;
+import org.bson.RawBsonDocument;
+import org.bson.UuidRepresentation;
+import org.bson.codecs.BsonDocumentCodec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+import org.bson.io.BasicOutputBuffer;
+import org.junit.jupiter.api.Test;
+import org.mongojack.MongoJsonMappingException;
+import org.mongojack.ObjectMapperConfigurer;
+
+import java.nio.ByteBuffer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Checks that the pooled parsers and generators are reset between documents, including after a failure.
+ */
+public class TestPooledParsersAndGenerators {
+
+    private final ObjectMapper objectMapper = ObjectMapperConfigurer.configureObjectMapper(new ObjectMapper());
+
+    private static BsonDocument expected(final String name, final int count) {
+        return new BsonDocument("name", new BsonString(name))
+            .append("nested", new BsonDocument("count", new BsonInt32(count)).append("boom", new BsonString("fine")));
+    }
+
+    private static Pojo pojo(final String name, final int count, final boolean fail) {
+        Pojo pojo = new Pojo();
+        pojo.name = name;
+        pojo.nested = new Nested();
+        pojo.nested.count = count;
+        pojo.nested.fail = fail;
+        return pojo;
+    }
+
+    @Test
+    public void testPoolsHandBackReleasedInstances() {
+        DBDecoderBsonParser.Pool parserPool = new DBDecoderBsonParser.Pool(objectMapper, UuidRepresentation.STANDARD);
+        DBDecoderBsonParser parser = parserPool.acquireAndLinkPooled().rebind(new BsonDocumentReader(new BsonDocument()));
+        parser.releaseToPool();
+        assertThat(parser.reader).isNull();
+        assertThat(parserPool.acquireAndLinkPooled()).isSameAs(parser);
+
+        BsonBytesParser.Pool bytesParserPool =
+            new BsonBytesParser.Pool(objectMapper, UuidRepresentation.STANDARD, new FieldNameCanonicalizer(true));
+        BsonBytesParser bytesParser = bytesParserPool.acquireAndLinkPooled();
+        bytesParser.releaseToPool();
+        assertThat(bytesParserPool.acquireAndLinkPooled()).isSameAs(bytesParser);
+
+        DBEncoderBsonGenerator.Pool generatorPool = new DBEncoderBsonGenerator.Pool(UuidRepresentation.STANDARD);
+        DBEncoderBsonGenerator generator = generatorPool.acquireAndLinkPooled().rebind(new BsonDocumentWriter(new BsonDocument()));
+        generator.releaseToPool();
+        assertThat(generator.writer).isNull();
+        assertThat(generatorPool.acquireAndLinkPooled()).isSameAs(generator);
+
+        BsonOutputGenerator.Pool outputGeneratorPool = new BsonOutputGenerator.Pool(UuidRepresentation.STANDARD);
+        DBEncoderBsonGenerator outputGenerator =
+            outputGeneratorPool.acquireAndLinkPooled().rebind(new BsonBinaryWriter(new BasicOutputBuffer()));
+        outputGenerator.releaseToPool();
+        assertThat(outputGenerator.writer).isNull();
+        assertThat(outputGeneratorPool.acquireAndLinkPooled()).isSameAs(outputGenerator);
+    }
+
+    @Test
+    public void testGeneratorReleasedHalfwayThroughADocumentIsReset() throws Exception {
+        BsonOutputGenerator.Pool pool = new BsonOutputGenerator.Pool(UuidRepresentation.STANDARD);
+        DBEncoderBsonGenerator generator = pool.acquireAndLinkPooled().rebind(new BsonBinaryWriter(new BasicOutputBuffer()));
+        generator.writeStartObject();
+        generator.writeFieldName("left");
+        generator.writeStartObject();
+        generator.writeFieldName("open");
+        generator.releaseToPool();
+
+        DBEncoderBsonGenerator reused = pool.acquireAndLinkPooled();
+        assertThat(reused).isSameAs(generator);
+        BasicOutputBuffer buffer = new BasicOutputBuffer();
+        reused.rebind(new BsonBinaryWriter(buffer));
+        objectMapper.writeValue(reused, pojo("a", 1, false));
+        reused.releaseToPool();
+
+        assertThat(new RawBsonDocument(buffer.toByteArray())).isEqualTo(expected("a", 1));
+    }
+
+    @Test
+    public void testFailedEncodeLeavesTheNextDocumentIntact() {
+        JacksonEncoder<Pojo> encoder = new JacksonEncoder<>(Pojo.class, null, objectMapper, UuidRepresentation.STANDARD);
+
+        // fails inside the nested document, which the binary writer path writes to the output directly
+        Pojo failing = pojo("a", 1, true);
+        assertThatThrownBy(() -> encoder.encode(new BsonBinaryWriter(new BasicOutputBuffer()), failing, EncoderContext.builder().build()))
+            .isInstanceOf(MongoJsonMappingException.class);
+        assertThatThrownBy(() -> encoder.encode(new BsonDocumentWriter(new BsonDocument()), failing, EncoderContext.builder().build()))
+            .isInstanceOf(MongoJsonMappingException.class);
+
+        BasicOutputBuffer buffer = new BasicOutputBuffer();
+        encoder.encode(new BsonBinaryWriter(buffer), pojo("b", 2, false), EncoderContext.builder().build());
+        assertThat(new RawBsonDocument(buffer.toByteArray())).isEqualTo(expected("b", 2));
+        BsonDocument document = new BsonDocument();
+        encoder.encode(new BsonDocumentWriter(document), pojo("c", 3, false), EncoderContext.builder().build());
+        assertThat(document).isEqualTo(expected("c", 3));
+    }
+
+    @Test
+    public void testFailedDecodeLeavesTheNextDocumentIntact() {
+        JacksonDecoder<Pojo> decoder = new JacksonDecoder<>(Pojo.class, null, objectMapper, UuidRepresentation.STANDARD);
+        BsonDocument broken = new BsonDocument("name", new BsonString("a"))
+            .append("nested", new BsonDocument("count", new BsonString("not a number")));
+
+        assertThatThrownBy(() -> decoder.decode(new BsonDocumentReader(broken), DecoderContext.builder().build()))
+            .isInstanceOf(RuntimeException.class);
+        assertThatThrownBy(() -> decoder.decode(binaryReader(broken), DecoderContext.builder().build()))
+            .isInstanceOf(RuntimeException.class);
+
+        Pojo fromDocument = decoder.decode(new BsonDocumentReader(expected("b", 2)), DecoderContext.builder().build());
+        assertThat(fromDocument.name).isEqualTo("b");
+        assertThat(fromDocument.nested.count).isEqualTo(2);
+        Pojo fromBytes = decoder.decode(binaryReader(expected("c", 3)), DecoderContext.builder().build());
+        assertThat(fromBytes.name).isEqualTo("c");
+        assertThat(fromBytes.nested.count).isEqualTo(3);
+    }
+
+    private static BsonBinaryReader binaryReader(final BsonDocument document) {
+        RawBsonDocument raw = new RawBsonDocument(document, new BsonDocumentCodec());
+        return new BsonBinaryReader(ByteBuffer.wrap(raw.getByteBuffer().array(), 0, raw.getByteBuffer().remaining()));
+    }
+
+    @JsonPropertyOrder({"name", "nested"})
+    public static class Pojo {
+        public String name;
+        public Nested nested;
+    }
+
+    @JsonPropertyOrder({"count", "boom"})
+    public static class Nested {
+        public int count;
+        @JsonIgnore
+        public boolean fail;
+
+        public String getBoom() {
+            if (fail) {
+                throw new IllegalStateException("boom");
+            }
+            return "fine";
+        }
+
+        public void setBoom(final String boom) {
+        }
+    }
+}
@@ -0,0 +1,292 @@
+/*
+ * Copyright 2011 VZ Netzwerke Ltd
+ * Copyright 2014 devbliss GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mongojack.internal.util;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mongodb.Function;
+import com.mongodb.MongoClientSettings;
+import com.mongodb.ServerAddress;
+import com.mongodb.ServerCursor;
+import com.mongodb.client.FindIterable;
+import com.mongodb.client.MongoCursor;
+import com.mongodb.client.MongoIterable;
+import com.mongodb.client.model.Filters;
+import org.bson.BsonDocument;
+import org.bson.BsonInt32;
+import org.bson.BsonObjectId;
+import org.bson.RawBsonDocument;
+import org.bson.UuidRepresentation;
+import org.bson.codecs.BsonDocumentCodec;
+import org.bson.conversions.Bson;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Test;
+import org.mongojack.JacksonCodecRegistry;
+import org.mongojack.ObjectMapperConfigurer;
+import org.mongojack.SerializationOptions;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class TestParallelDecodingIterable {
+
+    private static final int FAILING = 3;
+
+    private static java.util.function.Function<RawBsonDocument, Integer> decoder(final AtomicInteger decodedCount) {
+        return document -> {
+            decodedCount.incrementAndGet();
+            int value = document.getInt32("value").getValue();
+            if (value == FAILING) {
+                throw new IllegalStateException("can't decode " + value);
+            }
+            return value;
+        };
+    }
+
+    @Test
+    public void testDecodesInOrder() {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            Documents documents = new Documents(0, 1, 2, 4, 5, 6, 7, 8, 9);
+            List<Integer> decoded = new ParallelDecodingIterable<>(documents, decoder(new AtomicInteger()), executor, true, 3)
+                .into(new ArrayList<>());
+
+            assertThat(decoded).containsExactly(0, 1, 2, 4, 5, 6, 7, 8, 9);
+            assertThat(documents.openCursors).hasValue(0);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testClosesTheCursorWhenDecodingFails() {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            for (boolean ordered : new boolean[]{true, false}) {
+                Documents documents = new Documents(0, 1, 2, FAILING, 4, 5);
+                ParallelDecodingIterable<Integer> iterable =
+                    new ParallelDecodingIterable<>(documents, decoder(new AtomicInteger()), executor, ordered, 2);
+
+                assertThatThrownBy(() -> iterable.into(new ArrayList<>())).hasMessage("can't decode 3");
+                assertThat(documents.openCursors).hasValue(0);
+                assertThatThrownBy(() -> iterable.forEach(value -> {
+                })).hasMessage("can't decode 3");
+                assertThat(documents.openCursors).hasValue(0);
+                assertThatThrownBy(() -> iterable.forEach(value -> {
+                    throw new IllegalArgumentException("consumer failed");
+                })).hasMessage("consumer failed");
+                assertThat(documents.openCursors).hasValue(0);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testFirstLeavesNoCursorOpen() {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            Documents documents = new Documents(FAILING, 1);
+            assertThatThrownBy(() -> new ParallelDecodingIterable<>(documents, decoder(new AtomicInteger()), executor, true, 2).first())
+                .hasMessage("can't decode 3");
+            assertThat(documents.openCursors).hasValue(0);
+
+            Documents empty = new Documents();
+            assertThat(new ParallelDecodingIterable<>(empty, decoder(new AtomicInteger()), executor, false, 2).first()).isNull();
+            assertThat(empty.openCursors).hasValue(0);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testCloseCancelsTheDocumentsNotDecodedYet() {
+        for (boolean ordered : new boolean[]{true, false}) {
+            // decodes the first document right away, and holds back the others until the cursor is closed
+            List<Runnable> heldBack = new ArrayList<>();
+            AtomicInteger submitted = new AtomicInteger();
+            Executor executor = task -> {
+                if (submitted.getAndIncrement() == 0) {
+                    task.run();
+                } else {
+                    heldBack.add(task);
+                }
+            };
+            AtomicInteger decodedCount = new AtomicInteger();
+            Documents documents = new Documents(0, 1, 2, 4, 5);
+
+            MongoCursor<Integer> cursor = new ParallelDecodingIterable<>(documents, decoder(decodedCount), executor, ordered, 5).iterator();
+            assertThat(cursor.next()).isEqualTo(0);
+            cursor.close();
+            heldBack.forEach(Runnable::run);
+
+            assertThat(heldBack).as("held back with ordered %s", ordered).hasSize(4);
+            assertThat(decodedCount).as("decoded with ordered %s", ordered).hasValue(1);
+            assertThat(documents.openCursors).hasValue(0);
+        }
+    }
+
+    @Test
+    public void testFilterChainedAfterAnOptionIsSerialized() {
+        ObjectMapper objectMapper = ObjectMapperConfigurer.configureObjectMapper(new ObjectMapper());
+        JacksonCodecRegistry codecRegistry = new JacksonCodecRegistry(
+            objectMapper, MongoClientSettings.getDefaultCodecRegistry(), UuidRepresentation.STANDARD
+        );
+        String id = new ObjectId().toHexString();
+        List<Bson> filters = new ArrayList<>();
+        FindIterableDecorator<WithObjectId> decorator = new FindIterableDecorator<>(
+            recordingFilters(filters),
+            objectMapper,
+            objectMapper.constructType(WithObjectId.class),
+            codecRegistry,
+            SerializationOptions.builder().build()
+        );
+
+        assertThat(decorator.filter(Filters.eq("_id", id))).isSameAs(decorator);
+        assertThat(decorator.limit(1).sort(Filters.eq("_id", 1)).filter(Filters.eq("_id", id))).isSameAs(decorator);
+
+        // the option methods used to return the driver's iterable, whose filter wasn't serialized
+        assertThat(filters).hasSize(2);
+        BsonDocument expected = new BsonDocument("_id", new BsonObjectId(new ObjectId(id)));
+        assertThat(filters.get(0).toBsonDocument(BsonDocument.class, codecRegistry)).isEqualTo(expected);
+        assertThat(filters.get(1).toBsonDocument(BsonDocument.class, codecRegistry)).isEqualTo(expected);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static FindIterable<WithObjectId> recordingFilters(final List<Bson> filters) {
+        return (FindIterable<WithObjectId>) Proxy.newProxyInstance(
+            FindIterable.class.getClassLoader(),
+            new Class<?>[]{FindIterable.class},
+            (proxy, method, args) -> {
+                if (method.getName().equals("filter")) {
+                    filters.add((Bson) args[0]);
+                }
+                return method.getReturnType().isInstance(proxy) ? proxy : null;
+            }
+        );
+    }
+
+    public static class WithObjectId {
+        @org.mongojack.ObjectId
+        public String _id;
+    }
+
+    /**
+     * Raw documents of the given values, counting the cursors left open.
+     */
+    private static final class Documents implements MongoIterable<RawBsonDocument> {
+        private final List<RawBsonDocument> documents = new ArrayList<>();
+        private final AtomicInteger openCursors = new AtomicInteger();
+
+        private Documents(final int... values) {
+            for (int value : values) {
+                documents.add(new RawBsonDocument(new BsonDocument("value", new BsonInt32(value)), new BsonDocumentCodec()));
+            }
+        }
+
+        @Override
+        public MongoCursor<RawBsonDocument> iterator() {
+            openCursors.incrementAndGet();
+            return new MongoCursor<RawBsonDocument>() {
+                private int position;
+                private boolean closed;
+
+                @Override
+                public void close() {
+                    if (!closed) {
+                        closed = true;
+                        openCursors.decrementAndGet();
+                    }
+                }
+
+                @Override
+                public boolean hasNext() {
+                    if (closed) {
+                        throw new IllegalStateException("Cursor has been closed");
+                    }
+                    return position < documents.size();
+                }
+
+                @Override
+                public RawBsonDocument next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    return documents.get(position++);
+                }
+
+                @Override
+                public int available() {
+                    return documents.size() - position;
+                }
+
+                @Override
+                public RawBsonDocument tryNext() {
+                    return hasNext() ? next() : null;
+                }
+
+                @Override
+                public ServerCursor getServerCursor() {
+                    return null;
+                }
+
+                @Override
+                public ServerAddress getServerAddress() {
+                    return null;
+                }
+            };
+        }
+
+        @Override
+        public MongoCursor<RawBsonDocument> cursor() {
+            return iterator();
+        }
+
+        @Override
+        public RawBsonDocument first() {
+            // like the driver, which closes the cursor it fetches the first document with
+            try (MongoCursor<RawBsonDocument> cursor = iterator()) {
+                return cursor.hasNext() ? cursor.next() : null;
+            }
+        }
+
+        @Override
+        public <U> MongoIterable<U> map(final Function<RawBsonDocument, U> mapper) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public <A extends Collection<? super RawBsonDocument>> A into(final A target) {
+            target.addAll(documents);
+            return target;
+        }
+
+        @Override
+        public MongoIterable<RawBsonDocument> batchSize(final int batchSize) {
+            return this;
+        }
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2011 VZ Netzwerke Ltd
+ * Copyright 2014 devbliss GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mongojack.internal.util;
+
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.ser.std.ToStringSerializer;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TestSerializerLookupCache {
+
+    private static final JsonSerializer<?> RESOLVED = new ToStringSerializer();
+
+    @Test
+    public void testHitsAndNoSerializer() {
+        SerializerLookupCache cache = new SerializerLookupCache();
+        JsonSerializer<?> root = new ToStringSerializer();
+
+        assertThat(cache.find(false, root, "a", false, () -> RESOLVED)).isSameAs(RESOLVED);
+        assertThat(cache.find(false, root, "a", false, () -> null)).isSameAs(RESOLVED);
+        assertThat(cache.find(false, root, "$gt", false, () -> null)).isNull();
+        assertThat(cache.find(false, root, "$gt", false, () -> RESOLVED)).isNull();
+        // the other flags make other paths
+        assertThat(cache.find(true, root, "a", false, () -> null)).isNull();
+        assertThat(cache.find(false, root, "a", true, () -> null)).isNull();
+
+        assertThat(cache.getHits()).isEqualTo(2);
+        assertThat(cache.getMisses()).isEqualTo(4);
+        assertThat(cache.size()).isEqualTo(4);
+    }
+
+    @Test
+    public void testEvictsOldestPathsOnceFull() {
+        SerializerLookupCache cache = new SerializerLookupCache(2);
+        JsonSerializer<?> root = new ToStringSerializer();
+
+        cache.find(false, root, "a", false, () -> RESOLVED);
+        cache.find(false, root, "b", false, () -> RESOLVED);
+        cache.find(false, root, "c", false, () -> RESOLVED);
+
+        assertThat(cache.size()).isEqualTo(2);
+        assertThat(cache.getEvictions()).isEqualTo(1);
+        // c and b are still cached, a has to be resolved again
+        cache.find(false, root, "c", false, () -> null);
+        cache.find(false, root, "b", false, () -> null);
+        assertThat(cache.getHits()).isEqualTo(2);
+        assertThat(cache.find(false, root, "a", false, () -> null)).isNull();
+        assertThat(cache.getMisses()).isEqualTo(4);
+        assertThat(cache.size()).isEqualTo(2);
+    }
+
+    @Test
+    public void testDoesNotHoldOnToSerializers() throws InterruptedException {
+        SerializerLookupCache cache = new SerializerLookupCache();
+        cache.find(false, new ToStringSerializer(), "a", false, () -> RESOLVED);
+        assertThat(cache.size()).isEqualTo(1);
+
+        for (int i = 0; i < 100 && cache.size() > 0; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertThat(cache.size()).isZero();
+    }
+
+}